@@ -0,0 +1,134 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.FakeS3Client;
+import org.jboss.sbomer.manifest.storage.service.benchmark.GeneratedInputStream;
+import org.jboss.sbomer.manifest.storage.service.core.service.StorageService;
+import org.jboss.sbomer.manifest.storage.service.core.service.StorageServiceFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Multipart uploads through StorageResource.handleUpload, from the files RESTEasy Reactive
+ * spooled to disk down to the S3 client. HTTP parsing is not part of the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class StorageResourceBenchmark {
+
+    // 1 KiB, 1 MiB, 10 MiB, 100 MiB, 500 MiB
+    @Param({ "1024", "1048576", "10485760", "104857600", "524288000" })
+    long size;
+
+    @Param({ "1", "10", "50" })
+    int batchSize;
+
+    Path file;
+    List<FileUpload> uploads;
+    StorageService service;
+    StorageResource resource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("storage-benchmark", ".json");
+        Files.copy(new GeneratedInputStream(size), file, StandardCopyOption.REPLACE_EXISTING);
+        uploads = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            uploads.add(new SpooledFileUpload("bom-" + i + ".json", file, size));
+        }
+        service = StorageServiceFixture.create(new FakeS3Client().adapter(), "none");
+        resource = new StorageResource();
+        resource.storageService = service;
+        resource.cacheControl = "public, no-cache";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        StorageServiceFixture.close(service);
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Response upload() {
+        return resource.uploadGeneration("gen-1", uploads);
+    }
+
+    /**
+     * A multipart file part as RESTEasy Reactive hands it to the resource, already written to a local file.
+     */
+    static class SpooledFileUpload implements FileUpload {
+
+        private final String fileName;
+        private final Path path;
+        private final long size;
+        private final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+
+        SpooledFileUpload(String fileName, Path path, long size) {
+            this.fileName = fileName;
+            this.path = path;
+            this.size = size;
+        }
+
+        @Override
+        public String name() {
+            return "files";
+        }
+
+        @Override
+        public Path filePath() {
+            return path;
+        }
+
+        @Override
+        public String fileName() {
+            return fileName;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public String contentType() {
+            return "application/json";
+        }
+
+        @Override
+        public String charSet() {
+            return null;
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.sbomer.manifest.storage.service.benchmark.GeneratedInputStream;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * In-process S3 client for benchmarks. Uploaded bodies are read to their end and discarded, only the size
+ * of each object is kept. Downloads generate content of the stored size, ranges are ignored.
+ * Every request can be delayed by a fixed latency, to simulate the round trip to a remote S3.
+ */
+public class FakeS3Client implements S3Client {
+
+    public static final String BUCKET = "benchmark";
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
+    private final Map<String, Long> objects = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> multipartUploads = new ConcurrentHashMap<>();
+    private final Instant lastModified = Instant.now();
+    private final Duration latency;
+
+    public FakeS3Client() {
+        this(Duration.ZERO);
+    }
+
+    public FakeS3Client(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Creates the storage adapter under benchmark on top of this client.
+     */
+    public ObjectStorage adapter() {
+        return new S3StorageAdapter(this, BUCKET);
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+        pause();
+        objects.put(request.key(), drain(body));
+        return PutObjectResponse.builder().eTag(etag(request.key())).build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        multipartUploads.put(uploadId, new AtomicLong());
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+        pause();
+        multipartUploads.get(request.uploadId()).addAndGet(drain(body));
+        return UploadPartResponse.builder().eTag("\"part-" + request.partNumber() + "\"").build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        objects.put(request.key(), multipartUploads.remove(request.uploadId()).get());
+        return CompleteMultipartUploadResponse.builder().eTag(etag(request.key())).build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        multipartUploads.remove(request.uploadId());
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        pause();
+        long size = size(request.key());
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentLength(size)
+                .contentType("application/json")
+                .eTag(etag(request.key()))
+                .lastModified(lastModified)
+                .build();
+        return new ResponseInputStream<>(response, AbortableInputStream.create(new GeneratedInputStream(size)));
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        pause();
+        return HeadObjectResponse.builder()
+                .contentLength(size(request.key()))
+                .contentType("application/json")
+                .eTag(etag(request.key()))
+                .lastModified(lastModified)
+                .build();
+    }
+
+    @Override
+    public CopyObjectResponse copyObject(CopyObjectRequest request) {
+        pause();
+        objects.put(request.destinationKey(), size(request.sourceKey()));
+        return CopyObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        objects.remove(request.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        objects.clear();
+        multipartUploads.clear();
+    }
+
+    private void pause() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.create("Interrupted while waiting for the simulated response", e);
+        }
+    }
+
+    private long size(String key) {
+        Long size = objects.get(key);
+        if (size == null) {
+            throw NoSuchKeyException.builder().message("The specified key does not exist: " + key).build();
+        }
+        return size;
+    }
+
+    private static String etag(String key) {
+        return "\"" + Integer.toHexString(key.hashCode()) + "\"";
+    }
+
+    /**
+     * Reads a request body like the HTTP client would, without keeping it.
+     */
+    private static long drain(RequestBody body) {
+        byte[] buffer = BUFFERS.get();
+        long total = 0;
+        try (InputStream in = body.contentStreamProvider().newStream()) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                total += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return total;
+    }
+}
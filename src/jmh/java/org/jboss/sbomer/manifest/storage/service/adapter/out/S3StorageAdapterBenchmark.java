@@ -0,0 +1,62 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.sbomer.manifest.storage.service.benchmark.GeneratedInputStream;
+import org.jboss.sbomer.manifest.storage.service.benchmark.ReadBuffer;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single file uploads and downloads through S3StorageAdapter, covering the single PUT (up to 16 MiB)
+ * and the multipart upload paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class S3StorageAdapterBenchmark {
+
+    private static final String KEY = "gen-1/bom.json";
+
+    // 1 KiB, 1 MiB, 10 MiB, 100 MiB, 500 MiB
+    @Param({ "1024", "1048576", "10485760", "104857600", "524288000" })
+    long size;
+
+    FakeS3Client client;
+    ObjectStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = new FakeS3Client();
+        storage = client.adapter();
+        storage.upload(KEY, new GeneratedInputStream(size), size, "application/json");
+    }
+
+    @Benchmark
+    public void upload() {
+        storage.upload(KEY, new GeneratedInputStream(size), size, "application/json");
+    }
+
+    @Benchmark
+    public long download(ReadBuffer buffer) throws IOException {
+        try (ObjectContent content = storage.download(KEY, null)) {
+            return buffer.drain(content.getContent());
+        }
+    }
+}
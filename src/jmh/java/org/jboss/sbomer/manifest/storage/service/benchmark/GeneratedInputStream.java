@@ -0,0 +1,62 @@
+package org.jboss.sbomer.manifest.storage.service.benchmark;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stream of a given number of bytes of SBOM-like JSON, generated while it is read.
+ * Large files never exist in memory, and reading them allocates nothing.
+ */
+public class GeneratedInputStream extends InputStream {
+
+    private static final byte[] PATTERN = ("{\"type\":\"library\",\"name\":\"commons-compress\",\"version\":\"1.27.1\","
+            + "\"purl\":\"pkg:maven/org.apache.commons/commons-compress@1.27.1?type=jar\"},\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final long size;
+    private long position;
+
+    public GeneratedInputStream(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public int read() {
+        if (position >= size) {
+            return -1;
+        }
+        return PATTERN[(int) (position++ % PATTERN.length)];
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        int n = (int) Math.min(len, size - position);
+        int written = 0;
+        while (written < n) {
+            int offset = (int) ((position + written) % PATTERN.length);
+            int chunk = Math.min(n - written, PATTERN.length - offset);
+            System.arraycopy(PATTERN, offset, b, off + written, chunk);
+            written += chunk;
+        }
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, size - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - position);
+    }
+}
@@ -0,0 +1,28 @@
+package org.jboss.sbomer.manifest.storage.service.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-thread buffer to read downloaded content with, so the benchmark itself does not allocate.
+ */
+@State(Scope.Thread)
+public class ReadBuffer {
+
+    private final byte[] bytes = new byte[64 * 1024];
+
+    /**
+     * Reads the stream to its end and returns the number of bytes read.
+     */
+    public long drain(InputStream in) throws IOException {
+        long total = 0;
+        int n;
+        while ((n = in.read(bytes)) >= 0) {
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,72 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.FakeS3Client;
+import org.jboss.sbomer.manifest.storage.service.benchmark.GeneratedInputStream;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batch uploads through StorageService.uploadBatch and S3StorageAdapter, across file and batch sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class StorageServiceBenchmark {
+
+    // 1 KiB, 1 MiB, 10 MiB, 100 MiB, 500 MiB
+    @Param({ "1024", "1048576", "10485760", "104857600", "524288000" })
+    long size;
+
+    @Param({ "1", "10", "50" })
+    int batchSize;
+
+    // "gzip" or "zstd" to measure compression at rest
+    @Param({ "none" })
+    String compression;
+
+    StorageService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = StorageServiceFixture.create(new FakeS3Client().adapter(), compression);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StorageServiceFixture.close(service);
+    }
+
+    @Benchmark
+    public List<StoredFile> uploadBatch() {
+        List<SbomFile> files = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            files.add(SbomFile.builder()
+                    .filename("bom-" + i + ".json")
+                    .contentType("application/json")
+                    .size(size)
+                    .source(() -> new GeneratedInputStream(size))
+                    .build());
+        }
+        return service.storeGenerationSboms("gen-1", files);
+    }
+}
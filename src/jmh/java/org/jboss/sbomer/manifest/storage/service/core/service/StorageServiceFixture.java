@@ -0,0 +1,58 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.util.concurrent.ExecutorService;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.index.MVStoreMetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Creates a StorageService outside of CDI, with the defaults of its configuration.
+ */
+public final class StorageServiceFixture {
+
+    private StorageServiceFixture() {}
+
+    /**
+     * @param objectStorage storage the files are uploaded to
+     * @param compressionCodec codec uploaded files are compressed with, "none" to store them as uploaded
+     */
+    public static StorageService create(ObjectStorage objectStorage, String compressionCodec) {
+        return create(objectStorage, compressionCodec, 32, null);
+    }
+
+    /**
+     * @param objectStorage storage the files are uploaded to
+     * @param compressionCodec codec uploaded files are compressed with, "none" to store them as uploaded
+     * @param maxConcurrency max number of files uploaded at the same time
+     * @param virtualThreadExecutor executor to upload files with instead of a thread pool, null for the thread pool
+     */
+    public static StorageService create(ObjectStorage objectStorage, String compressionCodec, int maxConcurrency,
+            ExecutorService virtualThreadExecutor) {
+        StorageService service = new StorageService();
+        service.objectStorage = objectStorage;
+        service.eventNotifier = batch -> {};
+        // disabled
+        service.metadataIndex = new MVStoreMetadataIndex();
+        service.meterRegistry = new SimpleMeterRegistry();
+        service.publicApiUrl = "http://localhost:8085";
+        service.batchConcurrency = 8;
+        service.maxConcurrency = maxConcurrency;
+        StorageExecutor executor = new StorageExecutor();
+        executor.virtualThreads = virtualThreadExecutor != null;
+        executor.virtualThreadExecutor = virtualThreadExecutor;
+        executor.uploadConcurrency = maxConcurrency;
+        executor.archiveConcurrency = 16;
+        executor.init();
+        service.storageExecutor = executor;
+        service.compressionCodec = compressionCodec;
+        service.compressionMinSize = 1024;
+        service.init();
+        return service;
+    }
+
+    public static void close(StorageService service) {
+        service.storageExecutor.shutdown();
+    }
+}
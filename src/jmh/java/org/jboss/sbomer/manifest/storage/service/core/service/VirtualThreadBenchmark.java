@@ -0,0 +1,129 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.FakeS3Client;
+import org.jboss.sbomer.manifest.storage.service.benchmark.GeneratedInputStream;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bursts of concurrent requests against an S3 with a fixed latency, served by a worker pool sized like the
+ * Quarkus default or by virtual threads. One operation serves every request of the burst.
+ * The virtual thread variant needs Java 21, pinned virtual threads are printed by the forked JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g", "-Djdk.tracePinnedThreads=short" })
+public class VirtualThreadBenchmark {
+
+    private static final String KEY = "gen-1/bom.json";
+
+    @Param({ "worker", "virtual" })
+    String threads;
+
+    // concurrent connections of a burst
+    @Param({ "1000", "4000" })
+    int connections;
+
+    @Param({ "20" })
+    long latencyMillis;
+
+    @Param({ "65536" })
+    long size;
+
+    ExecutorService requestExecutor;
+    StorageService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectStorage storage = new FakeS3Client(Duration.ofMillis(latencyMillis)).adapter();
+        storage.upload(KEY, new GeneratedInputStream(size), size, "application/json");
+        if ("virtual".equals(threads)) {
+            requestExecutor = newVirtualThreadPerTaskExecutor();
+            service = StorageServiceFixture.create(storage, "none", 256, requestExecutor);
+        } else {
+            // the default max size of the Quarkus worker pool
+            requestExecutor = Executors.newFixedThreadPool(Math.max(200, 8 * Runtime.getRuntime().availableProcessors()));
+            service = StorageServiceFixture.create(storage, "none", 256, null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StorageServiceFixture.close(service);
+        requestExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void downloads() {
+        burst(i -> {
+            try (ObjectContent content = service.getFileContent(KEY, null)) {
+                content.getContent().transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    public void uploads() {
+        burst(i -> service.storeGenerationSboms("gen-" + i, List.of(SbomFile.builder()
+                .filename("bom.json")
+                .contentType("application/json")
+                .size(size)
+                .source(() -> new GeneratedInputStream(size))
+                .build())));
+    }
+
+    private void burst(Request request) {
+        List<CompletableFuture<Void>> requests = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            int index = i;
+            requests.add(CompletableFuture.runAsync(() -> request.serve(index), requestExecutor));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Creates the virtual thread executor by reflection, as the sources are compiled for Java 17.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Request {
+        void serve(int index);
+    }
+}
@@ -0,0 +1,63 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ArchiveFormat;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ArchiveAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ArchiveAdministration.ArchiveWriter;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import lombok.extern.slf4j.Slf4j;
+
+@Path("/api/v1/storage")
+@Tag(name = "Archive", description = "Downloading every file of a generation as a single archive.")
+@Slf4j
+public class ArchiveResource {
+
+    @Inject
+    ArchiveAdministration archiveService;
+
+    @GET
+    @Path("/generations/{generationId}/archive")
+    @Produces({ "application/zip", "application/x-tar", "application/gzip" })
+    @Operation(summary = "Download Generation Archive", description = "Streams every file of a generation, including those of its enhancements, "
+            + "as a single archive. Entries are named after their storage key. Compressed files are decompressed.")
+    @APIResponse(responseCode = "200", description = "The archive, streamed while the files are fetched from storage.")
+    @APIResponse(responseCode = "400", description = "The archive format is not supported.")
+    @APIResponse(responseCode = "404", description = "Nothing is stored under the generation.")
+    public Response archive(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "Archive format: zip, tar or tar.gz") @QueryParam("format") @DefaultValue("zip") String formatName) {
+        ArchiveFormat format = ArchiveFormat.fromExtension(formatName);
+        if (format == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unsupported archive format: " + formatName).build();
+        }
+        try {
+            ArchiveWriter writer = archiveService.openGenerationArchive(genId, format);
+            if (writer == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            StreamingOutput output = writer::writeTo;
+            return Response.ok(output, format.getMediaType())
+                    .header("Content-Disposition", "attachment; filename=\"" + genId + "." + format.getExtension() + "\"")
+                    // The archive is assembled on the fly, it has no stable validators to revalidate against
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .build();
+        } catch (StorageException e) {
+            log.error("Archive failed for generation {}", genId, e);
+            return StorageErrors.status(e).build();
+        }
+    }
+}
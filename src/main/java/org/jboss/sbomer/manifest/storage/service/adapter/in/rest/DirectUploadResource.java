@@ -0,0 +1,163 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.PresignedUploadDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.UploadFileDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.UploadRequestDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.UploadSessionDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadRejectedException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StagedFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadRequest;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.DirectUploadAdministration;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uploads of large batches straight to storage: the client announces the files, uploads them to the presigned URLs
+ * it gets back, and commits the session to publish all files at once.
+ */
+@Path("/api/v1/storage")
+@Tag(name = "Direct Upload", description = "Uploading large SBOM batches directly to storage through presigned URLs.")
+@Slf4j
+public class DirectUploadResource {
+
+    // lists the committed files whose content was already stored
+    private static final String DEDUPLICATED = "SBOMer-Deduplicated";
+
+    @Inject
+    DirectUploadAdministration directUploadService;
+
+    @POST
+    @Path("/generations/{generationId}/uploads")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Start Generation Upload", description = "Starts an upload session of files associated with a specific Generation ID.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Session started. Returns the presigned URLs to upload each file to.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = UploadSessionDTO.class))
+    )
+    @APIResponse(responseCode = "400", description = "The announced files are invalid.")
+    public Response startGenerationUpload(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            UploadRequestDTO request) {
+        return handle(() -> Response.ok(toDTO(directUploadService.startGenerationUpload(genId, toDomain(request)))).build());
+    }
+
+    @POST
+    @Path("/generations/{generationId}/enhancements/{enhancementId}/uploads")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Start Enhancement Upload", description = "Starts an upload session of files associated with a specific Enhancement step.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Session started. Returns the presigned URLs to upload each file to.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = UploadSessionDTO.class))
+    )
+    @APIResponse(responseCode = "400", description = "The announced files are invalid.")
+    public Response startEnhancementUpload(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "The Enhancement ID", required = true) @PathParam("enhancementId") String enhId,
+            UploadRequestDTO request) {
+        return handle(() -> Response.ok(toDTO(directUploadService.startEnhancementUpload(genId, enhId, toDomain(request)))).build());
+    }
+
+    @POST
+    @Path("/uploads/{uploadId}/commit")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Commit Upload", description = "Verifies every uploaded file of the session against its announced size and checksum "
+            + "and publishes all of them. If any file fails, none is published and the commit can be retried.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Files published. Returns a map of Filename -> Permanent URL. "
+                    + "Files whose content was already stored are listed in the SBOMer-Deduplicated header.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+    )
+    @APIResponse(responseCode = "400", description = "An uploaded file does not match its announced size or checksum.")
+    @APIResponse(responseCode = "404", description = "The session or one of its files is not found.")
+    public Response commitUpload(
+            @Parameter(description = "The upload session ID", required = true) @PathParam("uploadId") String uploadId) {
+        return handle(() -> {
+            List<StoredFile> stored = directUploadService.commitUpload(uploadId);
+            Map<String, String> urls = new LinkedHashMap<>();
+            List<String> deduplicated = new ArrayList<>();
+            for (StoredFile file : stored) {
+                urls.put(file.getFilename(), file.getUrl());
+                if (file.isDeduplicated()) {
+                    deduplicated.add(file.getFilename());
+                }
+            }
+            Response.ResponseBuilder response = Response.ok(urls);
+            if (!deduplicated.isEmpty()) {
+                response.header(DEDUPLICATED, String.join(", ", deduplicated));
+            }
+            return response.build();
+        });
+    }
+
+    private static Response handle(Supplier<Response> action) {
+        try {
+            return action.get();
+        } catch (UploadRejectedException e) {
+            log.debug("Upload rejected: {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (StorageException e) {
+            log.error("Direct upload failed", e);
+            return StorageErrors.status(e).entity(e.getMessage()).build();
+        }
+    }
+
+    private static List<UploadRequest> toDomain(UploadRequestDTO request) {
+        if (request == null || request.files == null) {
+            return List.of();
+        }
+        List<UploadRequest> files = new ArrayList<>(request.files.size());
+        for (UploadFileDTO file : request.files) {
+            files.add(UploadRequest.builder()
+                    .filename(file.filename)
+                    .contentType(file.contentType)
+                    .size(file.size)
+                    .sha256(file.sha256)
+                    .build());
+        }
+        return files;
+    }
+
+    private static UploadSessionDTO toDTO(UploadSession session) {
+        UploadSessionDTO dto = new UploadSessionDTO();
+        dto.uploadId = session.getId();
+        dto.expiresAt = session.getExpiresAt();
+        dto.files = new ArrayList<>(session.getFiles().size());
+        for (StagedFile file : session.getFiles()) {
+            PresignedUploadDTO upload = new PresignedUploadDTO();
+            upload.filename = file.getFilename();
+            upload.partSize = file.getUpload().getPartSize();
+            upload.urls = file.getUpload().getUrls();
+            upload.headers = file.getUpload().getHeaders();
+            dto.files.add(upload);
+        }
+        return dto;
+    }
+}
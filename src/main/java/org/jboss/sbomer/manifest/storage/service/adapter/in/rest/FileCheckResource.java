@@ -0,0 +1,124 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.regex.Pattern;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.FileCheckDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.FileCheckRequestDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.FileCheckResponseDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.FileStatusDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileCheck;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileStatus;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.StorageAdministration;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lets clients find out in a single call which files of a batch are already stored, so a retried upload
+ * can skip the files that are unchanged.
+ */
+@Path("/api/v1/storage")
+@Tag(name = "Storage", description = "Operations for uploading SBOMs and retrieving permanent download links.")
+@Slf4j
+public class FileCheckResource {
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+
+    @Inject
+    StorageAdministration storageService;
+
+    // max number of files of a single check
+    @ConfigProperty(name = "sbomer.storage.exists.max-files", defaultValue = "1000")
+    int maxFiles;
+
+    @POST
+    @Path("/exists")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Check Files", description = "Tells for every file whether it is stored and, if its SHA-256 is sent, "
+            + "whether the stored content matches it. Files known to the metadata index are answered without a request to the storage, "
+            + "the others are looked up in parallel. A file whose checksum is not known is not reported as unchanged.")
+    @APIResponse(
+            responseCode = "200",
+            description = "The status of every file, in the order of the request.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = FileCheckResponseDTO.class))
+    )
+    @APIResponse(responseCode = "400", description = "No files, too many files, a file without a key or a malformed SHA-256.")
+    @APIResponse(responseCode = "503", description = "The storage is overloaded, retry after the time in the Retry-After header.")
+    @RunOnVirtualThread
+    public CompletionStage<Response> checkFiles(FileCheckRequestDTO request) {
+        if (request == null || request.files == null || request.files.isEmpty()) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST).entity("No files provided").build());
+        }
+        if (request.files.size() > maxFiles) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("At most " + maxFiles + " files can be checked at once")
+                    .build());
+        }
+        List<FileCheck> checks = new ArrayList<>(request.files.size());
+        for (FileCheckDTO file : request.files) {
+            if (file == null || file.key == null || file.key.isBlank()) {
+                return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Every file needs a key")
+                        .build());
+            }
+            if (file.sha256 != null && !SHA256.matcher(file.sha256).matches()) {
+                return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Malformed SHA-256 of file " + file.key)
+                        .build());
+            }
+            checks.add(FileCheck.builder()
+                    .storageKey(file.key)
+                    .sha256(file.sha256 != null ? file.sha256.toLowerCase(Locale.ROOT) : null)
+                    .build());
+        }
+        return storageService.checkFiles(checks)
+                .thenApply(statuses -> Response.ok(toDTO(statuses)).build())
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof StorageException storageException) {
+                        log.error("Checking {} files failed", checks.size(), storageException);
+                        return StorageErrors.status(storageException).build();
+                    }
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                });
+    }
+
+    private static FileCheckResponseDTO toDTO(List<FileStatus> statuses) {
+        FileCheckResponseDTO dto = new FileCheckResponseDTO();
+        dto.files = new ArrayList<>(statuses.size());
+        for (FileStatus status : statuses) {
+            FileStatusDTO file = new FileStatusDTO();
+            file.key = status.getStorageKey();
+            file.exists = status.isExists();
+            file.unchanged = status.isUnchanged();
+            file.size = status.getSize();
+            file.contentEncoding = status.getContentEncoding();
+            file.sha256 = status.getSha256();
+            file.etag = status.getEtag();
+            file.lastModified = status.getLastModified();
+            dto.files.add(file);
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,171 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.ObjectListingDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.StoredObjectDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ListingAdministration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listing of the files stored under a generation or an enhancement step. Clients either page through the listing
+ * with continuation tokens, or ask for NDJSON and get every file streamed page by page in a single response.
+ */
+@Path("/api/v1/storage")
+@Tag(name = "Listing", description = "Listing the files stored under a generation or an enhancement step.")
+@Slf4j
+public class ListingResource {
+
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    @Inject
+    ListingAdministration listingService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @FunctionalInterface
+    interface PageLoader {
+        ObjectListing load(String continuationToken, int limit);
+    }
+
+    @GET
+    @Path("/generations/{generationId}/objects")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "List Generation Files", description = "Lists a page of the files stored under a generation, including those of its enhancements.")
+    @APIResponse(
+            responseCode = "200",
+            description = "A page of files in key order, with the token to request the next page with.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ObjectListingDTO.class))
+    )
+    public Response listGeneration(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "Token of the next page, as returned with the previous page") @QueryParam("continuationToken") String continuationToken,
+            @Parameter(description = "Max number of files of the page, at most 1000") @QueryParam("limit") @DefaultValue("1000") int limit) {
+        return page((token, size) -> listingService.listGenerationFiles(genId, token, size), continuationToken, limit);
+    }
+
+    @GET
+    @Path("/generations/{generationId}/objects")
+    @Produces(APPLICATION_NDJSON)
+    @Operation(summary = "Stream Generation Files", description = "Streams every file stored under a generation as NDJSON, one file per line.")
+    public Response streamGeneration(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "Token to resume streaming from") @QueryParam("continuationToken") String continuationToken) {
+        return stream((token, size) -> listingService.listGenerationFiles(genId, token, size), continuationToken);
+    }
+
+    @GET
+    @Path("/generations/{generationId}/enhancements/{enhancementId}/objects")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "List Enhancement Files", description = "Lists a page of the files stored under a specific Enhancement step.")
+    @APIResponse(
+            responseCode = "200",
+            description = "A page of files in key order, with the token to request the next page with.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ObjectListingDTO.class))
+    )
+    public Response listEnhancement(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "The Enhancement ID", required = true) @PathParam("enhancementId") String enhId,
+            @Parameter(description = "Token of the next page, as returned with the previous page") @QueryParam("continuationToken") String continuationToken,
+            @Parameter(description = "Max number of files of the page, at most 1000") @QueryParam("limit") @DefaultValue("1000") int limit) {
+        return page((token, size) -> listingService.listEnhancementFiles(genId, enhId, token, size), continuationToken, limit);
+    }
+
+    @GET
+    @Path("/generations/{generationId}/enhancements/{enhancementId}/objects")
+    @Produces(APPLICATION_NDJSON)
+    @Operation(summary = "Stream Enhancement Files", description = "Streams every file stored under a specific Enhancement step as NDJSON, one file per line.")
+    public Response streamEnhancement(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "The Enhancement ID", required = true) @PathParam("enhancementId") String enhId,
+            @Parameter(description = "Token to resume streaming from") @QueryParam("continuationToken") String continuationToken) {
+        return stream((token, size) -> listingService.listEnhancementFiles(genId, enhId, token, size), continuationToken);
+    }
+
+    private static Response page(PageLoader loader, String continuationToken, int limit) {
+        if (limit < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("limit must be positive").build();
+        }
+        try {
+            ObjectListing listing = loader.load(continuationToken, limit);
+            ObjectListingDTO dto = new ObjectListingDTO();
+            dto.objects = new ArrayList<>(listing.getObjects().size());
+            listing.getObjects().forEach(object -> dto.objects.add(toDTO(object)));
+            dto.nextContinuationToken = listing.getNextContinuationToken();
+            return Response.ok(dto).build();
+        } catch (StorageException e) {
+            log.error("Listing failed", e);
+            return StorageErrors.status(e).build();
+        }
+    }
+
+    /**
+     * The first page is loaded before the response is committed, so a storage failure still gets its status.
+     * Every following page is loaded only once the previous one is written, which keeps memory flat.
+     */
+    private Response stream(PageLoader loader, String continuationToken) {
+        ObjectListing first;
+        try {
+            first = loader.load(continuationToken, Integer.MAX_VALUE);
+        } catch (StorageException e) {
+            log.error("Listing failed", e);
+            return StorageErrors.status(e).build();
+        }
+        ObjectWriter writer = objectMapper.writerFor(StoredObjectDTO.class);
+        StreamingOutput output = out -> {
+            ObjectListing listing = first;
+            while (true) {
+                writePage(writer, listing, out);
+                if (listing.getNextContinuationToken() == null) {
+                    break;
+                }
+                listing = loader.load(listing.getNextContinuationToken(), Integer.MAX_VALUE);
+            }
+        };
+        return Response.ok(output, APPLICATION_NDJSON).build();
+    }
+
+    private static void writePage(ObjectWriter writer, ObjectListing listing, OutputStream out) throws IOException {
+        for (ObjectMetadata object : listing.getObjects()) {
+            out.write(writer.writeValueAsBytes(toDTO(object)));
+            out.write('\n');
+        }
+        // Hand every page to the client before the next one is listed
+        out.flush();
+    }
+
+    private static StoredObjectDTO toDTO(ObjectMetadata object) {
+        StoredObjectDTO dto = new StoredObjectDTO();
+        dto.key = object.getKey();
+        dto.size = object.getSize();
+        dto.etag = object.getEtag();
+        dto.lastModified = object.getLastModified();
+        return dto;
+    }
+}
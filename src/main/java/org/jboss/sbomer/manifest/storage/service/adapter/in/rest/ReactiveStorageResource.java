@@ -0,0 +1,157 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.common.util.RestMulti;
+import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.MultipartUploadDTO;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ReactiveStorageAdministration;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Non-blocking variant of {@link StorageResource}, serving uploads and downloads on the event loop.
+ * Enabled at build time with {@code sbomer.storage.reactive.enabled=true}, replacing {@link StorageResource}.
+ */
+@Path("/api/v1/storage")
+@Tag(name = "Storage", description = "Operations for uploading SBOMs and retrieving permanent download links.")
+@IfBuildProperty(name = "sbomer.storage.reactive.enabled", stringValue = "true")
+@Slf4j
+public class ReactiveStorageResource {
+
+    @Inject
+    ReactiveStorageAdministration storageService;
+
+    @Inject
+    Vertx vertx;
+
+    @POST
+    @Path("/generations/{generationId}")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Upload Generation SBOMs", description = "Uploads one or more files associated with a specific Generation ID.")
+    @RequestBody(
+            description = "The files to upload",
+            content = @Content(
+                    mediaType = MediaType.MULTIPART_FORM_DATA,
+                    schema = @Schema(implementation = MultipartUploadDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Files uploaded successfully. Returns a map of Filename -> Permanent URL.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    example = "{\"bom.json\": \"https://host/api/v1/storage/content/gen-123/bom.json\"}"
+            )
+    )
+    public Uni<Response> uploadGeneration(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @RestForm("files") List<FileUpload> uploads) {
+        return handleUpload(uploads, (files) -> storageService.storeGenerationSboms(genId, files));
+    }
+
+    @POST
+    @Path("/generations/{generationId}/enhancements/{enhancementId}")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Upload Enhancement SBOMs", description = "Uploads one or more files associated with a specific Enhancement step.")
+    @RequestBody(
+            description = "The files to upload",
+            content = @Content(
+                    mediaType = MediaType.MULTIPART_FORM_DATA,
+                    schema = @Schema(implementation = MultipartUploadDTO.class)
+            )
+    )
+    @APIResponse(
+            responseCode = "200",
+            description = "Files uploaded successfully. Returns a map of Filename -> Permanent URL.",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+    )
+    public Uni<Response> uploadEnhancement(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
+            @Parameter(description = "The Enhancement ID", required = true) @PathParam("enhancementId") String enhId,
+            @RestForm("files") List<FileUpload> uploads) {
+        return handleUpload(uploads, (files) -> storageService.storeEnhancementSboms(genId, enhId, files));
+    }
+
+    @GET
+    @Path("/content/{path: .*}")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @Operation(summary = "Download File", description = "Streams the content of a stored file based on its storage key path.")
+    public Multi<byte[]> download(@PathParam("path") String path) {
+        String filename = path.substring(path.lastIndexOf('/') + 1);
+        return RestMulti.fromUniResponse(storageService.getFileContent(path),
+                content -> content.map(ReactiveStorageResource::toBytes),
+                content -> Map.of("Content-Disposition", List.of("attachment; filename=\"" + filename + "\"")));
+    }
+
+    @ServerExceptionMapper
+    public Response mapStorageException(StorageException e) {
+        log.error("Storage operation failed", e);
+        return StorageErrors.status(e).build();
+    }
+
+    @FunctionalInterface
+    interface UploadAction {
+        Uni<Map<String, String>> execute(List<SbomFile> files);
+    }
+
+    private Uni<Response> handleUpload(List<FileUpload> uploads, UploadAction action) {
+        if (uploads == null || uploads.isEmpty()) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).entity("No files provided").build());
+        }
+        List<SbomFile> domainFiles = new ArrayList<>();
+        for (FileUpload upload : uploads) {
+            domainFiles.add(SbomFile.builder()
+                    .filename(upload.fileName())
+                    .contentType(upload.contentType())
+                    .size(upload.size())
+                    .contentPublisher(readFile(upload))
+                    .build());
+        }
+        return action.execute(domainFiles).map(urls -> Response.ok(urls).build());
+    }
+
+    /**
+     * Reads a spooled upload without blocking. Every subscription re-opens the file,
+     * so the storage client can replay the body when it retries a request.
+     */
+    private Flow.Publisher<ByteBuffer> readFile(FileUpload upload) {
+        return Multi.createFrom().deferred(() -> vertx.fileSystem()
+                .open(upload.uploadedFile().toString(), new OpenOptions().setRead(true))
+                .onItem().transformToMulti(asyncFile -> asyncFile.toMulti()
+                        .onTermination().call(asyncFile::close))
+                .map(buffer -> ByteBuffer.wrap(buffer.getBytes())));
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,30 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.util.Map;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.CacheStats;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.CacheAdministration;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+@Path("/api/v1/storage/cache")
+@Tag(name = "Storage Cache", description = "Insight into the download caches.")
+public class StorageCacheResource {
+
+    @Inject
+    CacheAdministration cacheAdministration;
+
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Cache Statistics", description = "Returns hit, miss, eviction and bypass counts and the current size of the in-memory and the disk download cache.")
+    public Map<String, CacheStats> stats() {
+        return cacheAdministration.getStats();
+    }
+}
@@ -0,0 +1,48 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import java.time.Duration;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageOverloadedException;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Responses to failed storage operations, shared by the resources.
+ */
+final class StorageErrors {
+
+    private StorageErrors() {}
+
+    /**
+     * @return response with the status of the failure, and a Retry-After header if the operation was shed
+     */
+    static Response.ResponseBuilder status(StorageException e) {
+        if (e instanceof StorageOverloadedException overloaded) {
+            return unavailable(overloaded.getRetryAfter());
+        }
+        return Response.status(e.getStatus());
+    }
+
+    /**
+     * @return 503 response telling the client when to try again
+     */
+    static Response.ResponseBuilder unavailable(Duration retryAfter) {
+        // whole seconds, rounded up so the client never comes back too early
+        long seconds = (retryAfter.toMillis() + 999) / 1000;
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, Math.max(1, seconds));
+    }
+
+    /**
+     * @return the shed operation among the causes of a failure, e.g. of a batch upload, null if there is none
+     */
+    static StorageOverloadedException overloaded(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StorageOverloadedException overloaded) {
+                return overloaded;
+            }
+        }
+        return null;
+    }
+}
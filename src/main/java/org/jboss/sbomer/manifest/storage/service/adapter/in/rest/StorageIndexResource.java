@@ -0,0 +1,43 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.IndexAdministration;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+
+@Path("/api/v1/storage/index")
+@Tag(name = "Storage Index", description = "Maintenance of the local metadata index.")
+@Slf4j
+public class StorageIndexResource {
+
+    @Inject
+    IndexAdministration indexAdministration;
+
+    @POST
+    @Path("/generations/{generationId}/rebuild")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Rebuild Generation Index", description = "Replaces the metadata index entries of the files of a generation, "
+            + "including those of its enhancements, with their metadata in the storage, and removes the entries of files no longer stored. "
+            + "Returns the number of indexed files and removed entries.")
+    @RunOnVirtualThread
+    public Response rebuildGeneration(
+            @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId) {
+        try {
+            return Response.ok(indexAdministration.rebuildGeneration(genId)).build();
+        } catch (StorageException e) {
+            log.error("Rebuilding the metadata index of generation {} failed", genId, e);
+            return StorageErrors.status(e).build();
+        }
+    }
+}
@@ -1,10 +1,24 @@
 package org.jboss.sbomer.manifest.storage.service.adapter.in.rest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
@@ -12,27 +26,54 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.PathPart;
 import org.jboss.resteasy.reactive.RestForm;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto.MultipartUploadDTO;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageOverloadedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadCapacityExceededException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ContentCoding;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
 import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
 import org.jboss.sbomer.manifest.storage.service.core.port.api.StorageAdministration;
 
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 
 @Path("/api/v1/storage")
 @Tag(name = "Storage", description = "Operations for uploading SBOMs and retrieving permanent download links.")
+@UnlessBuildProperty(name = "sbomer.storage.reactive.enabled", stringValue = "true", enableIfMissing = true)
 @Slf4j
 public class StorageResource {
 
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    // lists the uploaded files whose content was already stored
+    private static final String DEDUPLICATED = "SBOMer-Deduplicated";
+
     @Inject
     StorageAdministration storageService;
 
+    // caching directives for downloaded content, validators allow cheap revalidation with 304 responses
+    @ConfigProperty(name = "sbomer.storage.download.cache-control", defaultValue = "public, no-cache")
+    String cacheControl;
+
     @POST
     @Path("/generations/{generationId}")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
@@ -47,12 +88,16 @@ public class StorageResource {
     )
     @APIResponse(
             responseCode = "200",
-            description = "Files uploaded successfully. Returns a map of Filename -> Permanent URL.",
+            description = "Files uploaded successfully. Returns a map of Filename -> Permanent URL. "
+                    + "Files whose content was already stored are listed in the SBOMer-Deduplicated header. "
+                    + "Files sent with a Content-Encoding part header (gzip or zstd) are stored without recompression.",
             content = @Content(
                     mediaType = MediaType.APPLICATION_JSON,
                     example = "{\"bom.json\": \"https://host/api/v1/storage/content/gen-123/bom.json\"}"
             )
     )
+    @APIResponse(responseCode = "503", description = "The storage or the upload capacity is exhausted, retry after the time in the Retry-After header.")
+    @RunOnVirtualThread
     public Response uploadGeneration(
             @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
             @RestForm("files") List<FileUpload> uploads) {
@@ -74,9 +119,12 @@ public class StorageResource {
     )
     @APIResponse(
             responseCode = "200",
-            description = "Files uploaded successfully. Returns a map of Filename -> Permanent URL.",
+            description = "Files uploaded successfully. Returns a map of Filename -> Permanent URL. "
+                    + "Files whose content was already stored are listed in the SBOMer-Deduplicated header.",
             content = @Content(mediaType = MediaType.APPLICATION_JSON)
     )
+    @APIResponse(responseCode = "503", description = "The storage or the upload capacity is exhausted, retry after the time in the Retry-After header.")
+    @RunOnVirtualThread
     public Response uploadEnhancement(
             @Parameter(description = "The Generation ID", required = true) @PathParam("generationId") String genId,
             @Parameter(description = "The Enhancement ID", required = true) @PathParam("enhancementId") String enhId,
@@ -87,45 +135,322 @@ public class StorageResource {
     @GET
     @Path("/content/{path: .*}")
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
-    @Operation(summary = "Download File", description = "Streams the content of a stored file based on its storage key path.")
-    public Response download(@PathParam("path") String path) {
+    @Operation(summary = "Download File", description = "Streams the content of a stored file based on its storage key path. "
+            + "A single byte range can be requested with the Range header. "
+            + "Conditional requests with If-None-Match or If-Modified-Since are answered without content if the file is unchanged. "
+            + "Large files may be served with a redirect to a short-lived storage URL.")
+    @APIResponse(responseCode = "200", description = "The whole file.")
+    @APIResponse(responseCode = "206", description = "The requested range of the file, described by the Content-Range header.")
+    @APIResponse(responseCode = "304", description = "The file matches the validators sent by the client.")
+    @APIResponse(responseCode = "307", description = "The file is to be downloaded from the short-lived storage URL in the Location header.")
+    @APIResponse(responseCode = "416", description = "The requested range lies outside of the file.")
+    @APIResponse(responseCode = "503", description = "The storage is overloaded, retry after the time in the Retry-After header.")
+    @RunOnVirtualThread
+    public Response download(
+            @PathParam("path") String path,
+            @Parameter(description = "Compressed files are sent as stored if their coding is accepted, decompressed otherwise")
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @Parameter(description = "Single byte range to download, e.g. bytes=0-1023") @HeaderParam(RANGE) String rangeHeader,
+            @Parameter(description = "Serve the range only if the file still matches this ETag or date") @HeaderParam(IF_RANGE) String ifRange,
+            @Parameter(hidden = true) @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Parameter(hidden = true) @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince,
+            @Context Request request) {
         try {
-            java.io.InputStream stream = storageService.getFileContent(path);
+            Set<String> acceptedEncodings = acceptedEncodings(acceptEncoding);
+            if (ifNoneMatch != null || ifModifiedSince != null) {
+                // Answer revalidations from the metadata alone, without transferring the content
+                ObjectMetadata metadata = storageService.getFileMetadata(path, acceptedEncodings);
+                Response.ResponseBuilder notModified = evaluatePreconditions(request, metadata.getEtag(), metadata.getLastModified());
+                if (notModified != null) {
+                    return validators(notModified, metadata.getEtag(), metadata.getLastModified()).build();
+                }
+            }
+            URI redirect = storageService.getDownloadRedirect(path, acceptedEncodings);
+            if (redirect != null) {
+                // The URL expires, it must never outlive it in a cache
+                return Response.temporaryRedirect(redirect)
+                        .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+            ByteRange range = ByteRange.parse(rangeHeader);
+            ObjectContent content = storageService.getFileContent(path, range, acceptedEncodings);
+            if (content.isPartial() && ifRange != null && !matchesIfRange(ifRange, content)) {
+                // The file changed since the client fetched the part it holds, it needs the whole file again
+                closeQuietly(content);
+                content = storageService.getFileContent(path, null, acceptedEncodings);
+            }
             String filename = path.substring(path.lastIndexOf('/') + 1);
-            return Response.ok(stream)
+            Response.ResponseBuilder response = content.isPartial()
+                    ? Response.status(Response.Status.PARTIAL_CONTENT).header(CONTENT_RANGE, contentRange(content))
+                    : Response.ok();
+            if (content.getContentLength() >= 0) {
+                response.header(HttpHeaders.CONTENT_LENGTH, content.getContentLength());
+            }
+            if (content.getContentEncoding() != null) {
+                response.header(HttpHeaders.CONTENT_ENCODING, content.getContentEncoding());
+            }
+            return validators(response, content.getEtag(), content.getLastModified())
+                    .entity(entity(content))
+                    .header(ACCEPT_RANGES, "bytes")
                     .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
                     .build();
+        } catch (StorageRangeNotSatisfiableException e) {
+            log.debug("Range '{}' not satisfiable for file {}", rangeHeader, path);
+            Response.ResponseBuilder response = Response.status(e.getStatus()).header(ACCEPT_RANGES, "bytes");
+            if (e.getObjectSize() >= 0) {
+                response.header(CONTENT_RANGE, "bytes */" + e.getObjectSize());
+            }
+            return response.build();
+        } catch (StorageOverloadedException e) {
+            log.debug("Download of file {} shed: {}", path, e.getMessage());
+            return StorageErrors.status(e).build();
         } catch (StorageException e) {
             log.error("Download failed for file {}", path, e);
-            return Response.status(e.getStatus()).build();
+            return StorageErrors.status(e).build();
+        }
+    }
+
+    @HEAD
+    @Path("/content/{path: .*}")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @Operation(summary = "File Metadata", description = "Returns the headers of a download of the file without its content. "
+            + "Answered from the metadata index if it is enabled and knows the file, without a request to the storage. "
+            + "Conditional requests are answered like downloads, a file is never redirected.")
+    @APIResponse(responseCode = "200", description = "The file exists, with its size in the Content-Length header.")
+    @APIResponse(responseCode = "304", description = "The file matches the validators sent by the client.")
+    @APIResponse(responseCode = "404", description = "No file is stored under the path.")
+    @RunOnVirtualThread
+    public Response head(
+            @PathParam("path") String path,
+            @Parameter(description = "Size and encoding are those of the file as it would be downloaded") @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @Parameter(hidden = true) @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Parameter(hidden = true) @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince,
+            @Context Request request) {
+        try {
+            ObjectMetadata metadata = storageService.getFileMetadata(path, acceptedEncodings(acceptEncoding));
+            if (ifNoneMatch != null || ifModifiedSince != null) {
+                Response.ResponseBuilder notModified = evaluatePreconditions(request, metadata.getEtag(), metadata.getLastModified());
+                if (notModified != null) {
+                    return validators(notModified, metadata.getEtag(), metadata.getLastModified()).build();
+                }
+            }
+            Response.ResponseBuilder response = Response.ok();
+            if (metadata.getSize() >= 0) {
+                response.header(HttpHeaders.CONTENT_LENGTH, metadata.getSize());
+            }
+            if (metadata.getContentEncoding() != null) {
+                response.header(HttpHeaders.CONTENT_ENCODING, metadata.getContentEncoding());
+            }
+            String filename = path.substring(path.lastIndexOf('/') + 1);
+            return validators(response, metadata.getEtag(), metadata.getLastModified())
+                    .header(ACCEPT_RANGES, "bytes")
+                    .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+                    .build();
+        } catch (StorageOverloadedException e) {
+            log.debug("Metadata request of file {} shed: {}", path, e.getMessage());
+            return StorageErrors.status(e).build();
+        } catch (StorageException e) {
+            log.debug("Metadata request failed for file {}", path, e);
+            return StorageErrors.status(e).build();
+        }
+    }
+
+    /**
+     * Evaluates If-None-Match and If-Modified-Since against the validators of the stored file.
+     * @return a 304 response builder if the client's copy is still current, null if the content must be sent
+     */
+    private static Response.ResponseBuilder evaluatePreconditions(Request request, String etag, Instant lastModified) {
+        EntityTag entityTag = toEntityTag(etag);
+        Date date = lastModified != null ? Date.from(lastModified) : null;
+        if (entityTag != null && date != null) {
+            return request.evaluatePreconditions(date, entityTag);
+        } else if (entityTag != null) {
+            return request.evaluatePreconditions(entityTag);
+        } else if (date != null) {
+            return request.evaluatePreconditions(date);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the validators and caching directives, sent with full, partial and 304 responses alike.
+     * Whether a file is sent compressed depends on the Accept-Encoding of the request, so shared caches must key on it.
+     */
+    private Response.ResponseBuilder validators(Response.ResponseBuilder response, String etag, Instant lastModified) {
+        EntityTag entityTag = toEntityTag(etag);
+        if (entityTag != null) {
+            response.tag(entityTag);
+        }
+        if (lastModified != null) {
+            response.lastModified(Date.from(lastModified));
+        }
+        return response.header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Returns the codings listed in an Accept-Encoding header, without those refused with q=0.
+     */
+    static Set<String> acceptedEncodings(String acceptEncoding) {
+        Set<String> accepted = new HashSet<>();
+        if (acceptEncoding == null) {
+            return accepted;
+        }
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!coding.isEmpty() && !refused) {
+                accepted.add(coding);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Converts an entity tag as returned by the storage provider, e.g. {@code "abc"} or {@code W/"abc"}.
+     */
+    private static EntityTag toEntityTag(String etag) {
+        if (etag == null || etag.isBlank()) {
+            return null;
+        }
+        boolean weak = etag.startsWith("W/");
+        String value = weak ? etag.substring(2) : etag;
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return new EntityTag(value, weak);
+    }
+
+    /**
+     * Evaluates an If-Range validator, an entity tag is compared strongly, a date must match exactly.
+     */
+    private static boolean matchesIfRange(String ifRange, ObjectContent content) {
+        String validator = ifRange.trim();
+        if (validator.startsWith("W/")) {
+            return false;
+        }
+        if (validator.startsWith("\"")) {
+            return validator.equals(content.getEtag());
+        }
+        try {
+            Instant date = ZonedDateTime.parse(validator, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return content.getLastModified() != null
+                    && date.equals(content.getLastModified().truncatedTo(ChronoUnit.SECONDS));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static String contentRange(ObjectContent content) {
+        ByteRange range = content.getRange();
+        return "bytes " + range.getFirst() + "-" + range.getLast() + "/" + content.getObjectSize();
+    }
+
+    /**
+     * Content available in a local file is sent straight from the file (sendfile) instead of being copied from the stream.
+     */
+    private static Object entity(ObjectContent content) {
+        if (content.getFile() == null) {
+            return content.getContent();
+        }
+        closeQuietly(content);
+        long offset = content.isPartial() ? content.getRange().getFirst() : 0;
+        return new PathPart(content.getFile(), offset, content.getContentLength());
+    }
+
+    private static void closeQuietly(ObjectContent content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            log.debug("Failed to close content stream", e);
         }
     }
 
     @FunctionalInterface
     interface UploadAction {
-        Map<String, String> execute(List<SbomFile> files);
+        List<StoredFile> execute(List<SbomFile> files);
     }
 
     private Response handleUpload(List<FileUpload> uploads, UploadAction action) {
         if (uploads == null || uploads.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST).entity("No files provided").build();
         }
+        List<SbomFile> domainFiles = new ArrayList<>();
+        for (FileUpload upload : uploads) {
+            String contentEncoding = upload.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            ContentCoding coding = ContentCoding.fromToken(contentEncoding);
+            if (contentEncoding != null && coding == null && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+                return Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE)
+                        .entity("Unsupported Content-Encoding '" + contentEncoding + "' of file " + upload.fileName())
+                        .build();
+            }
+            if (coding != null && !isEncoded(upload, coding)) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("File " + upload.fileName() + " is not " + coding.getToken() + " encoded")
+                        .build();
+            }
+            domainFiles.add(SbomFile.builder()
+                    .filename(upload.fileName())
+                    .contentType(upload.contentType())
+                    // already compressed content is stored as is
+                    .contentEncoding(coding != null ? coding.getToken() : null)
+                    .size(upload.size())
+                    // the uploaded file can be read more than once, e.g. to hash it before it is stored
+                    .source(() -> Files.newInputStream(upload.uploadedFile()))
+                    .build());
+        }
+        List<StoredFile> stored;
         try {
-            List<SbomFile> domainFiles = new ArrayList<>();
-            for (FileUpload upload : uploads) {
-                domainFiles.add(SbomFile.builder()
-                        .filename(upload.fileName())
-                        .contentType(upload.contentType())
-                        .size(upload.size())
-                        .content(java.nio.file.Files.newInputStream(upload.uploadedFile()))
-                        .build());
+            stored = action.execute(domainFiles);
+        } catch (UploadCapacityExceededException e) {
+            log.debug("Upload not admitted: {}", e.getMessage());
+            return StorageErrors.unavailable(e.getRetryAfter()).entity(e.getMessage()).build();
+        } catch (RuntimeException e) {
+            // a shed upload fails its batch, the client is to retry the batch later
+            StorageOverloadedException overloaded = StorageErrors.overloaded(e);
+            if (overloaded == null) {
+                throw e;
+            }
+            log.debug("Upload shed: {}", overloaded.getMessage());
+            return StorageErrors.status(overloaded).entity(overloaded.getMessage()).build();
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        List<String> deduplicated = new ArrayList<>();
+        for (StoredFile file : stored) {
+            urls.put(file.getFilename(), file.getUrl());
+            if (file.isDeduplicated()) {
+                deduplicated.add(file.getFilename());
             }
-            return Response.ok(action.execute(domainFiles)).build();
+        }
+        Response.ResponseBuilder response = Response.ok(urls);
+        if (!deduplicated.isEmpty()) {
+            response.header(DEDUPLICATED, String.join(", ", deduplicated));
+        }
+        return response.build();
+    }
+
+    /**
+     * Checks the magic number of an uploaded file declared to be compressed, so mislabelled content is never stored.
+     */
+    private static boolean isEncoded(FileUpload upload, ContentCoding coding) {
+        try (InputStream content = Files.newInputStream(upload.uploadedFile())) {
+            byte[] head = content.readNBytes(ContentCoding.MAGIC_LENGTH);
+            return coding.matches(head, head.length);
         } catch (IOException e) {
-            return Response.serverError().entity("File processing error").build();
+            log.warn("Failed to read uploaded file {}", upload.fileName(), e);
+            return false;
         }
     }
 }
-
-
-
@@ -0,0 +1,13 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "FileCheck", description = "A file to check for")
+public class FileCheckDTO {
+
+    @Schema(description = "Storage key of the file", required = true, example = "gen-123/bom.json")
+    public String key;
+
+    @Schema(description = "Hex encoded SHA-256 of the content the client would upload, the file is only unchanged if it matches")
+    public String sha256;
+}
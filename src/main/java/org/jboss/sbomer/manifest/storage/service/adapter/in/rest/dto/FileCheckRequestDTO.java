@@ -0,0 +1,12 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "FileCheckRequest", description = "Files to check for before uploading them again")
+public class FileCheckRequestDTO {
+
+    @Schema(description = "The files to check", required = true)
+    public List<FileCheckDTO> files;
+}
@@ -0,0 +1,12 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "FileCheckResponse", description = "Status of every checked file")
+public class FileCheckResponseDTO {
+
+    @Schema(description = "Statuses in the order of the checked files")
+    public List<FileStatusDTO> files;
+}
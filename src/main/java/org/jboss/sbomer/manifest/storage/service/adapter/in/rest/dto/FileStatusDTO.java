@@ -0,0 +1,32 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.time.Instant;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "FileStatus", description = "Whether a file is stored, and whether it is unchanged")
+public class FileStatusDTO {
+
+    @Schema(description = "Storage key of the file", example = "gen-123/bom.json")
+    public String key;
+
+    public boolean exists;
+
+    @Schema(description = "True if the file exists and, if a SHA-256 was sent, its content is known to match it. "
+            + "The upload of an unchanged file can be skipped.")
+    public boolean unchanged;
+
+    @Schema(description = "Size of the file as stored in bytes, -1 if it doesn't exist")
+    public long size;
+
+    @Schema(description = "Coding of the file as stored, null if it is not compressed")
+    public String contentEncoding;
+
+    @Schema(description = "Hex encoded SHA-256 of the content as uploaded, null if not known")
+    public String sha256;
+
+    @Schema(description = "Entity tag of the file as stored, null if not known")
+    public String etag;
+
+    public Instant lastModified;
+}
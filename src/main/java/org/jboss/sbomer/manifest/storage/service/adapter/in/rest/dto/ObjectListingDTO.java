@@ -0,0 +1,14 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "ObjectListing", description = "A page of stored files, in key order")
+public class ObjectListingDTO {
+
+    public List<StoredObjectDTO> objects;
+
+    @Schema(description = "Token to request the next page with, null on the last page")
+    public String nextContinuationToken;
+}
@@ -0,0 +1,24 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "PresignedUpload", description = "Where and how to upload a single file of an upload session")
+public class PresignedUploadDTO {
+
+    @Schema(description = "Name of the file")
+    public String filename;
+
+    @Schema(description = "Size of every part but the last one. The file is split into parts of this size, "
+            + "part n is sent with a PUT to the n-th URL")
+    public long partSize;
+
+    @Schema(description = "Presigned URLs, a single one if the file is uploaded with one PUT")
+    public List<URI> urls;
+
+    @Schema(description = "Headers to send with every PUT, they are covered by the signature")
+    public Map<String, String> headers;
+}
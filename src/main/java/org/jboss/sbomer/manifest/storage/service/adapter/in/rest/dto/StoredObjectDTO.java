@@ -0,0 +1,21 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.time.Instant;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "StoredObject", description = "A stored file as listed by storage")
+public class StoredObjectDTO {
+
+    @Schema(description = "Storage key of the file, its content is served under /api/v1/storage/content/{key}",
+            example = "gen-123/bom.json")
+    public String key;
+
+    @Schema(description = "Size of the file as stored in bytes, 0 for a deduplicated file")
+    public long size;
+
+    @Schema(description = "Entity tag of the file as stored")
+    public String etag;
+
+    public Instant lastModified;
+}
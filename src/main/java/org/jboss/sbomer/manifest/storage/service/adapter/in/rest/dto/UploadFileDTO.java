@@ -0,0 +1,19 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "UploadFile", description = "A file the client is going to upload directly to storage")
+public class UploadFileDTO {
+
+    @Schema(description = "Name the file is stored under", required = true, example = "bom.json")
+    public String filename;
+
+    @Schema(description = "MIME type of the file", example = "application/json")
+    public String contentType;
+
+    @Schema(description = "Exact size of the file in bytes", required = true)
+    public long size;
+
+    @Schema(description = "Hex encoded SHA-256 of the file, verified by storage before the file is published")
+    public String sha256;
+}
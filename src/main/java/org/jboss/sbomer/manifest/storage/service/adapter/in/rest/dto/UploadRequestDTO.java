@@ -0,0 +1,12 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "UploadRequest", description = "Files of a batch to upload directly to storage")
+public class UploadRequestDTO {
+
+    @Schema(description = "The files of the batch", required = true)
+    public List<UploadFileDTO> files;
+}
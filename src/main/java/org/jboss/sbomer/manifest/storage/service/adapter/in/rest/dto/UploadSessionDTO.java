@@ -0,0 +1,19 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.in.rest.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(name = "UploadSession", description = "An upload session, its files are published once it is committed")
+public class UploadSessionDTO {
+
+    @Schema(description = "ID to commit the session with")
+    public String uploadId;
+
+    @Schema(description = "The presigned URLs are rejected by storage after this instant")
+    public Instant expiresAt;
+
+    @Schema(description = "Where and how to upload each file")
+    public List<PresignedUploadDTO> files;
+}
@@ -0,0 +1,932 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Object storage in a local directory, for deployments and CI runs without S3.
+ * <p>
+ * The content of every object is a file under {@code objects/}, its content type, encoding, reference target and
+ * SHA-256 a properties file in a directory at the same relative path under {@code versions/}, named after the version
+ * of the content it describes: its modification time and size, which renames and hard links keep. Keys are spread
+ * over 65536 shard directories by a hash of their first segment (the generation), so all files of a generation share
+ * a shard and listing them walks a single directory tree. Files are written to {@code tmp/} and renamed into place
+ * once complete, so a visible file is never half-written and replacing a file is atomic.
+ * <p>
+ * The metadata of a version is written before its content is renamed into place and the metadata of the replaced
+ * version is removed afterwards, so the content and metadata of a key are published together: a reader always reads
+ * the metadata of the version of the content it found, never the metadata of a version that replaced it or that it
+ * replaced. Metadata files of the layout before versioning, under {@code metadata/}, are still read for files that
+ * were not replaced since.
+ * <p>
+ * Downloads carry the path of the file, so the REST layer sends it with zero-copy {@code sendfile}.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "sbomer.storage.backend", stringValue = "filesystem")
+@Slf4j
+public class FileSystemStorageAdapter implements ObjectStorage {
+
+    private static final String OBJECTS_DIRECTORY = "objects";
+    private static final String VERSIONS_DIRECTORY = "versions";
+    // metadata files of the layout before versioning
+    private static final String METADATA_DIRECTORY = "metadata";
+    private static final String TMP_DIRECTORY = "tmp";
+    private static final String CONTENT_TYPE = "content-type";
+    private static final String CONTENT_ENCODING = "content-encoding";
+    private static final String REFERENCE = "reference";
+    private static final String SHA256 = "sha256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // temporary files of uploads interrupted by a crash, younger files may belong to another replica
+    private static final Duration ABANDONED_AFTER = Duration.ofDays(1);
+    // a parent directory may be pruned by a concurrent delete between creating it and moving a file into it
+    private static final int MOVE_ATTEMPTS = 3;
+    // a file may be replaced while it is read, each replacement needs another attempt to read a consistent version
+    private static final int READ_ATTEMPTS = 3;
+
+    // should be a persistent volume, may be shared by several replicas
+    @ConfigProperty(name = "sbomer.storage.filesystem.directory", defaultValue = "${java.io.tmpdir}/sbomer-storage")
+    String directory;
+
+    // flush every file to the disk before it becomes visible, so a crash loses no acknowledged upload
+    @ConfigProperty(name = "sbomer.storage.filesystem.fsync", defaultValue = "true")
+    boolean fsync;
+
+    private Path objects;
+    private Path versions;
+    private Path metadata;
+    private Path tmp;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public FileSystemStorageAdapter() {}
+
+    /**
+     * Package-private constructor for testing.
+     * @param directory root directory of the storage
+     * @param fsync whether to flush files to the disk before they become visible
+     */
+    FileSystemStorageAdapter(Path directory, boolean fsync) {
+        this.directory = directory.toString();
+        this.fsync = fsync;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        Path root = Path.of(directory);
+        objects = root.resolve(OBJECTS_DIRECTORY);
+        versions = root.resolve(VERSIONS_DIRECTORY);
+        metadata = root.resolve(METADATA_DIRECTORY);
+        tmp = root.resolve(TMP_DIRECTORY);
+        try {
+            Files.createDirectories(objects);
+            Files.createDirectories(versions);
+            Files.createDirectories(tmp);
+            Instant abandoned = Instant.now().minus(ABANDONED_AFTER);
+            try (Stream<Path> files = Files.list(tmp)) {
+                files.filter(file -> isOlderThan(file, abandoned)).forEach(FileSystemStorageAdapter::deleteQuietly);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to initialize storage directory " + root, e);
+        }
+        log.info("Storing files in {}", root);
+    }
+
+    /**
+     * Uploads content to the file of the key, replacing it and its metadata atomically.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @param content content to upload as an InputStream
+     * @param contentLength size of content in bytes, or a negative value if unknown
+     * @param contentType MIME type of content (e.g., 'application/json')
+     * @param contentEncoding coding the content is compressed with (e.g., 'gzip'), or null if the content is not compressed
+     * @return metadata of the stored file, with the validators {@link #getMetadata(String)} returns for it
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     * @throws StorageException if the content does not match its length or writing fails
+     * @throws StorageAccessException if the file can't be written due to missing permissions
+     * @throws StorageUnavailableException if the disk is full
+     */
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        objectPath(key);
+        Path temp = tempFile();
+        try {
+            log.info("Storing in file system: {}", key);
+            long written = write(content, temp);
+            if (contentLength >= 0 && written != contentLength) {
+                throw new StorageException("Expected " + contentLength + " bytes but received " + written + " for: " + key,
+                        Response.Status.BAD_REQUEST);
+            }
+            BasicFileAttributes attributes = publish(temp, key, properties(contentType, contentEncoding, null, sha256));
+            Instant lastModified = attributes.lastModifiedTime().toInstant();
+            log.info("Stored in file system: {} ({} bytes)", key, written);
+            return ObjectMetadata.builder()
+                    .key(key)
+                    .size(written)
+                    .contentType(contentType)
+                    .contentEncoding(contentEncoding)
+                    .etag(etag(lastModified, written))
+                    .lastModified(lastModified)
+                    .sha256(sha256)
+                    .build();
+        } catch (IOException e) {
+            throw handleException(e, key);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Downloads the content of a file.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @return an InputStream containing object content (caller must close it)
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     * @throws StorageFileNotFoundException if no file exists for the key
+     * @throws StorageException if reading fails
+     */
+    @Override
+    public InputStream download(String key) {
+        return download(key, null).getContent();
+    }
+
+    /**
+     * Downloads a range of the content of a file, read with positional reads so only the range is read.
+     * A reference is resolved to the file it refers to.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @param range range of the object to download, or null to download the whole object
+     * @return the content together with the size and the path of the whole file (caller must close it)
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     * @throws StorageFileNotFoundException if no file exists for the key
+     * @throws StorageRangeNotSatisfiableException if the range lies outside of the file
+     * @throws StorageException if reading fails
+     */
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        try {
+            log.info("Reading from file system: {}{}", key, range != null ? " (" + range + ")" : "");
+            Version version = resolve(key);
+            FileChannel channel = FileChannel.open(version.path(), StandardOpenOption.READ);
+            for (int attempt = 1; attempt < READ_ATTEMPTS && !version.isCurrent(); attempt++) {
+                // replaced between reading its version and opening it, the channel may hold either version
+                channel.close();
+                version = resolve(key);
+                channel = FileChannel.open(version.path(), StandardOpenOption.READ);
+            }
+            try {
+                long size = channel.size();
+                ByteRange resolved = null;
+                if (range != null) {
+                    resolved = range.resolve(size);
+                    if (resolved == null) {
+                        throw new StorageRangeNotSatisfiableException("Range " + range + " not satisfiable for: " + key, size, null);
+                    }
+                }
+                long offset = resolved != null ? resolved.getFirst() : 0;
+                long length = resolved != null ? resolved.length() : size;
+                Instant lastModified = version.attributes().lastModifiedTime().toInstant();
+                return ObjectContent.builder()
+                        .content(new FileRegionInputStream(channel, offset, length))
+                        .contentLength(length)
+                        .objectSize(size)
+                        .range(resolved)
+                        .contentType(version.properties().getProperty(CONTENT_TYPE))
+                        .contentEncoding(version.properties().getProperty(CONTENT_ENCODING))
+                        .etag(etag(lastModified, size))
+                        .lastModified(lastModified)
+                        .sha256(version.properties().getProperty(SHA256))
+                        .file(version.path())
+                        .build();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw handleException(e, key);
+        }
+    }
+
+    /**
+     * Reads the metadata of a file from its attributes and its metadata file.
+     * The metadata of a reference is the metadata of the file it refers to.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @return size, content type, content encoding and validators of the file
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     * @throws StorageFileNotFoundException if no file exists for the key
+     * @throws StorageException if reading fails
+     */
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        try {
+            Version version = resolve(key);
+            BasicFileAttributes attributes = version.attributes();
+            Instant lastModified = attributes.lastModifiedTime().toInstant();
+            return ObjectMetadata.builder()
+                    .key(key)
+                    .size(attributes.size())
+                    .contentType(version.properties().getProperty(CONTENT_TYPE))
+                    .contentEncoding(version.properties().getProperty(CONTENT_ENCODING))
+                    .etag(etag(lastModified, attributes.size()))
+                    .lastModified(lastModified)
+                    .sha256(version.properties().getProperty(SHA256))
+                    .build();
+        } catch (IOException e) {
+            throw handleException(e, key);
+        }
+    }
+
+    /**
+     * Checks whether a file or a reference is stored under the key.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     */
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(objectPath(key));
+    }
+
+    /**
+     * Reads the metadata of a file like {@link #getMetadata(String)}, answering a missing file with null.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     * @throws StorageException if reading fails
+     */
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        try {
+            return getMetadata(key);
+        } catch (StorageFileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lists a page of the files stored under the prefix, in key order.
+     * Listing a prefix within a generation, e.g. "gen-1/", walks only the directory of that prefix,
+     * a prefix without a '/' walks every shard.
+     * @param prefix key prefix, e.g. "gen-1/", must not be null or contain ".."
+     * @param continuationToken last key of the previous page, or null for the first page
+     * @param maxKeys max number of objects of the page
+     * @throws StorageKeyInvalidException if prefix is null, empty, or contains path traversal patterns
+     * @throws StorageException if reading the directory fails
+     */
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        S3ErrorMapper.validateKey(prefix);
+        try {
+            log.debug("Listing file system under: {}", prefix);
+            int limit = Math.max(1, maxKeys);
+            // one key more than the page tells whether another page follows
+            TreeMap<String, BasicFileAttributes> files = new TreeMap<>();
+            int slash = prefix.lastIndexOf('/');
+            if (slash > 0) {
+                Path shard = shard(objects, prefix.substring(0, prefix.indexOf('/')));
+                Path base = shard.resolve(prefix.substring(0, slash)).normalize();
+                if (base.startsWith(shard)) {
+                    collect(base, prefix, continuationToken, limit + 1, files);
+                }
+            } else {
+                collect(objects, prefix, continuationToken, limit + 1, files);
+            }
+            List<ObjectMetadata> page = new ArrayList<>();
+            String nextContinuationToken = null;
+            for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+                if (page.size() == limit) {
+                    nextContinuationToken = page.get(page.size() - 1).getKey();
+                    break;
+                }
+                Instant lastModified = file.getValue().lastModifiedTime().toInstant();
+                page.add(ObjectMetadata.builder()
+                        .key(file.getKey())
+                        .size(file.getValue().size())
+                        .etag(etag(lastModified, file.getValue().size()))
+                        .lastModified(lastModified)
+                        .build());
+            }
+            return ObjectListing.builder()
+                    .objects(page)
+                    .nextContinuationToken(nextContinuationToken)
+                    .build();
+        } catch (IOException e) {
+            throw handleException(e, prefix);
+        }
+    }
+
+    /**
+     * Stores an empty file under the key, with the target key in its metadata file.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @param targetKey key of the file the reference refers to
+     * @param contentType MIME type of the referenced content
+     * @throws StorageKeyInvalidException if a key does not name a file below the storage directory
+     * @throws StorageException if writing fails
+     */
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        objectPath(key);
+        objectPath(targetKey);
+        Path temp = tempFile();
+        try {
+            log.info("Storing reference in file system: {} -> {}", key, targetKey);
+            Files.createFile(temp);
+            publish(temp, key, properties(contentType, null, targetKey, null));
+        } catch (IOException e) {
+            throw handleException(e, key);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Copies a file with its metadata. The copy is a hard link where the file system supports it,
+     * which is safe as files are only ever replaced, never modified in place.
+     * @param sourceKey key of the file to copy, must not be null, contain '..' or empty segments
+     * @param targetKey key to copy the file to, must not be null, contain '..' or empty segments
+     * @throws StorageKeyInvalidException if a key does not name a file below the storage directory
+     * @throws StorageFileNotFoundException if no file exists at the source key
+     * @throws StorageException if copying fails
+     */
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        copy(sourceKey, targetKey, null);
+    }
+
+    /**
+     * Copies a file like {@link #copy(String, String)}, with the given metadata instead of the metadata of the source.
+     * @param sourceKey key of the file to copy, must not be null, contain '..' or empty segments
+     * @param targetKey key to copy the file to, must not be null, contain '..' or empty segments
+     * @param contentType MIME type of the content
+     * @param contentEncoding coding the content is compressed with, or null
+     * @param sha256 hex encoded SHA-256 of the content as uploaded, or null
+     * @return metadata of the copy
+     * @throws StorageKeyInvalidException if a key does not name a file below the storage directory
+     * @throws StorageFileNotFoundException if no file exists at the source key
+     * @throws StorageException if copying fails
+     */
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        BasicFileAttributes attributes = copy(sourceKey, targetKey, properties(contentType, contentEncoding, null, sha256));
+        Instant lastModified = attributes.lastModifiedTime().toInstant();
+        return ObjectMetadata.builder()
+                .key(targetKey)
+                .size(attributes.size())
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                .etag(etag(lastModified, attributes.size()))
+                .lastModified(lastModified)
+                .sha256(sha256)
+                .build();
+    }
+
+    /**
+     * @param replacement metadata of the copy, or null to copy the metadata of the source
+     * @return attributes of the copy
+     */
+    private BasicFileAttributes copy(String sourceKey, String targetKey, Properties replacement) {
+        Path source = objectPath(sourceKey);
+        objectPath(targetKey);
+        Path temp = tempFile();
+        try {
+            log.info("Copying in file system: {} -> {}", sourceKey, targetKey);
+            Properties properties = replacement;
+            for (int attempt = 1; properties == null; attempt++) {
+                link(source, temp);
+                // the metadata of the version that was linked, the source may have been replaced since
+                properties = readMetadata(sourceKey, version(Files.readAttributes(temp, BasicFileAttributes.class)));
+                if (properties == null && attempt < READ_ATTEMPTS) {
+                    Files.delete(temp);
+                } else if (properties == null) {
+                    properties = new Properties();
+                }
+            }
+            if (replacement != null) {
+                link(source, temp);
+            }
+            return publish(temp, targetKey, properties);
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("File not found: " + sourceKey, e);
+        } catch (IOException e) {
+            throw handleException(e, targetKey);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Deletes a file and its metadata, and the directories left empty.
+     * Deleting a file that doesn't exist succeeds, like an S3 delete.
+     * @param key object key (path), must not be null, contain '..' or empty segments
+     * @throws StorageKeyInvalidException if the key does not name a file below the storage directory
+     * @throws StorageException if deleting fails
+     */
+    @Override
+    public void delete(String key) {
+        Path path = objectPath(key);
+        Path versionsPath = versionsPath(key);
+        Path metadataPath = metadataPath(key);
+        try {
+            log.info("Deleting from file system: {}", key);
+            Files.deleteIfExists(path);
+            deleteVersions(versionsPath);
+            Files.deleteIfExists(metadataPath);
+            prune(path.getParent(), objects);
+            prune(versionsPath.getParent(), versions);
+            prune(metadataPath.getParent(), metadata);
+        } catch (IOException e) {
+            throw handleException(e, key);
+        }
+    }
+
+    private Path objectPath(String key) {
+        return resolve(objects, key);
+    }
+
+    /**
+     * Directory holding a metadata file per version of the file of a key.
+     */
+    private Path versionsPath(String key) {
+        return resolve(versions, key);
+    }
+
+    private Path metadataPath(String key) {
+        return resolve(metadata, key);
+    }
+
+    /**
+     * Path of the file of a key below a tree, in the shard of the first segment of the key.
+     * @throws StorageKeyInvalidException if a segment of the key is empty, "." or would leave its shard
+     */
+    private static Path resolve(Path tree, String key) {
+        S3ErrorMapper.validateKey(key);
+        String[] segments = key.split("/", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty() || ".".equals(segment) || segment.indexOf('\\') >= 0 || segment.indexOf('\0') >= 0) {
+                throw new StorageKeyInvalidException(key, "Key must be a relative path of non-empty segments");
+            }
+        }
+        Path shard = shard(tree, segments[0]);
+        Path path = shard.resolve(key).normalize();
+        if (!path.startsWith(shard)) {
+            throw new StorageKeyInvalidException(key, "Path traversal not allowed");
+        }
+        return path;
+    }
+
+    /**
+     * Shard directory of a first key segment, two levels named after the first two bytes of its SHA-256.
+     */
+    private static Path shard(Path tree, String segment) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(segment.getBytes(StandardCharsets.UTF_8));
+            HexFormat hex = HexFormat.of();
+            return tree.resolve(hex.toHexDigits(hash[0])).resolve(hex.toHexDigits(hash[1]));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Key of a file below the objects tree, its path without the two shard directories.
+     */
+    private String key(Path file) {
+        Path relative = objects.relativize(file);
+        StringBuilder key = new StringBuilder();
+        for (int i = 2; i < relative.getNameCount(); i++) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(relative.getName(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Collects the files below a directory whose keys start with the prefix and follow the continuation token.
+     * Directories deleted while they are walked are skipped.
+     */
+    /**
+     * Collects the first keys under the prefix after the continuation token, in key order. The walk visits every
+     * file under the directory, but only the first {@code maxKeys} keys seen so far are kept.
+     */
+    private void collect(Path directory, String prefix, String continuationToken, int maxKeys,
+            TreeMap<String, BasicFileAttributes> files) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile()) {
+                    String key = key(file);
+                    if (key.startsWith(prefix) && (continuationToken == null || key.compareTo(continuationToken) > 0)
+                            && (files.size() < maxKeys || key.compareTo(files.lastKey()) < 0)) {
+                        files.put(key, attributes);
+                        if (files.size() > maxKeys) {
+                            files.pollLastEntry();
+                        }
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private Path tempFile() {
+        return tmp.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    /**
+     * Writes the content to a new file through a channel, and returns the number of bytes written.
+     */
+    private long write(InputStream content, Path file) throws IOException {
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            int n;
+            while ((n = content.read(buffer)) >= 0) {
+                wrapped.clear().limit(n);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                written += n;
+            }
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Moves a complete file into place under the key together with its metadata. The metadata is written first,
+     * named after the version of the file, so it is in place as soon as the file is. The metadata of the version
+     * that was replaced is removed afterwards; a reader still holding that version reads the new one instead.
+     * @return the attributes of the published file
+     */
+    private BasicFileAttributes publish(Path temp, String key, Properties properties) throws IOException {
+        Path target = objectPath(key);
+        BasicFileAttributes attributes = Files.readAttributes(temp, BasicFileAttributes.class);
+        String version = version(attributes);
+        Path written = writeMetadata(key, version, properties);
+        String replaced = versionQuietly(target);
+        try {
+            move(temp, target);
+        } catch (IOException e) {
+            deleteQuietly(written);
+            throw e;
+        }
+        if (replaced != null && !replaced.equals(version)) {
+            deleteQuietly(versionsPath(key).resolve(replaced));
+        }
+        // written before versioning, only read while the file it belongs to was not replaced
+        deleteQuietly(metadataPath(key));
+        return attributes;
+    }
+
+    /**
+     * Writes the metadata of a version of the file of a key.
+     * @return the metadata file
+     */
+    private Path writeMetadata(String key, String version, Properties properties) throws IOException {
+        Path file = versionsPath(key).resolve(version);
+        Path temp = tempFile();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    OutputStream out = Channels.newOutputStream(channel)) {
+                properties.store(out, null);
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+            move(temp, file);
+            return file;
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static Properties properties(String contentType, String contentEncoding, String reference, String sha256) {
+        Properties properties = new Properties();
+        setIfPresent(properties, CONTENT_TYPE, contentType);
+        setIfPresent(properties, CONTENT_ENCODING, contentEncoding);
+        setIfPresent(properties, REFERENCE, reference);
+        setIfPresent(properties, SHA256, sha256);
+        return properties;
+    }
+
+    private static void setIfPresent(Properties properties, String name, String value) {
+        if (value != null) {
+            properties.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Reads the file of a key and the metadata of its version, following a reference to the file it refers to.
+     * @throws NoSuchFileException if no file exists for the key or the target of its reference
+     */
+    private Version resolve(String key) throws IOException {
+        Version version = read(key);
+        String target = version.properties().getProperty(REFERENCE);
+        if (target == null) {
+            return version;
+        }
+        log.debug("Resolved reference {} to {}", key, target);
+        return read(target);
+    }
+
+    /**
+     * Reads the attributes of the file of a key and the metadata of that version. If the file was replaced
+     * in between and the metadata of the version is gone, the new version is read.
+     * @throws NoSuchFileException if no file exists for the key
+     */
+    private Version read(String key) throws IOException {
+        Path path = objectPath(key);
+        for (int attempt = 1; ; attempt++) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Properties properties = readMetadata(key, version(attributes));
+            if (properties != null) {
+                return new Version(path, attributes, properties);
+            }
+            if (attempt == READ_ATTEMPTS) {
+                // stored without metadata
+                return new Version(path, attributes, new Properties());
+            }
+        }
+    }
+
+    /**
+     * Reads the metadata of a version of the file of a key, or the metadata written before versioning.
+     * @return the metadata, or null if there is none
+     */
+    private Properties readMetadata(String key, String version) throws IOException {
+        for (Path file : List.of(versionsPath(key).resolve(version), metadataPath(key))) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+                return properties;
+            } catch (NoSuchFileException e) {
+                // replaced, or written before versioning
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes the metadata files of all versions of a file, and their directory.
+     */
+    private static void deleteVersions(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (DirectoryNotEmptyException e) {
+            // a version being published concurrently
+        }
+    }
+
+    /**
+     * Links the file to a new temporary path, or copies it where the file system does not support hard links.
+     */
+    private static void link(Path source, Path temp) throws IOException {
+        try {
+            Files.createLink(temp, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            if (e instanceof NoSuchFileException) {
+                throw e;
+            }
+            // keeps the modification time, so the copy is of the same version as the file
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * Moves a complete file into place, replacing the file that is there.
+     */
+    private static void move(Path source, Path target) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            } catch (NoSuchFileException e) {
+                if (attempt == MOVE_ATTEMPTS || !Files.exists(source)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes empty directories from the directory up to the shard directory of the tree.
+     */
+    private static void prune(Path directory, Path tree) {
+        for (Path dir = directory; dir != null && dir.startsWith(tree) && !dir.equals(tree); dir = dir.getParent()) {
+            if (tree.relativize(dir).getNameCount() <= 2) {
+                // shard directories are kept
+                break;
+            }
+            try {
+                Files.delete(dir);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                break;
+            } catch (IOException e) {
+                log.debug("Failed to delete empty directory {}", dir, e);
+                break;
+            }
+        }
+    }
+
+    private static String etag(Instant lastModified, long size) {
+        return "\"" + Long.toHexString(lastModified.toEpochMilli()) + "-" + Long.toHexString(size) + "\"";
+    }
+
+    /**
+     * Version of a file, its modification time in the full precision of the file system and its size.
+     */
+    private static String version(BasicFileAttributes attributes) {
+        return Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) + "-" + Long.toHexString(attributes.size());
+    }
+
+    /**
+     * Version of the file at the path, or null if there is none.
+     */
+    private static String versionQuietly(Path file) {
+        try {
+            return version(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isOlderThan(Path file, Instant instant) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(instant);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete {}", file, e);
+        }
+    }
+
+    /**
+     * Translates file system failures to domain exceptions.
+     */
+    private static RuntimeException handleException(IOException e, String key) {
+        if (e instanceof NoSuchFileException) {
+            return new StorageFileNotFoundException("File not found: " + key, e);
+        } else if (e instanceof AccessDeniedException) {
+            return new StorageAccessException("Access denied to file of: " + key, e);
+        } else if (e instanceof FileAlreadyExistsException) {
+            // a key is both a file and the directory of other keys
+            return new StorageKeyInvalidException(key, "Key collides with the path of another key");
+        } else if (e.getMessage() != null && e.getMessage().contains("No space left on device")) {
+            return new StorageUnavailableException("Storage directory is full", e);
+        }
+        return new StorageException("Unexpected error for: " + key, e);
+    }
+
+    /**
+     * A version of the file of a key with its metadata.
+     */
+    private record Version(Path path, BasicFileAttributes attributes, Properties properties) {
+
+        /**
+         * Returns true if the file at the path still is this version.
+         */
+        boolean isCurrent() {
+            return version(attributes).equals(versionQuietly(path));
+        }
+    }
+
+    /**
+     * Reads a region of a file with positional reads, so several streams may share nothing but the file.
+     */
+    private static class FileRegionInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        FileRegionInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n < 0) {
+                // the file was truncated, which never happens to a file that is only replaced
+                return -1;
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
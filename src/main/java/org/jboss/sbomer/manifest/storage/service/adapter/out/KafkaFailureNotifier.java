@@ -2,13 +2,22 @@ package org.jboss.sbomer.manifest.storage.service.adapter.out;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.avro.Schema;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.avro.specific.SpecificRecordBase;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.jboss.sbomer.events.common.ContextSpec;
@@ -18,20 +27,95 @@ import org.jboss.sbomer.events.error.ProcessingFailed;
 import org.jboss.sbomer.manifest.storage.service.core.ApplicationConstants;
 import org.jboss.sbomer.manifest.storage.service.core.port.spi.FailureNotifier;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Publishes failures as ProcessingFailed events to Kafka.
+ * Failures are only recorded on the calling thread: identical failures (same error code and reason) are
+ * coalesced, and a single publishing thread sends one event per distinct failure at the end of every window,
+ * with the number of occurrences in its details. During an outage, when every request fails the same way,
+ * this keeps the events, and the cost of serializing them, to one per window.
+ */
 @ApplicationScoped
 @Slf4j
 public class KafkaFailureNotifier implements FailureNotifier {
 
+    static final String PUBLISHED = "sbomer.failures.published";
+    static final String DROPPED = "sbomer.failures.dropped";
+    static final String OCCURRENCES = "occurrences";
+    static final String FIRST_SEEN = "firstSeen";
+    static final String LAST_SEEN = "lastSeen";
+
     @Inject
     @Channel("sbomer-errors")
     Emitter<ProcessingFailed> emitter;
 
+    @Inject
+    MeterRegistry registry;
+
+    // identical failures within this time are published as a single event
+    @ConfigProperty(name = "sbomer.failures.coalesce-window", defaultValue = "5S")
+    Duration window;
+
+    // max number of distinct failures waiting to be published, more are dropped until the next window
+    @ConfigProperty(name = "sbomer.failures.max-pending", defaultValue = "1000")
+    int maxPending;
+
+    private final Map<FailureKey, PendingFailure> pending = new ConcurrentHashMap<>();
+    // only used while flushing, a writer per schema and a single encoder are reused for every event
+    private final Map<Schema, SpecificDatumWriter<SpecificRecordBase>> writers = new HashMap<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private BinaryEncoder encoder;
+    private ScheduledExecutorService publisher;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public KafkaFailureNotifier() {}
+
     /**
-     * Notifies of a processing failure by building and sending a ProcessingFailed event to Kafka.
+     * Package-private constructor for testing, failures are only published by {@link #flush()}.
+     */
+    KafkaFailureNotifier(Emitter<ProcessingFailed> emitter, MeterRegistry registry, int maxPending) {
+        this.emitter = emitter;
+        this.registry = registry;
+        this.maxPending = maxPending;
+    }
+
+    @PostConstruct
+    void init() {
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "failure-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, window.toMillis());
+        publisher.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (publisher != null) {
+            publisher.shutdown();
+            try {
+                publisher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // publish what was recorded since the last window
+        flush();
+    }
+
+    /**
+     * Records a processing failure, to be published as a ProcessingFailed event at the end of the window.
+     * Returns right away: the event is built, serialized and sent by the publishing thread.
      *
      * @param failure The standardized FailureSpec object describing the error.
      * @param correlationId The correlation ID from the source event, passed in.
@@ -39,39 +123,74 @@ public class KafkaFailureNotifier implements FailureNotifier {
      */
     @Override
     public void notify(FailureSpec failure, String correlationId, Object sourceEvent) {
+        FailureKey key = new FailureKey(failure.getErrorCode(), failure.getReason());
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            count(DROPPED, "Failures dropped because too many distinct failures were waiting to be published");
+            return;
+        }
+        Instant now = Instant.now();
+        // the first failure of the window is published, later identical ones only add to its count
+        pending.compute(key, (k, first) -> first == null
+                ? new PendingFailure(failure, correlationId, sourceEvent, now)
+                : first.occurredAgain(now));
+    }
+
+    /**
+     * Publishes one event for every distinct failure recorded since the last flush.
+     */
+    synchronized void flush() {
+        for (FailureKey key : pending.keySet()) {
+            PendingFailure failure = pending.remove(key);
+            if (failure != null) {
+                try {
+                    publish(failure);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to publish failure notification for {}", key, e);
+                }
+            }
+        }
+    }
 
-        // Serialize the sourceEvent to bytes, as required by the schema
-        ByteBuffer sourceEventBytes = serializeSourceEvent(sourceEvent);
+    private void publish(PendingFailure pendingFailure) {
+        FailureSpec failure = pendingFailure.failure();
+        Map<String, String> details = failure.getDetails() != null ? new HashMap<>(failure.getDetails()) : new HashMap<>();
+        details.put(OCCURRENCES, Long.toString(pendingFailure.occurrences()));
+        details.put(FIRST_SEEN, pendingFailure.firstSeen().toString());
+        details.put(LAST_SEEN, pendingFailure.lastSeen().toString());
+        failure.setDetails(details);
 
         // Build the event context using the Avro builder
         ContextSpec context = ContextSpec.newBuilder()
                 .setEventId(UUID.randomUUID().toString())
                 .setType("ProcessingFailed") // This is a required field in the new schema
                 .setSource(ApplicationConstants.COMPONENT_NAME)
-                .setCorrelationId(correlationId) // Use the passed-in correlationId
-                .setTimestamp(Instant.now())
+                .setCorrelationId(pendingFailure.correlationId()) // The correlationId of the first occurrence
+                .setTimestamp(pendingFailure.firstSeen())
                 .build();
 
         // Build the error data payload
         ErrorData errorData = ErrorData.newBuilder()
-                .setFailure(failure) // Pass the received FailureSpec object directly
-                .setSourceEvent(sourceEventBytes) // Pass the serialized ByteBuffer
+                .setFailure(failure)
+                .setSourceEvent(serializeSourceEvent(pendingFailure.sourceEvent()))
                 .build();
 
-        // Create the top-level event object
         ProcessingFailed pf = ProcessingFailed.newBuilder()
                 .setContext(context)
                 .setErrorData(errorData)
                 .build();
 
-        // Log the action for observability
+        Object sourceEvent = pendingFailure.sourceEvent();
         String eventType = (sourceEvent != null) ? sourceEvent.getClass().getSimpleName() : "N/A (initial trigger)";
-        log.error("Publishing a failure notification for event of type '{}' with correlationId '{}'. Reason: {}", eventType, correlationId, failure.getReason());
+        log.error("Publishing a failure notification for event of type '{}' with correlationId '{}', occurred {} times. Reason: {}",
+                eventType, pendingFailure.correlationId(), pendingFailure.occurrences(), failure.getReason());
 
-        // Send the event to the Kafka topic
-        emitter.send(pf);
-
-        log.error("Failure notification sent successfully to Kafka topic 'sbomer.errors'.");
+        // Send the event to the Kafka topic, without waiting for the broker
+        emitter.send(pf).whenComplete((result, e) -> {
+            if (e != null) {
+                log.warn("Failed to send failure notification to Kafka topic 'sbomer.errors'", e);
+            }
+        });
+        count(PUBLISHED, "Failure notifications sent, each covering all identical failures of a window");
     }
 
     /**
@@ -96,17 +215,16 @@ public class KafkaFailureNotifier implements FailureNotifier {
 
         if (sourceEvent instanceof SpecificRecordBase) {
             SpecificRecordBase record = (SpecificRecordBase) sourceEvent;
-            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                // Create a writer for that specific schema
-                SpecificDatumWriter<SpecificRecordBase> writer = new SpecificDatumWriter<>(record.getSchema());
-
-                // Create an Avro binary encoder that writes to our output stream
-                BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+            try {
+                // Reuse the writer of the schema and the encoder, only the output buffer is reset
+                SpecificDatumWriter<SpecificRecordBase> writer = writers.computeIfAbsent(record.getSchema(), SpecificDatumWriter::new);
+                buffer.reset();
+                encoder = EncoderFactory.get().binaryEncoder(buffer, encoder);
                 writer.write(record, encoder);
                 encoder.flush();
 
                 // Get the raw bytes and wrap them in a ByteBuffer
-                byte[] bytes = out.toByteArray();
+                byte[] bytes = buffer.toByteArray();
                 log.debug("Successfully serialized Avro event '{}' to {} bytes.", record.getClass().getSimpleName(), bytes.length);
                 return ByteBuffer.wrap(bytes);
 
@@ -119,4 +237,65 @@ public class KafkaFailureNotifier implements FailureNotifier {
         log.warn("Source event of type '{}' is not a recognized Avro record or byte array, sending null for sourceEvent.", sourceEvent.getClass().getSimpleName());
         return null; // Default to null as allowed by schema
     }
+
+    private void count(String name, String description) {
+        Counter.builder(name)
+                .description(description)
+                .register(registry)
+                .increment();
+    }
+
+    private record FailureKey(String errorCode, String reason) {}
+
+    /**
+     * The first failure of a window with the number of identical failures recorded since.
+     * Only changed within {@link ConcurrentHashMap#compute}, so it is never changed once it was removed.
+     */
+    private static final class PendingFailure {
+
+        private final FailureSpec failure;
+        private final String correlationId;
+        private final Object sourceEvent;
+        private final Instant firstSeen;
+        private Instant lastSeen;
+        private long occurrences = 1;
+
+        PendingFailure(FailureSpec failure, String correlationId, Object sourceEvent, Instant firstSeen) {
+            this.failure = failure;
+            this.correlationId = correlationId;
+            this.sourceEvent = sourceEvent;
+            this.firstSeen = firstSeen;
+            this.lastSeen = firstSeen;
+        }
+
+        PendingFailure occurredAgain(Instant now) {
+            lastSeen = now;
+            occurrences++;
+            return this;
+        }
+
+        FailureSpec failure() {
+            return failure;
+        }
+
+        String correlationId() {
+            return correlationId;
+        }
+
+        Object sourceEvent() {
+            return sourceEvent;
+        }
+
+        Instant firstSeen() {
+            return firstSeen;
+        }
+
+        Instant lastSeen() {
+            return lastSeen;
+        }
+
+        long occurrences() {
+            return occurrences;
+        }
+    }
 }
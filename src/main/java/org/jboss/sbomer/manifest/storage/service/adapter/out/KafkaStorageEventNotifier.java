@@ -0,0 +1,93 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.OnOverflow;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes a {@link SbomBatchStoredEvent} to Kafka for every stored batch.
+ * The event is handed to the emitter without waiting for the broker: the Kafka producer batches the events
+ * of concurrent uploads into few requests (see the linger and batch settings of the channel), and the
+ * outcome is only counted. Events are keyed by generation, so the events of a generation stay in order.
+ */
+@ApplicationScoped
+@Slf4j
+public class KafkaStorageEventNotifier implements StorageEventNotifier {
+
+    static final String PUBLISHED = "sbomer.storage.events.published";
+
+    // events wait in the buffer while the producer is not connected, later ones are dropped instead of blocking uploads
+    @Inject
+    @Channel("sbomer-storage-events")
+    @OnOverflow(value = OnOverflow.Strategy.BUFFER, bufferSize = 1024)
+    Emitter<SbomBatchStoredEvent> emitter;
+
+    @Inject
+    MeterRegistry registry;
+
+    // publish an event for every stored batch
+    @ConfigProperty(name = "sbomer.storage.events.enabled", defaultValue = "false")
+    boolean enabled;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public KafkaStorageEventNotifier() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    KafkaStorageEventNotifier(Emitter<SbomBatchStoredEvent> emitter, MeterRegistry registry) {
+        this.emitter = emitter;
+        this.registry = registry;
+        this.enabled = true;
+    }
+
+    @Override
+    public void batchStored(StoredBatch batch) {
+        if (!enabled) {
+            return;
+        }
+        SbomBatchStoredEvent event = SbomBatchStoredEvent.of(batch);
+        Message<SbomBatchStoredEvent> message = Message.of(event)
+                .addMetadata(OutgoingKafkaRecordMetadata.<String>builder().withKey(batch.getGenerationId()).build())
+                .withAck(() -> {
+                    published("success");
+                    return CompletableFuture.completedFuture(null);
+                })
+                .withNack(e -> {
+                    log.warn("Failed to publish stored batch of generation {}", batch.getGenerationId(), e);
+                    published("failure");
+                    return CompletableFuture.completedFuture(null);
+                });
+        try {
+            emitter.send(message);
+            log.debug("Publishing {} stored files of generation {}", event.files().size(), batch.getGenerationId());
+        } catch (RuntimeException e) {
+            // the emitter buffer is full or the channel is down
+            log.warn("Dropped event of stored batch of generation {}", batch.getGenerationId(), e);
+            published("dropped");
+        }
+    }
+
+    private void published(String outcome) {
+        Counter.builder(PUBLISHED)
+                .description("Stored batch events by outcome of their delivery to Kafka")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+}
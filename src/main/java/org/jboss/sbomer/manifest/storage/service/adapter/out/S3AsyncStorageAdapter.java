@@ -0,0 +1,179 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.S3BucketRouter.Location;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.AsyncObjectStorage;
+import org.reactivestreams.FlowAdapters;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * Non-blocking S3 compatible storage adapter implementation using the AWS SDK async client.
+ * Bodies are streamed as publishers, so no thread is held while waiting on the storage.
+ * Objects are located through the {@link S3BucketRouter}, like with the blocking adapter.
+ */
+@ApplicationScoped
+@Slf4j
+public class S3AsyncStorageAdapter implements AsyncObjectStorage {
+
+    @Inject
+    protected S3AsyncClient client;
+
+    @Inject
+    S3BucketRouter router;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public S3AsyncStorageAdapter() {}
+
+    /**
+     * Package-private constructor for testing.
+     * @param client S3AsyncClient instance to use
+     * @param bucketName bucket name to use for storage operations
+     */
+    S3AsyncStorageAdapter(S3AsyncClient client, String bucketName) {
+        this.client = client;
+        this.router = new S3BucketRouter(bucketName);
+    }
+
+    /**
+     * Uploads content to S3 compatible storage.
+     * @param key object key (path) in bucket, must not be null or contain '..'
+     * @param content content to upload, subscribed again if the SDK retries the request
+     * @param contentLength size of content in bytes
+     * @param contentType MIME type of content (e.g., 'application/json')
+     * @return a Uni completing once the object is stored, failing with:
+     *   {@link StorageKeyInvalidException} if key is null, empty, or contains path traversal patterns,
+     *   {@link StorageAccessException} if access is denied (HTTP 403),
+     *   {@link StorageUnavailableException} if storage is unavailable or rate limited,
+     *   {@link StorageException} if bucket doesn't exist or unexpected error occurs
+     */
+    @Override
+    public Uni<Void> upload(String key, Flow.Publisher<ByteBuffer> content, long contentLength, String contentType) {
+        return Uni.createFrom().deferred(() -> {
+            S3ErrorMapper.validateKey(key);
+            Location location = router.locate(key);
+            log.info("Uploading to S3 bucket '{}': {}", location.bucket(), location.key());
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .contentLength(contentLength)
+                    .contentType(contentType)
+                    .build();
+            return Uni.createFrom().completionStage(() ->
+                    client.putObject(request, AsyncRequestBody.fromPublisher(FlowAdapters.toPublisher(content))))
+                    .invoke(() -> log.info("Uploaded to S3 bucket '{}': {} ({} bytes)", location.bucket(), location.key(), contentLength))
+                    .onFailure().transform(e -> S3ErrorMapper.handleException(e, location.bucket(), key))
+                    .replaceWithVoid();
+        });
+    }
+
+    /**
+     * Downloads content from S3 compatible storage.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @return a Uni emitting the content chunks as soon as the response headers arrived, failing with:
+     *   {@link StorageKeyInvalidException} if key is null, empty, or contains path traversal patterns,
+     *   {@link StorageFileNotFoundException} if object doesn't exist at specified key,
+     *   {@link StorageAccessException} if access is denied (HTTP 403),
+     *   {@link StorageUnavailableException} if storage is unavailable or rate limited,
+     *   {@link StorageException} if bucket doesn't exist or an unexpected error occurs
+     */
+    @Override
+    public Uni<Multi<ByteBuffer>> download(String key) {
+        return download(key, true);
+    }
+
+    private Uni<Multi<ByteBuffer>> download(String key, boolean resolveReference) {
+        return Uni.createFrom().deferred(() -> {
+            S3ErrorMapper.validateKey(key);
+            Uni<Multi<ByteBuffer>> download = download(router.locate(key), key, resolveReference);
+            Location legacy = router.legacy(key);
+            if (legacy == null) {
+                return download;
+            }
+            // objects stored before sharding are found at their legacy location
+            return download.onFailure(StorageFileNotFoundException.class)
+                    .recoverWithUni(() -> download(legacy, key, resolveReference));
+        });
+    }
+
+    private Uni<Multi<ByteBuffer>> download(Location location, String key, boolean resolveReference) {
+        return Uni.createFrom().deferred(() -> {
+            log.info("Downloading from S3 bucket '{}': {}", location.bucket(), location.key());
+            GetObjectRequest request = GetObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build();
+            return Uni.createFrom().completionStage(() ->
+                    client.getObject(request, AsyncResponseTransformer.toPublisher()));
+        })
+                .onItem().transformToUni(response -> {
+                    String target = response.response().metadata().get(S3StorageAdapter.REFERENCE_METADATA);
+                    if (resolveReference && target != null) {
+                        // A reference has no content of its own, release the connection and follow it
+                        Multi.createFrom().publisher(FlowAdapters.toFlowPublisher(response)).subscribe().with(item -> {}, e -> {});
+                        log.debug("Resolved reference {} to {}", key, target);
+                        return download(target, false);
+                    }
+                    log.info("Downloaded from S3 bucket '{}': {} ({} bytes)", location.bucket(), location.key(), response.response().contentLength());
+                    return Uni.createFrom().item(Multi.createFrom().publisher(FlowAdapters.toFlowPublisher(response)));
+                })
+                .onFailure().transform(e -> translate(e, location, key));
+    }
+
+    /**
+     * Deletes an object from S3 compatible storage, at its legacy location too.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @return a Uni completing once the object is removed, failing like {@link #upload}
+     */
+    @Override
+    public Uni<Void> delete(String key) {
+        return Uni.createFrom().deferred(() -> {
+            S3ErrorMapper.validateKey(key);
+            Uni<Void> delete = delete(router.locate(key), key);
+            Location legacy = router.legacy(key);
+            return legacy == null ? delete : delete.chain(() -> delete(legacy, key));
+        });
+    }
+
+    private Uni<Void> delete(Location location, String key) {
+        return Uni.createFrom().deferred(() -> {
+            log.info("Deleting from S3 bucket '{}': {}", location.bucket(), location.key());
+            DeleteObjectRequest request = DeleteObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build();
+            return Uni.createFrom().completionStage(() -> client.deleteObject(request));
+        })
+                .onFailure().transform(e -> S3ErrorMapper.handleException(e, location.bucket(), key))
+                .replaceWithVoid();
+    }
+
+    private RuntimeException translate(Throwable e, Location location, String key) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof NoSuchKeyException) {
+            return new StorageFileNotFoundException("File not found: " + key, cause);
+        }
+        return S3ErrorMapper.handleException(cause, location.bucket(), key);
+    }
+}
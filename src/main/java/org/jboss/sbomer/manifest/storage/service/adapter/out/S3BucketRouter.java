@@ -0,0 +1,167 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.layout.FlatKeyLayout;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.layout.KeyLayout;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Locates the objects of keys in the S3 buckets: the key layout decides the object key and its shard,
+ * the shard decides the bucket if shard buckets are configured.
+ * Objects stored before the layout was introduced stay in the primary bucket under their plain key until they are
+ * migrated, the adapters can fall back to that legacy location when an object isn't found at its sharded location.
+ * The mapping of shards to buckets must not change once objects are stored, only the shard buckets
+ * are looked up for sharded keys.
+ */
+@ApplicationScoped
+@Slf4j
+public class S3BucketRouter {
+
+    @ConfigProperty(name = "sbomer.storage.s3.bucket")
+    String bucketName;
+
+    // buckets the shards are spread over round robin, all sharded objects stay in the primary bucket if unset
+    @ConfigProperty(name = "sbomer.storage.s3.shard-buckets")
+    Optional<List<String>> shardBuckets = Optional.empty();
+
+    // flat: objects are stored under their key, hash-sharded: under a shard prefix derived from a hash of the key
+    @ConfigProperty(name = "sbomer.storage.layout", defaultValue = "flat")
+    String layoutName = "flat";
+
+    // number of hex characters of the shard prefix, 2 are 256 shards
+    @ConfigProperty(name = "sbomer.storage.layout.shard-chars", defaultValue = "2")
+    int shardChars = 2;
+
+    // look up objects stored before sharding under their plain key, costs a second request on every miss
+    @ConfigProperty(name = "sbomer.storage.layout.legacy-fallback", defaultValue = "false")
+    boolean legacyFallback;
+
+    private KeyLayout layout;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public S3BucketRouter() {}
+
+    /**
+     * Package-private constructor for testing with a single bucket and flat keys.
+     * @param bucketName bucket all objects are stored in
+     */
+    S3BucketRouter(String bucketName) {
+        this(new FlatKeyLayout(), bucketName, List.of());
+    }
+
+    /**
+     * Package-private constructor for testing.
+     * @param layout layout of the object keys
+     * @param bucketName primary bucket, holding unsharded and legacy objects
+     * @param shardBuckets buckets the shards are spread over, or an empty list to keep them in the primary bucket
+     */
+    S3BucketRouter(KeyLayout layout, String bucketName, List<String> shardBuckets) {
+        this.layout = layout;
+        this.bucketName = bucketName;
+        this.shardBuckets = shardBuckets.isEmpty() ? Optional.empty() : Optional.of(List.copyOf(shardBuckets));
+    }
+
+    @PostConstruct
+    void init() {
+        layout = KeyLayout.of(layoutName, shardChars);
+        if (layout.shards() > 0) {
+            log.info("Storing objects in {} shards across buckets {}", layout.shards(), shardBuckets.orElse(List.of(bucketName)));
+        }
+    }
+
+    /**
+     * Location the object of a key is stored at.
+     */
+    public Location locate(String key) {
+        return new Location(bucket(layout.shard(key)), layout.storageKey(key));
+    }
+
+    /**
+     * Location an object of a key was stored at before the key layout was introduced.
+     * @return the location, or null if it is the same as the current one or the fallback is disabled
+     */
+    public Location legacy(String key) {
+        Location legacy = new Location(bucketName, key);
+        return legacyFallback && !legacy.equals(locate(key)) ? legacy : null;
+    }
+
+    /**
+     * Location of the objects of the keys starting with a prefix, the key of the location being their common prefix.
+     * @throws StorageKeyInvalidException if the objects of the prefix aren't stored under a common prefix
+     */
+    public Location locatePrefix(String prefix) {
+        try {
+            return new Location(bucket(layout.shard(prefix)), layout.storagePrefix(prefix));
+        } catch (IllegalArgumentException e) {
+            throw new StorageKeyInvalidException(prefix, e.getMessage());
+        }
+    }
+
+    /**
+     * Location of the objects of the keys starting with a prefix before the key layout was introduced.
+     * @return the location, or null if it is the same as the current one or the fallback is disabled
+     */
+    public Location legacyPrefix(String prefix) {
+        Location legacy = new Location(bucketName, prefix);
+        return legacyFallback && !legacy.equals(locatePrefix(prefix)) ? legacy : null;
+    }
+
+    /**
+     * Whether an object listed in the primary bucket was stored under its plain key before the key layout was
+     * introduced, rather than at the location of its key under the current layout.
+     * @param storageKey object key as listed in the primary bucket
+     */
+    public boolean isLegacy(String storageKey) {
+        if (layout.shards() == 0) {
+            return false;
+        }
+        try {
+            return !new Location(bucketName, storageKey).equals(locate(layout.key(storageKey)));
+        } catch (RuntimeException e) {
+            // too short to carry a shard prefix
+            return true;
+        }
+    }
+
+    /**
+     * Key of an object listed at the location of a prefix.
+     */
+    public String key(String storageKey) {
+        return layout.key(storageKey);
+    }
+
+    /**
+     * Primary bucket, holding the objects that aren't sharded.
+     */
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    private String bucket(int shard) {
+        if (shard < 0 || shardBuckets.isEmpty()) {
+            return bucketName;
+        }
+        List<String> buckets = shardBuckets.get();
+        return buckets.get(shard % buckets.size());
+    }
+
+    /**
+     * Bucket and object key an object is stored at.
+     */
+    public record Location(String bucket, String key) {
+
+        @Override
+        public String toString() {
+            return bucket + "/" + key;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.S3BucketRouter.Location;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadRejectedException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUpload;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StagedFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DirectUploadStorage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+
+/**
+ * Presigned uploads straight to the S3 bucket.
+ * Files up to the multipart threshold are uploaded with a single presigned PUT that carries the announced SHA-256,
+ * so S3 rejects content that does not match it. Larger files are uploaded as a multipart upload with one presigned
+ * URL per part. Upload sessions are stored as small properties objects in the bucket, so any replica can commit them.
+ * Staged files and sessions are located through the {@link S3BucketRouter} like stored files, so a sharded layout
+ * spreads them over the shards as well.
+ */
+@ApplicationScoped
+@Slf4j
+public class S3DirectUploadAdapter implements DirectUploadStorage {
+
+    // S3 limit of parts of a single multipart upload
+    static final int MAX_PARTS = 10_000;
+    static final Duration DEFAULT_URL_VALIDITY = Duration.ofHours(1);
+
+    @Inject
+    S3Client client;
+
+    @Inject
+    S3Presigner presigner;
+
+    @Inject
+    S3BucketRouter router;
+
+    // files larger than this are uploaded as multipart upload
+    @ConfigProperty(name = "sbomer.storage.s3.multipart.threshold", defaultValue = "16777216")
+    long multipartThreshold = S3StorageAdapter.DEFAULT_MULTIPART_THRESHOLD;
+
+    // S3 requires at least 5 MiB for every part except the last one
+    @ConfigProperty(name = "sbomer.storage.s3.multipart.part-size", defaultValue = "8388608")
+    long partSize = S3StorageAdapter.DEFAULT_PART_SIZE;
+
+    // time S3 accepts the presigned upload urls for
+    @ConfigProperty(name = "sbomer.storage.upload.direct.url-validity", defaultValue = "1H")
+    Duration urlValidity = DEFAULT_URL_VALIDITY;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public S3DirectUploadAdapter() {}
+
+    /**
+     * Package-private constructor for testing.
+     * @param client S3Client instance to use
+     * @param presigner S3Presigner instance used to sign the urls
+     * @param bucketName bucket name to use for storage operations
+     * @param multipartThreshold size in bytes above which a multipart upload is used
+     * @param partSize size in bytes of a single multipart upload part
+     */
+    S3DirectUploadAdapter(S3Client client, S3Presigner presigner, String bucketName, long multipartThreshold, long partSize) {
+        this.client = client;
+        this.presigner = presigner;
+        this.router = new S3BucketRouter(bucketName);
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+    }
+
+    /**
+     * Presigns the upload of a file to S3 compatible storage.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @param size exact size of the file in bytes
+     * @param contentType MIME type of content (e.g., 'application/json')
+     * @param sha256 hex encoded SHA-256 of the content, enforced by S3 for single PUT uploads, or null
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public PresignedUpload presignUpload(String key, long size, String contentType, String sha256) {
+        S3ErrorMapper.validateKey(key);
+        String mimeType = contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM;
+        Location location = router.locate(key);
+        try {
+            return size <= multipartThreshold
+                    ? presignPut(location, size, mimeType, sha256)
+                    : presignMultipart(location, key, size, mimeType);
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    private PresignedUpload presignPut(Location location, long size, String contentType, String sha256) {
+        PutObjectRequest.Builder request = PutObjectRequest.builder()
+                .bucket(location.bucket())
+                .key(location.key())
+                .contentType(contentType);
+        if (sha256 != null) {
+            request.checksumSHA256(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256)));
+        }
+        PresignedRequest presigned = presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(urlValidity)
+                .putObjectRequest(request.build())
+                .build());
+        log.debug("Presigned upload of '{}' to S3 bucket '{}' until {}", location.key(), location.bucket(), presigned.expiration());
+        return PresignedUpload.builder()
+                .partSize(size)
+                .urls(List.of(toUri(presigned.url())))
+                .headers(headers(presigned.httpRequest()))
+                .expiresAt(presigned.expiration())
+                .build();
+    }
+
+    private PresignedUpload presignMultipart(Location location, String key, long size, String contentType) {
+        // Parts grow beyond the configured size for files that would need more parts than S3 allows
+        long effectivePartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((size + effectivePartSize - 1) / effectivePartSize);
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(location.bucket())
+                .key(location.key())
+                .contentType(contentType)
+                .build()).uploadId();
+        try {
+            List<URI> urls = new ArrayList<>(partCount);
+            PresignedRequest presigned = null;
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                presigned = presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                        .signatureDuration(urlValidity)
+                        .uploadPartRequest(UploadPartRequest.builder()
+                                .bucket(location.bucket())
+                                .key(location.key())
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .build())
+                        .build());
+                urls.add(toUri(presigned.url()));
+            }
+            log.debug("Presigned multipart upload '{}' of '{}' to S3 bucket '{}' ({} parts of {} bytes)",
+                    uploadId, location.key(), location.bucket(), partCount, effectivePartSize);
+            return PresignedUpload.builder()
+                    .multipartUploadId(uploadId)
+                    .partSize(effectivePartSize)
+                    .urls(urls)
+                    .headers(headers(presigned.httpRequest()))
+                    .expiresAt(presigned.expiration())
+                    .build();
+        } catch (RuntimeException e) {
+            abortUpload(key, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * Completes a multipart upload from the parts S3 received, then looks up the object with its checksum.
+     * A multipart upload whose parts don't add up to the expected size is left open, so missing parts can still be sent.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @param multipartUploadId multipart upload to complete, or null if the object was uploaded with a single PUT
+     * @param expectedSize size announced for the object
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageFileNotFoundException if nothing was uploaded to the key
+     * @throws UploadRejectedException if the uploaded parts don't add up to the expected size
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public ObjectMetadata completeUpload(String key, String multipartUploadId, long expectedSize) {
+        S3ErrorMapper.validateKey(key);
+        Location location = router.locate(key);
+        try {
+            if (multipartUploadId != null) {
+                completeMultipart(location, key, multipartUploadId, expectedSize);
+            }
+            HeadObjectResponse head = client.headObject(HeadObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .checksumMode(ChecksumMode.ENABLED)
+                    .build());
+            return ObjectMetadata.builder()
+                    .key(key)
+                    .size(head.contentLength() != null ? head.contentLength() : -1)
+                    .contentType(head.contentType())
+                    .contentEncoding(head.contentEncoding())
+                    .etag(head.eTag())
+                    .lastModified(head.lastModified())
+                    .sha256(sha256(head.checksumSHA256()))
+                    .build();
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, a missing key is only reported by the status code
+            if (e.statusCode() == NOT_FOUND.getStatusCode()) {
+                throw new StorageFileNotFoundException("File not uploaded: " + key, e);
+            }
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        } catch (UploadRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    private void completeMultipart(Location location, String key, String uploadId, long expectedSize) {
+        List<CompletedPart> parts = new ArrayList<>();
+        long size = 0;
+        try {
+            for (Part part : client.listPartsPaginator(ListPartsRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .uploadId(uploadId)
+                    .build()).parts()) {
+                parts.add(CompletedPart.builder()
+                        .partNumber(part.partNumber())
+                        .eTag(part.eTag())
+                        .build());
+                size += part.size();
+            }
+        } catch (NoSuchUploadException e) {
+            log.debug("Multipart upload '{}' of '{}' is already completed", uploadId, key);
+            return;
+        }
+        if (size != expectedSize) {
+            throw new UploadRejectedException("Uploaded parts of " + key + " add up to " + size
+                    + " bytes, expected " + expectedSize);
+        }
+        client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(location.bucket())
+                .key(location.key())
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+        log.info("Completed multipart upload '{}' of '{}' ({} parts, {} bytes)", uploadId, key, parts.size(), size);
+    }
+
+    @Override
+    public void abortUpload(String key, String multipartUploadId) {
+        try {
+            Location location = router.locate(key);
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .uploadId(multipartUploadId)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload '{}' for: {}", multipartUploadId, key, e);
+        }
+    }
+
+    @Override
+    public void saveSession(String key, UploadSession session) {
+        S3ErrorMapper.validateKey(key);
+        Properties properties = new Properties();
+        properties.setProperty("id", session.getId());
+        setIfPresent(properties, "generationId", session.getGenerationId());
+        setIfPresent(properties, "enhancementId", session.getEnhancementId());
+        properties.setProperty("storagePrefix", session.getStoragePrefix());
+        properties.setProperty("expiresAt", session.getExpiresAt().toString());
+        properties.setProperty("files", Integer.toString(session.getFiles().size()));
+        for (int i = 0; i < session.getFiles().size(); i++) {
+            StagedFile file = session.getFiles().get(i);
+            String prefix = "file." + i + ".";
+            properties.setProperty(prefix + "filename", file.getFilename());
+            properties.setProperty(prefix + "size", Long.toString(file.getSize()));
+            properties.setProperty(prefix + "stagingKey", file.getStagingKey());
+            setIfPresent(properties, prefix + "contentType", file.getContentType());
+            setIfPresent(properties, prefix + "sha256", file.getSha256());
+            setIfPresent(properties, prefix + "multipartUploadId", file.getMultipartUploadId());
+        }
+        Location location = router.locate(key);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            properties.store(out, null);
+            client.putObject(PutObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .build(), RequestBody.fromBytes(out.toByteArray()));
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    @Override
+    public UploadSession loadSession(String key) {
+        S3ErrorMapper.validateKey(key);
+        Properties properties = new Properties();
+        Location location = router.locate(key);
+        try (InputStream in = client.getObject(GetObjectRequest.builder()
+                .bucket(location.bucket())
+                .key(location.key())
+                .build())) {
+            properties.load(in);
+        } catch (NoSuchKeyException e) {
+            throw new StorageFileNotFoundException("Upload session not found: " + key, e);
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+        int fileCount = Integer.parseInt(properties.getProperty("files"));
+        List<StagedFile> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            String prefix = "file." + i + ".";
+            files.add(StagedFile.builder()
+                    .filename(properties.getProperty(prefix + "filename"))
+                    .contentType(properties.getProperty(prefix + "contentType"))
+                    .size(Long.parseLong(properties.getProperty(prefix + "size")))
+                    .sha256(properties.getProperty(prefix + "sha256"))
+                    .stagingKey(properties.getProperty(prefix + "stagingKey"))
+                    .multipartUploadId(properties.getProperty(prefix + "multipartUploadId"))
+                    .build());
+        }
+        return UploadSession.builder()
+                .id(properties.getProperty("id"))
+                .generationId(properties.getProperty("generationId"))
+                .enhancementId(properties.getProperty("enhancementId"))
+                .storagePrefix(properties.getProperty("storagePrefix"))
+                .expiresAt(Instant.parse(properties.getProperty("expiresAt")))
+                .files(files)
+                .build();
+    }
+
+    @Override
+    public void deleteSession(String key) {
+        S3ErrorMapper.validateKey(key);
+        Location location = router.locate(key);
+        try {
+            client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build());
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    private static void setIfPresent(Properties properties, String name, String value) {
+        if (value != null) {
+            properties.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Returns the headers the client has to send, as they are covered by the signature. The host is implied by the URL.
+     */
+    private static Map<String, String> headers(SdkHttpRequest request) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        request.headers().forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return headers;
+    }
+
+    /**
+     * Converts a base64 SHA-256 checksum as returned by S3 to hex.
+     * @return the hex checksum, or null if there is none or it is a composite checksum of the parts of a multipart upload
+     */
+    private static String sha256(String checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        try {
+            byte[] digest = Base64.getDecoder().decode(checksum);
+            return digest.length == 32 ? HexFormat.of().formatHex(digest) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static URI toUri(URL url) {
+        return URI.create(url.toString());
+    }
+}
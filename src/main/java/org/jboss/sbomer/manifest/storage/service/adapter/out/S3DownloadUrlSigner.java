@@ -0,0 +1,180 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.S3BucketRouter.Location;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUrl;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DownloadUrlSigner;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+/**
+ * Signs S3 GET URLs, so clients can download large objects directly from the bucket.
+ * Signed URLs are cached per key for half of their validity: a burst of downloads of the same file is answered
+ * with the same URL without signing it again, and every URL handed out still has at least half of its validity left.
+ */
+@ApplicationScoped
+@Slf4j
+public class S3DownloadUrlSigner implements DownloadUrlSigner {
+
+    static final Duration DEFAULT_URL_VALIDITY = Duration.ofMinutes(15);
+    static final long DEFAULT_MAX_CACHED_URLS = 10_000;
+
+    @Inject
+    S3Client client;
+
+    @Inject
+    S3Presigner presigner;
+
+    @Inject
+    S3BucketRouter router;
+
+    // time S3 accepts a presigned url for
+    @ConfigProperty(name = "sbomer.storage.download.redirect.url-validity", defaultValue = "15M")
+    Duration urlValidity = DEFAULT_URL_VALIDITY;
+
+    // number of keys whose signed url is kept
+    @ConfigProperty(name = "sbomer.storage.download.redirect.max-cached-urls", defaultValue = "10000")
+    long maxCachedUrls = DEFAULT_MAX_CACHED_URLS;
+
+    private Cache<String, PresignedUrl> urls;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public S3DownloadUrlSigner() {}
+
+    /**
+     * Package-private constructor for testing.
+     * @param client S3Client instance used to look up the objects
+     * @param presigner S3Presigner instance used to sign the urls
+     * @param bucketName bucket name the objects are stored in
+     * @param urlValidity time S3 accepts a presigned url for
+     */
+    S3DownloadUrlSigner(S3Client client, S3Presigner presigner, String bucketName, Duration urlValidity) {
+        this.client = client;
+        this.presigner = presigner;
+        this.router = new S3BucketRouter(bucketName);
+        this.urlValidity = urlValidity;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        urls = Caffeine.newBuilder()
+                .maximumSize(maxCachedUrls)
+                .expireAfterWrite(urlValidity.dividedBy(2))
+                .build();
+    }
+
+    /**
+     * Returns a presigned GET URL of the object, signing it only if no URL of the key was signed recently.
+     * The object is looked up with a HEAD request first, to resolve a reference and to report its size and coding.
+     * Downloads through the URL are sent as an attachment named after the key, like downloads through this service.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageFileNotFoundException if object doesn't exist at specified key
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public PresignedUrl presignDownload(String key) {
+        S3ErrorMapper.validateKey(key);
+        // Concurrent requests for the same key wait for a single signature
+        return urls.get(key, this::presign);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        urls.invalidate(key);
+    }
+
+    private PresignedUrl presign(String key) {
+        StoredObject object = find(key);
+        String target = object.head().metadata().get(S3StorageAdapter.REFERENCE_METADATA);
+        if (target != null) {
+            object = find(target);
+        }
+        Location location = object.location();
+        HeadObjectResponse head = object.head();
+        String filename = key.substring(key.lastIndexOf('/') + 1);
+        try {
+            PresignedGetObjectRequest presigned = presigner.presignGetObject(GetObjectPresignRequest.builder()
+                    .signatureDuration(urlValidity)
+                    .getObjectRequest(GetObjectRequest.builder()
+                            .bucket(location.bucket())
+                            .key(location.key())
+                            .responseContentDisposition("attachment; filename=\"" + filename + "\"")
+                            .build())
+                    .build());
+            log.debug("Presigned download of '{}' from {} until {}", key, location, presigned.expiration());
+            return PresignedUrl.builder()
+                    .url(URI.create(presigned.url().toString()))
+                    .expiresAt(presigned.expiration())
+                    .size(head.contentLength() != null ? head.contentLength() : -1)
+                    .contentEncoding(head.contentEncoding())
+                    .build();
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    /**
+     * Looks up an object at its location, or at its legacy location if it isn't stored at the current one.
+     */
+    private StoredObject find(String key) {
+        Location location = router.locate(key);
+        try {
+            return new StoredObject(location, head(location, key));
+        } catch (StorageFileNotFoundException e) {
+            Location legacy = router.legacy(key);
+            if (legacy == null) {
+                throw e;
+            }
+            return new StoredObject(legacy, head(legacy, key));
+        }
+    }
+
+    private HeadObjectResponse head(Location location, String key) {
+        try {
+            return client.headObject(HeadObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build());
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, a missing key is only reported by the status code
+            if (e.statusCode() == NOT_FOUND.getStatusCode()) {
+                throw new StorageFileNotFoundException("File not found: " + key, e);
+            }
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    private record StoredObject(Location location, HeadObjectResponse head) {}
+}
@@ -0,0 +1,94 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static jakarta.ws.rs.core.Response.Status.FORBIDDEN;
+import static jakarta.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+import static jakarta.ws.rs.core.Response.Status.TOO_MANY_REQUESTS;
+
+import java.util.concurrent.CompletionException;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRateLimitedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Key validation and exception translation shared by the blocking and the non-blocking S3 adapters.
+ */
+final class S3ErrorMapper {
+
+    private S3ErrorMapper() {}
+
+    /**
+     * Validates storage key is not null, empty, or contains path traversal.
+     * @param key storage key to validate
+     * @throws StorageKeyInvalidException if key is invalid
+     */
+    static void validateKey(String key) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new StorageKeyInvalidException(key, "Key cannot be empty");
+        }
+        if (key.contains("..")) {
+            throw new StorageKeyInvalidException(key, "Path traversal not allowed");
+        }
+    }
+
+    /**
+     * Handles common exceptions and translates them to domain exceptions.
+     * Failures of asynchronous calls are unwrapped from their {@link CompletionException} first.
+     * @param e exception to handle
+     * @param bucketName bucket being accessed
+     * @param key object key being accessed
+     * @return appropriate domain exception
+     */
+    static RuntimeException handleException(Throwable e, String bucketName, String key) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof StorageException storageException) {
+            return storageException;
+        } else if (e instanceof NoSuchBucketException) {
+            return new StorageException("Storage bucket not found: " + bucketName, e);
+        } else if (e instanceof S3Exception s3Exception) {
+            return handleS3Exception(s3Exception, bucketName, key);
+        } else if (e instanceof SdkClientException) {
+            return new StorageUnavailableException("Unable to connect to storage bucket: " + bucketName, e);
+        } else {
+            return new StorageException("Unexpected error for: " + key, e);
+        }
+    }
+
+    /**
+     * Handles S3 exceptions and translates them to domain exceptions.
+     * Server errors are transient failures of the storage, reported as unavailable so the circuit breaker counts them.
+     * @param e S3 exception to handle
+     * @param bucketName bucket being accessed
+     * @param key object key being accessed
+     * @return appropriate domain exception
+     */
+    static RuntimeException handleS3Exception(S3Exception e, String bucketName, String key) {
+        int statusCode = e.statusCode();
+        if (statusCode == FORBIDDEN.getStatusCode()) {
+            return new StorageAccessException("Access denied to storage bucket: " + bucketName, e);
+        } else if (statusCode == TOO_MANY_REQUESTS.getStatusCode()) {
+            return new StorageRateLimitedException("Storage rate limit exceeded", e);
+        } else if (statusCode == SERVICE_UNAVAILABLE.getStatusCode() && isSlowDown(e)) {
+            // S3 throttles with 503 SlowDown rather than 429
+            return new StorageRateLimitedException("Storage rate limit exceeded", e);
+        } else if (statusCode >= INTERNAL_SERVER_ERROR.getStatusCode()) {
+            // e.g. 500 InternalError, 502 Bad Gateway of a proxy, 503 ServiceUnavailable or 504 Gateway Timeout
+            return new StorageUnavailableException("Storage unavailable (HTTP " + statusCode + ")", e);
+        } else {
+            return new StorageException("Storage error for: " + key, e);
+        }
+    }
+
+    private static boolean isSlowDown(S3Exception e) {
+        return e.awsErrorDetails() != null && "SlowDown".equals(e.awsErrorDetails().errorCode());
+    }
+}
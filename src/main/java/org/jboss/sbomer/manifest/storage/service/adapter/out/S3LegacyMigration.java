@@ -0,0 +1,146 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.S3BucketRouter.Location;
+
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Moves the objects stored in the primary bucket before the key layout was introduced to their location under the
+ * current layout, once, in the background after startup. Writes only go to the current location, so run it once
+ * after switching to a sharded layout, with the legacy fallback enabled until it finished, then disable both.
+ * An object is copied with its metadata, so references and recorded digests move along, unless its key was stored
+ * at its current location since, which then holds the newer content. The legacy object is removed in either case.
+ * Objects of the same key written while the migration copies them may be overwritten, run it in a quiet period.
+ */
+@ApplicationScoped
+@UnlessBuildProperty(name = "sbomer.storage.backend", stringValue = "filesystem", enableIfMissing = true)
+@Slf4j
+public class S3LegacyMigration {
+
+    @Inject
+    S3Client client;
+
+    @Inject
+    S3BucketRouter router;
+
+    // move the objects stored before sharding to their sharded location at startup, a one-off task
+    @ConfigProperty(name = "sbomer.storage.layout.migrate-legacy", defaultValue = "false")
+    boolean enabled;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public S3LegacyMigration() {}
+
+    /**
+     * Package-private constructor for testing.
+     * @param client S3Client instance to use
+     * @param router locates the objects of keys under the current layout
+     */
+    S3LegacyMigration(S3Client client, S3BucketRouter router) {
+        this.client = client;
+        this.router = router;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "storage-legacy-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Scans the primary bucket and moves every legacy object. An object that can't be moved is left in place
+     * and logged, the scan goes on; a failing listing ends it, and running it again resumes the move.
+     * @return the number of objects moved
+     */
+    long migrate() {
+        String bucket = router.getBucketName();
+        log.info("Moving objects stored before sharding in S3 bucket '{}' to their sharded location", bucket);
+        long moved = 0;
+        long failed = 0;
+        String continuationToken = null;
+        try {
+            do {
+                ListObjectsV2Response page = client.listObjectsV2(ListObjectsV2Request.builder()
+                        .bucket(bucket)
+                        .continuationToken(continuationToken)
+                        .build());
+                for (S3Object object : page.contents()) {
+                    if (!router.isLegacy(object.key())) {
+                        continue;
+                    }
+                    try {
+                        move(new Location(bucket, object.key()));
+                        moved++;
+                    } catch (RuntimeException e) {
+                        log.warn("Failed to move {} to its sharded location, it is left in place", object.key(), e);
+                        failed++;
+                    }
+                }
+                continuationToken = Boolean.TRUE.equals(page.isTruncated()) ? page.nextContinuationToken() : null;
+            } while (continuationToken != null);
+        } catch (RuntimeException e) {
+            log.error("Moving objects stored before sharding stopped after {} objects, run it again to resume", moved, e);
+            return moved;
+        }
+        log.info("Moved {} objects stored before sharding to their sharded location, {} failed", moved, failed);
+        return moved;
+    }
+
+    private void move(Location legacy) {
+        Location target = router.locate(legacy.key());
+        if (exists(target)) {
+            log.debug("{} is stored at {} already, removing its legacy object", legacy.key(), target);
+        } else {
+            log.debug("Moving {} to {}", legacy, target);
+            client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(legacy.bucket())
+                    .sourceKey(legacy.key())
+                    .destinationBucket(target.bucket())
+                    .destinationKey(target.key())
+                    .build());
+        }
+        client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(legacy.bucket())
+                .key(legacy.key())
+                .build());
+    }
+
+    private boolean exists(Location location) {
+        try {
+            client.headObject(HeadObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, a missing key is only reported by the status code
+            if (e.statusCode() == NOT_FOUND.getStatusCode()) {
+                return false;
+            }
+            throw e;
+        }
+    }
+}
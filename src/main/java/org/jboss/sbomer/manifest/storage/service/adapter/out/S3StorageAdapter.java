@@ -1,46 +1,111 @@
 package org.jboss.sbomer.manifest.storage.service.adapter.out;
 
-import static jakarta.ws.rs.core.Response.Status.FORBIDDEN;
-import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
-import static jakarta.ws.rs.core.Response.Status.TOO_MANY_REQUESTS;
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import static jakarta.ws.rs.core.Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.S3BucketRouter.Location;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
 import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
 
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResult;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
 /**
  * S3 compatible storage adapter implementation using AWS SDK.
  * Provides upload and download operations for object storage backends.
+ * Objects are located through the {@link S3BucketRouter}, which maps keys to the bucket and object key they
+ * are stored at; if the legacy fallback is enabled, reads fall back to the legacy location of objects stored
+ * before sharding. Writes only go to the current location, legacy objects are moved by {@link S3LegacyMigration}.
  */
 @ApplicationScoped
+@UnlessBuildProperty(name = "sbomer.storage.backend", stringValue = "filesystem", enableIfMissing = true)
 @Slf4j
 public class S3StorageAdapter implements ObjectStorage {
 
+    static final long DEFAULT_MULTIPART_THRESHOLD = 16L * 1024 * 1024;
+    static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    static final int DEFAULT_BUFFER_POOL_SIZE = 4;
+    // S3 rejects the completion of multipart uploads with smaller parts, except for the last one
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    // user metadata of a reference object, holding the key of the object it refers to
+    static final String REFERENCE_METADATA = "sbomer-reference";
+    // user metadata holding the hex SHA-256 of the content as it was uploaded, recorded when it is published
+    static final String SHA256_METADATA = "sbomer-sha256";
+    // continuation token prefixes of listing pages of the sharded and of the legacy location
+    static final String SHARDED_PAGE = "s:";
+    static final String LEGACY_PAGE = "l:";
+
     @Inject
     protected S3Client client;
 
-    @ConfigProperty(name = "sbomer.storage.s3.bucket")
-    String bucketName;
+    @Inject
+    S3BucketRouter router;
+
+    // objects larger than this (or of unknown length) are streamed via multipart upload
+    @ConfigProperty(name = "sbomer.storage.s3.multipart.threshold", defaultValue = "16777216")
+    long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+
+    // S3 requires at least 5 MiB for every part except the last one
+    @ConfigProperty(name = "sbomer.storage.s3.multipart.part-size", defaultValue = "8388608")
+    int partSize = DEFAULT_PART_SIZE;
+
+    // part buffers are large enough to be humongous allocations, keep a few around instead of re-allocating
+    private final BlockingQueue<byte[]> partBuffers = new ArrayBlockingQueue<>(DEFAULT_BUFFER_POOL_SIZE);
 
     /**
      * Default constructor for CDI.
@@ -53,43 +118,216 @@ public class S3StorageAdapter implements ObjectStorage {
      * @param bucketName bucket name to use for storage operations
      */
     S3StorageAdapter(S3Client client, String bucketName) {
+        this(client, new S3BucketRouter(bucketName), DEFAULT_MULTIPART_THRESHOLD, DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * Package-private constructor for testing sharded layouts.
+     * @param client S3Client instance to use
+     * @param router router locating the objects of keys
+     */
+    S3StorageAdapter(S3Client client, S3BucketRouter router) {
+        this(client, router, DEFAULT_MULTIPART_THRESHOLD, DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * Package-private constructor for testing the multipart upload path.
+     * @param client S3Client instance to use
+     * @param bucketName bucket name to use for storage operations
+     * @param multipartThreshold size in bytes above which multipart upload is used
+     * @param partSize size in bytes of a single multipart upload part
+     */
+    S3StorageAdapter(S3Client client, String bucketName, long multipartThreshold, int partSize) {
+        this(client, new S3BucketRouter(bucketName), multipartThreshold, partSize);
+    }
+
+    private S3StorageAdapter(S3Client client, S3BucketRouter router, long multipartThreshold, int partSize) {
         this.client = client;
-        this.bucketName = bucketName;
+        this.router = router;
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+    }
+
+    /**
+     * Fails the startup on a part size S3 would only reject once the first large upload completes.
+     */
+    @PostConstruct
+    void init() {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalStateException("sbomer.storage.s3.multipart.part-size must be at least " + MIN_PART_SIZE
+                    + " bytes, S3 rejects smaller parts, but is: " + partSize);
+        }
     }
 
     /**
      * Uploads content to S3 compatible storage.
+     * Content up to the multipart threshold is sent with a single PUT, larger content (or content
+     * of unknown length) is streamed with a multipart upload, so at most one part is held in memory.
      * @param key object key (path) in bucket, must not be null or contain '..'
      * @param content content to upload as an InputStream
-     * @param contentLength size of content in bytes
+     * @param contentLength size of content in bytes, or a negative value if unknown
      * @param contentType MIME type of content (e.g., 'application/json')
+     * @param contentEncoding coding the content is compressed with (e.g., 'gzip'), stored as the
+     *                        Content-Encoding of the object, or null if the content is not compressed
+     * @param sha256 hex encoded SHA-256 of the content as uploaded, stored as user metadata, or null
+     * @return metadata of the stored object, with the ETag returned by S3; S3 does not return the modification time,
+     *         the time the upload completed is returned instead, truncated to seconds like the Last-Modified of S3
      * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
      * @throws StorageException if bucket doesn't exist or unexpected error occurs
      * @throws StorageAccessException if access is denied (HTTP 403)
      * @throws StorageUnavailableException if storage is unavailable or rate limited
      */
     @Override
-    public void upload(String key, InputStream content, long contentLength, String contentType) {
-        validateKey(key);
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        S3ErrorMapper.validateKey(key);
+        Map<String, String> metadata = sha256 != null ? Map.of(SHA256_METADATA, sha256) : Map.of();
+        Location location = router.locate(key);
         try {
-            log.info("Uploading to S3 bucket '{}': {}", bucketName, key);
-            PutObjectRequest request = PutObjectRequest.builder()
-                    .bucket(bucketName)
+            log.info("Uploading to S3 bucket '{}': {}", location.bucket(), location.key());
+            Uploaded uploaded;
+            if (contentLength >= 0 && contentLength <= multipartThreshold) {
+                // Enables AWS SDK's built-in retry mechanism to work with non-markable streams
+                // RequestBody.fromInputStream() fails on retry
+                // A body backed by an in-memory buffer allows unlimited retries
+                byte[] bytes = content.readAllBytes();
+                uploaded = putObject(location, bytes, bytes.length, contentType, contentEncoding, metadata);
+            } else {
+                uploaded = uploadMultipart(location, content, contentType, contentEncoding, metadata);
+            }
+            log.info("Uploaded to S3 bucket '{}': {} ({} bytes)", location.bucket(), location.key(), uploaded.size());
+            return ObjectMetadata.builder()
                     .key(key)
-                    .contentLength(contentLength)
+                    .size(uploaded.size())
                     .contentType(contentType)
+                    .contentEncoding(contentEncoding)
+                    .etag(uploaded.etag())
+                    .lastModified(Instant.now().truncatedTo(ChronoUnit.SECONDS))
+                    .sha256(sha256)
                     .build();
-            // Enables AWS SDK's built-in retry mechanism to work with non-markable streams
-            // RequestBody.fromInputStream() fails on retry
-            // RequestBody.fromBytes() allows unlimited retries
-            byte[] bytes = content.readAllBytes();
-            client.putObject(request, RequestBody.fromBytes(bytes));
-            log.info("Uploaded to S3 bucket '{}': {} ({} bytes)", bucketName, key, contentLength);
         } catch (Exception e) {
-            throw handleException(e, key);
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    /**
+     * Streams content to S3 with a multipart upload, reading it part by part into a reusable buffer.
+     * Each part is retried by the AWS SDK from the buffer, so non-markable streams stay retry-safe.
+     * Falls back to a single PUT if the content turns out to fit into one part.
+     * The multipart upload is aborted if any part fails, so no orphaned parts are left in the bucket.
+     * @param location bucket and object key to upload to
+     * @param content content to upload as an InputStream
+     * @param contentType MIME type of content
+     * @param contentEncoding coding the content is compressed with, or null
+     * @param metadata user metadata of the object
+     * @return the number of bytes uploaded and the ETag of the object
+     * @throws IOException if reading the content fails
+     */
+    private Uploaded uploadMultipart(Location location, InputStream content, String contentType, String contentEncoding,
+            Map<String, String> metadata) throws IOException {
+        byte[] buffer = acquirePartBuffer();
+        try {
+            int read = content.readNBytes(buffer, 0, buffer.length);
+            if (read < buffer.length) {
+                return putObject(location, buffer, read, contentType, contentEncoding, metadata);
+            }
+            String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .contentType(contentType)
+                    .contentEncoding(contentEncoding)
+                    .metadata(metadata)
+                    .build()).uploadId();
+            try {
+                List<CompletedPart> parts = new ArrayList<>();
+                int partNumber = 1;
+                long sent = 0;
+                while (read > 0) {
+                    UploadPartRequest request = UploadPartRequest.builder()
+                            .bucket(location.bucket())
+                            .key(location.key())
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength((long) read)
+                            .build();
+                    UploadPartResponse response = client.uploadPart(request, bufferBody(buffer, read, contentType));
+                    parts.add(CompletedPart.builder()
+                            .partNumber(partNumber)
+                            .eTag(response.eTag())
+                            .build());
+                    log.debug("Uploaded part {} of '{}' ({} bytes)", partNumber, location, read);
+                    sent += read;
+                    partNumber++;
+                    read = content.readNBytes(buffer, 0, buffer.length);
+                }
+                CompleteMultipartUploadResponse response = client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(location.bucket())
+                        .key(location.key())
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                        .build());
+                return new Uploaded(sent, response.eTag());
+            } catch (Exception e) {
+                abortMultipartUpload(location, uploadId);
+                throw e;
+            }
+        } finally {
+            releasePartBuffer(buffer);
+        }
+    }
+
+    /**
+     * Uploads the first {@code length} bytes of a buffer with a single PUT.
+     */
+    private Uploaded putObject(Location location, byte[] buffer, int length, String contentType, String contentEncoding,
+            Map<String, String> metadata) {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(location.bucket())
+                .key(location.key())
+                .contentLength((long) length)
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                .metadata(metadata)
+                .build();
+        PutObjectResponse response = client.putObject(request, bufferBody(buffer, length, contentType));
+        return new Uploaded(length, response.eTag());
+    }
+
+    /**
+     * Creates a request body over a buffer without copying it.
+     * Every (re)try gets a fresh stream over the same bytes.
+     */
+    private static RequestBody bufferBody(byte[] buffer, int length, String contentType) {
+        String mimeType = contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM;
+        return RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, length), length, mimeType);
+    }
+
+    private void abortMultipartUpload(Location location, String uploadId) {
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .uploadId(uploadId)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload '{}' for: {}", uploadId, location, e);
         }
     }
 
+    private byte[] acquirePartBuffer() {
+        byte[] buffer = partBuffers.poll();
+        return buffer != null && buffer.length == partSize ? buffer : new byte[partSize];
+    }
+
+    private void releasePartBuffer(byte[] buffer) {
+        partBuffers.offer(buffer);
+    }
+
     /**
      * Downloads content from S3 compatible storage.
      * @param key object key (path) in bucket, must not be null or contain ".."
@@ -102,72 +340,426 @@ public class S3StorageAdapter implements ObjectStorage {
      */
     @Override
     public InputStream download(String key) {
-        validateKey(key);
+        return download(key, null).getContent();
+    }
+
+    /**
+     * Downloads a range of content from S3 compatible storage.
+     * The range is forwarded to S3, so only the requested bytes are transferred.
+     * A reference is resolved with a second request for the object it refers to.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @param range range of the object to download, or null to download the whole object
+     * @return the content together with the size of the whole object (caller must close it)
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageFileNotFoundException if object doesn't exist at specified key
+     * @throws StorageRangeNotSatisfiableException if the range lies outside of the object
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        return download(key, range, true);
+    }
+
+    private ObjectContent download(String key, ByteRange range, boolean resolveReference) {
+        S3ErrorMapper.validateKey(key);
+        return withLegacyFallback(key, location -> download(location, key, range, resolveReference));
+    }
+
+    private ObjectContent download(Location location, String key, ByteRange range, boolean resolveReference) {
         try {
-            log.info("Downloading from S3 bucket '{}': {}", bucketName, key);
+            log.info("Downloading from S3 bucket '{}': {}{}", location.bucket(), location.key(), range != null ? " (" + range + ")" : "");
             GetObjectRequest request = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .range(range != null ? range.toHeaderValue() : null)
                     .build();
             ResponseInputStream<GetObjectResponse> responseInputStream = client.getObject(request);
-            long contentLength = responseInputStream.response().contentLength();
-            log.info("Downloaded from S3 bucket '{}': {} ({} bytes)", bucketName, key, contentLength);
-            return responseInputStream;
+            String target = responseInputStream.response().metadata().get(REFERENCE_METADATA);
+            if (resolveReference && target != null) {
+                responseInputStream.close();
+                log.debug("Resolved reference {} to {}", key, target);
+                return download(target, range, false);
+            }
+            ObjectContent content = toObjectContent(responseInputStream, responseInputStream.response());
+            log.info("Downloaded from S3 bucket '{}': {} ({} bytes)", location.bucket(), location.key(), content.getContentLength());
+            return content;
         } catch (NoSuchKeyException e) {
             throw new StorageFileNotFoundException("File not found: " + key, e);
+        } catch (S3Exception e) {
+            if (e.statusCode() == REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode()) {
+                // A reference has no content of its own, so any range of it is out of bounds
+                HeadObjectResponse head = headQuietly(location);
+                String target = head != null ? head.metadata().get(REFERENCE_METADATA) : null;
+                if (resolveReference && target != null) {
+                    log.debug("Resolved reference {} to {}", key, target);
+                    return download(target, range, false);
+                }
+                long objectSize = head != null && head.contentLength() != null ? head.contentLength() : -1;
+                throw new StorageRangeNotSatisfiableException("Range " + range + " not satisfiable for: " + key, objectSize, e);
+            }
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
         } catch (Exception e) {
-            throw handleException(e, key);
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
         }
     }
 
     /**
-     * Validates storage key is not null, empty, or contains path traversal.
-     * @param key storage key to validate
-     * @throws StorageKeyInvalidException if key is invalid
+     * Runs an operation on the location of a key, and again on its legacy location if no object was found.
      */
-    private void validateKey(String key) {
-        if (key == null || key.trim().isEmpty()) {
-            throw new StorageKeyInvalidException(key, "Key cannot be empty");
+    private <T> T withLegacyFallback(String key, Function<Location, T> operation) {
+        try {
+            return operation.apply(router.locate(key));
+        } catch (StorageFileNotFoundException e) {
+            Location legacy = router.legacy(key);
+            if (legacy == null) {
+                throw e;
+            }
+            log.debug("Falling back to legacy location of: {}", key);
+            return operation.apply(legacy);
         }
-        if (key.contains("..")) {
-            throw new StorageKeyInvalidException(key, "Path traversal not allowed");
+    }
+
+    /**
+     * Builds the domain content from a GET response, using Content-Range to find out
+     * which part of the object was returned and how large the whole object is.
+     */
+    private static ObjectContent toObjectContent(InputStream stream, GetObjectResponse response) {
+        long contentLength = response.contentLength() != null ? response.contentLength() : -1;
+        ObjectContent.ObjectContentBuilder builder = ObjectContent.builder()
+                .content(stream)
+                .contentLength(contentLength)
+                .objectSize(contentLength)
+                .contentType(response.contentType())
+                .contentEncoding(response.contentEncoding())
+                .etag(response.eTag())
+                .lastModified(response.lastModified())
+                .sha256(response.metadata().get(SHA256_METADATA));
+        if (response.contentRange() != null) {
+            // e.g. "bytes 0-99/1234", the size is "*" if unknown
+            Matcher matcher = CONTENT_RANGE.matcher(response.contentRange());
+            if (matcher.matches()) {
+                builder.range(ByteRange.of(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))));
+                if (!"*".equals(matcher.group(3))) {
+                    builder.objectSize(Long.parseLong(matcher.group(3)));
+                }
+            }
         }
+        return builder.build();
     }
 
     /**
-     * Handles common exceptions and translates them to domain exceptions.
-     * @param e exception to handle
-     * @param key object key being accessed
-     * @return appropriate domain exception
+     * Fetches the metadata of an object from S3 compatible storage with a HEAD request.
+     * The metadata of a reference is the metadata of the object it refers to.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @return size, content type, content encoding and validators of the object
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageFileNotFoundException if object doesn't exist at specified key
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
      */
-    private RuntimeException handleException(Exception e, String key) {
-        if (e instanceof NoSuchBucketException) {
-            return new StorageException("Storage bucket not found: " + bucketName, e);
-        } else if (e instanceof S3Exception s3Exception) {
-            return handleS3Exception(s3Exception, key);
-        } else if (e instanceof SdkClientException) {
-            return new StorageUnavailableException("Unable to connect to storage bucket: " + bucketName, e);
-        } else {
-            return new StorageException("Unexpected error for: " + key, e);
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        S3ErrorMapper.validateKey(key);
+        HeadObjectResponse response = head(key);
+        String target = response.metadata().get(REFERENCE_METADATA);
+        if (target != null) {
+            response = head(target);
         }
+        return ObjectMetadata.builder()
+                .key(key)
+                .size(response.contentLength() != null ? response.contentLength() : -1)
+                .contentType(response.contentType())
+                .contentEncoding(response.contentEncoding())
+                .etag(response.eTag())
+                .lastModified(response.lastModified())
+                .sha256(response.metadata().get(SHA256_METADATA))
+                .build();
     }
 
     /**
-     * Handles S3 exceptions and translates them to domain exceptions.
-     * @param e S3 exception to handle
-     * @param key object key being accessed
-     * @return appropriate domain exception
+     * Checks with a HEAD request whether an object or a reference is stored under the key.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
      */
-    private RuntimeException handleS3Exception(S3Exception e, String key) {
-        int statusCode = e.statusCode();
-        if (statusCode == FORBIDDEN.getStatusCode()) {
-            return new StorageAccessException("Access denied to storage bucket: " + bucketName, e);
-        } else if (statusCode == TOO_MANY_REQUESTS.getStatusCode()) {
-            return new StorageUnavailableException("Storage rate limit exceeded", e);
-        } else if (statusCode == SERVICE_UNAVAILABLE.getStatusCode()) {
-            return new StorageUnavailableException("Storage unavailable", e);
-        } else {
-            return new StorageException("Storage error for: " + key, e);
+    @Override
+    public boolean exists(String key) {
+        S3ErrorMapper.validateKey(key);
+        try {
+            head(key);
+            return true;
+        } catch (StorageFileNotFoundException e) {
+            return false;
         }
     }
+
+    /**
+     * Fetches the metadata of an object with a single HEAD request like {@link #getMetadata(String)},
+     * answering a missing object with null.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @return size, content type, content encoding and validators of the object, or null if it doesn't exist
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        try {
+            return getMetadata(key);
+        } catch (StorageFileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores an empty object under the key, with the target key in its user metadata.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @param targetKey key of the object the reference refers to
+     * @param contentType MIME type of the referenced content
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageException if bucket doesn't exist or unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        S3ErrorMapper.validateKey(key);
+        S3ErrorMapper.validateKey(targetKey);
+        Location location = router.locate(key);
+        try {
+            log.info("Storing reference in S3 bucket '{}': {} -> {}", location.bucket(), location.key(), targetKey);
+            client.putObject(PutObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .contentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM)
+                    .metadata(Map.of(REFERENCE_METADATA, targetKey))
+                    .build(), RequestBody.empty());
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    /**
+     * Lists a page of the objects stored under the prefix with ListObjectsV2.
+     * With a sharded layout the objects at the sharded location are listed first, followed by the objects
+     * at the legacy location if the legacy fallback is enabled; the continuation token records which of them the page
+     * continues. A key written again since sharding is listed at both locations until its legacy object is migrated.
+     * @param prefix key prefix, e.g. "gen-1/", must not be null or contain ".."
+     * @param continuationToken token of the previous page, or null for the first page
+     * @param maxKeys max number of objects of the page, S3 returns at most 1000
+     * @throws StorageKeyInvalidException if prefix is null, empty, or contains path traversal patterns
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        S3ErrorMapper.validateKey(prefix);
+        Location location = router.locatePrefix(prefix);
+        Location legacy = router.legacyPrefix(prefix);
+        if (legacy == null) {
+            return list(location, continuationToken, maxKeys, true);
+        }
+        if (continuationToken != null && continuationToken.startsWith(LEGACY_PAGE)) {
+            String token = continuationToken.substring(LEGACY_PAGE.length());
+            ObjectListing page = list(legacy, token.isEmpty() ? null : token, maxKeys, false);
+            return page.getNextContinuationToken() == null ? page : ObjectListing.builder()
+                    .objects(page.getObjects())
+                    .nextContinuationToken(LEGACY_PAGE + page.getNextContinuationToken())
+                    .build();
+        }
+        String token = continuationToken != null && continuationToken.startsWith(SHARDED_PAGE)
+                ? continuationToken.substring(SHARDED_PAGE.length()) : continuationToken;
+        ObjectListing page = list(location, token, maxKeys, true);
+        // the legacy objects follow on the next page, even if this one isn't full
+        return ObjectListing.builder()
+                .objects(page.getObjects())
+                .nextContinuationToken(page.getNextContinuationToken() != null
+                        ? SHARDED_PAGE + page.getNextContinuationToken() : LEGACY_PAGE)
+                .build();
+    }
+
+    private ObjectListing list(Location location, String continuationToken, int maxKeys, boolean layoutKeys) {
+        try {
+            log.debug("Listing S3 bucket '{}' under: {}", location.bucket(), location.key());
+            ListObjectsV2Response response = client.listObjectsV2(ListObjectsV2Request.builder()
+                    .bucket(location.bucket())
+                    .prefix(location.key())
+                    .continuationToken(continuationToken)
+                    .maxKeys(maxKeys)
+                    .build());
+            return ObjectListing.builder()
+                    .objects(response.contents().stream()
+                            .map(object -> ObjectMetadata.builder()
+                                    .key(layoutKeys ? router.key(object.key()) : object.key())
+                                    .size(object.size() != null ? object.size() : -1)
+                                    .etag(object.eTag())
+                                    .lastModified(object.lastModified())
+                                    .build())
+                            .toList())
+                    .nextContinuationToken(Boolean.TRUE.equals(response.isTruncated()) ? response.nextContinuationToken() : null)
+                    .build();
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), location.key());
+        }
+    }
+
+    /**
+     * Copies an object with a server-side copy, keeping its content type, encoding and metadata.
+     * The source and the target may be stored in different buckets of the same endpoint.
+     * S3 copies objects of up to 5 GiB with a single request.
+     * @param sourceKey key of the object to copy, must not be null or contain ".."
+     * @param targetKey key to copy the object to, must not be null or contain ".."
+     * @throws StorageKeyInvalidException if a key is null, empty, or contains path traversal patterns
+     * @throws StorageFileNotFoundException if no object exists at the source key
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        copy(sourceKey, targetKey, request -> {});
+    }
+
+    /**
+     * Copies an object like {@link #copy(String, String)}, replacing its metadata in the same request, so the
+     * SHA-256 is recorded without another write. Objects uploaded before the digest was recorded have none.
+     * @param sourceKey key of the object to copy, must not be null or contain ".."
+     * @param targetKey key to copy the object to, must not be null or contain ".."
+     * @param contentType MIME type of the content
+     * @param contentEncoding coding the content is compressed with, or null
+     * @param sha256 hex encoded SHA-256 of the content as uploaded, stored as user metadata, or null
+     * @return metadata of the copy, without its size, which S3 doesn't return for a copy
+     * @throws StorageKeyInvalidException if a key is null, empty, or contains path traversal patterns
+     * @throws StorageFileNotFoundException if no object exists at the source key
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        CopyObjectResult copied = copy(sourceKey, targetKey, request -> request
+                .metadataDirective(MetadataDirective.REPLACE)
+                .contentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM)
+                .contentEncoding(contentEncoding)
+                .metadata(sha256 != null ? Map.of(SHA256_METADATA, sha256) : Map.of()));
+        return ObjectMetadata.builder()
+                .key(targetKey)
+                .size(-1)
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                // S3 compatible stores may omit the result of a copy, its entity tag is then looked up later
+                .etag(copied != null ? copied.eTag() : null)
+                .lastModified(copied != null && copied.lastModified() != null
+                        ? copied.lastModified() : Instant.now().truncatedTo(ChronoUnit.SECONDS))
+                .sha256(sha256)
+                .build();
+    }
+
+    private CopyObjectResult copy(String sourceKey, String targetKey, Consumer<CopyObjectRequest.Builder> metadata) {
+        S3ErrorMapper.validateKey(sourceKey);
+        S3ErrorMapper.validateKey(targetKey);
+        Location target = router.locate(targetKey);
+        return withLegacyFallback(sourceKey, source -> copy(source, sourceKey, target, targetKey, metadata));
+    }
+
+    private CopyObjectResult copy(Location source, String sourceKey, Location target, String targetKey,
+            Consumer<CopyObjectRequest.Builder> metadata) {
+        try {
+            log.info("Copying in S3: {} -> {}", source, target);
+            CopyObjectRequest.Builder request = CopyObjectRequest.builder()
+                    .sourceBucket(source.bucket())
+                    .sourceKey(source.key())
+                    .destinationBucket(target.bucket())
+                    .destinationKey(target.key());
+            metadata.accept(request);
+            return client.copyObject(request.build()).copyObjectResult();
+        } catch (NoSuchKeyException e) {
+            throw new StorageFileNotFoundException("File not found: " + sourceKey, e);
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, target.bucket(), targetKey);
+        }
+    }
+
+    private HeadObjectResponse head(String key) {
+        return withLegacyFallback(key, location -> head(location, key));
+    }
+
+    private HeadObjectResponse head(Location location, String key) {
+        try {
+            log.debug("Fetching metadata from S3 bucket '{}': {}", location.bucket(), location.key());
+            return client.headObject(HeadObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build());
+        } catch (NoSuchKeyException e) {
+            throw new StorageFileNotFoundException("File not found: " + key, e);
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, a missing key is only reported by the status code
+            if (e.statusCode() == NOT_FOUND.getStatusCode()) {
+                throw new StorageFileNotFoundException("File not found: " + key, e);
+            }
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    /**
+     * Looks up an object after a range could not be satisfied, to resolve a reference or to report the valid range.
+     * @return the metadata of the object, or null if it can't be determined
+     */
+    private HeadObjectResponse headQuietly(Location location) {
+        try {
+            return client.headObject(HeadObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build());
+        } catch (Exception e) {
+            log.debug("Unable to determine size of: {}", location, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes an object from S3 compatible storage, at its legacy location too.
+     * Deleting an object that doesn't exist succeeds, as S3 delete is idempotent.
+     * @param key object key (path) in bucket, must not be null or contain ".."
+     * @throws StorageKeyInvalidException if key is null, empty, or contains path traversal patterns
+     * @throws StorageException if bucket doesn't exist or an unexpected error occurs
+     * @throws StorageAccessException if access is denied (HTTP 403)
+     * @throws StorageUnavailableException if storage is unavailable or rate limited
+     */
+    @Override
+    public void delete(String key) {
+        S3ErrorMapper.validateKey(key);
+        delete(router.locate(key), key);
+        Location legacy = router.legacy(key);
+        if (legacy != null) {
+            delete(legacy, key);
+        }
+    }
+
+    private void delete(Location location, String key) {
+        try {
+            log.info("Deleting from S3 bucket '{}': {}", location.bucket(), location.key());
+            client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(location.bucket())
+                    .key(location.key())
+                    .build());
+        } catch (Exception e) {
+            throw S3ErrorMapper.handleException(e, location.bucket(), key);
+        }
+    }
+
+    /**
+     * Size and ETag of an object as returned by the request that stored it.
+     */
+    private record Uploaded(long size, String etag) {}
 }
\ No newline at end of file
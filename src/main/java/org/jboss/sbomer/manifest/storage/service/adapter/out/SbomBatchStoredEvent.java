@@ -0,0 +1,51 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.jboss.sbomer.manifest.storage.service.core.ApplicationConstants;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+
+/**
+ * Event published once all files of an upload batch are stored, serialized as JSON.
+ * @param eventId unique id of the event, for consumers to drop redelivered events
+ * @param type always "SbomBatchStored"
+ * @param source component that published the event
+ * @param timestamp time the batch was stored
+ * @param generationId generation the files belong to
+ * @param enhancementId enhancement the files belong to, null for the files of the generation itself
+ * @param files stored files, in the order of the upload request
+ */
+public record SbomBatchStoredEvent(String eventId, String type, String source, Instant timestamp,
+        String generationId, String enhancementId, List<File> files) {
+
+    static final String TYPE = "SbomBatchStored";
+
+    /**
+     * A stored file.
+     * @param filename name of the file as uploaded
+     * @param storageKey key the file is stored under
+     * @param url permanent URL the file is served under
+     * @param size size in bytes of the uploaded content, -1 if unknown
+     * @param sha256 hex encoded SHA-256 of the file as the client uploaded it, whichever way it was uploaded: of the
+     *               compressed bytes if the client sent it with a Content-Encoding, of the uncompressed bytes if this
+     *               service compressed it for storage, so it matches a checksum the client took of the file it sent.
+     *               Null if the file was not hashed, i.e. for non-blocking uploads and for direct uploads in parts
+     *               without an announced checksum
+     */
+    public record File(String filename, String storageKey, String url, long size, String sha256) {}
+
+    static SbomBatchStoredEvent of(StoredBatch batch) {
+        return new SbomBatchStoredEvent(
+                UUID.randomUUID().toString(),
+                TYPE,
+                ApplicationConstants.COMPONENT_NAME,
+                batch.getStoredAt(),
+                batch.getGenerationId(),
+                batch.getEnhancementId(),
+                batch.getFiles().stream()
+                        .map(file -> new File(file.getFilename(), file.getStorageKey(), file.getUrl(), file.getSize(), file.getDigest()))
+                        .toList());
+    }
+}
@@ -0,0 +1,31 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.CacheStats;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.CacheAdministration;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Collects the statistics of the download cache tiers, in the order a download passes them.
+ */
+@ApplicationScoped
+public class CacheStatistics implements CacheAdministration {
+
+    @Inject
+    ObjectCache memoryCache;
+
+    @Inject
+    DiskCache diskCache;
+
+    @Override
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("memory", memoryCache.getStats());
+        stats.put("disk", diskCache.getStats());
+        return stats;
+    }
+}
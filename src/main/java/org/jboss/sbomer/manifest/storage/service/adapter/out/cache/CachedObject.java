@@ -0,0 +1,41 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+
+/**
+ * Content and metadata of a whole object held by the {@link ObjectCache}.
+ * The data buffer is never modified once the entry is cached, readers work on their own views of it.
+ */
+record CachedObject(ByteBuffer data, String contentType, String contentEncoding, String etag, Instant lastModified,
+        String sha256) {
+
+    int size() {
+        return data.capacity();
+    }
+
+    /**
+     * Returns a stream over the given part of the object, independent of other readers.
+     */
+    InputStream open(long offset, long length) {
+        ByteBuffer view = data.asReadOnlyBuffer();
+        view.position((int) offset);
+        view.limit((int) (offset + length));
+        return new ByteBufferInputStream(view);
+    }
+
+    ObjectMetadata toMetadata(String key) {
+        return ObjectMetadata.builder()
+                .key(key)
+                .size(size())
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                .etag(etag)
+                .lastModified(lastModified)
+                .sha256(sha256)
+                .build();
+    }
+}
@@ -0,0 +1,214 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache in front of the object storage.
+ * Whole downloads of objects up to the max entry size are served from the {@link ObjectCache},
+ * ranges are cut from cached objects but never populate the cache on their own.
+ * Uploads and deletes invalidate the key, so a re-uploaded file is fetched again.
+ */
+@Decorator
+@Priority(10)
+@Slf4j
+public class CachingObjectStorage implements ObjectStorage {
+
+    @Inject
+    @Delegate
+    ObjectStorage delegate;
+
+    @Inject
+    ObjectCache cache;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public CachingObjectStorage() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    CachingObjectStorage(ObjectStorage delegate, ObjectCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType) {
+        return upload(key, content, contentLength, contentType, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        try {
+            return delegate.upload(key, content, contentLength, contentType, contentEncoding, sha256);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    @Override
+    public InputStream download(String key) {
+        if (!cache.isEnabled()) {
+            return delegate.download(key);
+        }
+        return download(key, null).getContent();
+    }
+
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        if (!cache.isEnabled()) {
+            return delegate.download(key, range);
+        }
+        CachedObject cached = cache.get(key);
+        if (cached != null) {
+            return toObjectContent(key, cached, range);
+        }
+        if (range != null) {
+            return delegate.download(key, range);
+        }
+
+        long epoch = cache.epoch();
+        ObjectContent content = delegate.download(key, null);
+        if (!cache.admits(content.getContentLength())) {
+            return content;
+        }
+        CachedObject object;
+        try (content) {
+            object = new CachedObject(read(content), content.getContentType(), content.getContentEncoding(),
+                    content.getEtag(), content.getLastModified(), content.getSha256());
+        } catch (IOException e) {
+            throw new StorageException("Failed to read " + key + " from storage", e);
+        }
+        cache.put(key, epoch, object);
+        log.debug("Cached {} ({} bytes)", key, object.size());
+        return toObjectContent(key, object, null);
+    }
+
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        CachedObject cached = cache.isEnabled() ? cache.get(key) : null;
+        return cached != null ? cached.toMetadata(key) : delegate.getMetadata(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        CachedObject cached = cache.isEnabled() ? cache.get(key) : null;
+        return cached != null ? cached.toMetadata(key) : delegate.findMetadata(key);
+    }
+
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        try {
+            delegate.putReference(key, targetKey, contentType);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        return delegate.list(prefix, continuationToken, maxKeys);
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        try {
+            delegate.copy(sourceKey, targetKey);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(targetKey);
+            }
+        }
+    }
+
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        try {
+            return delegate.copy(sourceKey, targetKey, contentType, contentEncoding, sha256);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(targetKey);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            delegate.delete(key);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private ByteBuffer read(ObjectContent content) throws IOException {
+        ByteBuffer buffer = cache.allocate((int) content.getContentLength());
+        ReadableByteChannel channel = Channels.newChannel(content.getContent());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Content ended after " + buffer.position() + " of " + buffer.capacity() + " bytes");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ObjectContent toObjectContent(String key, CachedObject object, ByteRange range) {
+        ByteRange resolved = null;
+        if (range != null) {
+            resolved = range.resolve(object.size());
+            if (resolved == null) {
+                throw new StorageRangeNotSatisfiableException("Range " + range + " not satisfiable for " + key, object.size(), null);
+            }
+        }
+        long offset = resolved != null ? resolved.getFirst() : 0;
+        long length = resolved != null ? resolved.length() : object.size();
+        return ObjectContent.builder()
+                .content(object.open(offset, length))
+                .contentLength(length)
+                .objectSize(object.size())
+                .range(resolved)
+                .contentType(object.contentType())
+                .contentEncoding(object.contentEncoding())
+                .etag(object.etag())
+                .lastModified(object.lastModified())
+                .sha256(object.sha256())
+                .build();
+    }
+}
@@ -0,0 +1,542 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.CacheStats;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Size bounded cache of whole objects in a local directory, evicting the least recently used objects first.
+ * <p>
+ * Every object is stored as a data file with a metadata file next to it, both named after a hash of the key
+ * and a unique suffix. Content is first written to a temporary file and only moved into place once complete,
+ * so a file that is visible in the cache is never half-written. The index is rebuilt from the metadata files
+ * on startup, so the cache stays warm across restarts when the directory is on a persistent volume.
+ * <p>
+ * Files of removed entries are deleted with a delay, as a download may have been handed their path
+ * and not opened them yet.
+ * <p>
+ * An entry is only served for the metadata max age after it was cached or last validated, afterwards it is revalidated
+ * against the storage by its {@code ETag}, so a file replaced through another replica is not served for long.
+ */
+@ApplicationScoped
+@Slf4j
+public class DiskCache {
+
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TMP_DIRECTORY = "tmp";
+
+    @ConfigProperty(name = "sbomer.storage.disk-cache.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // should be a persistent volume, so the cache survives restarts
+    @ConfigProperty(name = "sbomer.storage.disk-cache.directory", defaultValue = "${java.io.tmpdir}/sbomer-storage-cache")
+    String directory;
+
+    // total bytes of content kept on disk
+    @ConfigProperty(name = "sbomer.storage.disk-cache.max-size", defaultValue = "2147483648")
+    long maxSize;
+
+    // larger objects are always streamed from the storage, must fit in a single memory mapping
+    @ConfigProperty(name = "sbomer.storage.disk-cache.max-entry-size", defaultValue = "268435456")
+    long maxEntrySize;
+
+    // entries are removed after this age even if they are still valid, so the cache does not keep unused files
+    @ConfigProperty(name = "sbomer.storage.disk-cache.max-age", defaultValue = "7D")
+    Duration maxAge;
+
+    // bounds how long content and metadata replaced through another replica may be served without revalidation
+    @ConfigProperty(name = "sbomer.storage.disk-cache.metadata-max-age", defaultValue = "30S")
+    Duration metadataMaxAge;
+
+    // time a removed file is kept for downloads that are about to send it
+    @ConfigProperty(name = "sbomer.storage.disk-cache.delete-delay", defaultValue = "60S")
+    Duration deleteDelay;
+
+    private Path root;
+    private Path tmp;
+
+    // guarded by this, in access order with the least recently used entry first
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    // guarded by this
+    private final Deque<PendingDelete> pendingDeletes = new ArrayDeque<>();
+    // guarded by this
+    private long size;
+    // guarded by this, incremented on every invalidation, so a fill started before it is not committed
+    private long epoch;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder bypassCount = new LongAdder();
+
+    /**
+     * Default constructor for CDI.
+     */
+    public DiskCache() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    DiskCache(Path directory, long maxSize, long maxEntrySize, Duration deleteDelay) {
+        this.enabled = true;
+        this.directory = directory.toString();
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+        this.maxAge = Duration.ofDays(7);
+        this.metadataMaxAge = Duration.ofSeconds(30);
+        this.deleteDelay = deleteDelay;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        root = Path.of(directory);
+        tmp = root.resolve(TMP_DIRECTORY);
+        try {
+            Files.createDirectories(tmp);
+            // Fills interrupted by the last shutdown
+            try (Stream<Path> files = Files.list(tmp)) {
+                files.forEach(DiskCache::deleteQuietly);
+            }
+            load();
+        } catch (IOException e) {
+            log.error("Failed to initialize disk cache in {}, it is disabled", root, e);
+            enabled = false;
+            return;
+        }
+        log.info("Disk cache enabled in {}: {} entries ({} of max {} bytes)", root, index.size(), size, maxSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached entry of the key, or null if the object is not cached.
+     */
+    Entry get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = index.get(key);
+            if (entry != null && entry.cachedAt().plus(maxAge).isBefore(Instant.now())) {
+                remove(key);
+                entry = null;
+            }
+        }
+        (entry != null ? hitCount : missCount).increment();
+        return entry;
+    }
+
+    /**
+     * Returns true if the entry was cached or last validated longer than the metadata max age ago,
+     * so it must be revalidated against the storage before it is served.
+     */
+    boolean needsRevalidation(Entry entry) {
+        return Duration.between(entry.validatedAt(), Instant.now()).compareTo(metadataMaxAge) >= 0;
+    }
+
+    /**
+     * Marks the entry as validated now, unless the key was invalidated since the epoch was taken.
+     * Only the index is updated, an entry loaded on startup is revalidated once first.
+     */
+    synchronized void revalidated(Entry entry, long startEpoch) {
+        if (epoch == startEpoch && index.get(entry.key()) == entry) {
+            index.put(entry.key(), entry.withValidatedAt(Instant.now()));
+        }
+    }
+
+    /**
+     * Returns the current invalidation epoch, to be passed to {@link Fill#commit} once the content is written.
+     */
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Removes the key from the cache.
+     * @return the new invalidation epoch
+     */
+    synchronized long invalidate(String key) {
+        epoch++;
+        remove(key);
+        purgePendingDeletes();
+        return epoch;
+    }
+
+    /**
+     * Starts writing an object of the given size to the cache.
+     * @return the fill to write the content to, or null if the object is not cached
+     */
+    Fill startFill(String key, long contentLength) {
+        if (contentLength < 0 || contentLength > maxEntrySize || contentLength > Integer.MAX_VALUE) {
+            bypassCount.increment();
+            return null;
+        }
+        try {
+            Path file = Files.createTempFile(tmp, null, DATA_SUFFIX);
+            return new Fill(key, contentLength, file, FileChannel.open(file, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            log.warn("Failed to create a file in disk cache {}", tmp, e);
+            return null;
+        }
+    }
+
+    public CacheStats getStats() {
+        if (!enabled) {
+            return CacheStats.builder().enabled(false).build();
+        }
+        synchronized (this) {
+            return CacheStats.builder()
+                    .enabled(true)
+                    .hitCount(hitCount.sum())
+                    .missCount(missCount.sum())
+                    .evictionCount(evictionCount.sum())
+                    .bypassCount(bypassCount.sum())
+                    .entryCount(index.size())
+                    .weightedSize(size)
+                    .maxSize(maxSize)
+                    .build();
+        }
+    }
+
+    private boolean commit(Fill fill, long startEpoch, String contentType, String contentEncoding, String etag,
+            Instant lastModified, String sha256) throws IOException {
+        fill.channel.force(false);
+        fill.channel.close();
+
+        String name = hash(fill.key) + "-" + UUID.randomUUID();
+        Path shard = root.resolve(name.substring(0, 2));
+        Files.createDirectories(shard);
+        Instant now = Instant.now();
+        Entry entry = new Entry(fill.key, shard.resolve(name + DATA_SUFFIX), fill.expectedSize, contentType,
+                contentEncoding, etag, lastModified, sha256, now, now);
+        Path metaTemp = Files.createTempFile(tmp, null, META_SUFFIX);
+        try {
+            writeMeta(entry, metaTemp);
+            synchronized (this) {
+                if (epoch != startEpoch) {
+                    log.debug("Not caching {} on disk, it was invalidated while it was read", fill.key);
+                    return false;
+                }
+                // Metadata first: data without metadata is cleaned up on startup, metadata without data too
+                Files.move(metaTemp, metaFile(entry.data()), StandardCopyOption.ATOMIC_MOVE);
+                Files.move(fill.file, entry.data(), StandardCopyOption.ATOMIC_MOVE);
+                add(entry);
+                evict();
+                purgePendingDeletes();
+            }
+            log.debug("Cached {} on disk ({} bytes)", fill.key, entry.size());
+            return true;
+        } finally {
+            deleteQuietly(metaTemp);
+        }
+    }
+
+    // guarded by this
+    private void add(Entry entry) {
+        Entry previous = index.put(entry.key(), entry);
+        size += entry.size();
+        if (previous != null) {
+            size -= previous.size();
+            scheduleDelete(previous);
+        }
+    }
+
+    // guarded by this
+    private void remove(String key) {
+        Entry entry = index.remove(key);
+        if (entry != null) {
+            size -= entry.size();
+            scheduleDelete(entry);
+        }
+    }
+
+    // guarded by this
+    private void evict() {
+        Iterator<Entry> eldest = index.values().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            size -= entry.size();
+            evictionCount.increment();
+            scheduleDelete(entry);
+        }
+    }
+
+    // guarded by this
+    private void scheduleDelete(Entry entry) {
+        // Without metadata the entry is not loaded again on startup, only the data file must stay for a while
+        deleteQuietly(metaFile(entry.data()));
+        pendingDeletes.add(new PendingDelete(entry.data(), System.nanoTime() + deleteDelay.toNanos()));
+    }
+
+    // guarded by this
+    private void purgePendingDeletes() {
+        long now = System.nanoTime();
+        while (!pendingDeletes.isEmpty() && pendingDeletes.peek().deadline() - now <= 0) {
+            deleteQuietly(pendingDeletes.poll().file());
+        }
+    }
+
+    /**
+     * Rebuilds the index from the metadata files, oldest entries first, and removes files of incomplete entries.
+     */
+    private synchronized void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            files = walk.filter(Files::isRegularFile).filter(file -> !file.startsWith(tmp)).toList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        Set<Path> referenced = new HashSet<>();
+        for (Path file : files) {
+            if (!file.getFileName().toString().endsWith(META_SUFFIX)) {
+                continue;
+            }
+            Entry entry = readMeta(file);
+            if (entry == null || !Files.isRegularFile(entry.data()) || Files.size(entry.data()) != entry.size()) {
+                deleteQuietly(file);
+                continue;
+            }
+            entries.add(entry);
+            referenced.add(entry.data());
+        }
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(DATA_SUFFIX) && !referenced.contains(file)) {
+                deleteQuietly(file);
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::cachedAt));
+        for (Entry entry : entries) {
+            add(entry);
+        }
+        // Replaced entries left behind by the last shutdown can go right away
+        pendingDeletes.forEach(pending -> deleteQuietly(pending.file()));
+        pendingDeletes.clear();
+        evict();
+    }
+
+    private static void writeMeta(Entry entry, Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("key", entry.key());
+        properties.setProperty("size", Long.toString(entry.size()));
+        properties.setProperty("data", entry.data().getFileName().toString());
+        properties.setProperty("cachedAt", entry.cachedAt().toString());
+        if (entry.contentType() != null) {
+            properties.setProperty("contentType", entry.contentType());
+        }
+        if (entry.contentEncoding() != null) {
+            properties.setProperty("contentEncoding", entry.contentEncoding());
+        }
+        if (entry.etag() != null) {
+            properties.setProperty("etag", entry.etag());
+        }
+        if (entry.lastModified() != null) {
+            properties.setProperty("lastModified", entry.lastModified().toString());
+        }
+        if (entry.sha256() != null) {
+            properties.setProperty("sha256", entry.sha256());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, null);
+        }
+    }
+
+    private static Entry readMeta(Path file) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            String lastModified = properties.getProperty("lastModified");
+            Instant cachedAt = Instant.parse(properties.getProperty("cachedAt"));
+            return new Entry(
+                    properties.getProperty("key"),
+                    file.resolveSibling(properties.getProperty("data")),
+                    Long.parseLong(properties.getProperty("size")),
+                    properties.getProperty("contentType"),
+                    properties.getProperty("contentEncoding"),
+                    properties.getProperty("etag"),
+                    lastModified != null ? Instant.parse(lastModified) : null,
+                    // null for entries cached before the checksum was recorded
+                    properties.getProperty("sha256"),
+                    cachedAt,
+                    cachedAt);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable disk cache metadata {}", file, e);
+            return null;
+        }
+    }
+
+    private static Path metaFile(Path data) {
+        String name = data.getFileName().toString();
+        return data.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX);
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {} from disk cache", file, e);
+        }
+    }
+
+    /**
+     * An object cached on disk, the data file holds the whole object.
+     * @param sha256 hex encoded SHA-256 of the content as uploaded, null if not known
+     * @param validatedAt time the entry was cached or last found unchanged in the storage
+     */
+    record Entry(String key, Path data, long size, String contentType, String contentEncoding, String etag,
+            Instant lastModified, String sha256, Instant cachedAt, Instant validatedAt) {
+
+        Entry withValidatedAt(Instant validatedAt) {
+            return new Entry(key, data, size, contentType, contentEncoding, etag, lastModified, sha256, cachedAt,
+                    validatedAt);
+        }
+
+        ObjectMetadata toMetadata() {
+            return ObjectMetadata.builder()
+                    .key(key)
+                    .size(size)
+                    .contentType(contentType)
+                    .contentEncoding(contentEncoding)
+                    .etag(etag)
+                    .lastModified(lastModified)
+                    .sha256(sha256)
+                    .build();
+        }
+    }
+
+    private record PendingDelete(Path file, long deadline) {}
+
+    /**
+     * Content of an object being written to the cache by a single thread.
+     * It is only visible to readers once committed, closing an uncommitted fill discards it.
+     */
+    final class Fill implements Closeable {
+
+        private final String key;
+        private final long expectedSize;
+        private final Path file;
+        private final FileChannel channel;
+        private long written;
+        private boolean failed;
+        private boolean closed;
+
+        private Fill(String key, long expectedSize, Path file, FileChannel channel) {
+            this.key = key;
+            this.expectedSize = expectedSize;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        /**
+         * Appends content to the fill. A failure to write only discards the fill, it is not reported.
+         */
+        void write(byte[] bytes, int offset, int length) {
+            if (closed || failed) {
+                return;
+            }
+            written += length;
+            if (written > expectedSize) {
+                failed = true;
+                return;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to write {} to disk cache, it is not cached", key, e);
+                failed = true;
+            }
+        }
+
+        /**
+         * Returns true if exactly the expected number of bytes was written.
+         */
+        boolean isComplete() {
+            return !failed && !closed && written == expectedSize;
+        }
+
+        /**
+         * Makes the complete content visible in the cache, unless the key was invalidated since the epoch was taken.
+         * @return true if the object is now cached
+         */
+        boolean commit(long startEpoch, String contentType, String contentEncoding, String etag, Instant lastModified,
+                String sha256) {
+            if (!isComplete()) {
+                close();
+                return false;
+            }
+            try {
+                return DiskCache.this.commit(this, startEpoch, contentType, contentEncoding, etag, lastModified, sha256);
+            } catch (IOException e) {
+                log.warn("Failed to commit {} to disk cache, it is not cached", key, e);
+                return false;
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close disk cache file {}", file, e);
+            }
+            // no-op once the file was moved into the cache
+            deleteQuietly(file);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache of the object storage on local disk, below the in-memory {@link CachingObjectStorage}.
+ * Whole downloads are copied to the {@link DiskCache} while they are streamed to the client, uploads while
+ * they are sent to the storage. Cached objects are served from a memory-mapped region of the file and
+ * expose the file, so the REST layer can send it without copying (sendfile). Once its metadata is older than
+ * the metadata max age, an object is revalidated with a metadata request before it is served again.
+ */
+@Decorator
+@Priority(20)
+@Slf4j
+public class DiskCachingObjectStorage implements ObjectStorage {
+
+    @Inject
+    @Delegate
+    ObjectStorage delegate;
+
+    @Inject
+    DiskCache cache;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public DiskCachingObjectStorage() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    DiskCachingObjectStorage(ObjectStorage delegate, DiskCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType) {
+        return upload(key, content, contentLength, contentType, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    /**
+     * Uploads the content and drops the cached copy of the key. The content is not cached by the upload:
+     * most uploaded files are never downloaded through this replica, so the copy is cached by the first download.
+     */
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        try {
+            return delegate.upload(key, content, contentLength, contentType, contentEncoding, sha256);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    @Override
+    public InputStream download(String key) {
+        if (!cache.isEnabled()) {
+            return delegate.download(key);
+        }
+        return download(key, null).getContent();
+    }
+
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        if (!cache.isEnabled()) {
+            return delegate.download(key, range);
+        }
+        DiskCache.Entry entry = lookup(key);
+        if (entry != null) {
+            ObjectContent cached = open(entry, range);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (range != null) {
+            return delegate.download(key, range);
+        }
+
+        long epoch = cache.epoch();
+        ObjectContent content = delegate.download(key, null);
+        DiskCache.Fill fill = cache.startFill(key, content.getContentLength());
+        if (fill == null) {
+            return content;
+        }
+        InputStream filling = new FillingInputStream(content.getContent(), fill,
+                complete -> complete.commit(epoch, content.getContentType(), content.getContentEncoding(), content.getEtag(),
+                        content.getLastModified(), content.getSha256()));
+        return content.toBuilder().content(filling).build();
+    }
+
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        DiskCache.Entry entry = cache.isEnabled() ? lookup(key) : null;
+        return entry != null ? entry.toMetadata() : delegate.getMetadata(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        DiskCache.Entry entry = cache.isEnabled() ? lookup(key) : null;
+        return entry != null ? entry.toMetadata() : delegate.findMetadata(key);
+    }
+
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        try {
+            delegate.putReference(key, targetKey, contentType);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        return delegate.list(prefix, continuationToken, maxKeys);
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        try {
+            delegate.copy(sourceKey, targetKey);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(targetKey);
+            }
+        }
+    }
+
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        try {
+            return delegate.copy(sourceKey, targetKey, contentType, contentEncoding, sha256);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(targetKey);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            delegate.delete(key);
+        } finally {
+            if (cache.isEnabled()) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached entry of the key, revalidated against the storage if its metadata is older than
+     * the metadata max age.
+     * @return the entry, or null if the object is not cached or was replaced in the storage
+     */
+    private DiskCache.Entry lookup(String key) {
+        DiskCache.Entry entry = cache.get(key);
+        if (entry == null || !cache.needsRevalidation(entry)) {
+            return entry;
+        }
+        long epoch = cache.epoch();
+        ObjectMetadata current;
+        try {
+            current = delegate.findMetadata(key);
+        } catch (RuntimeException e) {
+            // The copy is as good as it was before the storage failed
+            log.debug("Failed to revalidate {}, serving it from disk", key, e);
+            return entry;
+        }
+        if (current != null && entry.etag() != null && entry.etag().equals(current.getEtag())) {
+            cache.revalidated(entry, epoch);
+            return entry;
+        }
+        log.debug("Cached {} was replaced or deleted in the storage, removing it from disk", key);
+        cache.invalidate(key);
+        return null;
+    }
+
+    /**
+     * Maps the requested part of the cached file.
+     * @return the content, or null if the file can't be read and the object must be fetched from the storage
+     */
+    private ObjectContent open(DiskCache.Entry entry, ByteRange range) {
+        ByteRange resolved = null;
+        if (range != null) {
+            resolved = range.resolve(entry.size());
+            if (resolved == null) {
+                throw new StorageRangeNotSatisfiableException("Range " + range + " not satisfiable for " + entry.key(),
+                        entry.size(), null);
+            }
+        }
+        long offset = resolved != null ? resolved.getFirst() : 0;
+        long length = resolved != null ? resolved.length() : entry.size();
+        // The mapping stays valid after the channel is closed, and after the file is deleted
+        try (FileChannel channel = FileChannel.open(entry.data(), StandardOpenOption.READ)) {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            return ObjectContent.builder()
+                    .content(new ByteBufferInputStream(region))
+                    .contentLength(length)
+                    .objectSize(entry.size())
+                    .range(resolved)
+                    .contentType(entry.contentType())
+                    .contentEncoding(entry.contentEncoding())
+                    .etag(entry.etag())
+                    .lastModified(entry.lastModified())
+                    .sha256(entry.sha256())
+                    .file(entry.data())
+                    .build();
+        } catch (NoSuchFileException e) {
+            log.warn("Cached file {} of {} is gone, fetching it from storage", entry.data(), entry.key());
+            cache.invalidate(entry.key());
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read cached file {} of {}, fetching it from storage", entry.data(), entry.key(), e);
+            return null;
+        }
+    }
+}
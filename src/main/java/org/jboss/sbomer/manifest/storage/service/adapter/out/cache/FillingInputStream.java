@@ -0,0 +1,73 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Passes a stream through while copying every byte read into a {@link DiskCache.Fill}.
+ * Once the stream is read to the end or closed, the fill is handed to the completion callback,
+ * or discarded if there is none. Skipped bytes are not copied, which leaves the fill incomplete.
+ */
+final class FillingInputStream extends FilterInputStream {
+
+    private final DiskCache.Fill fill;
+    private final Consumer<DiskCache.Fill> onEnd;
+    private boolean ended;
+
+    /**
+     * @param onEnd called once with the fill when the stream ends, null to leave the fill to the caller
+     */
+    FillingInputStream(InputStream in, DiskCache.Fill fill, Consumer<DiskCache.Fill> onEnd) {
+        super(in);
+        this.fill = fill;
+        this.onEnd = onEnd;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b < 0) {
+            end();
+        } else {
+            fill.write(new byte[] { (byte) b }, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count < 0) {
+            end();
+        } else if (count > 0) {
+            fill.write(b, off, count);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            end();
+        }
+    }
+
+    private void end() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (onEnd != null) {
+            onEnd.accept(fill);
+        }
+    }
+}
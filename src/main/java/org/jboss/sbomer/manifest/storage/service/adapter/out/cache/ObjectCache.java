@@ -0,0 +1,149 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.CacheStats;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Size bounded in-process cache of whole objects, shared by all downloads.
+ * Entries are weighted by their size in bytes and evicted with Caffeine's W-TinyLFU policy,
+ * so a burst of one-off downloads does not push out the objects that are requested over and over.
+ */
+@ApplicationScoped
+@Slf4j
+public class ObjectCache {
+
+    @ConfigProperty(name = "sbomer.storage.cache.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // total bytes of content held by the cache
+    @ConfigProperty(name = "sbomer.storage.cache.max-size", defaultValue = "268435456")
+    long maxSize;
+
+    // larger objects are always streamed from the storage
+    @ConfigProperty(name = "sbomer.storage.cache.max-entry-size", defaultValue = "8388608")
+    long maxEntrySize;
+
+    // bounds how long a replica may serve content replaced through another replica
+    @ConfigProperty(name = "sbomer.storage.cache.expire-after-write", defaultValue = "1H")
+    Duration expireAfterWrite;
+
+    private Cache<String, CachedObject> cache;
+    private final LongAdder bypassCount = new LongAdder();
+    // incremented on every invalidation, so a download started before it does not cache stale content
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Default constructor for CDI.
+     */
+    public ObjectCache() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    ObjectCache(long maxSize, long maxEntrySize, Duration expireAfterWrite) {
+        this.enabled = true;
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+        this.expireAfterWrite = expireAfterWrite;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, CachedObject value) -> value.size())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        log.info("Download cache enabled: max size {} bytes, max entry size {} bytes", maxSize, maxEntrySize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns true if an object of the given size may be cached, counting a bypass otherwise.
+     */
+    boolean admits(long size) {
+        if (size >= 0 && size <= maxEntrySize && size <= Integer.MAX_VALUE) {
+            return true;
+        }
+        bypassCount.increment();
+        return false;
+    }
+
+    CachedObject get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Returns the current invalidation epoch, to be passed to {@link #put} once the content is read.
+     */
+    long epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Caches the object unless the key was invalidated since the epoch was taken.
+     */
+    void put(String key, long startEpoch, CachedObject object) {
+        if (epoch.get() != startEpoch) {
+            return;
+        }
+        cache.put(key, object);
+        // An invalidation racing with the put above may have run before it, check again
+        if (epoch.get() != startEpoch) {
+            cache.invalidate(key);
+        }
+    }
+
+    void invalidate(String key) {
+        epoch.incrementAndGet();
+        cache.invalidate(key);
+    }
+
+    /**
+     * Content is kept on the heap: an evicted entry may still be read by a download, so its buffer can't be
+     * released or reused right away, and direct buffers that are only freed by the garbage collector would let
+     * the memory held by evicted entries grow far beyond the max size.
+     */
+    ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size);
+    }
+
+    public CacheStats getStats() {
+        if (!enabled) {
+            return CacheStats.builder().enabled(false).build();
+        }
+        // Apply pending evictions so the sizes are exact
+        cache.cleanUp();
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+        return CacheStats.builder()
+                .enabled(true)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .bypassCount(bypassCount.sum())
+                .entryCount(cache.estimatedSize())
+                .weightedSize(cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .maxSize(maxSize)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a storage operation is shed before it reaches the storage service, because the service is
+ * throttling or failing and more requests would only prolong it.
+ * Maps to HTTP 503 Service Unavailable, with a Retry-After header.
+ */
+public class StorageOverloadedException extends StorageUnavailableException {
+    private final Duration retryAfter;
+
+    public StorageOverloadedException(String message, Duration retryAfter) {
+        super(message, null);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return time after which the client may try again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,23 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.exception;
+
+import static jakarta.ws.rs.core.Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE;
+
+/**
+ * Thrown when a requested byte range lies outside of the stored object.
+ * Maps to HTTP 416 Range Not Satisfiable.
+ */
+public class StorageRangeNotSatisfiableException extends StorageException {
+    private final long objectSize;
+
+    public StorageRangeNotSatisfiableException(String message, long objectSize, Throwable cause) {
+        super(message, cause, REQUESTED_RANGE_NOT_SATISFIABLE);
+        this.objectSize = objectSize;
+    }
+
+    /**
+     * @return size of the stored object, or -1 if unknown
+     */
+    public long getObjectSize() {
+        return objectSize;
+    }
+}
@@ -0,0 +1,11 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.exception;
+
+/**
+ * Thrown when the storage service rejects requests because its rate limit is exceeded.
+ * Maps to HTTP 503 Service Unavailable, like any other temporary unavailability.
+ */
+public class StorageRateLimitedException extends StorageUnavailableException {
+    public StorageRateLimitedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,213 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Metadata index in an embedded H2 MVStore, a persistent key-value store in a single local file.
+ * <p>
+ * Entries are kept in a sorted map from the storage key to the encoded metadata, so a lookup costs no more than
+ * a map access and the entries under a prefix are read in key order. Changes are written to the file in the
+ * background within a second. The index only caches what the storage holds: a file that can't be opened is
+ * replaced by an empty one, and an entry of an unknown format is treated as missing.
+ */
+@ApplicationScoped
+@Slf4j
+public class MVStoreMetadataIndex implements MetadataIndex {
+
+    private static final String MAP_NAME = "objects";
+    // first byte of every value, changed with the encoding
+    private static final byte FORMAT = 1;
+
+    @ConfigProperty(name = "sbomer.storage.index.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // should be on a persistent volume, so the index survives restarts
+    @ConfigProperty(name = "sbomer.storage.index.file", defaultValue = "${java.io.tmpdir}/sbomer-storage-index.mv.db")
+    String file;
+
+    private MVStore store;
+    private MVMap<String, byte[]> objects;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public MVStoreMetadataIndex() {}
+
+    /**
+     * Package-private constructor for testing, the index is kept in memory if the file is null.
+     */
+    MVStoreMetadataIndex(Path file) {
+        this.enabled = true;
+        this.file = file != null ? file.toString() : null;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            store = open();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to open metadata index {}, it is disabled", file, e);
+            enabled = false;
+            return;
+        }
+        objects = store.openMap(MAP_NAME);
+        log.info("Metadata index enabled in {}: {} entries", file, objects.size());
+    }
+
+    private MVStore open() throws IOException {
+        if (file == null) {
+            return MVStore.open(null);
+        }
+        Path path = Path.of(file).toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        try {
+            return new MVStore.Builder().fileName(path.toString()).open();
+        } catch (RuntimeException e) {
+            log.warn("Metadata index {} is unreadable, starting with an empty index", path, e);
+            Files.deleteIfExists(path);
+            return new MVStore.Builder().fileName(path.toString()).open();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public IndexedObject get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] value = objects.get(key);
+        return value != null ? decode(key, value) : null;
+    }
+
+    @Override
+    public void put(IndexedObject object) {
+        if (enabled) {
+            objects.put(object.getKey(), encode(object));
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        if (enabled) {
+            objects.remove(key);
+        }
+    }
+
+    @Override
+    public List<String> keys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        if (!enabled) {
+            return keys;
+        }
+        Iterator<String> iterator = objects.keyIterator(prefix);
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    static byte[] encode(IndexedObject object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeLong(object.getSize());
+            writeString(out, object.getContentType());
+            writeString(out, object.getContentEncoding());
+            writeString(out, object.getEtag());
+            writeString(out, object.getDigest());
+            writeInstant(out, object.getLastModified());
+            writeInstant(out, object.getIndexedAt());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the decoded entry, or null if it was written in another format
+     */
+    static IndexedObject decode(String key, byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            if (in.readByte() != FORMAT) {
+                return null;
+            }
+            return IndexedObject.builder()
+                    .key(key)
+                    .size(in.readLong())
+                    .contentType(readString(in))
+                    .contentEncoding(readString(in))
+                    .etag(readString(in))
+                    .digest(readString(in))
+                    .lastModified(readInstant(in))
+                    .indexedAt(readInstant(in))
+                    .build();
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable metadata index entry of {}", key, e);
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+}
@@ -0,0 +1,34 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.layout;
+
+/**
+ * Stores every object under its key, e.g. all files of a generation under the "{generationId}/" prefix.
+ */
+public final class FlatKeyLayout implements KeyLayout {
+
+    static final String NAME = "flat";
+
+    @Override
+    public String storageKey(String key) {
+        return key;
+    }
+
+    @Override
+    public String storagePrefix(String prefix) {
+        return prefix;
+    }
+
+    @Override
+    public String key(String storageKey) {
+        return storageKey;
+    }
+
+    @Override
+    public int shard(String key) {
+        return -1;
+    }
+
+    @Override
+    public int shards() {
+        return 0;
+    }
+}
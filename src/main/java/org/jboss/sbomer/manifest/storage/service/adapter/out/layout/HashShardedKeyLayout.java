@@ -0,0 +1,86 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.layout;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Stores objects under a shard prefix derived from the SHA-256 hash of their key, e.g. "gen-1/bom.json"
+ * under "3f/gen-1/bom.json", so that mass uploads spread over many prefixes instead of hitting the request
+ * rate limit of a single one.
+ * The shard of a key is the hash of its first segment, so all files of a generation share a shard and
+ * can still be listed with a single prefix. Blobs are all stored under "blobs/" and are sharded by their
+ * whole key instead. Staging keys are sharded by their whole key too, with the shard after the "staging/" prefix,
+ * e.g. "staging/3f/upload-1/bom.json", so a single lifecycle rule on "staging/" still expires every staged object.
+ */
+public final class HashShardedKeyLayout implements KeyLayout {
+
+    static final String NAME = "hash-sharded";
+    static final String BLOB_PREFIX = "blobs/";
+    static final String STAGING_PREFIX = "staging/";
+    // 4 characters are 65536 shards, more than any bucket needs
+    static final int MAX_SHARD_CHARS = 4;
+
+    private final int shardChars;
+
+    /**
+     * @param shardChars number of hex characters of the shard prefix, 1 to 4 (16 to 65536 shards)
+     */
+    public HashShardedKeyLayout(int shardChars) {
+        if (shardChars < 1 || shardChars > MAX_SHARD_CHARS) {
+            throw new IllegalArgumentException("Shard prefix must have 1 to " + MAX_SHARD_CHARS + " characters: " + shardChars);
+        }
+        this.shardChars = shardChars;
+    }
+
+    @Override
+    public String storageKey(String key) {
+        String shard = shardPrefix(key);
+        if (key.startsWith(STAGING_PREFIX)) {
+            return STAGING_PREFIX + shard + "/" + key.substring(STAGING_PREFIX.length());
+        }
+        return shard + "/" + key;
+    }
+
+    @Override
+    public String storagePrefix(String prefix) {
+        if (prefix.startsWith(BLOB_PREFIX) || prefix.startsWith(STAGING_PREFIX) || prefix.indexOf('/') < 0) {
+            throw new IllegalArgumentException("Keys under '" + prefix + "' are stored in different shards");
+        }
+        return storageKey(prefix);
+    }
+
+    @Override
+    public String key(String storageKey) {
+        if (storageKey.startsWith(STAGING_PREFIX)) {
+            return STAGING_PREFIX + storageKey.substring(STAGING_PREFIX.length() + shardChars + 1);
+        }
+        return storageKey.substring(shardChars + 1);
+    }
+
+    @Override
+    public int shard(String key) {
+        return Integer.parseInt(shardPrefix(key), 16);
+    }
+
+    @Override
+    public int shards() {
+        return 1 << (4 * shardChars);
+    }
+
+    private String shardPrefix(String key) {
+        int end = key.indexOf('/');
+        boolean whole = key.startsWith(BLOB_PREFIX) || key.startsWith(STAGING_PREFIX) || end < 0;
+        String source = whole ? key : key.substring(0, end);
+        return HexFormat.of().formatHex(sha256(source)).substring(0, shardChars);
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.layout;
+
+/**
+ * Strategy mapping the keys of the service to the keys objects are stored under in the storage provider.
+ * Keys stay unchanged everywhere else, in the core, in references and in permanent URLs, so a layout can be
+ * changed without changing how files are addressed.
+ */
+public interface KeyLayout {
+
+    /**
+     * Key the object of a key is stored under.
+     * @param key key of the object, e.g. "gen-1/bom.json"
+     */
+    String storageKey(String key);
+
+    /**
+     * Prefix the objects of the keys starting with a prefix are stored under.
+     * @param prefix key prefix spanning at least the first segment of the keys, e.g. "gen-1/"
+     * @throws IllegalArgumentException if the objects under the prefix aren't stored under a common prefix
+     */
+    String storagePrefix(String prefix);
+
+    /**
+     * Key of an object stored under a storage key, the inverse of {@link #storageKey(String)}.
+     */
+    String key(String storageKey);
+
+    /**
+     * Shard the object of a key is stored in, in the range [0, {@link #shards()}).
+     * @return the shard, or -1 if the key isn't sharded
+     */
+    int shard(String key);
+
+    /**
+     * Number of shards of the layout, 0 if it doesn't shard keys.
+     */
+    int shards();
+
+    /**
+     * Creates the layout of a name.
+     * @param name "flat" or "hash-sharded"
+     * @param shardChars number of hex characters of the shard prefix of the hash-sharded layout
+     * @throws IllegalArgumentException if the name or the number of characters is unsupported
+     */
+    static KeyLayout of(String name, int shardChars) {
+        return switch (name) {
+            case FlatKeyLayout.NAME -> new FlatKeyLayout();
+            case HashShardedKeyLayout.NAME -> new HashShardedKeyLayout(shardChars);
+            default -> throw new IllegalArgumentException("Unsupported key layout: " + name);
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRateLimitedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.inject.Inject;
+
+/**
+ * Records every call to the object storage adapter with Micrometer: latency per operation and outcome,
+ * operations in flight, bytes sent and received, and errors by category.
+ * It is the innermost decorator, below the cache tiers, so it measures the storage provider and not cache hits.
+ * The latency of a download is the time until its stream is returned, reading the content is counted in bytes.
+ */
+@Decorator
+@Priority(30)
+public class MetricsObjectStorage implements ObjectStorage {
+
+    static final String OPERATIONS = "sbomer.storage.operations";
+    static final String ACTIVE = "sbomer.storage.operations.active";
+    static final String ERRORS = "sbomer.storage.errors";
+    static final String BYTES = "sbomer.storage.bytes";
+
+    @Inject
+    @Delegate
+    ObjectStorage delegate;
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public MetricsObjectStorage() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    MetricsObjectStorage(ObjectStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType) {
+        return upload(key, content, contentLength, contentType, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        InputStream counted = new CountingInputStream(content, bytes("in"));
+        return record("upload", () -> delegate.upload(key, counted, contentLength, contentType, contentEncoding, sha256));
+    }
+
+    @Override
+    public InputStream download(String key) {
+        InputStream content = record("download", () -> delegate.download(key));
+        return new CountingInputStream(content, bytes("out"));
+    }
+
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        ObjectContent content = record("download", () -> delegate.download(key, range));
+        return content.toBuilder()
+                .content(new CountingInputStream(content.getContent(), bytes("out")))
+                .build();
+    }
+
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        return record("metadata", () -> delegate.getMetadata(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return record("exists", () -> delegate.exists(key));
+    }
+
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        return record("metadata", () -> delegate.findMetadata(key));
+    }
+
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        return record("list", () -> delegate.list(prefix, continuationToken, maxKeys));
+    }
+
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        record("put_reference", () -> {
+            delegate.putReference(key, targetKey, contentType);
+            return null;
+        });
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        record("copy", () -> {
+            delegate.copy(sourceKey, targetKey);
+            return null;
+        });
+    }
+
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        return record("copy", () -> delegate.copy(sourceKey, targetKey, contentType, contentEncoding, sha256));
+    }
+
+    @Override
+    public void delete(String key) {
+        record("delete", () -> {
+            delegate.delete(key);
+            return null;
+        });
+    }
+
+    private <T> T record(String operation, Supplier<T> call) {
+        LongTaskTimer.Sample active = LongTaskTimer.builder(ACTIVE)
+                .description("Object storage operations in flight")
+                .tag("operation", operation)
+                .register(registry)
+                .start();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "success";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = "error";
+            Counter.builder(ERRORS)
+                    .description("Failed object storage operations")
+                    .tag("operation", operation)
+                    .tag("category", category(e))
+                    .register(registry)
+                    .increment();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(OPERATIONS)
+                    .description("Latency of object storage operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            active.stop();
+        }
+    }
+
+    private Counter bytes(String direction) {
+        return Counter.builder(BYTES)
+                .description("Bytes sent to (in) and received from (out) the object storage")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    /**
+     * Category of a failure, following the exceptions the storage adapter translates provider errors to.
+     */
+    static String category(Throwable e) {
+        if (e instanceof StorageFileNotFoundException) {
+            return "not_found";
+        } else if (e instanceof StorageRateLimitedException) {
+            return "rate_limited";
+        } else if (e instanceof StorageUnavailableException) {
+            return "unavailable";
+        } else if (e instanceof StorageAccessException) {
+            return "access_denied";
+        } else if (e instanceof StorageKeyInvalidException) {
+            return "invalid_key";
+        } else if (e instanceof StorageRangeNotSatisfiableException) {
+            return "range_not_satisfiable";
+        }
+        return "error";
+    }
+
+    /**
+     * Counts the bytes read through the stream as they are read.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.increment(n);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.metrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier thread, e.g. inside a synchronized block
+ * of a client library, as such a thread holds a carrier and defeats running blocking endpoints on virtual threads.
+ * Pinning is taken from the JFR {@code jdk.VirtualThreadPinned} event: every occurrence is counted, and the
+ * stack trace of each distinct pinning site is logged once.
+ */
+@ApplicationScoped
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    static final String PINNED = "sbomer.virtual-threads.pinned";
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    // bounds the memory used to log every pinning site once
+    private static final int MAX_LOGGED_SITES = 100;
+    private static final int LOGGED_FRAMES = 20;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "quarkus.virtual-threads.enabled", defaultValue = "false")
+    boolean virtualThreads;
+
+    // shorter pins are not reported, every blocking call inside a synchronized block is a pin
+    @ConfigProperty(name = "sbomer.virtual-threads.pinned-threshold", defaultValue = "20ms")
+    Duration threshold;
+
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!virtualThreads || Runtime.version().feature() < 21) {
+            return;
+        }
+        Counter pinned = Counter.builder(PINNED)
+                .description("Virtual threads blocked while pinned to their carrier thread")
+                .register(registry);
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, pin -> {
+            pinned.increment();
+            report(pin);
+        });
+        stream.startAsync();
+        log.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void report(RecordedEvent pin) {
+        if (pin.getStackTrace() == null) {
+            return;
+        }
+        List<RecordedFrame> frames = pin.getStackTrace().getFrames();
+        String stack = frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + "(line " + frame.getLineNumber() + ")")
+                .collect(Collectors.joining("\n"));
+        if (loggedSites.size() < MAX_LOGGED_SITES && loggedSites.add(stack)) {
+            log.warn("Virtual thread pinned to its carrier for {} ms:\n{}", pin.getDuration().toMillis(), stack);
+        }
+    }
+}
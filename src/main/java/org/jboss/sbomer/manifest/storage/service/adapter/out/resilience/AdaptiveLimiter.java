@@ -0,0 +1,189 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounds the storage operations in flight with a limit adapted to the throttling of the storage service (AIMD).
+ * The limit grows by one per round of successful operations while it is in use, and is cut by the backoff ratio
+ * when the service throttles. Only the first throttled operation started after a cut cuts again, so a burst of
+ * throttle responses to operations that were already in flight counts once.
+ * Operations above the limit are not queued, they are shed.
+ */
+@ApplicationScoped
+@Slf4j
+public class AdaptiveLimiter {
+
+    static final String LIMIT = "sbomer.storage.throttling.limit";
+    static final String IN_FLIGHT = "sbomer.storage.throttling.in-flight";
+
+    @ConfigProperty(name = "sbomer.storage.throttling.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "sbomer.storage.throttling.initial-limit", defaultValue = "64")
+    int initialLimit;
+
+    @ConfigProperty(name = "sbomer.storage.throttling.min-limit", defaultValue = "4")
+    int minLimit;
+
+    @ConfigProperty(name = "sbomer.storage.throttling.max-limit", defaultValue = "512")
+    int maxLimit;
+
+    // the limit is multiplied by this ratio when the storage service throttles
+    @ConfigProperty(name = "sbomer.storage.throttling.backoff-ratio", defaultValue = "0.5")
+    double backoffRatio;
+
+    // sent to clients of shed requests
+    @ConfigProperty(name = "sbomer.storage.throttling.retry-after", defaultValue = "1S")
+    Duration retryAfter;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double limit;
+    // incremented on every cut of the limit
+    private long epoch;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public AdaptiveLimiter() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, MeterRegistry registry) {
+        this.enabled = true;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.retryAfter = Duration.ofSeconds(1);
+        this.registry = registry;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        limit = Math.max(1, Math.min(maxLimit, Math.max(minLimit, initialLimit)));
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder(LIMIT, this, AdaptiveLimiter::getLimit)
+                .description("Max number of object storage operations in flight, adapted to throttling")
+                .register(registry);
+        Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("Object storage operations in flight under the adaptive limit")
+                .register(registry);
+        log.info("Adaptive storage limit enabled: initial {}, between {} and {}", (int) limit, minLimit, maxLimit);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return a permit to release once the operation completed, null if the operation is to be shed
+     */
+    public Permit tryAcquire() {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        long acquiredEpoch;
+        int current;
+        synchronized (this) {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return null;
+            }
+            inFlight.incrementAndGet();
+            acquiredEpoch = epoch;
+        }
+        return new Permit(this, acquiredEpoch, current + 1);
+    }
+
+    private synchronized void onSuccess(Permit permit) {
+        inFlight.decrementAndGet();
+        // grow only while the limit is what bounds the operations, not while it is far from reached
+        if (permit.inFlight >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private synchronized void onThrottled(Permit permit) {
+        inFlight.decrementAndGet();
+        if (permit.epoch == epoch) {
+            epoch++;
+            limit = Math.max(minLimit, limit * backoffRatio);
+            log.warn("Storage is throttling, limit of operations in flight cut to {}", (int) limit);
+        }
+    }
+
+    private void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Operation admitted by the limiter. Exactly one of its methods is to be called when the operation completed.
+     */
+    public static final class Permit {
+
+        // handed out while the limiter is disabled
+        static final Permit NONE = new Permit(null, 0, 0);
+
+        private final AdaptiveLimiter limiter;
+        private final long epoch;
+        private final int inFlight;
+
+        private Permit(AdaptiveLimiter limiter, long epoch, int inFlight) {
+            this.limiter = limiter;
+            this.epoch = epoch;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * The storage service answered, whether with content or with an error of the request.
+         */
+        public void success() {
+            if (limiter != null) {
+                limiter.onSuccess(this);
+            }
+        }
+
+        /**
+         * The storage service throttled the operation.
+         */
+        public void throttled() {
+            if (limiter != null) {
+                limiter.onThrottled(this);
+            }
+        }
+
+        /**
+         * The operation failed for a reason that says nothing about the load of the storage service.
+         */
+        public void ignore() {
+            if (limiter != null) {
+                limiter.onIgnored();
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stops calling the storage service after consecutive failures showing it is unavailable or throttling.
+ * The circuit stays open for the open duration, then a single operation probes the service: it closes the circuit
+ * if the service answers, and opens it again if the service still fails.
+ */
+@ApplicationScoped
+@Slf4j
+public class CircuitBreaker {
+
+    static final String STATE = "sbomer.storage.circuit-breaker.state";
+    static final String TRIPS = "sbomer.storage.circuit-breaker.trips";
+
+    /**
+     * State of the circuit, its ordinal is reported as gauge.
+     */
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    @ConfigProperty(name = "sbomer.storage.circuit-breaker.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // consecutive failed operations opening the circuit
+    @ConfigProperty(name = "sbomer.storage.circuit-breaker.failure-threshold", defaultValue = "10")
+    int failureThreshold;
+
+    @ConfigProperty(name = "sbomer.storage.circuit-breaker.open-duration", defaultValue = "30S")
+    Duration openDuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    LongSupplier nanoTime = System::nanoTime;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private Counter trips;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public CircuitBreaker() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    CircuitBreaker(int failureThreshold, Duration openDuration, MeterRegistry registry, LongSupplier nanoTime) {
+        this.enabled = true;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.registry = registry;
+        this.nanoTime = nanoTime;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder(STATE, this, breaker -> breaker.getState().ordinal())
+                .description("State of the object storage circuit breaker: 0 closed, 1 half-open, 2 open")
+                .register(registry);
+        trips = Counter.builder(TRIPS)
+                .description("Times the object storage circuit breaker opened")
+                .register(registry);
+        log.info("Storage circuit breaker enabled: opens for {} after {} consecutive failures",
+                openDuration, failureThreshold);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return true if the operation may call the storage service, false if it is to be shed
+     */
+    public synchronized boolean tryAcquire() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && nanoTime.getAsLong() - openUntil >= 0) {
+            // let this operation probe the service, the others are shed until it completed
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The storage service answered, whether with content or with an error of the request.
+     */
+    public synchronized void onSuccess() {
+        if (!enabled) {
+            return;
+        }
+        failures = 0;
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            log.info("Storage answered again, circuit closed");
+        }
+    }
+
+    /**
+     * The storage service is unavailable or throttling.
+     */
+    public synchronized void onFailure() {
+        if (!enabled) {
+            return;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openUntil = nanoTime.getAsLong() + openDuration.toNanos();
+            trips.increment();
+            log.warn("Storage failed {} times in a row, circuit open for {}", failures, openDuration);
+        }
+    }
+
+    /**
+     * The operation was shed by another limit after it was admitted, or it completed in a way that says nothing
+     * about the storage service. Lets another operation probe the service if this one was the probe.
+     */
+    public synchronized void onIgnored() {
+        if (enabled && state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * @return time until the circuit lets an operation probe the storage service again, at least one second
+     */
+    public synchronized Duration getRetryAfter() {
+        long remaining = state == State.OPEN ? openUntil - nanoTime.getAsLong() : 0;
+        return Duration.ofNanos(Math.max(remaining, Duration.ofSeconds(1).toNanos()));
+    }
+}
@@ -0,0 +1,325 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.virtual.threads.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hedges downloads against slow responses of the storage service: if a download has not returned after the hedging
+ * delay, an identical second one is started and the first to return wins. The loser is not interrupted, as its
+ * request is still in flight and keeps its share of the load shedding limit until it returns; its stream is closed
+ * as soon as it does.
+ * The delay is either fixed or the observed 95th percentile of the download latency. A budget refilled by a share of
+ * all downloads caps the extra load hedging adds to the storage service.
+ * Once hedging is active, every download is started on a thread of its own, so the caller can give up waiting on it.
+ * Those are virtual threads if they are enabled, otherwise a bounded pool; a download finding every thread of the pool
+ * busy runs on the caller's thread without being hedged, and a hedge finding them busy runs on the caller's thread.
+ */
+@ApplicationScoped
+@Slf4j
+public class DownloadHedger {
+
+    static final String HEDGED = "sbomer.storage.hedging.hedged";
+    static final String WINS = "sbomer.storage.hedging.wins";
+    static final String SKIPPED = "sbomer.storage.hedging.skipped";
+
+    // the latency is not known before this many downloads were observed
+    private static final int MIN_SAMPLES = 100;
+    private static final int SAMPLES = 1000;
+    // unused budget is kept for a burst of this many hedges
+    private static final double MAX_TOKENS = 10;
+
+    @ConfigProperty(name = "sbomer.storage.hedging.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // 0 to hedge after the observed 95th percentile of the download latency
+    @ConfigProperty(name = "sbomer.storage.hedging.delay", defaultValue = "0S")
+    Duration delay;
+
+    // lower bound of the observed delay, hedging faster responses gains too little
+    @ConfigProperty(name = "sbomer.storage.hedging.min-delay", defaultValue = "20ms")
+    Duration minDelay;
+
+    // max share of downloads that are hedged
+    @ConfigProperty(name = "sbomer.storage.hedging.max-ratio", defaultValue = "0.05")
+    double maxRatio;
+
+    // max number of download threads, unless downloads run on virtual threads
+    @ConfigProperty(name = "sbomer.storage.hedging.max-concurrency", defaultValue = "64")
+    int maxConcurrency;
+
+    // executes on virtual threads if they are enabled and supported by the JVM, on the worker pool otherwise
+    @Inject
+    @VirtualThreads
+    ExecutorService virtualThreadExecutor;
+
+    // run downloads on virtual threads instead of a pool of maxConcurrency platform threads, requires Java 21
+    @ConfigProperty(name = "quarkus.virtual-threads.enabled", defaultValue = "false")
+    boolean virtualThreads;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ExecutorService executor;
+    private final long[] samples = new long[SAMPLES];
+    private long sampleCount;
+    private long observedDelayNanos = -1;
+    private double tokens;
+    private Counter hedged;
+    private Counter skipped;
+    private Counter primaryWins;
+    private Counter hedgeWins;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public DownloadHedger() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    DownloadHedger(Duration delay, Duration minDelay, double maxRatio, int maxConcurrency, MeterRegistry registry) {
+        this.enabled = true;
+        this.delay = delay;
+        this.minDelay = minDelay;
+        this.maxRatio = maxRatio;
+        this.maxConcurrency = maxConcurrency;
+        this.registry = registry;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        // Before Java 21 the virtual thread executor runs tasks on the worker pool, where a download waiting for
+        // its attempts on a worker thread could take the threads the attempts are queued for
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            executor = virtualThreadExecutor;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            // no queue, a download either gets a thread right away or runs on the caller's thread
+            executor = new ThreadPoolExecutor(0, Math.max(1, maxConcurrency), 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "storage-download-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        hedged = Counter.builder(HEDGED)
+                .description("Downloads a second request was started for")
+                .register(registry);
+        skipped = Counter.builder(SKIPPED)
+                .description("Slow downloads not hedged because the hedging budget was used up")
+                .register(registry);
+        primaryWins = wins("primary");
+        hedgeWins = wins("hedge");
+        log.info("Hedging downloads after {}, at most {} of them",
+                delay.isZero() ? "the observed p95 latency" : delay, maxRatio);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null && executor != virtualThreadExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a download, hedging it if it is slow.
+     * @param download the download, called a second time to hedge it
+     * @return result of the download that returned first
+     */
+    public <T extends Closeable> T download(Supplier<T> download) {
+        if (!enabled) {
+            return download.get();
+        }
+        long delayNanos = deposit();
+        if (delayNanos < 0) {
+            // the latency is not known yet, measure it without hedging
+            return measure(download);
+        }
+
+        CompletableFuture<Attempt<T>> winner = new CompletableFuture<>();
+        // attempts still running, the last one to fail fails the download
+        AtomicInteger running = new AtomicInteger(1);
+        try {
+            executor.submit(() -> attempt(download, false, winner, running));
+        } catch (RejectedExecutionException e) {
+            log.debug("Every download thread is busy, not hedging the download");
+            return measure(download);
+        }
+        try {
+            return winner.get(delayNanos, TimeUnit.NANOSECONDS).result();
+        } catch (TimeoutException e) {
+            // slow, hedge it below
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(winner);
+            throw new StorageException("Interrupted while downloading", e);
+        }
+
+        boolean hedging = false;
+        if (withdraw()) {
+            // the hedge counts as running before it is started, so a primary failing meanwhile isn't taken for
+            // the last attempt; if it already was, the download failed and there is nothing left to hedge
+            if (running.getAndUpdate(count -> count > 0 ? count + 1 : count) > 0) {
+                hedged.increment();
+                hedging = true;
+                try {
+                    executor.submit(() -> attempt(download, true, winner, running));
+                } catch (RejectedExecutionException e) {
+                    // the caller waits for the download anyway
+                    attempt(download, true, winner, running);
+                }
+            } else {
+                refund();
+            }
+        } else {
+            skipped.increment();
+        }
+        try {
+            Attempt<T> first = winner.get();
+            if (hedging) {
+                (first.hedge() ? hedgeWins : primaryWins).increment();
+            }
+            return first.result();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(winner);
+            throw new StorageException("Interrupted while downloading", e);
+        }
+    }
+
+    private <T> T measure(Supplier<T> download) {
+        long start = System.nanoTime();
+        T result = download.get();
+        record(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Completes the download with the result of an attempt, unless the other attempt returned first.
+     * The download fails with the failure of the last attempt, once every attempt failed.
+     * The latency of every attempt that returns is observed, of the loser as well, as only observing the winners
+     * would hide the slow responses that hedging is meant to cut off.
+     */
+    private <T extends Closeable> void attempt(Supplier<T> download, boolean hedge,
+            CompletableFuture<Attempt<T>> winner, AtomicInteger running) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = download.get();
+        } catch (RuntimeException e) {
+            if (running.decrementAndGet() == 0) {
+                winner.completeExceptionally(e);
+            }
+            return;
+        }
+        record(System.nanoTime() - start);
+        if (!winner.complete(new Attempt<>(result, hedge))) {
+            closeQuietly(result);
+        }
+    }
+
+    /**
+     * Adds the share of this download to the budget.
+     * @return delay after which the download is hedged in nanoseconds, -1 while it is not known
+     */
+    private synchronized long deposit() {
+        tokens = Math.min(MAX_TOKENS, tokens + maxRatio);
+        return delay.isZero() ? observedDelayNanos : delay.toNanos();
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Returns a withdrawn share to the budget when the hedge was not started after all.
+     */
+    private synchronized void refund() {
+        tokens = Math.min(MAX_TOKENS, tokens + 1);
+    }
+
+    /**
+     * Number of observed download latencies, for testing.
+     */
+    synchronized long sampleCount() {
+        return sampleCount;
+    }
+
+    private synchronized void record(long latencyNanos) {
+        samples[(int) (sampleCount++ % SAMPLES)] = latencyNanos;
+        // the percentile is recomputed every tenth of the window
+        if (sampleCount >= MIN_SAMPLES && sampleCount % (SAMPLES / 10) == 0) {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(sampleCount, SAMPLES));
+            Arrays.sort(sorted);
+            long p95 = sorted[(int) (sorted.length * 0.95) - 1];
+            observedDelayNanos = Math.max(minDelay.toNanos(), p95);
+        }
+    }
+
+    private Counter wins(String winner) {
+        return Counter.builder(WINS)
+                .description("Hedged downloads by the request that returned first")
+                .tag("winner", winner)
+                .register(registry);
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        return new StorageException("Download failed", e.getCause());
+    }
+
+    private record Attempt<T>(T result, boolean hedge) {}
+
+    /**
+     * Closes the result of the download once it returns, as nobody waits for it anymore.
+     */
+    private static <T extends Closeable> void abandon(CompletableFuture<Attempt<T>> winner) {
+        winner.thenAccept(first -> closeQuietly(first.result()));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Failed to close the download that lost the hedge", e);
+        }
+    }
+}
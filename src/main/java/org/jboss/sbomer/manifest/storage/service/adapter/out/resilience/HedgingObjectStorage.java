@@ -0,0 +1,110 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import java.io.InputStream;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.inject.Inject;
+
+/**
+ * Hedges downloads from the object storage with the {@link DownloadHedger}, other operations pass through.
+ * It sits below the cache tiers, so cache hits are never hedged, and above the load shedding and the metrics,
+ * so both requests of a hedged download pass the limiter and the circuit breaker, and are counted.
+ */
+@Decorator
+@Priority(23)
+public class HedgingObjectStorage implements ObjectStorage {
+
+    @Inject
+    @Delegate
+    ObjectStorage delegate;
+
+    @Inject
+    DownloadHedger hedger;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public HedgingObjectStorage() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    HedgingObjectStorage(ObjectStorage delegate, DownloadHedger hedger) {
+        this.delegate = delegate;
+        this.hedger = hedger;
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType) {
+        return delegate.upload(key, content, contentLength, contentType);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        return delegate.upload(key, content, contentLength, contentType, contentEncoding, sha256);
+    }
+
+    @Override
+    public InputStream download(String key) {
+        return hedger.download(() -> delegate.download(key));
+    }
+
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        return hedger.download(() -> delegate.download(key, range));
+    }
+
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        return delegate.getMetadata(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        return delegate.findMetadata(key);
+    }
+
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        return delegate.list(prefix, continuationToken, maxKeys);
+    }
+
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        delegate.putReference(key, targetKey, contentType);
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        delegate.copy(sourceKey, targetKey);
+    }
+
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        return delegate.copy(sourceKey, targetKey, contentType, contentEncoding, sha256);
+    }
+
+    @Override
+    public void delete(String key) {
+        delegate.delete(key);
+    }
+}
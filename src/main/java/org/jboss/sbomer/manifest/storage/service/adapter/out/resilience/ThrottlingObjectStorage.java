@@ -0,0 +1,187 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageOverloadedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRateLimitedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.inject.Inject;
+
+/**
+ * Sheds object storage operations with a {@link StorageOverloadedException} while the storage service is throttling
+ * or failing, instead of letting them wait on it and prolong the throttling.
+ * Operations pass the {@link AdaptiveLimiter} and then the {@link CircuitBreaker}, whose state they update with their
+ * outcome. It sits below the cache tiers, so cache hits are never shed, and above the metrics, which therefore only
+ * count operations that reached the storage service.
+ * A download is admitted until its stream is returned, reading the content is not limited.
+ * Deletes are never shed, they remove the files of failed batches.
+ */
+@Decorator
+@Priority(25)
+public class ThrottlingObjectStorage implements ObjectStorage {
+
+    static final String SHED = "sbomer.storage.shed";
+
+    @Inject
+    @Delegate
+    ObjectStorage delegate;
+
+    @Inject
+    AdaptiveLimiter limiter;
+
+    @Inject
+    CircuitBreaker breaker;
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * Default constructor for CDI.
+     */
+    public ThrottlingObjectStorage() {}
+
+    /**
+     * Package-private constructor for testing.
+     */
+    ThrottlingObjectStorage(ObjectStorage delegate, AdaptiveLimiter limiter, CircuitBreaker breaker,
+            MeterRegistry registry) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.registry = registry;
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType) {
+        return upload(key, content, contentLength, contentType, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    @Override
+    public ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256) {
+        return guard(() -> delegate.upload(key, content, contentLength, contentType, contentEncoding, sha256));
+    }
+
+    @Override
+    public InputStream download(String key) {
+        return guard(() -> delegate.download(key));
+    }
+
+    @Override
+    public ObjectContent download(String key, ByteRange range) {
+        return guard(() -> delegate.download(key, range));
+    }
+
+    @Override
+    public ObjectMetadata getMetadata(String key) {
+        return guard(() -> delegate.getMetadata(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return guard(() -> delegate.exists(key));
+    }
+
+    @Override
+    public ObjectMetadata findMetadata(String key) {
+        return guard(() -> delegate.findMetadata(key));
+    }
+
+    @Override
+    public ObjectListing list(String prefix, String continuationToken, int maxKeys) {
+        return guard(() -> delegate.list(prefix, continuationToken, maxKeys));
+    }
+
+    @Override
+    public void putReference(String key, String targetKey, String contentType) {
+        guard(() -> {
+            delegate.putReference(key, targetKey, contentType);
+            return null;
+        });
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) {
+        guard(() -> {
+            delegate.copy(sourceKey, targetKey);
+            return null;
+        });
+    }
+
+    @Override
+    public ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256) {
+        return guard(() -> delegate.copy(sourceKey, targetKey, contentType, contentEncoding, sha256));
+    }
+
+    @Override
+    public void delete(String key) {
+        delegate.delete(key);
+    }
+
+    private <T> T guard(Supplier<T> call) {
+        AdaptiveLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            shed("limit");
+            throw new StorageOverloadedException("Too many storage operations in flight", limiter.getRetryAfter());
+        }
+        if (!breaker.tryAcquire()) {
+            permit.ignore();
+            shed("circuit_open");
+            throw new StorageOverloadedException("Storage circuit breaker is open", breaker.getRetryAfter());
+        }
+        boolean completed = false;
+        try {
+            T result = call.get();
+            completed = true;
+            permit.success();
+            breaker.onSuccess();
+            return result;
+        } catch (StorageRateLimitedException e) {
+            completed = true;
+            permit.throttled();
+            breaker.onFailure();
+            throw e;
+        } catch (StorageUnavailableException e) {
+            completed = true;
+            permit.ignore();
+            breaker.onFailure();
+            throw e;
+        } catch (RuntimeException e) {
+            // the storage service answered, the request itself failed
+            completed = true;
+            permit.success();
+            breaker.onSuccess();
+            throw e;
+        } finally {
+            if (!completed) {
+                permit.ignore();
+                breaker.onIgnored();
+            }
+        }
+    }
+
+    private void shed(String reason) {
+        Counter.builder(SHED)
+                .description("Object storage operations shed before reaching the storage service")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,24 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an upload is not admitted because the uploads in flight already hold the byte budget of the service,
+ * and it could not wait for them to complete.
+ * Maps to HTTP 503 Service Unavailable, with a Retry-After header.
+ */
+public class UploadCapacityExceededException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public UploadCapacityExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return time after which the client may try again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
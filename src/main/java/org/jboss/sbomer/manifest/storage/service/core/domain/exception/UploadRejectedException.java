@@ -0,0 +1,13 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.exception;
+
+/**
+ * Thrown when an upload announced or committed by a client is invalid,
+ * e.g. a staged file does not match the size or checksum announced for it.
+ * Maps to HTTP 400 Bad Request.
+ */
+public class UploadRejectedException extends RuntimeException {
+
+    public UploadRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Formats a folder of stored files can be downloaded as a single archive in.
+ */
+@Getter
+public enum ArchiveFormat {
+    ZIP("zip", "application/zip"),
+    TAR("tar", "application/x-tar"),
+    TAR_GZ("tar.gz", "application/gzip");
+
+    // name of the format as requested by clients, also the file extension of the archive
+    private final String extension;
+    private final String mediaType;
+
+    ArchiveFormat(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Returns the format of an extension, case-insensitively, "tgz" is accepted for tar.gz.
+     * @return the format, or null if the extension is not supported
+     */
+    public static ArchiveFormat fromExtension(String extension) {
+        if (extension == null) {
+            return null;
+        }
+        String normalized = "tgz".equalsIgnoreCase(extension.trim()) ? TAR_GZ.extension : extension.trim();
+        return Arrays.stream(values())
+                .filter(format -> format.extension.equalsIgnoreCase(normalized))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,117 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A single range of bytes of a stored object, in the form used by the HTTP Range header.
+ * Either bound may be missing: {@code first-} reads to the end of the object,
+ * {@code -n} reads the last n bytes of the object.
+ */
+@Getter
+@EqualsAndHashCode
+public class ByteRange {
+
+    private static final String UNIT_PREFIX = "bytes=";
+
+    // offset of the first byte, null for a suffix range
+    private final Long first;
+    // offset of the last byte (inclusive), null for an open ended range
+    private final Long last;
+
+    private ByteRange(Long first, Long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public static ByteRange of(long first, long last) {
+        return new ByteRange(first, last);
+    }
+
+    public static ByteRange from(long first) {
+        return new ByteRange(first, null);
+    }
+
+    public static ByteRange suffix(long length) {
+        return new ByteRange(null, length);
+    }
+
+    /**
+     * Parses the value of an HTTP Range header.
+     * Only a single range is supported, headers with several ranges, other units or a malformed
+     * syntax yield null, which means the whole content is served as permitted by RFC 9110.
+     * @param header value of the Range header, may be null
+     * @return the requested range, or null if the whole content should be served
+     */
+    public static ByteRange parse(String header) {
+        if (header == null || !header.regionMatches(true, 0, UNIT_PREFIX, 0, UNIT_PREFIX.length())) {
+            return null;
+        }
+        String spec = header.substring(UNIT_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                return last.isEmpty() ? null : suffix(parseOffset(last));
+            }
+            if (last.isEmpty()) {
+                return from(parseOffset(first));
+            }
+            long firstOffset = parseOffset(first);
+            long lastOffset = parseOffset(last);
+            return lastOffset < firstOffset ? null : of(firstOffset, lastOffset);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isSuffix() {
+        return first == null;
+    }
+
+    /**
+     * Resolves both bounds of the range against the size of an object, as done by a storage provider.
+     * @param size size of the whole object in bytes
+     * @return the range with both bounds within the object, or null if no byte of the object is selected
+     */
+    public ByteRange resolve(long size) {
+        if (isSuffix()) {
+            return last == 0 || size == 0 ? null : of(Math.max(0, size - last), size - 1);
+        }
+        if (first >= size) {
+            return null;
+        }
+        return of(first, last == null ? size - 1 : Math.min(last, size - 1));
+    }
+
+    /**
+     * Number of bytes selected by a resolved range.
+     */
+    public long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * Formats the range as an HTTP Range header value, e.g. {@code bytes=0-99}.
+     */
+    public String toHeaderValue() {
+        return UNIT_PREFIX + (first != null ? first : "") + "-" + (last != null ? last : "");
+    }
+
+    @Override
+    public String toString() {
+        return toHeaderValue();
+    }
+
+    private static long parseOffset(String value) {
+        long offset = Long.parseLong(value);
+        if (offset < 0 || !Character.isDigit(value.charAt(0))) {
+            throw new NumberFormatException("Not a byte offset: " + value);
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,27 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Snapshot of the statistics of the download cache.
+ */
+@Getter
+@Builder
+public class CacheStats {
+    private final boolean enabled;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    // downloads not cached because the object is larger than the max entry size
+    private final long bypassCount;
+    private final long entryCount;
+    // bytes currently held by the cache
+    private final long weightedSize;
+    private final long maxSize;
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,51 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * Compression codings content can be stored with, named by their HTTP Content-Encoding token.
+ */
+@Getter
+public enum ContentCoding {
+    GZIP("gzip", new byte[] { 0x1f, (byte) 0x8b }),
+    ZSTD("zstd", new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd });
+
+    // longest magic number, enough leading bytes to recognize any coding
+    public static final int MAGIC_LENGTH = 4;
+
+    private final String token;
+    // leading bytes of every stream in this coding
+    private final byte[] magic;
+
+    ContentCoding(String token, byte[] magic) {
+        this.token = token;
+        this.magic = magic;
+    }
+
+    /**
+     * Returns the coding of a Content-Encoding token, case-insensitively.
+     * @return the coding, or null if the token is null, "identity" or not supported
+     */
+    public static ContentCoding fromToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        String normalized = token.trim();
+        return Arrays.stream(values())
+                .filter(coding -> coding.token.equalsIgnoreCase(normalized))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Returns true if the leading bytes of the content match the magic number of this coding.
+     */
+    public boolean matches(byte[] head, int length) {
+        if (length < magic.length) {
+            return false;
+        }
+        return Arrays.equals(head, 0, magic.length, magic, 0, magic.length);
+    }
+}
@@ -0,0 +1,16 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content that can be read more than once, e.g. a file uploaded to a local temporary file.
+ */
+@FunctionalInterface
+public interface ContentSource {
+
+    /**
+     * Opens a new stream over the whole content (caller must close it).
+     */
+    InputStream open() throws IOException;
+}
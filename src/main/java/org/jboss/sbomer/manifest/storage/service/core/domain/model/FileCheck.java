@@ -0,0 +1,15 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A file a client asks about before uploading it again.
+ */
+@Getter
+@Builder
+public class FileCheck {
+    private final String storageKey;
+    // hex encoded SHA-256 the client expects the stored content to have, null to only check that the file exists
+    private final String sha256;
+}
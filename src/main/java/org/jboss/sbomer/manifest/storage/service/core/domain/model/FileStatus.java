@@ -0,0 +1,26 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Answer to a {@link FileCheck}.
+ */
+@Getter
+@Builder
+public class FileStatus {
+    private final String storageKey;
+    private final boolean exists;
+    // true if the file exists and, if the client expects a checksum, its content is known to match it
+    private final boolean unchanged;
+    // size of the stored object in bytes, -1 if the file doesn't exist
+    private final long size;
+    // coding of the object as stored, e.g. "gzip", null if the object is not compressed
+    private final String contentEncoding;
+    // hex encoded SHA-256 of the content as uploaded, null if not known
+    private final String sha256;
+    private final String etag;
+    private final Instant lastModified;
+}
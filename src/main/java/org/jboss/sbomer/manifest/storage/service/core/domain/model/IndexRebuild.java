@@ -0,0 +1,18 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Outcome of rebuilding the metadata index entries of a generation from the storage.
+ */
+@Getter
+@Builder
+public class IndexRebuild {
+    private final boolean enabled;
+    private final String generationId;
+    // objects found in the storage and indexed
+    private final long indexedCount;
+    // entries of objects no longer in the storage
+    private final long removedCount;
+}
@@ -0,0 +1,74 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Metadata of a stored object as kept by the local metadata index.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class IndexedObject {
+    private final String key;
+    // size of the stored object in bytes
+    private final long size;
+    private final String contentType;
+    // coding of the object as stored, e.g. "gzip", null if the object is not compressed
+    private final String contentEncoding;
+    // entity tag as returned by the storage provider, null until the object was looked up in the storage
+    private final String etag;
+    private final Instant lastModified;
+    // hex encoded SHA-256 of the content as uploaded, before it was compressed, null if not known
+    private final String digest;
+    // time the entry was written, the storage provider's metadata is at least as recent
+    private final Instant indexedAt;
+
+    /**
+     * Builds the entry of an object looked up in the storage. The digest of the previous entry is kept
+     * if the object was not modified since it was indexed, as the storage may not know it.
+     * @param previous entry of the object so far, or null
+     */
+    public static IndexedObject of(ObjectMetadata metadata, IndexedObject previous, Instant now) {
+        String digest = metadata.getSha256();
+        if (digest == null && previous != null && previous.isCurrent(metadata)) {
+            digest = previous.getDigest();
+        }
+        return IndexedObject.builder()
+                .key(metadata.getKey())
+                .size(metadata.getSize())
+                .contentType(metadata.getContentType())
+                .contentEncoding(metadata.getContentEncoding())
+                .etag(metadata.getEtag())
+                .lastModified(metadata.getLastModified())
+                .digest(digest)
+                .indexedAt(now)
+                .build();
+    }
+
+    /**
+     * Returns the entry as the metadata the storage would return for the object.
+     */
+    public ObjectMetadata toMetadata() {
+        return ObjectMetadata.builder()
+                .key(key)
+                .size(size)
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                .etag(etag)
+                .lastModified(lastModified)
+                .sha256(digest)
+                .build();
+    }
+
+    /**
+     * Returns true if the stored object was not replaced since this entry was written.
+     */
+    private boolean isCurrent(ObjectMetadata metadata) {
+        if (etag != null && metadata.getEtag() != null) {
+            return etag.equals(metadata.getEtag());
+        }
+        return metadata.getLastModified() != null && indexedAt != null && !metadata.getLastModified().isAfter(indexedAt);
+    }
+}
@@ -0,0 +1,44 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Content of a stored object, or of a range of it, together with what is known about the whole object.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ObjectContent implements Closeable {
+    // raw stream from the storage provider (caller must close it)
+    private final InputStream content;
+    // number of bytes provided by content
+    private final long contentLength;
+    // size of the whole stored object
+    private final long objectSize;
+    // part of the object provided by content with both bounds resolved, null if content is the whole object
+    private final ByteRange range;
+    private final String contentType;
+    // coding of the content as stored, e.g. "gzip", null if the content is not compressed
+    private final String contentEncoding;
+    private final String etag;
+    private final Instant lastModified;
+    // hex encoded SHA-256 of the content as uploaded, as recorded when the object was published, null if not known
+    private final String sha256;
+    // local file holding the whole object, allows serving the content without copying it through the heap, may be null
+    private final Path file;
+
+    public boolean isPartial() {
+        return range != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
@@ -0,0 +1,18 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A single page of the objects stored under a prefix, in key order.
+ */
+@Getter
+@Builder
+public class ObjectListing {
+    // key, size, etag and last modified of each object, a reference reports the size of the reference itself
+    private final List<ObjectMetadata> objects;
+    // token to request the next page with, null if this is the last page
+    private final String nextContinuationToken;
+}
@@ -0,0 +1,26 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Metadata of a stored object, available without transferring its content.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ObjectMetadata {
+    private final String key;
+    // size of the stored object in bytes
+    private final long size;
+    private final String contentType;
+    // coding of the object as stored, e.g. "gzip", null if the object is not compressed
+    private final String contentEncoding;
+    // entity tag as returned by the storage provider, including the surrounding quotes
+    private final String etag;
+    private final Instant lastModified;
+    // hex encoded SHA-256 of the content as uploaded, before this service compressed it, as recorded when the object
+    // was published or verified by the storage provider, null if not known
+    private final String sha256;
+}
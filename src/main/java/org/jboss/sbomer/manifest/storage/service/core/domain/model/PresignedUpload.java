@@ -0,0 +1,28 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Short-lived URLs a client uploads a single file to, directly to the storage provider.
+ * The file is split into parts of the part size, part n is sent with a PUT to the n-th URL.
+ * A file uploaded with a single PUT has exactly one URL.
+ */
+@Getter
+@Builder
+public class PresignedUpload {
+    // multipart upload the parts belong to, null if the file is uploaded with a single PUT
+    private final String multipartUploadId;
+    // size of every part but the last one
+    private final long partSize;
+    private final List<URI> urls;
+    // headers to send with every PUT, they are covered by the signature
+    private final Map<String, String> headers;
+    // the urls are rejected by the storage provider after this instant
+    private final Instant expiresAt;
+}
@@ -0,0 +1,22 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.net.URI;
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Short-lived URL to download an object directly from the storage provider, bypassing this service.
+ */
+@Getter
+@Builder
+public class PresignedUrl {
+    private final URI url;
+    // the url is rejected by the storage provider after this instant
+    private final Instant expiresAt;
+    // size of the object served by the url in bytes
+    private final long size;
+    // coding the object is stored with, the storage provider sends it as is, null if not compressed
+    private final String contentEncoding;
+}
@@ -1,6 +1,8 @@
 package org.jboss.sbomer.manifest.storage.service.core.domain.model;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
 
 import lombok.Builder;
 import lombok.Getter;
@@ -10,6 +12,12 @@ import lombok.Getter;
 public class SbomFile {
     private String filename;
     private String contentType;
+    // coding the content was uploaded with, e.g. "gzip", null if the content is not compressed
+    private String contentEncoding;
     private InputStream content;
+    // re-openable content, used instead of content when the content must be read more than once
+    private ContentSource source;
+    // used instead of content by the non-blocking upload path
+    private Flow.Publisher<ByteBuffer> contentPublisher;
     private long size;
 }
@@ -0,0 +1,23 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A file of an upload session, uploaded by the client to a staging key until the session is committed.
+ */
+@Getter
+@Builder
+public class StagedFile {
+    private final String filename;
+    private final String contentType;
+    // size announced by the client, the staged object must match it
+    private final long size;
+    // hex encoded SHA-256 announced by the client, null if not provided
+    private final String sha256;
+    private final String stagingKey;
+    // multipart upload to complete on commit, null if the file is uploaded with a single PUT
+    private final String multipartUploadId;
+    // where and how to upload the file, only known when the session is started
+    private final PresignedUpload upload;
+}
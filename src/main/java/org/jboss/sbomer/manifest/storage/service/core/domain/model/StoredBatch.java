@@ -0,0 +1,21 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A batch of files stored together for a generation or one of its enhancements.
+ */
+@Getter
+@Builder
+public class StoredBatch {
+    private final String generationId;
+    // null if the files belong to the generation itself
+    private final String enhancementId;
+    // in the order of the upload request
+    private final List<StoredFile> files;
+    private final Instant storedAt;
+}
@@ -0,0 +1,23 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Outcome of storing a single file of a batch.
+ */
+@Getter
+@Builder
+public class StoredFile {
+    private final String filename;
+    private final String storageKey;
+    // permanent URL under which the file is served
+    private final String url;
+    // size in bytes of the uploaded content, before it was compressed for storage, -1 if unknown
+    private final long size;
+    // hex encoded SHA-256 of the content as the client uploaded it, before this service compressed it,
+    // null if the content was not hashed
+    private final String digest;
+    // true if identical content was already stored, so only a reference to it was written
+    private final boolean deduplicated;
+}
@@ -0,0 +1,18 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A file a client announces before uploading it directly to the storage provider.
+ */
+@Getter
+@Builder
+public class UploadRequest {
+    private final String filename;
+    private final String contentType;
+    // exact size of the file in bytes
+    private final long size;
+    // hex encoded SHA-256 of the content, null if the client does not provide it
+    private final String sha256;
+}
@@ -0,0 +1,23 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A batch of files uploaded directly to the storage provider, published together once committed.
+ */
+@Getter
+@Builder
+public class UploadSession {
+    private final String id;
+    // generation and enhancement the batch is announced for once committed, the enhancement is null for a generation
+    private final String generationId;
+    private final String enhancementId;
+    // folder the files are published to, e.g. {generationId}/{enhancementId}
+    private final String storagePrefix;
+    private final Instant expiresAt;
+    private final List<StagedFile> files;
+}
@@ -0,0 +1,24 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ArchiveFormat;
+
+public interface ArchiveAdministration {
+
+    /**
+     * Prepares an archive of every file stored under the generation, including those of its enhancements.
+     * Entries are named after their storage key, e.g. {generationId}/{enhancementId}/{filename}.
+     * @return the writer of the archive, or null if nothing is stored under the generation
+     */
+    ArchiveWriter openGenerationArchive(String generationId, ArchiveFormat format);
+
+    /**
+     * Streams an archive to the client. Storage failures surface as IOException once the archive is being written.
+     */
+    @FunctionalInterface
+    interface ArchiveWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
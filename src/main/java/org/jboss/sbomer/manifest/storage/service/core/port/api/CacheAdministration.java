@@ -0,0 +1,14 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.api;
+
+import java.util.Map;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.CacheStats;
+
+public interface CacheAdministration {
+
+    /**
+     * Returns hit, miss and eviction counts and the current size of every download cache tier,
+     * keyed by the name of the tier.
+     */
+    Map<String, CacheStats> getStats();
+}
@@ -0,0 +1,31 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.api;
+
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadRequest;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+
+/**
+ * Batches of files clients upload directly to the storage provider and publish with a commit.
+ */
+public interface DirectUploadAdministration {
+
+    /**
+     * Starts a session uploading files to the root of the generation folder.
+     * Path: {generationId}/{filename}
+     */
+    UploadSession startGenerationUpload(String generationId, List<UploadRequest> files);
+
+    /**
+     * Starts a session uploading files nested under the generation in an enhancement folder.
+     * Path: {generationId}/{enhancementId}/{filename}
+     */
+    UploadSession startEnhancementUpload(String generationId, String enhancementId, List<UploadRequest> files);
+
+    /**
+     * Verifies every file of the session against its announced size and checksum, then publishes all of them.
+     * If any file fails, none is published and the session can be committed again once the file is uploaded.
+     */
+    List<StoredFile> commitUpload(String sessionId);
+}
@@ -0,0 +1,12 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.api;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexRebuild;
+
+public interface IndexAdministration {
+
+    /**
+     * Replaces the metadata index entries of every file of a generation, including those of its enhancements,
+     * with the metadata found in the storage, and removes the entries of files no longer stored.
+     */
+    IndexRebuild rebuildGeneration(String generationId);
+}
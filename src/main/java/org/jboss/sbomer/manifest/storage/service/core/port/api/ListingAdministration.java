@@ -0,0 +1,20 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.api;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+
+public interface ListingAdministration {
+
+    /**
+     * Lists a page of the files stored under the generation, including those of its enhancements, in key order.
+     * Path: {generationId}/
+     * @param continuationToken token of the previous page, or null for the first page
+     * @param limit max number of files of the page, capped at the max page size
+     */
+    ObjectListing listGenerationFiles(String generationId, String continuationToken, int limit);
+
+    /**
+     * Lists a page of the files stored under an enhancement step, in key order.
+     * Path: {generationId}/{enhancementId}/
+     */
+    ObjectListing listEnhancementFiles(String generationId, String enhancementId, String continuationToken, int limit);
+}
@@ -0,0 +1,31 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.api;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Non-blocking counterpart of {@link StorageAdministration}.
+ * Files passed in must provide their content as a publisher.
+ */
+public interface ReactiveStorageAdministration {
+
+    /**
+     * Stores files at the root of the generation folder.
+     * Path: {generationId}/{filename}
+     */
+    Uni<Map<String, String>> storeGenerationSboms(String generationId, List<SbomFile> files);
+
+    /**
+     * Stores files nested under the generation in an enhancement folder.
+     * Path: {generationId}/{enhancementId}/{filename}
+     */
+    Uni<Map<String, String>> storeEnhancementSboms(String generationId, String enhancementId, List<SbomFile> files);
+
+    Uni<Multi<ByteBuffer>> getFileContent(String storageKey);
+}
@@ -1,10 +1,18 @@
 package org.jboss.sbomer.manifest.storage.service.core.port.api;
 
 import java.io.InputStream;
+import java.net.URI;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileCheck;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileStatus;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
 import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
 
 public interface StorageAdministration {
 
@@ -12,13 +20,52 @@ public interface StorageAdministration {
      * Stores files at the root of the generation folder.
      * Path: {generationId}/{filename}
      */
-    Map<String, String> storeGenerationSboms(String generationId, List<SbomFile> files);
+    List<StoredFile> storeGenerationSboms(String generationId, List<SbomFile> files);
 
     /**
      * Stores files nested under the generation in an enhancement folder.
      * Path: {generationId}/{enhancementId}/{filename}
      */
-    Map<String, String> storeEnhancementSboms(String generationId, String enhancementId, List<SbomFile> files);
+    List<StoredFile> storeEnhancementSboms(String generationId, String enhancementId, List<SbomFile> files);
 
+    /**
+     * Returns the content of a stored file, decompressed if it is stored compressed.
+     */
     InputStream getFileContent(String storageKey);
+
+    /**
+     * Returns the requested range of a stored file, or the whole file if range is null,
+     * decompressed if it is stored compressed.
+     */
+    ObjectContent getFileContent(String storageKey, ByteRange range);
+
+    /**
+     * Returns the requested range of a stored file, or the whole file if range is null.
+     * A compressed file is returned as stored if its coding is one of the accepted encodings (or "*"),
+     * otherwise it is decompressed and returned whole.
+     */
+    ObjectContent getFileContent(String storageKey, ByteRange range, Collection<String> acceptedEncodings);
+
+    /**
+     * Returns a short-lived URL the client can download the file from directly,
+     * or null if the content of the file is to be served by this service.
+     */
+    URI getDownloadRedirect(String storageKey, Collection<String> acceptedEncodings);
+
+    /**
+     * Returns size, content type and validators of a stored file without transferring its content.
+     */
+    ObjectMetadata getFileMetadata(String storageKey);
+
+    /**
+     * Returns the metadata of the representation {@link #getFileContent(String, ByteRange, Collection)}
+     * returns for the accepted encodings.
+     */
+    ObjectMetadata getFileMetadata(String storageKey, Collection<String> acceptedEncodings);
+
+    /**
+     * Tells for every file whether it is stored and, where a checksum is given, whether its content is unchanged.
+     * Statuses are returned in the order of the checks, once every file that needs a lookup in the storage is looked up.
+     */
+    CompletionStage<List<FileStatus>> checkFiles(List<FileCheck> checks);
 }
@@ -0,0 +1,31 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.spi;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Non-blocking counterpart of {@link ObjectStorage}.
+ * No method blocks the calling thread, so it can be used directly from the event loop.
+ */
+public interface AsyncObjectStorage {
+
+    /**
+     * Uploads the content emitted by the publisher.
+     * The publisher may be subscribed again if the storage provider retries the request.
+     */
+    Uni<Void> upload(String key, Flow.Publisher<ByteBuffer> content, long contentLength, String contentType);
+
+    /**
+     * Returns the content as chunks emitted as they arrive from the storage provider.
+     * The returned Multi can only be subscribed once.
+     */
+    Uni<Multi<ByteBuffer>> download(String key);
+
+    /**
+     * Removes the object stored under the key. Deleting a key that does not exist is not an error.
+     */
+    Uni<Void> delete(String key);
+}
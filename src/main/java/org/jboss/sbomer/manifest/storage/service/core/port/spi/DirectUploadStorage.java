@@ -0,0 +1,38 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.spi;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUpload;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+
+/**
+ * Uploads clients send directly to the storage provider, without their content passing through this service.
+ */
+public interface DirectUploadStorage {
+
+    /**
+     * Presigns the upload of a file of the given size to the key, with a single PUT or, for large files,
+     * as a multipart upload with one URL per part. A SHA-256 is enforced by the storage provider if it can.
+     */
+    PresignedUpload presignUpload(String key, long size, String contentType, String sha256);
+
+    /**
+     * Completes the multipart upload of the key if there is one, and returns the metadata of the uploaded object.
+     * Completing an upload that was already completed returns the metadata of the object. A multipart upload whose
+     * parts don't add up to the expected size is rejected and left open.
+     */
+    ObjectMetadata completeUpload(String key, String multipartUploadId, long expectedSize);
+
+    /**
+     * Discards the parts of a multipart upload that is not going to be completed.
+     */
+    void abortUpload(String key, String multipartUploadId);
+
+    void saveSession(String key, UploadSession session);
+
+    /**
+     * Returns the session stored under the key, without the presigned uploads of its files.
+     */
+    UploadSession loadSession(String key);
+
+    void deleteSession(String key);
+}
@@ -0,0 +1,17 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.spi;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUrl;
+
+public interface DownloadUrlSigner {
+
+    /**
+     * Returns a presigned URL to download the object stored under the key directly from the storage provider,
+     * following a reference to the object it refers to. The URL may be handed out again until it is close to expiry.
+     */
+    PresignedUrl presignDownload(String key);
+
+    /**
+     * Forgets the URL handed out for the key, after the object stored under it was replaced or removed.
+     */
+    void invalidate(String key);
+}
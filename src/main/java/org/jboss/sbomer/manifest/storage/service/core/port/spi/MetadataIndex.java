@@ -0,0 +1,37 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.spi;
+
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+
+/**
+ * Local index of the metadata of stored objects, answering questions about them without a round trip to the storage.
+ * The index is filled as objects are stored and looked up, so an object missing from it may still be stored.
+ */
+public interface MetadataIndex {
+
+    /**
+     * Returns false if the index is disabled, it then keeps no entries.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the entry of the object stored under the key, or null if it is not indexed.
+     */
+    IndexedObject get(String key);
+
+    /**
+     * Adds or replaces the entry of an object.
+     */
+    void put(IndexedObject object);
+
+    /**
+     * Removes the entry of the object stored under the key, if there is one.
+     */
+    void remove(String key);
+
+    /**
+     * Returns the keys of all entries starting with the prefix, in key order.
+     */
+    List<String> keys(String prefix);
+}
@@ -2,11 +2,86 @@ package org.jboss.sbomer.manifest.storage.service.core.port.spi;
 
 import java.io.InputStream;
 
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+
 public interface ObjectStorage {
-    void upload(String key, InputStream content, long contentLength, String contentType);
-    
+    default ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType) {
+        return upload(key, content, contentLength, contentType, null);
+    }
+
+    default ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding) {
+        return upload(key, content, contentLength, contentType, contentEncoding, null);
+    }
+
+    /**
+     * Stores content that is compressed with the given coding, e.g. "gzip", or not compressed if it is null.
+     * The coding is kept with the object and returned by downloads and metadata, the content is never decompressed.
+     * @param sha256 hex encoded SHA-256 of the content as uploaded, before it was compressed, recorded with the object
+     *               and returned by its metadata, or null if it is not known
+     * @return metadata of the stored object as known from storing it, with the validators later requests return for it
+     */
+    ObjectMetadata upload(String key, InputStream content, long contentLength, String contentType, String contentEncoding,
+            String sha256);
+
     /**
      * Returns the raw stream from the storage provider.
      */
     InputStream download(String key);
+
+    /**
+     * Returns the requested range of the object, or the whole object if range is null,
+     * together with the size of the whole object.
+     */
+    ObjectContent download(String key, ByteRange range);
+
+    /**
+     * Returns the metadata of the object without transferring its content.
+     */
+    ObjectMetadata getMetadata(String key);
+
+    /**
+     * Returns true if an object or a reference is stored under the key.
+     */
+    boolean exists(String key);
+
+    /**
+     * Returns the metadata of the object like {@link #getMetadata(String)}, or null if nothing is stored under the key,
+     * so checking for an object and describing it take a single request.
+     */
+    ObjectMetadata findMetadata(String key);
+
+    /**
+     * Returns a page of at most maxKeys objects stored under the prefix, starting at the continuation token
+     * of the previous page, or at the first object if the token is null.
+     */
+    ObjectListing list(String prefix, String continuationToken, int maxKeys);
+
+    /**
+     * Stores a reference to the object stored under the target key. Downloads and metadata of the key
+     * transparently return the content and metadata of the target, with the key of the reference.
+     */
+    void putReference(String key, String targetKey, String contentType);
+
+    /**
+     * Copies the object stored under the source key to the target key within the storage,
+     * without transferring its content through this service.
+     */
+    void copy(String sourceKey, String targetKey);
+
+    /**
+     * Copies the object like {@link #copy(String, String)}, replacing its metadata with the given content type,
+     * coding and the hex encoded SHA-256 of the content as it was uploaded, which metadata of the target returns.
+     * The digest is not verified, it is recorded as given; it is not recorded if it is null.
+     * @return metadata of the copy as known from copying it, with the validators later requests return for it;
+     *         its size is -1 if the storage provider doesn't return it
+     */
+    ObjectMetadata copy(String sourceKey, String targetKey, String contentType, String contentEncoding, String sha256);
+
+    /**
+     * Removes the object stored under the key. Deleting a key that does not exist is not an error.
+     */
+    void delete(String key);
 }
\ No newline at end of file
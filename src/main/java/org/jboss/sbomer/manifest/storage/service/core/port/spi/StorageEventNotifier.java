@@ -0,0 +1,16 @@
+package org.jboss.sbomer.manifest.storage.service.core.port.spi;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+
+/**
+ * Tells other services about the files stored by this one, so they don't have to poll for them.
+ */
+public interface StorageEventNotifier {
+    /**
+     * Announces a batch whose files were all stored.
+     * Called on the upload path, so it must hand the event off without waiting for its delivery,
+     * and a failure to deliver it must not fail the upload.
+     * @param batch the stored batch
+     */
+    void batchStored(StoredBatch batch);
+}
@@ -0,0 +1,430 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ArchiveFormat;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ContentCoding;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ArchiveAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.jboss.sbomer.manifest.storage.service.core.utility.CompressionUtility;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams every file of a folder as a single zip or tar archive.
+ * While one file is written to the archive, the first bytes of the next files are already fetched from storage with
+ * range requests, bounded by the prefetch window; the rest of a file is only requested when it is written, so the
+ * window holds no open storage connections. Memory used by an archive is bounded by prefetch times the prefetch buffer
+ * size, plus one buffer for the tar entry being decoded, whatever the number and size of its files.
+ */
+@ApplicationScoped
+@Slf4j
+public class ArchiveService implements ArchiveAdministration {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    @Inject
+    ObjectStorage objectStorage;
+
+    // runs the fetches, shared with the uploads
+    @Inject
+    StorageExecutor storageExecutor;
+
+    // max number of files of a single archive fetched ahead of the file being written
+    @ConfigProperty(name = "sbomer.storage.archive.prefetch", defaultValue = "4")
+    int prefetch;
+
+    // max number of files fetched at the same time across all archives
+    @ConfigProperty(name = "sbomer.storage.archive.max-concurrency", defaultValue = "16")
+    int maxConcurrency;
+
+    // bytes of a prefetched file buffered ahead, the rest is requested when the file is written;
+    // also the max size of a compressed file decompressed in memory for a tar archive
+    @ConfigProperty(name = "sbomer.storage.archive.prefetch-buffer-size", defaultValue = "1048576")
+    int prefetchBufferSize;
+
+    // number of keys requested per listing page
+    @ConfigProperty(name = "sbomer.storage.archive.list-page-size", defaultValue = "1000")
+    int listPageSize;
+
+    // bounds the fetches across all archives, the shared executor does not
+    Semaphore fetchPermits;
+
+    @PostConstruct
+    void init() {
+        fetchPermits = new Semaphore(Math.max(1, maxConcurrency));
+    }
+
+    /**
+     * The first page of the listing is fetched right away, so a missing generation is reported before anything
+     * is sent to the client.
+     */
+    @Override
+    public ArchiveWriter openGenerationArchive(String generationId, ArchiveFormat format) {
+        String prefix = StoragePaths.listingPrefix(generationId);
+        ObjectListing first = objectStorage.list(prefix, null, listPageSize);
+        if (first.getObjects().isEmpty()) {
+            return null;
+        }
+        return out -> write(prefix, first, format, out);
+    }
+
+    /**
+     * A failure leaves the archive unfinished, without the trailer, so clients can't mistake it for a complete one.
+     */
+    private void write(String prefix, ObjectListing first, ArchiveFormat format, OutputStream out) throws IOException {
+        log.info("Streaming {} archive of folder: {}", format.getExtension(), prefix);
+        Iterator<ObjectMetadata> objects = new ListingIterator(prefix, first);
+        Deque<Prefetch> window = new ArrayDeque<>();
+        ArchiveSink sink = format == ArchiveFormat.ZIP
+                ? new ZipSink(out)
+                : new TarSink(format == ArchiveFormat.TAR_GZ ? new GZIPOutputStream(out, GZIP_BUFFER_SIZE) : out,
+                        prefetchBufferSize);
+        int count = 0;
+        try {
+            fill(window, objects, Math.max(1, prefetch));
+            while (!window.isEmpty()) {
+                Prefetch next = window.poll();
+                // Keep the window full while this file is written
+                fill(window, objects, Math.max(1, prefetch));
+                try (Fetched entry = open(next.object().getKey(), next.await())) {
+                    sink.add(next.object().getKey(), entry);
+                }
+                count++;
+            }
+            sink.finish();
+        } catch (IOException | RuntimeException e) {
+            log.error("Streaming archive of folder {} failed after {} files", prefix, count, e);
+            window.forEach(Prefetch::discard);
+            throw e;
+        }
+        log.info("Streamed archive of {} files of folder: {}", count, prefix);
+    }
+
+    private void fill(Deque<Prefetch> window, Iterator<ObjectMetadata> objects, int size) {
+        while (window.size() < size && objects.hasNext()) {
+            ObjectMetadata object = objects.next();
+            window.add(new Prefetch(object, CompletableFuture.supplyAsync(() -> {
+                fetchPermits.acquireUninterruptibly();
+                try {
+                    return fetch(object);
+                } finally {
+                    fetchPermits.release();
+                }
+            }, storageExecutor)));
+        }
+    }
+
+    /**
+     * Reads the first bytes of the file with a range request, its stream is closed right away.
+     * A file listed as empty is mostly a reference to a file stored elsewhere, the storage returns the same range
+     * of the file it refers to. No range of an empty file can be satisfied, so a file listed as empty whose range
+     * request failed is looked up, and only written as empty if it is.
+     */
+    private Head fetch(ObjectMetadata object) {
+        try (ObjectContent content = objectStorage.download(object.getKey(), ByteRange.of(0, prefetchBufferSize - 1L))) {
+            byte[] bytes = content.getContent().readNBytes(prefetchBufferSize);
+            Instant lastModified = content.getLastModified() != null ? content.getLastModified() : object.getLastModified();
+            long size = bytes.length < prefetchBufferSize ? bytes.length : content.getObjectSize();
+            return new Head(bytes, size, content.getEtag(), ContentCoding.fromToken(content.getContentEncoding()),
+                    lastModified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + object.getKey(), e);
+        } catch (RuntimeException e) {
+            Head empty = object.getSize() == 0 ? empty(object) : null;
+            if (empty == null) {
+                throw e;
+            }
+            return empty;
+        }
+    }
+
+    /**
+     * @return the head of the file if it is stored empty, null otherwise
+     */
+    private Head empty(ObjectMetadata object) {
+        ObjectMetadata metadata = objectStorage.findMetadata(object.getKey());
+        if (metadata == null || metadata.getSize() != 0) {
+            return null;
+        }
+        Instant lastModified = metadata.getLastModified() != null ? metadata.getLastModified() : object.getLastModified();
+        return new Head(new byte[0], 0, metadata.getEtag(), ContentCoding.fromToken(metadata.getContentEncoding()),
+                lastModified);
+    }
+
+    /**
+     * Returns the content of a prefetched file, its first bytes followed by the rest of the file, which is
+     * requested now. The rest must be of the same version of the file as the first bytes.
+     */
+    private Fetched open(String key, Head head) throws IOException {
+        InputStream content = new ByteArrayInputStream(head.bytes());
+        if (!head.isComplete()) {
+            ObjectContent rest = objectStorage.download(key, ByteRange.from(head.bytes().length));
+            if (!Objects.equals(head.etag(), rest.getEtag())) {
+                rest.close();
+                throw new IOException("File " + key + " was replaced while it was written to the archive");
+            }
+            content = new SequenceInputStream(content, rest.getContent());
+        }
+        return new Fetched(content, head.coding(), head.size(), head.lastModified());
+    }
+
+    /**
+     * A file being fetched for the archive.
+     */
+    private record Prefetch(ObjectMetadata object, CompletableFuture<Head> fetch) {
+
+        Head await() throws IOException {
+            try {
+                return fetch.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Gives up on a file that is not going to be written, a fetch that did not start yet is skipped.
+         */
+        void discard() {
+            fetch.cancel(false);
+        }
+    }
+
+    /**
+     * The first bytes of a file as stored, fetched ahead of writing it.
+     * @param size number of bytes of the whole file, -1 if not known
+     * @param etag entity tag of the version of the file the bytes belong to
+     * @param coding coding the content is stored with, null if it is not compressed
+     */
+    private record Head(byte[] bytes, long size, String etag, ContentCoding coding, Instant lastModified) {
+
+        /**
+         * Returns true if the bytes are the whole file.
+         */
+        boolean isComplete() {
+            return size == bytes.length;
+        }
+    }
+
+    /**
+     * A file being written to the archive, with its content as stored.
+     * @param content buffered head of the file, followed by the rest of the file if it didn't fit the buffer
+     * @param coding coding the content is stored with, null if it is not compressed
+     * @param size number of bytes of content, -1 if not known
+     */
+    private record Fetched(InputStream content, ContentCoding coding, long size, Instant lastModified) implements Closeable {
+
+        /**
+         * Returns the content of the file as it was uploaded, decompressed if it is stored compressed.
+         */
+        InputStream open() throws IOException {
+            return coding == null ? content : CompressionUtility.decompress(coding, content);
+        }
+
+        /**
+         * Returns the size of {@link #open()}, -1 if it is not known without reading the content.
+         */
+        long decodedSize() {
+            return coding == null ? size : -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            content.close();
+        }
+    }
+
+    /**
+     * Iterates over every object under the prefix, listing the next page only once the previous one is consumed.
+     * Folder placeholders (keys ending with a slash) are skipped.
+     */
+    private class ListingIterator implements Iterator<ObjectMetadata> {
+
+        private final String prefix;
+        private Iterator<ObjectMetadata> page;
+        private String continuationToken;
+        // next object to return, null if not looked up yet
+        private ObjectMetadata next;
+
+        ListingIterator(String prefix, ObjectListing first) {
+            this.prefix = prefix;
+            this.page = first.getObjects().iterator();
+            this.continuationToken = first.getNextContinuationToken();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (page.hasNext()) {
+                    ObjectMetadata object = page.next();
+                    if (!object.getKey().endsWith("/")) {
+                        next = object;
+                    }
+                } else if (continuationToken != null) {
+                    ObjectListing listing = objectStorage.list(prefix, continuationToken, listPageSize);
+                    page = listing.getObjects().iterator();
+                    continuationToken = listing.getNextContinuationToken();
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ObjectMetadata next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ObjectMetadata object = next;
+            next = null;
+            return object;
+        }
+    }
+
+    private interface ArchiveSink {
+
+        void add(String name, Fetched entry) throws IOException;
+
+        /**
+         * Writes the trailer of the archive, the underlying stream is left open.
+         */
+        void finish() throws IOException;
+    }
+
+    /**
+     * Zip entries are written without knowing their size up front, it is recorded after their content.
+     */
+    private static class ZipSink implements ArchiveSink {
+
+        private final ZipOutputStream zip;
+
+        ZipSink(OutputStream out) {
+            this.zip = new ZipOutputStream(out);
+        }
+
+        @Override
+        public void add(String name, Fetched entry) throws IOException {
+            ZipEntry zipEntry = new ZipEntry(name);
+            if (entry.lastModified() != null) {
+                zipEntry.setLastModifiedTime(FileTime.from(entry.lastModified()));
+            }
+            zip.putNextEntry(zipEntry);
+            entry.open().transferTo(zip);
+            zip.closeEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+            zip.flush();
+        }
+    }
+
+    /**
+     * Tar headers carry the size of the entry, which is not known for files stored compressed before they are
+     * decompressed; their size as uploaded is not recorded. They are decompressed into memory if they fit the
+     * buffer, larger ones to a temporary file first. That temporary file only ever holds the single file being written,
+     * so a tar archive of compressed files needs disk space for its largest file; zip archives need none.
+     */
+    private static class TarSink implements ArchiveSink {
+
+        private final OutputStream out;
+        private final TarArchiveOutputStream tar;
+        // max number of decompressed bytes of an entry held in memory
+        private final int bufferSize;
+
+        TarSink(OutputStream out, int bufferSize) {
+            this.out = out;
+            this.bufferSize = bufferSize;
+            this.tar = new TarArchiveOutputStream(out);
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        }
+
+        @Override
+        public void add(String name, Fetched entry) throws IOException {
+            long size = entry.decodedSize();
+            if (size >= 0) {
+                write(name, entry, entry.open(), size);
+                return;
+            }
+            try (InputStream content = entry.open()) {
+                byte[] head = content.readNBytes(bufferSize + 1);
+                if (head.length <= bufferSize) {
+                    write(name, entry, new ByteArrayInputStream(head), head.length);
+                    return;
+                }
+                Path spooled = Files.createTempFile("sbomer-archive-", ".entry");
+                try {
+                    try (OutputStream file = Files.newOutputStream(spooled)) {
+                        file.write(head);
+                        content.transferTo(file);
+                    }
+                    try (InputStream spool = Files.newInputStream(spooled)) {
+                        write(name, entry, spool, Files.size(spooled));
+                    }
+                } finally {
+                    Files.deleteIfExists(spooled);
+                }
+            }
+        }
+
+        private void write(String name, Fetched entry, InputStream content, long size) throws IOException {
+            TarArchiveEntry tarEntry = new TarArchiveEntry(name);
+            tarEntry.setSize(size);
+            if (entry.lastModified() != null) {
+                tarEntry.setLastModifiedTime(FileTime.from(entry.lastModified()));
+            }
+            tar.putArchiveEntry(tarEntry);
+            content.transferTo(tar);
+            tar.closeArchiveEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            tar.finish();
+            if (out instanceof GZIPOutputStream gzip) {
+                gzip.finish();
+            }
+            out.flush();
+        }
+    }
+}
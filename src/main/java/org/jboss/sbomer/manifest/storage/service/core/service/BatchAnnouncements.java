@@ -0,0 +1,38 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Announcement of stored batches, shared by every way of storing a batch, so other services learn about
+ * every batch however it was uploaded.
+ */
+@Slf4j
+final class BatchAnnouncements {
+
+    private BatchAnnouncements() {}
+
+    /**
+     * Announces a stored batch to other services. The notifier only hands the event off,
+     * and the files are stored already, so a failure to announce them is logged and not reported to the client.
+     * @param enhancementId null if the files belong to the generation itself
+     */
+    static void announce(StorageEventNotifier notifier, String generationId, String enhancementId, List<StoredFile> stored) {
+        try {
+            notifier.batchStored(StoredBatch.builder()
+                    .generationId(generationId)
+                    .enhancementId(enhancementId)
+                    .files(stored)
+                    .storedAt(Instant.now())
+                    .build());
+        } catch (RuntimeException e) {
+            log.warn("Failed to announce {} stored files of generation {}", stored.size(), generationId, e);
+        }
+    }
+}
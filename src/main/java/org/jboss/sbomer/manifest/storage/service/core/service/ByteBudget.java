@@ -0,0 +1,171 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadCapacityExceededException;
+
+/**
+ * Global budget of bytes uploaded at the same time. A batch reserves the size of its files before it starts.
+ * Batches that do not fit wait in a bounded queue until enough bytes are released or the timeout expires.
+ * A waiting batch is passed by later ones that fit, so small uploads keep flowing while a large one waits,
+ * until it has waited half of the timeout: from then on nothing passes it and the budget drains for it.
+ * A batch larger than the whole budget is admitted once nothing else is in flight.
+ */
+final class ByteBudget {
+
+    private final long capacity;
+    private final int maxQueued;
+    private final long timeoutNanos;
+    private final Duration retryAfter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private long reserved;
+
+    ByteBudget(long capacity, int maxQueued, Duration timeout, Duration retryAfter) {
+        this.capacity = capacity;
+        this.maxQueued = maxQueued;
+        this.timeoutNanos = timeout.toNanos();
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Reserves bytes of the budget, waiting for them if needed.
+     * @param bytes number of bytes to reserve
+     * @return reservation to close once the bytes are uploaded
+     * @throws UploadCapacityExceededException if the queue is full or the bytes were not available in time
+     */
+    Reservation reserve(long bytes) {
+        long amount = Math.min(Math.max(0, bytes), capacity);
+        lock.lock();
+        try {
+            if (fits(amount) && !headStarving(System.nanoTime())) {
+                reserved += amount;
+                return new Reservation(amount);
+            }
+            if (queue.size() >= maxQueued) {
+                throw new UploadCapacityExceededException("Too many uploads waiting for capacity", retryAfter);
+            }
+            Waiter waiter = new Waiter(amount, lock.newCondition(), System.nanoTime());
+            queue.add(waiter);
+            try {
+                long remaining = timeoutNanos;
+                while (!waiter.admitted && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (waiter.admitted) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    return new Reservation(amount);
+                }
+                reserved -= amount;
+            } else {
+                queue.remove(waiter);
+            }
+            // the queue may have waited on this batch
+            admitWaiters();
+            throw new UploadCapacityExceededException("Upload of " + bytes + " bytes not admitted within "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms", retryAfter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getReserved() {
+        lock.lock();
+        try {
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long amount) {
+        lock.lock();
+        try {
+            reserved -= amount;
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admitWaiters() {
+        long now = System.nanoTime();
+        Iterator<Waiter> waiters = queue.iterator();
+        while (waiters.hasNext()) {
+            Waiter waiter = waiters.next();
+            if (fits(waiter.amount)) {
+                reserved += waiter.amount;
+                waiter.admitted = true;
+                waiters.remove();
+                waiter.condition.signal();
+            } else if (starving(waiter, now)) {
+                return;
+            }
+        }
+    }
+
+    private boolean fits(long amount) {
+        return reserved + amount <= capacity;
+    }
+
+    private boolean headStarving(long now) {
+        Waiter head = queue.peekFirst();
+        return head != null && starving(head, now);
+    }
+
+    private boolean starving(Waiter waiter, long now) {
+        return now - waiter.since >= timeoutNanos / 2;
+    }
+
+    private static final class Waiter {
+        private final long amount;
+        private final Condition condition;
+        private final long since;
+        private boolean admitted;
+
+        private Waiter(long amount, Condition condition, long since) {
+            this.amount = amount;
+            this.condition = condition;
+            this.since = since;
+        }
+    }
+
+    /**
+     * Bytes reserved by a batch, released when closed.
+     */
+    final class Reservation implements AutoCloseable {
+        private final long amount;
+        private boolean released;
+
+        private Reservation(long amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(amount);
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadRejectedException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUpload;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StagedFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadRequest;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.DirectUploadAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DirectUploadStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DownloadUrlSigner;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+import org.jboss.sbomer.manifest.storage.service.core.utility.DigestUtility;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Batches of files uploaded by clients directly to the storage provider, so their content never passes through
+ * this service. Files are uploaded to staging keys first and only published to their storage keys by a commit,
+ * once every file of the batch is verified, which keeps the batch atomic like an upload through this service.
+ */
+@ApplicationScoped
+@Slf4j
+public class DirectUploadService implements DirectUploadAdministration {
+
+    // largest object the storage provider copies in a single request
+    static final long MAX_FILE_SIZE = 5L * 1024 * 1024 * 1024;
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    @Inject
+    ObjectStorage objectStorage;
+
+    @Inject
+    DirectUploadStorage directUploadStorage;
+
+    @Inject
+    DownloadUrlSigner downloadUrlSigner;
+
+    @Inject
+    MetadataIndex metadataIndex;
+
+    @Inject
+    StorageEventNotifier eventNotifier;
+
+    // the public api url of this service component
+    @ConfigProperty(name = "sbomer.storage.public-api-url")
+    String publicApiUrl;
+
+    // store identical content once under its digest, the files become references to it
+    @ConfigProperty(name = "sbomer.storage.dedup.enabled", defaultValue = "false")
+    boolean deduplicate;
+
+    @ConfigProperty(name = "sbomer.storage.download.redirect.enabled", defaultValue = "false")
+    boolean redirectDownloads;
+
+    @Override
+    public UploadSession startGenerationUpload(String generationId, List<UploadRequest> files) {
+        // generationId is the prefix
+        return start(generationId, null, generationId, files);
+    }
+
+    @Override
+    public UploadSession startEnhancementUpload(String generationId, String enhancementId, List<UploadRequest> files) {
+        // generationId/enhancementId is the prefix
+        return start(generationId, enhancementId, StoragePaths.enhancementPrefix(generationId, enhancementId), files);
+    }
+
+    /**
+     * Presigns the upload of every file to its staging key and stores the session, so any replica can commit it.
+     * Multipart uploads already created are aborted if the session can't be started.
+     */
+    private UploadSession start(String generationId, String enhancementId, String storagePrefix, List<UploadRequest> files) {
+        validate(files);
+        String sessionId = UUID.randomUUID().toString();
+        List<StagedFile> staged = new ArrayList<>(files.size());
+        try {
+            for (UploadRequest file : files) {
+                String stagingKey = StoragePaths.stagingKey(sessionId, file.getFilename());
+                String sha256 = file.getSha256() != null ? file.getSha256().toLowerCase(Locale.ROOT) : null;
+                PresignedUpload upload = directUploadStorage.presignUpload(stagingKey, file.getSize(), file.getContentType(), sha256);
+                staged.add(StagedFile.builder()
+                        .filename(file.getFilename())
+                        .contentType(file.getContentType())
+                        .size(file.getSize())
+                        .sha256(sha256)
+                        .stagingKey(stagingKey)
+                        .multipartUploadId(upload.getMultipartUploadId())
+                        .upload(upload)
+                        .build());
+            }
+            UploadSession session = UploadSession.builder()
+                    .id(sessionId)
+                    .generationId(generationId)
+                    .enhancementId(enhancementId)
+                    .storagePrefix(storagePrefix)
+                    // the session can't be completed once the first url expired
+                    .expiresAt(staged.stream()
+                            .map(file -> file.getUpload().getExpiresAt())
+                            .min(Comparator.naturalOrder())
+                            .orElseThrow())
+                    .files(staged)
+                    .build();
+            directUploadStorage.saveSession(StoragePaths.sessionKey(sessionId), session);
+            log.info("Started upload session {} of {} files to folder: {}", sessionId, files.size(), storagePrefix);
+            return session;
+        } catch (RuntimeException e) {
+            staged.stream()
+                    .filter(file -> file.getMultipartUploadId() != null)
+                    .forEach(file -> directUploadStorage.abortUpload(file.getStagingKey(), file.getMultipartUploadId()));
+            throw e;
+        }
+    }
+
+    private static void validate(List<UploadRequest> files) {
+        if (files == null || files.isEmpty()) {
+            throw new UploadRejectedException("No files to upload");
+        }
+        Set<String> filenames = new HashSet<>();
+        for (UploadRequest file : files) {
+            if (file.getFilename() == null || file.getFilename().isBlank()) {
+                throw new UploadRejectedException("Filename is required");
+            }
+            if (!filenames.add(file.getFilename())) {
+                throw new UploadRejectedException("Duplicate filename: " + file.getFilename());
+            }
+            if (file.getSize() < 0 || file.getSize() > MAX_FILE_SIZE) {
+                throw new UploadRejectedException("Size of " + file.getFilename() + " must be between 0 and "
+                        + MAX_FILE_SIZE + " bytes");
+            }
+            if (file.getSha256() != null && !SHA256.matcher(file.getSha256().toLowerCase(Locale.ROOT)).matches()) {
+                throw new UploadRejectedException("Invalid SHA-256 of " + file.getFilename() + ": " + file.getSha256());
+            }
+        }
+    }
+
+    /**
+     * Every file is verified before the first one is published, so a missing or corrupt file publishes nothing and
+     * the session stays open to upload it again. Files are published with a server side copy; if a copy fails,
+     * the files already published under keys that were free before are removed again, files that replaced a stored
+     * file keep their new content, as the old content is gone. Staged files and the session are removed after the commit,
+     * and the batch is announced like a batch uploaded through this service.
+     */
+    @Override
+    public List<StoredFile> commitUpload(String sessionId) {
+        UploadSession session = directUploadStorage.loadSession(StoragePaths.sessionKey(sessionId));
+        log.info("Committing upload session {} of {} files to folder: {}", sessionId, session.getFiles().size(),
+                session.getStoragePrefix());
+
+        List<VerifiedFile> verified = new ArrayList<>(session.getFiles().size());
+        Set<String> replaced = new HashSet<>();
+        for (StagedFile file : session.getFiles()) {
+            verified.add(new VerifiedFile(file, verify(file)));
+            String storageKey = StoragePaths.storageKey(session.getStoragePrefix(), file.getFilename());
+            if (objectStorage.exists(storageKey)) {
+                replaced.add(storageKey);
+            }
+        }
+
+        List<String> published = new ArrayList<>(verified.size());
+        List<StoredFile> results = new ArrayList<>(verified.size());
+        try {
+            for (VerifiedFile file : verified) {
+                results.add(publish(session.getStoragePrefix(), file, published));
+            }
+        } catch (RuntimeException e) {
+            log.error("Publishing upload session {} failed. Aborting commit.", sessionId, e);
+            rollback(published, replaced);
+            throw e;
+        }
+        cleanup(session);
+        if (session.getGenerationId() != null) {
+            BatchAnnouncements.announce(eventNotifier, session.getGenerationId(), session.getEnhancementId(), results);
+        } else {
+            log.warn("Upload session {} was started before its generation was recorded, it is not announced", sessionId);
+        }
+        return results;
+    }
+
+    private ObjectMetadata verify(StagedFile file) {
+        ObjectMetadata metadata = directUploadStorage.completeUpload(file.getStagingKey(), file.getMultipartUploadId(), file.getSize());
+        if (metadata.getSize() != file.getSize()) {
+            throw new UploadRejectedException("Uploaded " + file.getFilename() + " has " + metadata.getSize()
+                    + " bytes, expected " + file.getSize());
+        }
+        if (file.getSha256() == null) {
+            return metadata;
+        }
+        if (metadata.getSha256() == null) {
+            // S3 only verifies the checksum of a single PUT, a multipart upload has a checksum of its parts
+            metadata = metadata.toBuilder().sha256(hash(file)).build();
+        }
+        if (!file.getSha256().equals(metadata.getSha256())) {
+            throw new UploadRejectedException("Uploaded " + file.getFilename() + " has SHA-256 " + metadata.getSha256()
+                    + ", expected " + file.getSha256());
+        }
+        return metadata;
+    }
+
+    /**
+     * Hashes a staged file the storage provider couldn't verify, reading it through this service,
+     * so a checksum announced by the client is never silently left unverified.
+     */
+    private String hash(StagedFile file) {
+        log.debug("Hashing {} of {} bytes, its checksum was not verified by the storage", file.getStagingKey(), file.getSize());
+        try (InputStream content = objectStorage.download(file.getStagingKey())) {
+            return DigestUtility.sha256(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file.getStagingKey(), e);
+        }
+    }
+
+    /**
+     * Copies the staged file to its storage key, or, with deduplication enabled and a verified checksum,
+     * to its blob unless identical content is already stored, and a reference to it.
+     * The verified checksum is recorded with the copy, clients upload their files as they are to be served.
+     * The file is indexed with the metadata of the copy, or of the blob stored before.
+     */
+    private StoredFile publish(String storagePrefix, VerifiedFile verified, List<String> published) {
+        StagedFile file = verified.file();
+        String storageKey = StoragePaths.storageKey(storagePrefix, file.getFilename());
+        String digest = verified.metadata().getSha256();
+        String contentEncoding = verified.metadata().getContentEncoding();
+        StoredFile.StoredFileBuilder result = StoredFile.builder()
+                .filename(file.getFilename())
+                .storageKey(storageKey)
+                // Construct permanent URL
+                .url(StoragePaths.permanentUrl(publicApiUrl, storageKey))
+                .size(file.getSize())
+                .digest(digest);
+        ObjectMetadata stored;
+        if (deduplicate && digest != null) {
+            String blobKey = StoragePaths.blobKey(digest);
+            stored = objectStorage.findMetadata(blobKey);
+            boolean duplicate = stored != null;
+            if (duplicate) {
+                log.debug("Content of {} is already stored as {}, skipping copy", storageKey, blobKey);
+            } else {
+                stored = copy(file, blobKey, contentEncoding, digest);
+            }
+            objectStorage.putReference(storageKey, blobKey, file.getContentType());
+            result.deduplicated(duplicate);
+        } else {
+            stored = copy(file, storageKey, contentEncoding, digest);
+        }
+        published.add(storageKey);
+        forgetDownloadUrl(storageKey);
+        index(IndexedObject.of(stored.toBuilder().key(storageKey).build(), null, Instant.now()));
+        return result.build();
+    }
+
+    /**
+     * The storage may not return the size of a copy, it is the verified size of the staged file.
+     */
+    private ObjectMetadata copy(StagedFile file, String targetKey, String contentEncoding, String digest) {
+        return objectStorage.copy(file.getStagingKey(), targetKey, file.getContentType(), contentEncoding, digest)
+                .toBuilder()
+                .size(file.getSize())
+                .build();
+    }
+
+    /**
+     * The index only spares round trips to the storage, failing to update it never fails the commit.
+     */
+    private void index(IndexedObject object) {
+        try {
+            metadataIndex.put(object);
+        } catch (RuntimeException e) {
+            log.warn("Failed to index {}", object.getKey(), e);
+        }
+    }
+
+    private void rollback(List<String> published, Set<String> replaced) {
+        for (String storageKey : published) {
+            if (replaced.contains(storageKey)) {
+                log.warn("Keeping {} after commit failure, it replaced a file stored before", storageKey);
+                continue;
+            }
+            try {
+                objectStorage.delete(storageKey);
+                forgetDownloadUrl(storageKey);
+                metadataIndex.remove(storageKey);
+                log.info("Removed {} after commit failure", storageKey);
+            } catch (Exception e) {
+                log.error("Failed to remove {} after commit failure, it is left in storage", storageKey, e);
+            }
+        }
+    }
+
+    /**
+     * Leftovers of a failed cleanup are harmless, staging keys are never served and expire with the bucket lifecycle.
+     */
+    private void cleanup(UploadSession session) {
+        for (StagedFile file : session.getFiles()) {
+            try {
+                objectStorage.delete(file.getStagingKey());
+            } catch (Exception e) {
+                log.warn("Failed to remove staged file {}", file.getStagingKey(), e);
+            }
+        }
+        try {
+            directUploadStorage.deleteSession(StoragePaths.sessionKey(session.getId()));
+        } catch (Exception e) {
+            log.warn("Failed to remove upload session {}", session.getId(), e);
+        }
+    }
+
+    /**
+     * Drops the presigned url of a replaced file, it may point to the old content of a reference.
+     */
+    private void forgetDownloadUrl(String storageKey) {
+        if (redirectDownloads) {
+            downloadUrlSigner.invalidate(storageKey);
+        }
+    }
+
+    private record VerifiedFile(StagedFile file, ObjectMetadata metadata) {}
+}
@@ -0,0 +1,91 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ListingAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lists stored files page by page, from the storage provider's listing, with one request per page.
+ * The listing reports the size and entity tag of a reference, and S3 listings carry no user metadata, so a
+ * deduplicated file is listed as empty. Such a file is completed from the local metadata index if it holds an entry
+ * written since the file was stored, and is otherwise returned as listed: its metadata has the size of the file.
+ */
+@ApplicationScoped
+@Slf4j
+public class ListingService implements ListingAdministration {
+
+    @Inject
+    ObjectStorage objectStorage;
+
+    @Inject
+    MetadataIndex metadataIndex;
+
+    // max number of files of a single page, S3 never returns more than 1000 keys per request
+    @ConfigProperty(name = "sbomer.storage.listing.max-page-size", defaultValue = "1000")
+    int maxPageSize;
+
+    @Override
+    public ObjectListing listGenerationFiles(String generationId, String continuationToken, int limit) {
+        return list(StoragePaths.listingPrefix(generationId), continuationToken, limit);
+    }
+
+    @Override
+    public ObjectListing listEnhancementFiles(String generationId, String enhancementId, String continuationToken, int limit) {
+        String prefix = StoragePaths.enhancementPrefix(generationId, enhancementId);
+        return list(StoragePaths.listingPrefix(prefix), continuationToken, limit);
+    }
+
+    private ObjectListing list(String prefix, String continuationToken, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        log.debug("Listing up to {} files under: {}", pageSize, prefix);
+        ObjectListing listing = objectStorage.list(prefix, continuationToken, pageSize);
+        if (!metadataIndex.isEnabled()) {
+            return listing;
+        }
+        List<ObjectMetadata> objects = new ArrayList<>(listing.getObjects().size());
+        boolean completed = false;
+        for (ObjectMetadata object : listing.getObjects()) {
+            // Folder placeholders (keys ending with a slash) have no content
+            if (object.getSize() == 0 && !object.getKey().endsWith("/")) {
+                ObjectMetadata indexed = complete(object);
+                completed |= indexed != object;
+                object = indexed;
+            }
+            objects.add(object);
+        }
+        if (!completed) {
+            return listing;
+        }
+        return ObjectListing.builder()
+                .objects(objects)
+                .nextContinuationToken(listing.getNextContinuationToken())
+                .build();
+    }
+
+    /**
+     * Returns the listed file with the size and entity tag of its index entry, or as listed if the index holds
+     * no entry written since the file was stored. The entry of a deduplicated file is the one of the file it refers to.
+     */
+    private ObjectMetadata complete(ObjectMetadata listed) {
+        IndexedObject indexed = metadataIndex.get(listed.getKey());
+        if (indexed == null || indexed.getIndexedAt() == null || listed.getLastModified() == null
+                || listed.getLastModified().isAfter(indexed.getIndexedAt())) {
+            return listed;
+        }
+        return listed.toBuilder()
+                .size(indexed.getSize())
+                .etag(indexed.getEtag() != null ? indexed.getEtag() : listed.getEtag())
+                .build();
+    }
+}
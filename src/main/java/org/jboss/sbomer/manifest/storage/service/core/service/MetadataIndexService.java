@@ -0,0 +1,76 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexRebuild;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.IndexAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds the metadata index from a scan of the storage, e.g. after the index was lost
+ * or files were stored by another replica.
+ */
+@ApplicationScoped
+@Slf4j
+public class MetadataIndexService implements IndexAdministration {
+
+    @Inject
+    ObjectStorage objectStorage;
+
+    @Inject
+    MetadataIndex metadataIndex;
+
+    // max number of files listed with a single request, S3 never returns more than 1000 keys per request
+    @ConfigProperty(name = "sbomer.storage.listing.max-page-size", defaultValue = "1000")
+    int listPageSize;
+
+    /**
+     * Every listed file is looked up as well: the listing has neither the content type nor the encoding,
+     * and lists a deduplicated file with the size of its reference instead of its content.
+     */
+    @Override
+    public IndexRebuild rebuildGeneration(String generationId) {
+        if (!metadataIndex.isEnabled()) {
+            return IndexRebuild.builder().enabled(false).generationId(generationId).build();
+        }
+        String prefix = StoragePaths.listingPrefix(generationId);
+        log.info("Rebuilding the metadata index of the files under: {}", prefix);
+        Set<String> stored = new HashSet<>();
+        String continuationToken = null;
+        do {
+            ObjectListing page = objectStorage.list(prefix, continuationToken, Math.max(1, listPageSize));
+            for (ObjectMetadata object : page.getObjects()) {
+                ObjectMetadata metadata = objectStorage.getMetadata(object.getKey());
+                metadataIndex.put(IndexedObject.of(metadata, metadataIndex.get(object.getKey()), Instant.now()));
+                stored.add(object.getKey());
+            }
+            continuationToken = page.getNextContinuationToken();
+        } while (continuationToken != null);
+
+        long removed = 0;
+        for (String key : metadataIndex.keys(prefix)) {
+            if (!stored.contains(key)) {
+                metadataIndex.remove(key);
+                removed++;
+            }
+        }
+        log.info("Indexed {} files under {}, removed {} entries of files no longer stored", stored.size(), prefix, removed);
+        return IndexRebuild.builder()
+                .enabled(true)
+                .generationId(generationId)
+                .indexedCount(stored.size())
+                .removedCount(removed)
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ReactiveStorageAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.AsyncObjectStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Non-blocking variant of {@link StorageService}, running entirely on the caller's event loop.
+ */
+@ApplicationScoped
+@Slf4j
+public class ReactiveStorageService implements ReactiveStorageAdministration {
+
+    @Inject
+    AsyncObjectStorage objectStorage;
+
+    @Inject
+    StorageEventNotifier eventNotifier;
+
+    // the public api url of this service component
+    @ConfigProperty(name = "sbomer.storage.public-api-url")
+    String publicApiUrl;
+
+    // max number of files of a single batch uploaded at the same time
+    @ConfigProperty(name = "sbomer.storage.upload.batch-concurrency", defaultValue = "8")
+    int batchConcurrency;
+
+    @Override
+    public Uni<Map<String, String>> storeGenerationSboms(String generationId, List<SbomFile> files) {
+        // generationId is the prefix
+        return uploadBatch(generationId, null, generationId, files);
+    }
+
+    @Override
+    public Uni<Map<String, String>> storeEnhancementSboms(String generationId, String enhancementId, List<SbomFile> files) {
+        // generationId/enhancementId is the prefix
+        return uploadBatch(generationId, enhancementId, StoragePaths.enhancementPrefix(generationId, enhancementId), files);
+    }
+
+    /**
+     * Helper to handle the Batch Atomicity logic.
+     * After the first failure no further upload is started. The uploads in flight are not cancelled, a cancelled
+     * upload may still complete in the storage; the batch waits for all of them, then removes every file stored.
+     * A stored batch is announced like one stored by the blocking service, without digests, as the content isn't hashed.
+     */
+    private Uni<Map<String, String>> uploadBatch(String generationId, String enhancementId, String folderPrefix,
+            List<SbomFile> files) {
+        log.info("Uploading {} files to folder: {}", files.size(), folderPrefix);
+
+        Map<String, StoredFile> results = new ConcurrentHashMap<>();
+        Set<String> storedKeys = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        return Multi.createFrom().iterable(files)
+                .onItem().transformToUni(file -> {
+                    if (failure.get() != null) {
+                        // the batch is aborted, the file is skipped
+                        return Uni.createFrom().voidItem();
+                    }
+                    String storageKey = StoragePaths.storageKey(folderPrefix, file.getFilename());
+                    return objectStorage.upload(storageKey, file.getContentPublisher(), file.getSize(), file.getContentType())
+                            .invoke(() -> {
+                                storedKeys.add(storageKey);
+                                results.put(file.getFilename(), StoredFile.builder()
+                                        .filename(file.getFilename())
+                                        .storageKey(storageKey)
+                                        .url(StoragePaths.permanentUrl(publicApiUrl, storageKey))
+                                        .size(file.getSize())
+                                        .build());
+                            })
+                            .onFailure().invoke(e -> {
+                                if (failure.compareAndSet(null, new RuntimeException("Failed to upload file " + file.getFilename(), e))) {
+                                    log.error("Upload failed for file {}. Aborting batch.", file.getFilename(), e);
+                                } else {
+                                    log.debug("Upload of file {} ended after the batch was aborted", file.getFilename(), e);
+                                }
+                            })
+                            // the outcome is recorded, the other uploads carry on until they end
+                            .onFailure().recoverWithNull();
+                })
+                .merge(Math.max(1, batchConcurrency))
+                .collect().last()
+                .chain(() -> failure.get() == null
+                        ? Uni.createFrom().voidItem()
+                        : rollback(storedKeys).chain(() -> Uni.createFrom().<Void>failure(failure.get())))
+                .map(ignored -> {
+                    // in the order of the request
+                    List<StoredFile> stored = files.stream().map(file -> results.get(file.getFilename())).toList();
+                    BatchAnnouncements.announce(eventNotifier, generationId, enhancementId, stored);
+                    return stored.stream().collect(Collectors.toMap(StoredFile::getFilename, StoredFile::getUrl));
+                });
+    }
+
+    private Uni<Void> rollback(Set<String> storedKeys) {
+        return Multi.createFrom().iterable(Set.copyOf(storedKeys))
+                .onItem().transformToUniAndMerge(storageKey -> objectStorage.delete(storageKey)
+                        .invoke(() -> log.info("Removed {} after batch failure", storageKey))
+                        .onFailure().invoke(e -> log.error("Failed to remove {} after batch failure, it is left in storage", storageKey, e))
+                        .onFailure().recoverWithNull())
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Multi<ByteBuffer>> getFileContent(String storageKey) {
+        return objectStorage.download(storageKey);
+    }
+}
@@ -0,0 +1,84 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.virtual.threads.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the blocking storage requests the services issue in the background: the uploads of batch files, the lookups
+ * of existence checks and the fetches of archive entries. Each service bounds its share with its own permits, the
+ * requests run on virtual threads if they are enabled and supported by the JVM, and otherwise on a single pool of
+ * platform threads large enough for the uploads and the archive fetches allowed at the same time.
+ */
+@ApplicationScoped
+@Slf4j
+public class StorageExecutor implements Executor {
+
+    // executes on virtual threads if they are enabled and supported by the JVM, on the worker pool otherwise
+    @Inject
+    @VirtualThreads
+    ExecutorService virtualThreadExecutor;
+
+    // run the requests on virtual threads instead of the pool of platform threads, requires Java 21
+    @ConfigProperty(name = "quarkus.virtual-threads.enabled", defaultValue = "false")
+    boolean virtualThreads;
+
+    // max number of files uploaded at the same time across all batches
+    @ConfigProperty(name = "sbomer.storage.upload.max-concurrency", defaultValue = "32")
+    int uploadConcurrency;
+
+    // max number of files fetched at the same time across all archives
+    @ConfigProperty(name = "sbomer.storage.archive.max-concurrency", defaultValue = "16")
+    int archiveConcurrency;
+
+    ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        // Before Java 21 the virtual thread executor runs tasks on the worker pool, where a batch waiting for
+        // its uploads on a worker thread could take the threads the uploads are queued for
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            log.info("Running storage requests on virtual threads");
+            executor = virtualThreadExecutor;
+            return;
+        }
+        int threads = Math.max(1, uploadConcurrency) + Math.max(1, archiveConcurrency);
+        log.info("Running storage requests on {} platform threads", threads);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "storage-io-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // the virtual thread executor is managed by Quarkus
+        if (!isVirtual()) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns true if the requests run on virtual threads, which are not bounded by the executor.
+     */
+    boolean isVirtual() {
+        return executor == virtualThreadExecutor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+}
@@ -0,0 +1,63 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+/**
+ * File pathing strategy shared by the blocking and the non-blocking storage services.
+ */
+final class StoragePaths {
+
+    private StoragePaths() {}
+
+    /**
+     * Folder of an enhancement step, nested under its generation.
+     * Path: {generationId}/{enhancementId}
+     */
+    static String enhancementPrefix(String generationId, String enhancementId) {
+        return String.format("%s/%s", generationId, enhancementId);
+    }
+
+    /**
+     * Prefix of every key stored in the folder, including those of nested folders.
+     * Path: {folderPrefix}/
+     */
+    static String listingPrefix(String folderPrefix) {
+        return folderPrefix + "/";
+    }
+
+    /**
+     * Final Key: folderPrefix/filename
+     */
+    static String storageKey(String folderPrefix, String filename) {
+        return String.format("%s/%s", folderPrefix, filename);
+    }
+
+    /**
+     * Content addressed key of a blob, shared by every file with the same content.
+     * Path: blobs/sha256/{digest}
+     */
+    static String blobKey(String sha256) {
+        return String.format("blobs/sha256/%s", sha256);
+    }
+
+    /**
+     * Key a file of a direct upload session or of an uploaded batch is stored under until it is published.
+     * Path: staging/{sessionId}/{filename}
+     */
+    static String stagingKey(String sessionId, String filename) {
+        return String.format("staging/%s/%s", sessionId, filename);
+    }
+
+    /**
+     * Key the state of a direct upload session is kept under.
+     * Path: staging/{sessionId}.session
+     */
+    static String sessionKey(String sessionId) {
+        return String.format("staging/%s.session", sessionId);
+    }
+
+    /**
+     * Permanent URL under which the stored file is served by this service.
+     */
+    static String permanentUrl(String publicApiUrl, String storageKey) {
+        return String.format("%s/api/v1/storage/content/%s", publicApiUrl, storageKey);
+    }
+}
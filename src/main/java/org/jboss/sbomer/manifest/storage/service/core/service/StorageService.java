@@ -1,15 +1,55 @@
 package org.jboss.sbomer.manifest.storage.service.core.service;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadCapacityExceededException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ContentCoding;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileCheck;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileStatus;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUrl;
 import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
 import org.jboss.sbomer.manifest.storage.service.core.port.api.StorageAdministration;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DownloadUrlSigner;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
 import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+import org.jboss.sbomer.manifest.storage.service.core.utility.CompressionUtility;
+import org.jboss.sbomer.manifest.storage.service.core.utility.DigestUtility;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
@@ -21,53 +61,649 @@ public class StorageService implements StorageAdministration {
     @Inject
     ObjectStorage objectStorage;
 
+    @Inject
+    DownloadUrlSigner downloadUrlSigner;
+
+    @Inject
+    StorageEventNotifier eventNotifier;
+
+    @Inject
+    MetadataIndex metadataIndex;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    // runs the uploads of batch files and the lookups of existence checks
+    @Inject
+    StorageExecutor storageExecutor;
+
     // the public api url of this service component
     @ConfigProperty(name = "sbomer.storage.public-api-url")
     String publicApiUrl;
 
+    // max number of files of a single batch uploaded at the same time
+    @ConfigProperty(name = "sbomer.storage.upload.batch-concurrency", defaultValue = "8")
+    int batchConcurrency;
+
+    // max number of files uploaded at the same time across all batches
+    @ConfigProperty(name = "sbomer.storage.upload.max-concurrency", defaultValue = "32")
+    int maxConcurrency;
+
+    // max bytes of files uploaded at the same time across all batches, 0 for no limit
+    @ConfigProperty(name = "sbomer.storage.upload.max-in-flight-bytes", defaultValue = "0")
+    long maxInFlightBytes;
+
+    // max number of batches waiting for the in-flight bytes to drop, later ones are rejected right away
+    @ConfigProperty(name = "sbomer.storage.upload.admission.max-queued", defaultValue = "64")
+    int admissionMaxQueued;
+
+    // max time a batch waits for the in-flight bytes to drop before it is rejected
+    @ConfigProperty(name = "sbomer.storage.upload.admission.timeout", defaultValue = "30S")
+    Duration admissionTimeout;
+
+    // sent to clients of rejected batches
+    @ConfigProperty(name = "sbomer.storage.upload.admission.retry-after", defaultValue = "5S")
+    Duration admissionRetryAfter;
+
+    // store identical content once under its digest, the files become references to it
+    @ConfigProperty(name = "sbomer.storage.dedup.enabled", defaultValue = "false")
+    boolean deduplicate;
+
+    // coding uploaded files are compressed with before they are stored: none, gzip or zstd
+    @ConfigProperty(name = "sbomer.storage.compression.codec", defaultValue = "none")
+    String compressionCodec;
+
+    // smaller files are stored as uploaded, compressing them saves too little
+    @ConfigProperty(name = "sbomer.storage.compression.min-size", defaultValue = "1024")
+    long compressionMinSize;
+
+    // redirect downloads of large files to a presigned storage url instead of proxying their content
+    @ConfigProperty(name = "sbomer.storage.download.redirect.enabled", defaultValue = "false")
+    boolean redirectDownloads;
+
+    // smaller files are still proxied, a redirect costs the client another round trip
+    @ConfigProperty(name = "sbomer.storage.download.redirect.min-size", defaultValue = "8388608")
+    long redirectMinSize;
+
+    // interval after which an index entry is revalidated against the storage, files stored through this replica
+    // are indexed when they are published, so it only bounds how long a file replaced through another replica
+    // may be described by its old entry
+    @ConfigProperty(name = "sbomer.storage.index.max-age", defaultValue = "1H")
+    Duration indexMaxAge;
+
+    // max number of files of a single existence check looked up in the storage at the same time
+    @ConfigProperty(name = "sbomer.storage.exists.concurrency", defaultValue = "16")
+    int lookupConcurrency;
+
+    // bounds the uploads across all batches, the shared executor does not
+    Semaphore uploadPermits;
+
+    // null if the bytes uploaded at the same time are not limited
+    ByteBudget uploadBudget;
+
+    DistributionSummary batchFiles;
+
+    // null if uploaded files are stored as uploaded
+    ContentCoding compression;
+
+    @PostConstruct
+    void init() {
+        if (compressionCodec != null && !"none".equalsIgnoreCase(compressionCodec)) {
+            compression = ContentCoding.fromToken(compressionCodec);
+            if (compression == null) {
+                throw new IllegalStateException("Unsupported compression codec: " + compressionCodec);
+            }
+            log.info("Compressing uploaded files of at least {} bytes with {}", compressionMinSize, compression.getToken());
+        }
+        batchFiles = DistributionSummary.builder("sbomer.storage.batch.files")
+                .description("Number of files per uploaded batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        if (maxInFlightBytes > 0) {
+            uploadBudget = new ByteBudget(maxInFlightBytes, admissionMaxQueued, admissionTimeout, admissionRetryAfter);
+            Gauge.builder("sbomer.storage.upload.in-flight-bytes", uploadBudget, ByteBudget::getReserved)
+                    .description("Bytes of the batches being uploaded")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(meterRegistry);
+            Gauge.builder("sbomer.storage.upload.queued", uploadBudget, ByteBudget::getQueued)
+                    .description("Batches waiting for the bytes in flight to drop")
+                    .register(meterRegistry);
+            log.info("Uploading at most {} bytes at the same time", maxInFlightBytes);
+        }
+        uploadPermits = new Semaphore(Math.max(1, maxConcurrency));
+    }
+
     @Override
-    public Map<String, String> storeGenerationSboms(String generationId, List<SbomFile> files) {
+    public List<StoredFile> storeGenerationSboms(String generationId, List<SbomFile> files) {
         // generationId is the prefix
-        return uploadBatch(generationId, files);
+        List<StoredFile> stored = uploadBatch(generationId, files);
+        BatchAnnouncements.announce(eventNotifier, generationId, null, stored);
+        return stored;
     }
 
     @Override
-    public Map<String, String> storeEnhancementSboms(String generationId, String enhancementId, List<SbomFile> files) {
+    public List<StoredFile> storeEnhancementSboms(String generationId, String enhancementId, List<SbomFile> files) {
         // generationId/enhancementId is the prefix
-        String prefix = String.format("%s/%s", generationId, enhancementId);
-        return uploadBatch(prefix, files);
+        String prefix = StoragePaths.enhancementPrefix(generationId, enhancementId);
+        List<StoredFile> stored = uploadBatch(prefix, files);
+        BatchAnnouncements.announce(eventNotifier, generationId, enhancementId, stored);
+        return stored;
     }
 
     /**
-     * Helper to handle the Batch Atomicity logic
+     * Helper to handle the Batch Atomicity logic.
+     * Files are uploaded in parallel, bounded by the per-batch and global concurrency limits.
+     * If any file fails, the uploads still in flight are cancelled and files already stored are removed.
+     * With a byte budget, the batch first reserves the size of all of its files.
+     * Files are added to the metadata index as they are stored, a failed batch removes their entries again.
      */
-    private Map<String, String> uploadBatch(String folderPrefix, List<SbomFile> files) {
+    private List<StoredFile> uploadBatch(String folderPrefix, List<SbomFile> files) {
         log.info("Uploading {} files to folder: {}", files.size(), folderPrefix);
+        batchFiles.record(files.size());
+        if (uploadBudget == null) {
+            return uploadFiles(folderPrefix, files);
+        }
+        long bytes = files.stream().mapToLong(file -> Math.max(0, file.getSize())).sum();
+        ByteBudget.Reservation reservation;
+        try {
+            reservation = uploadBudget.reserve(bytes);
+        } catch (UploadCapacityExceededException e) {
+            Counter.builder("sbomer.storage.upload.rejected")
+                    .description("Batches rejected because the bytes in flight did not drop in time")
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+        try (reservation) {
+            return uploadFiles(folderPrefix, files);
+        }
+    }
 
-        Map<String, String> resultUrls = new HashMap<>();
+    /**
+     * Files are uploaded straight to their storage keys, with the digest of their content, so storing a file costs
+     * a single request, or an existence check of its blob and a reference if it is deduplicated.
+     * If any file fails, every file the batch stored is removed again, including files that replaced a file stored
+     * before, as the old content is gone once it is overwritten.
+     */
+    private List<StoredFile> uploadFiles(String folderPrefix, List<SbomFile> files) {
+        BatchUpload batch = new BatchUpload(folderPrefix);
+        runAll(batch, files, batch::store);
+        if (batch.isAborted()) {
+            batch.rollback();
+            Failure failure = batch.failure.get();
+            // Atomic failure: Throw exception to ensure 500 Error and no partial state in DB
+            throw new RuntimeException("Failed to upload file " + failure.file().getFilename(), failure.cause());
+        }
+        // Report in the order of the request
+        return files.stream().map(file -> batch.results.get(file.getFilename())).toList();
+    }
 
-        for (SbomFile file : files) {
-            // Final Key: folderPrefix/filename
-            String storageKey = String.format("%s/%s", folderPrefix, file.getFilename());
+    /**
+     * Runs a step of the batch for every file, in parallel up to the per-batch and global concurrency limits.
+     * Once a file failed, the steps still in flight are cancelled and the remaining files are skipped.
+     * Returns when every started step finished, so nothing lands in storage after the rollback.
+     */
+    private void runAll(BatchUpload batch, List<SbomFile> files, FileStep step) {
+        Semaphore permits = new Semaphore(Math.max(1, batchConcurrency));
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(files.size());
 
+        for (SbomFile file : files) {
             try {
-                objectStorage.upload(storageKey, file.getContent(), file.getSize(), file.getContentType());
-
-                // Construct permanent URL
-                String permUrl = String.format("%s/api/v1/storage/content/%s", publicApiUrl, storageKey);
-                resultUrls.put(file.getFilename(), permUrl);
-
-            } catch (Exception e) {
-                log.error("Upload failed for file {}. Aborting batch.", file.getFilename(), e);
-                // Atomic failure: Throw exception to ensure 500 Error and no partial state in DB
-                throw new RuntimeException("Failed to upload file " + file.getFilename(), e);
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.fail(file, e);
+                break;
             }
+            if (batch.isAborted()) {
+                permits.release();
+                break;
+            }
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    uploadPermits.acquireUninterruptibly();
+                    try {
+                        batch.run(file, step);
+                    } finally {
+                        uploadPermits.release();
+                    }
+                } finally {
+                    permits.release();
+                }
+            }, storageExecutor));
         }
-        return resultUrls;
+
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).handle((result, e) -> null).join();
     }
 
     @Override
     public InputStream getFileContent(String storageKey) {
-        return objectStorage.download(storageKey);
+        // References to deduplicated content are resolved by the storage
+        return getFileContent(storageKey, null, List.of()).getContent();
+    }
+
+    @Override
+    public ObjectContent getFileContent(String storageKey, ByteRange range) {
+        return getFileContent(storageKey, range, List.of());
+    }
+
+    /**
+     * Compressed files are passed through untouched to clients accepting their coding.
+     * For other clients they are decompressed while streamed, which also means the requested range is ignored,
+     * as the position of the range in the compressed file is not known.
+     */
+    @Override
+    public ObjectContent getFileContent(String storageKey, ByteRange range, Collection<String> acceptedEncodings) {
+        ObjectContent content = objectStorage.download(storageKey, range);
+        ContentCoding coding = ContentCoding.fromToken(content.getContentEncoding());
+        if (coding == null || accepts(acceptedEncodings, coding)) {
+            // Unknown codings can't be decompressed here, they are passed through as well
+            return content;
+        }
+        if (content.isPartial()) {
+            close(content);
+            content = objectStorage.download(storageKey, null);
+        }
+        log.debug("Decompressing {} content of {}", coding.getToken(), storageKey);
+        try {
+            return ObjectContent.builder()
+                    .content(CompressionUtility.decompress(coding, content.getContent()))
+                    .contentLength(-1)
+                    .objectSize(-1)
+                    .contentType(content.getContentType())
+                    .etag(decodedEtag(content.getEtag()))
+                    .lastModified(content.getLastModified())
+                    .build();
+        } catch (IOException e) {
+            close(content);
+            throw new IllegalStateException("Failed to decompress " + storageKey, e);
+        }
+    }
+
+    /**
+     * Redirects are only sent for files of at least the minimum size, and for compressed files only if
+     * the client accepts their coding, as the storage provider sends them as stored.
+     */
+    @Override
+    public URI getDownloadRedirect(String storageKey, Collection<String> acceptedEncodings) {
+        if (!redirectDownloads) {
+            return null;
+        }
+        PresignedUrl presigned = downloadUrlSigner.presignDownload(storageKey);
+        if (presigned.getSize() < redirectMinSize) {
+            return null;
+        }
+        ContentCoding coding = ContentCoding.fromToken(presigned.getContentEncoding());
+        if (coding != null && !accepts(acceptedEncodings, coding)) {
+            return null;
+        }
+        return presigned.getUrl();
+    }
+
+    @Override
+    public ObjectMetadata getFileMetadata(String storageKey) {
+        return getFileMetadata(storageKey, List.of());
+    }
+
+    @Override
+    public ObjectMetadata getFileMetadata(String storageKey, Collection<String> acceptedEncodings) {
+        ObjectMetadata metadata = lookup(storageKey);
+        ContentCoding coding = ContentCoding.fromToken(metadata.getContentEncoding());
+        if (coding == null || accepts(acceptedEncodings, coding)) {
+            return metadata;
+        }
+        return metadata.toBuilder()
+                .size(-1)
+                .contentEncoding(null)
+                .etag(decodedEtag(metadata.getEtag()))
+                .build();
+    }
+
+    /**
+     * Returns the metadata of a file from the index, or from the storage if the index doesn't hold a complete
+     * and recent entry, which is then added to the index. Files are indexed with the metadata the storage returns
+     * when they are published; an entry without an entity tag, e.g. of a copy the storage didn't describe,
+     * is completed by the first lookup.
+     */
+    private ObjectMetadata lookup(String storageKey) {
+        IndexedObject indexed = metadataIndex.get(storageKey);
+        Instant now = Instant.now();
+        if (isRecent(indexed, now) && indexed.getEtag() != null) {
+            return indexed.toMetadata();
+        }
+        ObjectMetadata metadata = objectStorage.getMetadata(storageKey);
+        if (metadataIndex.isEnabled()) {
+            index(IndexedObject.of(metadata, indexed, now));
+        }
+        return metadata;
+    }
+
+    private boolean isRecent(IndexedObject indexed, Instant now) {
+        return indexed != null && indexed.getIndexedAt() != null && indexed.getIndexedAt().plus(indexMaxAge).isAfter(now);
+    }
+
+    /**
+     * Files with a recent index entry are answered from the index, the others are looked up in the storage
+     * with one request each, in parallel up to the lookup concurrency, and added to the index. The statuses are
+     * completed by the lookups, the caller is not blocked while they run.
+     * The checksum of a file is recorded when it is published, files stored before it was recorded only have one
+     * in the index. A file whose checksum is not known is reported as changed if the client expects one, so it is
+     * uploaded again rather than wrongly skipped.
+     */
+    @Override
+    public CompletionStage<List<FileStatus>> checkFiles(List<FileCheck> checks) {
+        Instant now = Instant.now();
+        FileStatus[] statuses = new FileStatus[checks.size()];
+        IndexedObject[] previous = new IndexedObject[checks.size()];
+        Queue<Integer> lookups = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < checks.size(); i++) {
+            previous[i] = metadataIndex.get(checks.get(i).getStorageKey());
+            if (isRecent(previous[i], now)) {
+                statuses[i] = status(checks.get(i), previous[i]);
+            } else {
+                lookups.add(i);
+            }
+        }
+        log.debug("Checking {} files, {} looked up in the storage", checks.size(), lookups.size());
+        // a bounded number of workers share the lookups, so neither the caller nor a worker waits for a permit
+        int workers = Math.min(Math.max(1, lookupConcurrency), lookups.size());
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                Integer position;
+                while ((position = lookups.poll()) != null) {
+                    FileCheck check = checks.get(position);
+                    try {
+                        statuses[position] = status(check, find(check.getStorageKey(), previous[position], now));
+                    } catch (RuntimeException e) {
+                        // e.g. the storage is unavailable, the other workers stop after their current lookup
+                        lookups.clear();
+                        throw e;
+                    }
+                }
+            }, storageExecutor);
+        }
+        return CompletableFuture.allOf(tasks).thenApply(ignored -> List.of(statuses));
+    }
+
+    /**
+     * @return the entry of the file as found in the storage, or null if it isn't stored
+     */
+    private IndexedObject find(String storageKey, IndexedObject previous, Instant now) {
+        ObjectMetadata metadata = objectStorage.findMetadata(storageKey);
+        if (metadata == null) {
+            if (previous != null) {
+                forgetMetadata(storageKey);
+            }
+            return null;
+        }
+        IndexedObject found = IndexedObject.of(metadata, previous, now);
+        if (metadataIndex.isEnabled()) {
+            index(found);
+        }
+        return found;
+    }
+
+    private static FileStatus status(FileCheck check, IndexedObject found) {
+        if (found == null) {
+            return FileStatus.builder().storageKey(check.getStorageKey()).size(-1).build();
+        }
+        boolean unchanged = check.getSha256() == null || check.getSha256().equalsIgnoreCase(found.getDigest());
+        return FileStatus.builder()
+                .storageKey(check.getStorageKey())
+                .exists(true)
+                .unchanged(unchanged)
+                .size(found.getSize())
+                .contentEncoding(found.getContentEncoding())
+                .sha256(found.getDigest())
+                .etag(found.getEtag())
+                .lastModified(found.getLastModified())
+                .build();
+    }
+
+    /**
+     * The index only spares round trips to the storage, failing to update it never fails the request.
+     */
+    private void index(IndexedObject object) {
+        try {
+            metadataIndex.put(object);
+        } catch (RuntimeException e) {
+            log.warn("Failed to index {}", object.getKey(), e);
+        }
+    }
+
+    /**
+     * Drops the index entry of a replaced or removed file.
+     */
+    private void forgetMetadata(String storageKey) {
+        try {
+            metadataIndex.remove(storageKey);
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove {} from the index", storageKey, e);
+        }
+    }
+
+    private static boolean accepts(Collection<String> acceptedEncodings, ContentCoding coding) {
+        return acceptedEncodings.contains(coding.getToken()) || acceptedEncodings.contains("*");
+    }
+
+    /**
+     * Decompressed content is a different representation than the stored bytes, so it only has a weak entity tag.
+     */
+    private static String decodedEtag(String etag) {
+        return etag == null || etag.startsWith("W/") ? etag : "W/" + etag;
+    }
+
+    private static void close(ObjectContent content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            log.debug("Failed to close content stream", e);
+        }
+    }
+
+    /**
+     * Drops the presigned url of a replaced or removed file, it may point to the old content of a reference.
+     */
+    private void forgetDownloadUrl(String storageKey) {
+        if (redirectDownloads) {
+            downloadUrlSigner.invalidate(storageKey);
+        }
+    }
+
+    private record Failure(SbomFile file, Throwable cause) {}
+
+    /**
+     * A step of a batch upload, run for every file of the batch.
+     */
+    @FunctionalInterface
+    private interface FileStep {
+        void run(SbomFile file) throws Exception;
+    }
+
+    /**
+     * Content of a file as it is written to the storage.
+     * @param digest hex encoded SHA-256 of the content as uploaded
+     * @param size bytes stored
+     * @param contentEncoding coding of the stored bytes, null if they are not compressed
+     * @param spooled temporary file the content is read from, null if it is read from the source of the file
+     */
+    private record StoredContent(String digest, long size, String contentEncoding, Path spooled) implements AutoCloseable {
+
+        @Override
+        public void close() throws IOException {
+            if (spooled != null) {
+                Files.deleteIfExists(spooled);
+            }
+        }
+    }
+
+    /**
+     * Tracks the state of a single batch upload shared between the upload threads.
+     */
+    private class BatchUpload {
+
+        private final String folderPrefix;
+        private final Map<String, StoredFile> results = new ConcurrentHashMap<>();
+        // storage keys the batch wrote to, including those of failed uploads, which may still have left an object
+        private final Set<String> storedKeys = ConcurrentHashMap.newKeySet();
+        private final AtomicReference<Failure> failure = new AtomicReference<>();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        // guarded by itself, interrupting is only allowed while a thread works on this batch
+        private final Set<Thread> running = new HashSet<>();
+
+        BatchUpload(String folderPrefix) {
+            this.folderPrefix = folderPrefix;
+        }
+
+        boolean isAborted() {
+            return aborted.get();
+        }
+
+        void run(SbomFile file, FileStep step) {
+            synchronized (running) {
+                if (aborted.get()) {
+                    return;
+                }
+                running.add(Thread.currentThread());
+            }
+            try {
+                step.run(file);
+            } catch (Exception e) {
+                fail(file, e);
+            } finally {
+                synchronized (running) {
+                    running.remove(Thread.currentThread());
+                    // Clear a cancellation aimed at this batch before the pool thread is reused
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        /**
+         * Stores a file under its storage key, or as a reference to the blob of its content if it is deduplicated,
+         * and indexes it with the metadata of what was stored. A rollback removes the entry again.
+         */
+        void store(SbomFile file) throws IOException {
+            String storageKey = StoragePaths.storageKey(folderPrefix, file.getFilename());
+            StoredFile.StoredFileBuilder result = StoredFile.builder()
+                    .filename(file.getFilename())
+                    .storageKey(storageKey)
+                    // Construct permanent URL
+                    .url(StoragePaths.permanentUrl(publicApiUrl, storageKey))
+                    .size(file.getSize());
+            try (StoredContent content = prepare(file)) {
+                result.digest(content.digest());
+                if (deduplicate) {
+                    deduplicate(storageKey, file, content, result);
+                } else {
+                    storedKeys.add(storageKey);
+                    ObjectMetadata stored = upload(storageKey, file, content);
+                    index(IndexedObject.of(stored, null, Instant.now()));
+                }
+            }
+            forgetDownloadUrl(storageKey);
+            results.put(file.getFilename(), result.build());
+        }
+
+        /**
+         * Uploads the content to the blob of its digest, unless identical content is stored already, and stores
+         * a reference to the blob under the storage key. Blobs are shared between files and never removed by a
+         * rollback, only the reference is. The blob is looked up with the same single request an existence check
+         * costs, so a reference to content stored before is indexed like one to content just uploaded.
+         */
+        private void deduplicate(String storageKey, SbomFile file, StoredContent content, StoredFile.StoredFileBuilder result)
+                throws IOException {
+            String blobKey = StoragePaths.blobKey(content.digest());
+            ObjectMetadata blob = objectStorage.findMetadata(blobKey);
+            boolean duplicate = blob != null;
+            if (duplicate) {
+                log.debug("Content of {} is already stored as {}, skipping upload", storageKey, blobKey);
+            } else {
+                blob = upload(blobKey, file, content);
+            }
+            storedKeys.add(storageKey);
+            objectStorage.putReference(storageKey, blobKey, file.getContentType());
+            // the metadata of a reference is the metadata of its blob, indexed after the reference was stored
+            index(IndexedObject.of(blob.toBuilder().key(storageKey).build(), null, Instant.now()));
+            result.deduplicated(duplicate);
+        }
+
+        /**
+         * Hashes the content before it is uploaded, so the upload stores its digest with the object.
+         * The source of a file is local, it is hashed by reading it once more. Other content is written to a
+         * temporary file while it is hashed, compressed first if compression is enabled and the file isn't
+         * compressed already, as the size of the compressed content must be known before it is uploaded.
+         */
+        private StoredContent prepare(SbomFile file) throws IOException {
+            boolean compress = compression != null && file.getContentEncoding() == null && file.getSize() >= compressionMinSize;
+            if (!compress && file.getSource() != null) {
+                try (DigestInputStream content = DigestUtility.sha256Stream(file.getSource().open())) {
+                    content.transferTo(OutputStream.nullOutputStream());
+                    return new StoredContent(DigestUtility.hex(content), file.getSize(), file.getContentEncoding(), null);
+                }
+            }
+            String contentEncoding = compress ? compression.getToken() : file.getContentEncoding();
+            Path spooled = Files.createTempFile("sbomer-upload-", compress ? "." + contentEncoding : null);
+            try {
+                String digest;
+                try (DigestInputStream content = DigestUtility.sha256Stream(open(file));
+                        OutputStream out = compress
+                                ? CompressionUtility.compress(compression, Files.newOutputStream(spooled))
+                                : Files.newOutputStream(spooled)) {
+                    content.transferTo(out);
+                    digest = DigestUtility.hex(content);
+                }
+                long size = Files.size(spooled);
+                if (compress) {
+                    log.debug("Compressed {} with {} from {} to {} bytes", file.getFilename(), contentEncoding, file.getSize(), size);
+                }
+                return new StoredContent(digest, size, contentEncoding, spooled);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(spooled);
+                throw e;
+            }
+        }
+
+        private ObjectMetadata upload(String key, SbomFile file, StoredContent content) throws IOException {
+            try (InputStream in = content.spooled() != null ? Files.newInputStream(content.spooled()) : file.getSource().open()) {
+                return objectStorage.upload(key, in, content.size(), file.getContentType(), content.contentEncoding(),
+                        content.digest());
+            }
+        }
+
+        private InputStream open(SbomFile file) throws IOException {
+            return file.getSource() != null ? file.getSource().open() : file.getContent();
+        }
+
+        void fail(SbomFile file, Throwable cause) {
+            if (!failure.compareAndSet(null, new Failure(file, cause))) {
+                log.debug("Upload of file {} ended after the batch was aborted", file.getFilename(), cause);
+                return;
+            }
+            log.error("Upload failed for file {}. Aborting batch.", file.getFilename(), cause);
+            synchronized (running) {
+                aborted.set(true);
+                running.stream()
+                        .filter(thread -> thread != Thread.currentThread())
+                        .forEach(Thread::interrupt);
+            }
+        }
+
+        /**
+         * Removes every file the batch stored and drops what is known about it.
+         */
+        void rollback() {
+            for (String storageKey : storedKeys) {
+                forgetDownloadUrl(storageKey);
+                forgetMetadata(storageKey);
+                try {
+                    objectStorage.delete(storageKey);
+                    log.info("Removed {} after batch failure", storageKey);
+                } catch (Exception e) {
+                    log.error("Failed to remove {} after batch failure, it is left in storage", storageKey, e);
+                }
+            }
+        }
     }
 }
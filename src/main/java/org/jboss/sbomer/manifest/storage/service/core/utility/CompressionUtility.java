@@ -0,0 +1,45 @@
+package org.jboss.sbomer.manifest.storage.service.core.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ContentCoding;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+public class CompressionUtility {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CompressionUtility() {}
+
+    /**
+     * Wraps a stream, so content written to it is compressed with the coding.
+     *
+     * @param coding The coding to compress with.
+     * @param out The stream receiving the compressed bytes, closed together with the returned stream.
+     */
+    public static OutputStream compress(ContentCoding coding, OutputStream out) throws IOException {
+        return switch (coding) {
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+
+    /**
+     * Wraps a stream of compressed content, so the content is decompressed while it is read.
+     *
+     * @param coding The coding the content is compressed with.
+     * @param in The compressed content, closed together with the returned stream.
+     */
+    public static InputStream decompress(ContentCoding coding, InputStream in) throws IOException {
+        return switch (coding) {
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(in);
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package org.jboss.sbomer.manifest.storage.service.core.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class DigestUtility {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DigestUtility() {}
+
+    /**
+     * Computes the SHA-256 digest of the remaining content of the stream.
+     *
+     * @param content The stream to read to the end, it is not closed.
+     * @return The digest as a lower case hex string.
+     */
+    public static String sha256(InputStream content) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) >= 0) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Wraps a stream to compute the SHA-256 digest of the content read through it.
+     *
+     * @param content The stream to read from.
+     * @return The stream to read instead, pass it to {@link #hex(DigestInputStream)} once it is read to the end.
+     */
+    public static DigestInputStream sha256Stream(InputStream content) {
+        return new DigestInputStream(content, newSha256());
+    }
+
+    /**
+     * Returns the digest of the content read through the stream so far.
+     *
+     * @return The digest as a lower case hex string.
+     */
+    public static String hex(DigestInputStream content) {
+        return HexFormat.of().formatHex(content.getMessageDigest().digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
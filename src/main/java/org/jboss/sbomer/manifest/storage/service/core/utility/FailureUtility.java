@@ -1,18 +1,25 @@
 package org.jboss.sbomer.manifest.storage.service.core.utility;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.jboss.sbomer.events.common.FailureSpec;
 
 public class FailureUtility {
 
+    // frames rendered per exception of the cause chain, the frames of an outage are all alike
+    static final int MAX_FRAMES = 20;
+    // bounds the size of a failure event, whatever the depth of the cause chain
+    static final int MAX_STACK_TRACE_LENGTH = 8 * 1024;
+
     private FailureUtility() {}
 
     /**
      * Utility method to build a FailureSpec object from a Java Exception.
+     * The stack trace is capped, so building many of them during an outage stays cheap.
      *
      * @param e The exception that was caught.
      * @return A populated FailureSpec object.
@@ -23,19 +30,41 @@ public class FailureUtility {
         failure.setReason(e.getMessage());
         failure.setErrorCode(e.getClass().getSimpleName());
 
-        // Capture the full stack trace
-        StringWriter sw = new StringWriter();
-        e.printStackTrace(new PrintWriter(sw));
-        String stackTrace = sw.toString();
-
-        // Add the stack trace to the details map.
+        // Add the capped stack trace to the details map.
         Map<String, String> details = new HashMap<>();
-        details.put("stackTrace", stackTrace);
+        details.put("stackTrace", stackTrace(e));
         failure.setDetails(details);
 
         return failure;
     }
 
+    /**
+     * Renders the stack trace of an exception and its causes like {@link Throwable#printStackTrace()},
+     * with at most {@link #MAX_FRAMES} frames per exception and {@link #MAX_STACK_TRACE_LENGTH} characters in total.
+     */
+    static String stackTrace(Throwable e) {
+        StringBuilder trace = new StringBuilder();
+        // guards against cycles in the cause chain
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Throwable current = e; current != null && seen.add(current); current = current.getCause()) {
+            if (current != e) {
+                trace.append("Caused by: ");
+            }
+            trace.append(current).append('\n');
+            StackTraceElement[] frames = current.getStackTrace();
+            for (int i = 0; i < Math.min(frames.length, MAX_FRAMES); i++) {
+                trace.append("\tat ").append(frames[i]).append('\n');
+            }
+            if (frames.length > MAX_FRAMES) {
+                trace.append("\t... ").append(frames.length - MAX_FRAMES).append(" more\n");
+            }
+            if (trace.length() >= MAX_STACK_TRACE_LENGTH) {
+                return trace.substring(0, MAX_STACK_TRACE_LENGTH) + "\n\t... truncated";
+            }
+        }
+        return trace.toString();
+    }
+
     // TODO buildFailureSpecFromGenerationFailure
 
 
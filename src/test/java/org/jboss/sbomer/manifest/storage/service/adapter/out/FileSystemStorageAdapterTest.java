@@ -0,0 +1,256 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for FileSystemStorageAdapter.
+ */
+class FileSystemStorageAdapterTest {
+
+    private static final String KEY = "gen-1/bom.json";
+    private static final byte[] DATA = "{\"bom\": \"data\"}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    FileSystemStorageAdapter storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FileSystemStorageAdapter(directory, false);
+    }
+
+    @Test
+    void testUploadAndDownload() throws IOException {
+        ObjectMetadata stored = storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json", "gzip");
+
+        assertEquals(DATA.length, stored.getSize());
+        try (ObjectContent content = storage.download(KEY, null)) {
+            assertArrayEquals(DATA, content.getContent().readAllBytes());
+            assertEquals(DATA.length, content.getContentLength());
+            assertEquals(DATA.length, content.getObjectSize());
+            assertEquals("application/json", content.getContentType());
+            assertEquals("gzip", content.getContentEncoding());
+            assertEquals(stored.getEtag(), content.getEtag());
+            assertEquals(stored.getLastModified(), content.getLastModified());
+            assertNotNull(content.getFile());
+            assertFalse(content.isPartial());
+        }
+        assertTrue(storage.exists(KEY));
+        try (Stream<Path> temporary = Files.list(directory.resolve("tmp"))) {
+            assertEquals(0, temporary.count());
+        }
+    }
+
+    @Test
+    void testUploadRecordsSha256() {
+        ObjectMetadata stored = storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json", null, "abc");
+
+        assertEquals("abc", stored.getSha256());
+        assertEquals("abc", storage.getMetadata(KEY).getSha256());
+    }
+
+    @Test
+    void testUploadReplacesFile() throws IOException {
+        storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+        storage.upload(KEY, new ByteArrayInputStream(new byte[] { 1, 2 }), 2, "application/octet-stream");
+
+        try (ObjectContent content = storage.download(KEY, null)) {
+            assertArrayEquals(new byte[] { 1, 2 }, content.getContent().readAllBytes());
+            assertEquals("application/octet-stream", content.getContentType());
+        }
+        // only the metadata of the current version is kept
+        assertEquals(1, metadataFiles().size());
+    }
+
+    @Test
+    void testMetadataOfPreviousLayoutRead() throws IOException {
+        storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json", "gzip");
+        // metadata was a single file per key before it was versioned
+        Path versioned = metadataFiles().get(0);
+        Path legacy = directory.resolve("metadata").resolve(directory.resolve("versions").relativize(versioned.getParent()));
+        Files.createDirectories(legacy.getParent());
+        Files.move(versioned, legacy);
+
+        assertEquals("gzip", storage.getMetadata(KEY).getContentEncoding());
+
+        storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+        assertNull(storage.getMetadata(KEY).getContentEncoding());
+        assertFalse(Files.exists(legacy));
+    }
+
+    @Test
+    void testUploadOfUnexpectedLengthRejected() {
+        assertThrows(StorageException.class,
+                () -> storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length + 1, "application/json"));
+        assertFalse(storage.exists(KEY));
+    }
+
+    @Test
+    void testDownloadRange() throws IOException {
+        storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+
+        try (ObjectContent content = storage.download(KEY, ByteRange.of(2, 5))) {
+            assertArrayEquals("bom\"".getBytes(StandardCharsets.UTF_8), content.getContent().readAllBytes());
+            assertEquals(4, content.getContentLength());
+            assertEquals(DATA.length, content.getObjectSize());
+            assertEquals(ByteRange.of(2, 5), content.getRange());
+        }
+        StorageRangeNotSatisfiableException e = assertThrows(StorageRangeNotSatisfiableException.class,
+                () -> storage.download(KEY, ByteRange.from(DATA.length)));
+        assertEquals(DATA.length, e.getObjectSize());
+    }
+
+    @Test
+    void testMissingFile() {
+        assertThrows(StorageFileNotFoundException.class, () -> storage.download(KEY, null));
+        assertThrows(StorageFileNotFoundException.class, () -> storage.getMetadata(KEY));
+        assertThrows(StorageFileNotFoundException.class, () -> storage.copy(KEY, "gen-2/bom.json"));
+        assertFalse(storage.exists(KEY));
+        assertNull(storage.findMetadata(KEY));
+    }
+
+    @Test
+    void testInvalidKeys() {
+        for (String key : List.of("../bom.json", "/etc/passwd", "gen-1//bom.json", "gen-1/./bom.json", "gen-1/")) {
+            assertThrows(StorageKeyInvalidException.class, () -> storage.exists(key), key);
+        }
+    }
+
+    @Test
+    void testReferenceResolved() throws IOException {
+        storage.upload("blobs/sha256/abc", new ByteArrayInputStream(DATA), DATA.length, "application/json");
+        storage.putReference(KEY, "blobs/sha256/abc", "application/json");
+
+        try (ObjectContent content = storage.download(KEY, null)) {
+            assertArrayEquals(DATA, content.getContent().readAllBytes());
+        }
+        ObjectMetadata metadata = storage.getMetadata(KEY);
+        assertEquals(KEY, metadata.getKey());
+        assertEquals(DATA.length, metadata.getSize());
+        assertEquals("application/json", metadata.getContentType());
+        assertEquals(DATA.length, storage.findMetadata(KEY).getSize());
+    }
+
+    @Test
+    void testCopy() throws IOException {
+        storage.upload("staging/upload-1/bom.json", new ByteArrayInputStream(DATA), DATA.length, "application/json");
+
+        storage.copy("staging/upload-1/bom.json", KEY);
+        storage.delete("staging/upload-1/bom.json");
+
+        try (ObjectContent content = storage.download(KEY, null)) {
+            assertArrayEquals(DATA, content.getContent().readAllBytes());
+            assertEquals("application/json", content.getContentType());
+        }
+        assertFalse(storage.exists("staging/upload-1/bom.json"));
+    }
+
+    @Test
+    void testCopyRecordsDigest() {
+        storage.upload("staging/upload-1/bom.json", new ByteArrayInputStream(DATA), DATA.length, "application/json");
+
+        ObjectMetadata copied = storage.copy("staging/upload-1/bom.json", KEY, "application/json", "gzip", "ab".repeat(32));
+
+        ObjectMetadata metadata = storage.getMetadata(KEY);
+        assertEquals(metadata.getEtag(), copied.getEtag());
+        assertEquals(DATA.length, copied.getSize());
+        assertEquals("ab".repeat(32), metadata.getSha256());
+        assertEquals("gzip", metadata.getContentEncoding());
+        assertEquals("application/json", metadata.getContentType());
+        assertNull(storage.getMetadata("staging/upload-1/bom.json").getSha256());
+    }
+
+    @Test
+    void testDeleteIsIdempotent() throws IOException {
+        storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+
+        storage.delete(KEY);
+        storage.delete(KEY);
+
+        assertFalse(storage.exists(KEY));
+        assertThrows(StorageFileNotFoundException.class, () -> storage.getMetadata(KEY));
+        assertEquals(List.of(), metadataFiles());
+    }
+
+    @Test
+    void testListPages() {
+        for (String key : List.of("gen-1/c.json", "gen-1/a.json", "gen-1/enh-1/b.json", "gen-10/a.json")) {
+            storage.upload(key, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+        }
+
+        ObjectListing first = storage.list("gen-1/", null, 2);
+        assertEquals(List.of("gen-1/a.json", "gen-1/c.json"), keys(first));
+        assertEquals("gen-1/c.json", first.getNextContinuationToken());
+
+        ObjectListing last = storage.list("gen-1/", first.getNextContinuationToken(), 2);
+        assertEquals(List.of("gen-1/enh-1/b.json"), keys(last));
+        assertNull(last.getNextContinuationToken());
+        assertEquals(DATA.length, last.getObjects().get(0).getSize());
+
+        assertEquals(4, storage.list("gen-1", null, 10).getObjects().size());
+        assertTrue(storage.list("gen-2/", null, 10).getObjects().isEmpty());
+    }
+
+    @Test
+    void testListPagesOfManyFiles() {
+        List<String> stored = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            String key = "gen-1/enh-" + (i % 3) + "/file-" + i + ".json";
+            storage.upload(key, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+            stored.add(key);
+        }
+
+        List<String> listed = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            ObjectListing page = storage.list("gen-1/", continuationToken, 3);
+            assertTrue(page.getObjects().size() <= 3);
+            listed.addAll(keys(page));
+            continuationToken = page.getNextContinuationToken();
+        } while (continuationToken != null);
+
+        assertEquals(stored.stream().sorted().toList(), listed);
+    }
+
+    @Test
+    void testListAfterDeleteOfLastFileOfDirectory() {
+        storage.upload("gen-1/enh-1/b.json", new ByteArrayInputStream(DATA), DATA.length, "application/json");
+        storage.delete("gen-1/enh-1/b.json");
+
+        assertTrue(storage.list("gen-1/", null, 10).getObjects().isEmpty());
+        storage.upload("gen-1/enh-1/b.json", new ByteArrayInputStream(DATA), DATA.length, "application/json");
+        assertEquals(List.of("gen-1/enh-1/b.json"), keys(storage.list("gen-1/enh-1/", null, 10)));
+    }
+
+    private static List<String> keys(ObjectListing listing) {
+        return listing.getObjects().stream().map(ObjectMetadata::getKey).toList();
+    }
+
+    private List<Path> metadataFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.resolve("versions"))) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.jboss.sbomer.events.common.FailureSpec;
+import org.jboss.sbomer.events.error.ProcessingFailed;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for KafkaFailureNotifier.
+ */
+@ExtendWith(MockitoExtension.class)
+class KafkaFailureNotifierTest {
+
+    @Mock
+    Emitter<ProcessingFailed> emitter;
+
+    SimpleMeterRegistry registry;
+
+    KafkaFailureNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        notifier = new KafkaFailureNotifier(emitter, registry, 2);
+    }
+
+    @Test
+    void testIdenticalFailuresCoalesced() {
+        when(emitter.send(any(ProcessingFailed.class))).thenReturn(CompletableFuture.completedFuture(null));
+        for (int i = 0; i < 100; i++) {
+            notifier.notify(failure("StorageUnavailableException", "Unable to connect"), "correlation-" + i, null);
+        }
+        notifier.notify(failure("StorageAccessException", "Access denied"), "correlation-x", null);
+
+        notifier.flush();
+
+        ArgumentCaptor<ProcessingFailed> captor = ArgumentCaptor.forClass(ProcessingFailed.class);
+        verify(emitter, times(2)).send(captor.capture());
+        ProcessingFailed unavailable = captor.getAllValues().stream()
+                .filter(event -> event.getErrorData().getFailure().getErrorCode().equals("StorageUnavailableException"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("100", unavailable.getErrorData().getFailure().getDetails().get(KafkaFailureNotifier.OCCURRENCES));
+        assertEquals("correlation-0", unavailable.getContext().getCorrelationId());
+        assertEquals(2.0, registry.get(KafkaFailureNotifier.PUBLISHED).counter().count());
+
+        notifier.flush();
+        verifyNoMoreInteractions(emitter);
+    }
+
+    @Test
+    void testDistinctFailuresBeyondLimitDropped() {
+        for (String reason : List.of("a", "b", "c")) {
+            notifier.notify(failure("RuntimeException", reason), null, null);
+        }
+
+        assertEquals(1.0, registry.get(KafkaFailureNotifier.DROPPED).counter().count());
+        verifyNoInteractions(emitter);
+    }
+
+    private static FailureSpec failure(String errorCode, String reason) {
+        FailureSpec failure = new FailureSpec();
+        failure.setErrorCode(errorCode);
+        failure.setReason(reason);
+        failure.setDetails(Map.of("stackTrace", "trace"));
+        return failure;
+    }
+}
@@ -0,0 +1,84 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+
+/**
+ * Unit tests for KafkaStorageEventNotifier.
+ */
+@ExtendWith(MockitoExtension.class)
+class KafkaStorageEventNotifierTest {
+
+    private static final StoredBatch BATCH = StoredBatch.builder()
+            .generationId("gen-1")
+            .files(List.of(StoredFile.builder()
+                    .filename("bom.json")
+                    .storageKey("gen-1/bom.json")
+                    .url("http://localhost:8085/api/v1/storage/content/gen-1/bom.json")
+                    .size(2)
+                    .digest("abc")
+                    .build()))
+            .storedAt(Instant.parse("2025-06-01T10:00:00Z"))
+            .build();
+
+    @Mock
+    Emitter<SbomBatchStoredEvent> emitter;
+
+    SimpleMeterRegistry registry;
+
+    KafkaStorageEventNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        notifier = new KafkaStorageEventNotifier(emitter, registry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEventKeyedByGeneration() {
+        notifier.batchStored(BATCH);
+
+        ArgumentCaptor<Message<SbomBatchStoredEvent>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(emitter).send(captor.capture());
+        Message<SbomBatchStoredEvent> message = captor.getValue();
+        SbomBatchStoredEvent event = message.getPayload();
+        assertEquals(SbomBatchStoredEvent.TYPE, event.type());
+        assertEquals("gen-1", event.generationId());
+        assertNull(event.enhancementId());
+        assertEquals(BATCH.getStoredAt(), event.timestamp());
+        assertEquals(new SbomBatchStoredEvent.File("bom.json", "gen-1/bom.json",
+                "http://localhost:8085/api/v1/storage/content/gen-1/bom.json", 2, "abc"), event.files().get(0));
+        assertEquals("gen-1", message.getMetadata(OutgoingKafkaRecordMetadata.class).orElseThrow().getKey());
+
+        message.ack().toCompletableFuture().join();
+        assertEquals(1.0, registry.get(KafkaStorageEventNotifier.PUBLISHED).tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void testFullBufferDropsEvent() {
+        doThrow(new IllegalStateException("buffer full")).when(emitter).send(any(Message.class));
+
+        assertDoesNotThrow(() -> notifier.batchStored(BATCH));
+
+        assertEquals(1.0, registry.get(KafkaStorageEventNotifier.PUBLISHED).tag("outcome", "dropped").counter().count());
+    }
+}
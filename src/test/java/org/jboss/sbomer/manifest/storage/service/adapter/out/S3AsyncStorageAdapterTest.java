@@ -0,0 +1,107 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.smallrye.mutiny.Multi;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Unit tests for S3AsyncStorageAdapter.
+ * Tests upload, download and delete operations and their error translation.
+ */
+@ExtendWith(MockitoExtension.class)
+class S3AsyncStorageAdapterTest {
+
+    private static final String BUCKET_NAME = "test-storage";
+    private static final String CONTENT_TYPE = "text/plain";
+
+    @Mock
+    S3AsyncClient client;
+
+    S3AsyncStorageAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        adapter = new S3AsyncStorageAdapter(client, BUCKET_NAME);
+    }
+
+    @Test
+    void testUploadSuccess() {
+        String key = "foo/file.txt";
+        byte[] bytes = "123".getBytes();
+        when(client.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        adapter.upload(key, Multi.createFrom().item(ByteBuffer.wrap(bytes)), bytes.length, CONTENT_TYPE)
+            .await().indefinitely();
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(requestCaptor.capture(), any(AsyncRequestBody.class));
+        PutObjectRequest capturedRequest = requestCaptor.getValue();
+        assertEquals(BUCKET_NAME, capturedRequest.bucket());
+        assertEquals(key, capturedRequest.key());
+        assertEquals(bytes.length, capturedRequest.contentLength());
+        assertEquals(CONTENT_TYPE, capturedRequest.contentType());
+    }
+
+    @Test
+    void testUploadPathTraversal() {
+        assertThrows(StorageKeyInvalidException.class, () ->
+            adapter.upload("../foo", Multi.createFrom().empty(), 0, CONTENT_TYPE).await().indefinitely()
+        );
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void testUploadServiceUnavailable() {
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(SERVICE_UNAVAILABLE.getStatusCode())
+            .message("Service Unavailable")
+            .build();
+        when(client.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.failedFuture(s3Exception));
+        assertThrows(StorageUnavailableException.class, () ->
+            adapter.upload("foo/file.txt", Multi.createFrom().empty(), 0, CONTENT_TYPE).await().indefinitely()
+        );
+    }
+
+    @Test
+    void testDownloadNoSuchKey() {
+        String key = "bar/non-existent.txt";
+        when(client.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().message("Key not found").build()));
+        StorageFileNotFoundException ex = assertThrows(StorageFileNotFoundException.class, () ->
+            adapter.download(key).await().indefinitely()
+        );
+        assertTrue(ex.getMessage().contains(key));
+    }
+
+    @Test
+    void testDelete() {
+        String key = "bar/file.txt";
+        when(client.deleteObject(any(DeleteObjectRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(DeleteObjectResponse.builder().build()));
+        adapter.delete(key).await().indefinitely();
+        ArgumentCaptor<DeleteObjectRequest> requestCaptor = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(client).deleteObject(requestCaptor.capture());
+        assertEquals(BUCKET_NAME, requestCaptor.getValue().bucket());
+        assertEquals(key, requestCaptor.getValue().key());
+    }
+}
@@ -0,0 +1,260 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadRejectedException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUpload;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StagedFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.paginators.ListPartsIterable;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+
+/**
+ * Unit tests for S3DirectUploadAdapter.
+ * Tests presigning, completing and session persistence of direct uploads.
+ */
+@ExtendWith(MockitoExtension.class)
+class S3DirectUploadAdapterTest {
+
+    private static final String BUCKET_NAME = "test-storage";
+    private static final String KEY = "staging/abc/bom.json";
+    private static final String SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Mock
+    S3Client client;
+
+    @Mock
+    S3Presigner presigner;
+
+    S3DirectUploadAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        adapter = new S3DirectUploadAdapter(client, presigner, BUCKET_NAME, 10, 10);
+    }
+
+    @Test
+    void testPresignSinglePutWithChecksum() throws MalformedURLException {
+        PresignedPutObjectRequest presigned = mock(PresignedPutObjectRequest.class);
+        when(presigned.url()).thenReturn(new URL("https://s3.example.com/test-storage/staging/abc/bom.json"));
+        when(presigned.expiration()).thenReturn(Instant.now().plus(Duration.ofHours(1)));
+        when(presigned.httpRequest()).thenReturn(signedRequest());
+        when(presigner.presignPutObject(any(PutObjectPresignRequest.class))).thenReturn(presigned);
+
+        PresignedUpload upload = adapter.presignUpload(KEY, 4, "application/json", SHA256);
+
+        assertNull(upload.getMultipartUploadId());
+        assertEquals(4, upload.getPartSize());
+        assertEquals(1, upload.getUrls().size());
+        // The host is part of the url, the checksum must be sent by the client
+        assertFalse(upload.getHeaders().containsKey("Host"));
+        assertEquals("checksum", upload.getHeaders().get("x-amz-checksum-sha256"));
+        ArgumentCaptor<PutObjectPresignRequest> captor = ArgumentCaptor.forClass(PutObjectPresignRequest.class);
+        verify(presigner).presignPutObject(captor.capture());
+        assertEquals(KEY, captor.getValue().putObjectRequest().key());
+        assertEquals(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(SHA256)),
+            captor.getValue().putObjectRequest().checksumSHA256());
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void testPresignMultipartOneUrlPerPart() throws MalformedURLException {
+        when(client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        PresignedUploadPartRequest presigned = mock(PresignedUploadPartRequest.class);
+        when(presigned.url()).thenReturn(new URL("https://s3.example.com/test-storage/staging/abc/bom.json?partNumber=1"));
+        when(presigned.expiration()).thenReturn(Instant.now().plus(Duration.ofHours(1)));
+        when(presigned.httpRequest()).thenReturn(signedRequest());
+        when(presigner.presignUploadPart(any(UploadPartPresignRequest.class))).thenReturn(presigned);
+
+        PresignedUpload upload = adapter.presignUpload(KEY, 25, "application/json", null);
+
+        assertEquals("upload-1", upload.getMultipartUploadId());
+        assertEquals(10, upload.getPartSize());
+        assertEquals(3, upload.getUrls().size());
+        ArgumentCaptor<UploadPartPresignRequest> captor = ArgumentCaptor.forClass(UploadPartPresignRequest.class);
+        verify(presigner, times(3)).presignUploadPart(captor.capture());
+        assertEquals(List.of(1, 2, 3), captor.getAllValues().stream().map(r -> r.uploadPartRequest().partNumber()).toList());
+    }
+
+    @Test
+    void testPresignMultipartAbortedOnFailure() {
+        when(client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(presigner.presignUploadPart(any(UploadPartPresignRequest.class)))
+            .thenThrow(SdkClientException.create("signing failed"));
+
+        assertThrows(StorageException.class, () -> adapter.presignUpload(KEY, 25, "application/json", null));
+
+        ArgumentCaptor<AbortMultipartUploadRequest> captor = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(client).abortMultipartUpload(captor.capture());
+        assertEquals("upload-1", captor.getValue().uploadId());
+    }
+
+    @Test
+    void testCompleteMultipartFromListedParts() {
+        listParts(Part.builder().partNumber(1).eTag("e1").size(10L).build(),
+            Part.builder().partNumber(2).eTag("e2").size(5L).build());
+        // Checksums of multipart objects are composed of the part checksums
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(15L).checksumSHA256("YWJj-2").build());
+
+        ObjectMetadata metadata = adapter.completeUpload(KEY, "upload-1", 15);
+
+        assertEquals(15, metadata.getSize());
+        assertNull(metadata.getSha256());
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(client).completeMultipartUpload(captor.capture());
+        assertEquals("upload-1", captor.getValue().uploadId());
+        assertEquals(List.of("e1", "e2"), captor.getValue().multipartUpload().parts().stream().map(CompletedPart::eTag).toList());
+    }
+
+    @Test
+    void testCompleteMultipartMissingPartsLeftOpen() {
+        listParts(Part.builder().partNumber(1).eTag("e1").size(10L).build());
+
+        assertThrows(UploadRejectedException.class, () -> adapter.completeUpload(KEY, "upload-1", 15));
+
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testCompleteAlreadyCompletedMultipart() {
+        when(client.listPartsPaginator(any(ListPartsRequest.class)))
+            .thenThrow(NoSuchUploadException.builder().message("no such upload").build());
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(15L).build());
+
+        assertEquals(15, adapter.completeUpload(KEY, "upload-1", 15).getSize());
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testCompleteSinglePutReturnsVerifiedChecksum() {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(4L)
+                .checksumSHA256(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(SHA256))).build());
+
+        ObjectMetadata metadata = adapter.completeUpload(KEY, null, 4);
+
+        assertEquals(SHA256, metadata.getSha256());
+        ArgumentCaptor<HeadObjectRequest> captor = ArgumentCaptor.forClass(HeadObjectRequest.class);
+        verify(client).headObject(captor.capture());
+        assertEquals(ChecksumMode.ENABLED, captor.getValue().checksumMode());
+        verify(client, never()).listPartsPaginator(any(ListPartsRequest.class));
+    }
+
+    @Test
+    void testCompleteNotUploaded() {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenThrow(S3Exception.builder().statusCode(404).build());
+
+        assertThrows(StorageFileNotFoundException.class, () -> adapter.completeUpload(KEY, null, 4));
+    }
+
+    @Test
+    void testSessionRoundTrip() throws IOException {
+        Instant expiresAt = Instant.parse("2026-01-01T10:00:00Z");
+        UploadSession session = UploadSession.builder()
+            .id("abc")
+            .generationId("gen-1")
+            .enhancementId("enh-1")
+            .storagePrefix("gen-1/enh-1")
+            .expiresAt(expiresAt)
+            .files(List.of(
+                StagedFile.builder().filename("bom.json").contentType("application/json").size(4)
+                    .sha256(SHA256).stagingKey(KEY).build(),
+                StagedFile.builder().filename("large.json").size(25)
+                    .stagingKey("staging/abc/large.json").multipartUploadId("upload-1").build()))
+            .build();
+
+        adapter.saveSession("staging/abc.session", session);
+
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+        verify(client).putObject(any(PutObjectRequest.class), body.capture());
+        byte[] stored;
+        try (InputStream in = body.getValue().contentStreamProvider().newStream()) {
+            stored = in.readAllBytes();
+        }
+        when(client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+            GetObjectResponse.builder().build(), AbortableInputStream.create(new ByteArrayInputStream(stored))));
+
+        UploadSession loaded = adapter.loadSession("staging/abc.session");
+
+        assertEquals("abc", loaded.getId());
+        assertEquals("gen-1/enh-1", loaded.getStoragePrefix());
+        assertEquals("gen-1", loaded.getGenerationId());
+        assertEquals("enh-1", loaded.getEnhancementId());
+        assertEquals(expiresAt, loaded.getExpiresAt());
+        assertEquals(2, loaded.getFiles().size());
+        StagedFile first = loaded.getFiles().get(0);
+        assertEquals("bom.json", first.getFilename());
+        assertEquals("application/json", first.getContentType());
+        assertEquals(SHA256, first.getSha256());
+        assertNull(first.getMultipartUploadId());
+        StagedFile second = loaded.getFiles().get(1);
+        assertEquals(25, second.getSize());
+        assertNull(second.getContentType());
+        assertEquals("upload-1", second.getMultipartUploadId());
+    }
+
+    @Test
+    void testLoadMissingSession() {
+        when(client.getObject(any(GetObjectRequest.class)))
+            .thenThrow(NoSuchKeyException.builder().message("missing").build());
+
+        assertThrows(StorageFileNotFoundException.class, () -> adapter.loadSession("staging/abc.session"));
+    }
+
+    private void listParts(Part... parts) {
+        ListPartsIterable iterable = mock(ListPartsIterable.class);
+        when(iterable.parts()).thenReturn(() -> List.of(parts).iterator());
+        when(client.listPartsPaginator(any(ListPartsRequest.class))).thenReturn(iterable);
+    }
+
+    private static SdkHttpFullRequest signedRequest() {
+        return SdkHttpFullRequest.builder()
+            .method(SdkHttpMethod.PUT)
+            .protocol("https")
+            .host("s3.example.com")
+            .putHeader("Host", "s3.example.com")
+            .putHeader("x-amz-checksum-sha256", "checksum")
+            .build();
+    }
+}
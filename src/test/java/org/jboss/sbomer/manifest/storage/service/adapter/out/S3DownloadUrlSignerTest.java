@@ -0,0 +1,120 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUrl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+/**
+ * Unit tests for S3DownloadUrlSigner.
+ * Tests signing, caching and reference resolution of presigned download urls.
+ */
+@ExtendWith(MockitoExtension.class)
+class S3DownloadUrlSignerTest {
+
+    private static final String BUCKET_NAME = "test-storage";
+    private static final String KEY = "gen-1/bom.json";
+
+    @Mock
+    S3Client client;
+
+    @Mock
+    S3Presigner presigner;
+
+    S3DownloadUrlSigner signer;
+
+    @BeforeEach
+    void setUp() {
+        signer = new S3DownloadUrlSigner(client, presigner, BUCKET_NAME, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void testPresignDownload() throws MalformedURLException {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(1234L).contentEncoding("gzip").build());
+        presignAs("https://s3.example.com/test-storage/gen-1/bom.json?X-Amz-Signature=abc");
+
+        PresignedUrl url = signer.presignDownload(KEY);
+
+        assertEquals("https://s3.example.com/test-storage/gen-1/bom.json?X-Amz-Signature=abc", url.getUrl().toString());
+        assertEquals(1234L, url.getSize());
+        assertEquals("gzip", url.getContentEncoding());
+        ArgumentCaptor<GetObjectPresignRequest> captor = ArgumentCaptor.forClass(GetObjectPresignRequest.class);
+        verify(presigner).presignGetObject(captor.capture());
+        assertEquals(Duration.ofMinutes(15), captor.getValue().signatureDuration());
+        assertEquals(KEY, captor.getValue().getObjectRequest().key());
+        assertEquals("attachment; filename=\"bom.json\"", captor.getValue().getObjectRequest().responseContentDisposition());
+    }
+
+    @Test
+    void testUrlReusedUntilInvalidated() throws MalformedURLException {
+        when(client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().contentLength(1L).build());
+        presignAs("https://s3.example.com/test-storage/gen-1/bom.json");
+
+        PresignedUrl first = signer.presignDownload(KEY);
+        assertSame(first, signer.presignDownload(KEY));
+        verify(presigner, times(1)).presignGetObject(any(GetObjectPresignRequest.class));
+
+        signer.invalidate(KEY);
+        signer.presignDownload(KEY);
+        verify(presigner, times(2)).presignGetObject(any(GetObjectPresignRequest.class));
+    }
+
+    @Test
+    void testPresignReferenceSignsTarget() throws MalformedURLException {
+        String blobKey = "blobs/sha256/abc";
+        when(client.headObject(HeadObjectRequest.builder().bucket(BUCKET_NAME).key(KEY).build()))
+            .thenReturn(HeadObjectResponse.builder().contentLength(0L)
+                .metadata(Map.of(S3StorageAdapter.REFERENCE_METADATA, blobKey)).build());
+        when(client.headObject(HeadObjectRequest.builder().bucket(BUCKET_NAME).key(blobKey).build()))
+            .thenReturn(HeadObjectResponse.builder().contentLength(1234L).build());
+        presignAs("https://s3.example.com/test-storage/blobs/sha256/abc");
+
+        PresignedUrl url = signer.presignDownload(KEY);
+
+        assertEquals(1234L, url.getSize());
+        ArgumentCaptor<GetObjectPresignRequest> captor = ArgumentCaptor.forClass(GetObjectPresignRequest.class);
+        verify(presigner).presignGetObject(captor.capture());
+        assertEquals(blobKey, captor.getValue().getObjectRequest().key());
+        // Named after the file, not the blob
+        assertEquals("attachment; filename=\"bom.json\"", captor.getValue().getObjectRequest().responseContentDisposition());
+    }
+
+    @Test
+    void testPresignMissingKey() {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenThrow(S3Exception.builder().statusCode(404).build());
+
+        assertThrows(StorageFileNotFoundException.class, () -> signer.presignDownload(KEY));
+        verifyNoInteractions(presigner);
+    }
+
+    private void presignAs(String url) throws MalformedURLException {
+        PresignedGetObjectRequest presigned = mock(PresignedGetObjectRequest.class);
+        when(presigned.url()).thenReturn(new URL(url));
+        when(presigned.expiration()).thenReturn(Instant.now().plus(Duration.ofMinutes(15)));
+        when(presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenReturn(presigned);
+    }
+}
@@ -0,0 +1,107 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.layout.HashShardedKeyLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Unit tests for S3LegacyMigration.
+ */
+@ExtendWith(MockitoExtension.class)
+class S3LegacyMigrationTest {
+
+    private static final String BUCKET_NAME = "test-storage";
+
+    @Mock
+    S3Client client;
+
+    private final HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+
+    S3LegacyMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        migration = new S3LegacyMigration(client, new S3BucketRouter(layout, BUCKET_NAME, List.of()));
+    }
+
+    @Test
+    void testLegacyObjectsMoved() {
+        String sharded = layout.storageKey("gen-2/bom.json");
+        listed("gen-1/bom.json", sharded);
+        when(client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+
+        assertEquals(1, migration.migrate());
+
+        ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(client).copyObject(copy.capture());
+        assertEquals("gen-1/bom.json", copy.getValue().sourceKey());
+        assertEquals(layout.storageKey("gen-1/bom.json"), copy.getValue().destinationKey());
+        // the metadata of references and digests is copied along
+        assertNull(copy.getValue().metadataDirective());
+        ArgumentCaptor<DeleteObjectRequest> delete = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(client).deleteObject(delete.capture());
+        assertEquals("gen-1/bom.json", delete.getValue().key());
+        verify(client, never()).headObject(argThat((HeadObjectRequest request) -> sharded.equals(request.key())));
+    }
+
+    @Test
+    void testNewerShardedObjectKept() {
+        listed("gen-1/bom.json");
+        when(client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        assertEquals(1, migration.migrate());
+
+        verify(client, never()).copyObject(any(CopyObjectRequest.class));
+        verify(client).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    void testFailedMoveLeavesLegacyObject() {
+        listed("gen-1/a.json", "gen-1/b.json");
+        when(client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+        when(client.copyObject(any(CopyObjectRequest.class))).thenAnswer(invocation -> {
+            if ("gen-1/a.json".equals(invocation.<CopyObjectRequest>getArgument(0).sourceKey())) {
+                throw SdkClientException.create("Connection error");
+            }
+            return CopyObjectResponse.builder().build();
+        });
+
+        assertEquals(1, migration.migrate());
+
+        ArgumentCaptor<DeleteObjectRequest> delete = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(client).deleteObject(delete.capture());
+        assertEquals("gen-1/b.json", delete.getValue().key());
+    }
+
+    @Test
+    void testFlatLayoutHasNoLegacyObjects() {
+        migration = new S3LegacyMigration(client, new S3BucketRouter(BUCKET_NAME));
+        listed("gen-1/bom.json");
+
+        assertEquals(0, migration.migrate());
+
+        verify(client, never()).copyObject(any(CopyObjectRequest.class));
+        verify(client, never()).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    private void listed(String... keys) {
+        when(client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+                .contents(List.of(keys).stream().map(key -> S3Object.builder().key(key).build()).toList())
+                .isTruncated(false)
+                .build());
+    }
+}
@@ -89,6 +89,21 @@ class S3StorageAdapterIntegrationTest {
         }
     }
 
+    @Test
+    void testUploadAndDownloadMultipart() throws IOException {
+        // S3 requires parts of at least 5 MiB, except the last one
+        S3StorageAdapter multipartAdapter = new S3StorageAdapter(client, BUCKET_NAME, 5 * ONE_MB, 5 * ONE_MB);
+        String key = "foobar/multipart.txt";
+        byte[] originalBytes = new byte[12 * ONE_MB];
+        new Random().nextBytes(originalBytes);
+        multipartAdapter.upload(key, new ByteArrayInputStream(originalBytes),
+                       originalBytes.length, CONTENT_TYPE);
+        try (InputStream downloaded = adapter.download(key)) {
+            byte[] downloadedBytes = downloaded.readAllBytes();
+            assertArrayEquals(originalBytes, downloadedBytes);
+        }
+    }
+
     @Test
     void testDownloadNonExistentFile() {
         assertThrows(StorageFileNotFoundException.class, () ->
@@ -1,6 +1,7 @@
 package org.jboss.sbomer.manifest.storage.service.adapter.out;
 
 import static jakarta.ws.rs.core.Response.Status.FORBIDDEN;
+import static jakarta.ws.rs.core.Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
 import static jakarta.ws.rs.core.Response.Status.TOO_MANY_REQUESTS;
 import static org.junit.jupiter.api.Assertions.*;
@@ -8,13 +9,26 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageKeyInvalidException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRateLimitedException;
 import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.layout.HashShardedKeyLayout;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,6 +36,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -53,8 +68,8 @@ class S3StorageAdapterTest {
         String key = "foo/file.txt";
         byte[] bytes = "123".getBytes();
         when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
-            .thenReturn(PutObjectResponse.builder().build());
-        adapter.upload(key, new ByteArrayInputStream(bytes), bytes.length, CONTENT_TYPE);
+            .thenReturn(PutObjectResponse.builder().eTag("\"abc\"").build());
+        ObjectMetadata stored = adapter.upload(key, new ByteArrayInputStream(bytes), bytes.length, CONTENT_TYPE);
         ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
         verify(client).putObject(requestCaptor.capture(), any(RequestBody.class));
         PutObjectRequest capturedRequest = requestCaptor.getValue();
@@ -62,6 +77,119 @@ class S3StorageAdapterTest {
         assertEquals(key, capturedRequest.key());
         assertEquals(bytes.length, capturedRequest.contentLength());
         assertEquals(CONTENT_TYPE, capturedRequest.contentType());
+        assertEquals(key, stored.getKey());
+        assertEquals(bytes.length, stored.getSize());
+        assertEquals("\"abc\"", stored.getEtag());
+        assertNotNull(stored.getLastModified());
+    }
+
+    @Test
+    void testUploadKeepsContentEncoding() {
+        byte[] bytes = {0x1f, (byte) 0x8b, 0x08};
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().build());
+        adapter.upload("foo/file.txt.gz", new ByteArrayInputStream(bytes), bytes.length, CONTENT_TYPE, "gzip");
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(requestCaptor.capture(), any(RequestBody.class));
+        assertEquals("gzip", requestCaptor.getValue().contentEncoding());
+        assertEquals(CONTENT_TYPE, requestCaptor.getValue().contentType());
+    }
+
+    @Test
+    void testUploadRecordsSha256() {
+        byte[] bytes = {1, 2, 3};
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().build());
+        ObjectMetadata stored = adapter.upload("foo/file.txt", new ByteArrayInputStream(bytes), bytes.length, CONTENT_TYPE, null, "abc");
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(requestCaptor.capture(), any(RequestBody.class));
+        assertEquals("abc", requestCaptor.getValue().metadata().get(S3StorageAdapter.SHA256_METADATA));
+        assertEquals("abc", stored.getSha256());
+    }
+
+    @Test
+    void testDownloadReturnsContentEncoding() throws IOException {
+        ResponseInputStream<GetObjectResponse> mockResponse = mock(ResponseInputStream.class);
+        when(mockResponse.response()).thenReturn(GetObjectResponse.builder().contentLength(3L).contentEncoding("zstd").build());
+        when(client.getObject(any(GetObjectRequest.class))).thenReturn(mockResponse);
+        try (ObjectContent content = adapter.download("bar/file.txt", null)) {
+            assertEquals("zstd", content.getContentEncoding());
+        }
+    }
+
+    @Test
+    void testUploadMultipart() {
+        String key = "foo/large.txt";
+        byte[] bytes = "0123456789abcdefghijklmno".getBytes();
+        S3StorageAdapter multipartAdapter = new S3StorageAdapter(client, BUCKET_NAME, 10, 10);
+        List<String> uploadedParts = new ArrayList<>();
+        when(client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+            .thenAnswer(invocation -> {
+                RequestBody body = invocation.getArgument(1);
+                // Part body must be readable more than once for SDK retries to work
+                String first = readBody(body);
+                assertEquals(first, readBody(body));
+                uploadedParts.add(first);
+                return UploadPartResponse.builder().eTag("etag-" + uploadedParts.size()).build();
+            });
+        when(client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(CompleteMultipartUploadResponse.builder().eTag("\"abc-3\"").build());
+        ObjectMetadata stored = multipartAdapter.upload(key, new ByteArrayInputStream(bytes), bytes.length, CONTENT_TYPE);
+        assertEquals(List.of("0123456789", "abcdefghij", "klmno"), uploadedParts);
+        assertEquals(bytes.length, stored.getSize());
+        assertEquals("\"abc-3\"", stored.getEtag());
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(client).completeMultipartUpload(completeCaptor.capture());
+        CompleteMultipartUploadRequest completeRequest = completeCaptor.getValue();
+        assertEquals(BUCKET_NAME, completeRequest.bucket());
+        assertEquals(key, completeRequest.key());
+        assertEquals("upload-1", completeRequest.uploadId());
+        assertEquals(3, completeRequest.multipartUpload().parts().size());
+        assertEquals("etag-3", completeRequest.multipartUpload().parts().get(2).eTag());
+        verify(client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void testUploadMultipartAbortedOnFailure() {
+        S3StorageAdapter multipartAdapter = new S3StorageAdapter(client, BUCKET_NAME, 10, 10);
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(SERVICE_UNAVAILABLE.getStatusCode())
+            .message("Service Unavailable")
+            .build();
+        when(client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+            .thenThrow(s3Exception);
+        assertThrows(StorageUnavailableException.class, () ->
+            multipartAdapter.upload("foo/large.txt", new ByteArrayInputStream(new byte[25]), 25, CONTENT_TYPE)
+        );
+        ArgumentCaptor<AbortMultipartUploadRequest> abortCaptor = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(client).abortMultipartUpload(abortCaptor.capture());
+        assertEquals("upload-1", abortCaptor.getValue().uploadId());
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testUploadUnknownLengthFittingSinglePart() {
+        S3StorageAdapter multipartAdapter = new S3StorageAdapter(client, BUCKET_NAME, 10, 10);
+        byte[] bytes = "1234".getBytes();
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().build());
+        multipartAdapter.upload("foo/small.txt", new ByteArrayInputStream(bytes), -1, CONTENT_TYPE);
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(requestCaptor.capture(), any(RequestBody.class));
+        assertEquals(bytes.length, requestCaptor.getValue().contentLength());
+        verify(client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testPartSizeBelowS3MinimumRejected() {
+        S3StorageAdapter multipartAdapter = new S3StorageAdapter(client, BUCKET_NAME, 10, 10);
+        assertThrows(IllegalStateException.class, multipartAdapter::init);
+
+        new S3StorageAdapter(client, BUCKET_NAME, S3StorageAdapter.DEFAULT_MULTIPART_THRESHOLD, S3StorageAdapter.MIN_PART_SIZE).init();
     }
 
     @Test
@@ -132,9 +260,40 @@ class S3StorageAdapterTest {
             .build();
         when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
             .thenThrow(s3Exception);
-        assertThrows(StorageUnavailableException.class, () ->
+        StorageUnavailableException ex = assertThrows(StorageUnavailableException.class, () ->
             adapter.upload("foo/service-unavailable.txt", new ByteArrayInputStream(new byte[0]), 0, CONTENT_TYPE)
         );
+        assertFalse(ex instanceof StorageRateLimitedException);
+    }
+
+    @Test
+    void testUploadServerErrorsUnavailable() {
+        for (int statusCode : List.of(500, 502, 504)) {
+            S3Exception s3Exception = (S3Exception) S3Exception.builder()
+                .statusCode(statusCode)
+                .message("Server error")
+                .build();
+            when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(s3Exception);
+            StorageUnavailableException ex = assertThrows(StorageUnavailableException.class, () ->
+                adapter.upload("foo/server-error.txt", new ByteArrayInputStream(new byte[0]), 0, CONTENT_TYPE)
+            );
+            assertFalse(ex instanceof StorageRateLimitedException);
+        }
+    }
+
+    @Test
+    void testUploadSlowDown() {
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(SERVICE_UNAVAILABLE.getStatusCode())
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+            .message("Please reduce your request rate.")
+            .build();
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenThrow(s3Exception);
+        assertThrows(StorageRateLimitedException.class, () ->
+            adapter.upload("foo/slow-down.txt", new ByteArrayInputStream(new byte[0]), 0, CONTENT_TYPE)
+        );
     }
 
     @Test
@@ -175,6 +334,186 @@ class S3StorageAdapterTest {
         assertEquals(key, capturedRequest.key());
     }
 
+    @Test
+    void testDownloadRange() {
+        String key = "bar/file.txt";
+        ResponseInputStream<GetObjectResponse> mockResponse = mock(ResponseInputStream.class);
+        GetObjectResponse getObjectResponse = GetObjectResponse.builder()
+            .contentLength(10L)
+            .contentRange("bytes 0-9/1234")
+            .eTag("\"abc\"")
+            .build();
+        when(mockResponse.response()).thenReturn(getObjectResponse);
+        when(client.getObject(any(GetObjectRequest.class)))
+            .thenReturn(mockResponse);
+        ObjectContent content = adapter.download(key, ByteRange.of(0, 9));
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(client).getObject(requestCaptor.capture());
+        assertEquals("bytes=0-9", requestCaptor.getValue().range());
+        assertEquals(mockResponse, content.getContent());
+        assertTrue(content.isPartial());
+        assertEquals(ByteRange.of(0, 9), content.getRange());
+        assertEquals(10, content.getContentLength());
+        assertEquals(1234, content.getObjectSize());
+        assertEquals("\"abc\"", content.getEtag());
+    }
+
+    @Test
+    void testDownloadWithoutRange() {
+        ResponseInputStream<GetObjectResponse> mockResponse = mock(ResponseInputStream.class);
+        when(mockResponse.response()).thenReturn(GetObjectResponse.builder().contentLength(3L).build());
+        when(client.getObject(any(GetObjectRequest.class)))
+            .thenReturn(mockResponse);
+        ObjectContent content = adapter.download("bar/file.txt", null);
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(client).getObject(requestCaptor.capture());
+        assertNull(requestCaptor.getValue().range());
+        assertFalse(content.isPartial());
+        assertEquals(3, content.getObjectSize());
+    }
+
+    @Test
+    void testDownloadRangeNotSatisfiable() {
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode())
+            .message("Invalid Range")
+            .build();
+        when(client.getObject(any(GetObjectRequest.class)))
+            .thenThrow(s3Exception);
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(5L).build());
+        StorageRangeNotSatisfiableException ex = assertThrows(StorageRangeNotSatisfiableException.class, () ->
+            adapter.download("bar/file.txt", ByteRange.from(10))
+        );
+        assertEquals(5, ex.getObjectSize());
+    }
+
+    @Test
+    void testDownloadResolvesReference() throws IOException {
+        String blobKey = "blobs/sha256/abc";
+        ResponseInputStream<GetObjectResponse> reference = mock(ResponseInputStream.class);
+        when(reference.response()).thenReturn(GetObjectResponse.builder()
+            .contentLength(0L)
+            .metadata(Map.of(S3StorageAdapter.REFERENCE_METADATA, blobKey))
+            .build());
+        ResponseInputStream<GetObjectResponse> blob = mock(ResponseInputStream.class);
+        when(blob.response()).thenReturn(GetObjectResponse.builder().contentLength(3L).eTag("\"abc\"").build());
+        when(client.getObject(argThat((GetObjectRequest request) -> request != null && request.key().equals("bar/file.txt"))))
+            .thenReturn(reference);
+        when(client.getObject(argThat((GetObjectRequest request) -> request != null && request.key().equals(blobKey))))
+            .thenReturn(blob);
+
+        ObjectContent content = adapter.download("bar/file.txt", null);
+
+        assertSame(blob, content.getContent());
+        assertEquals("\"abc\"", content.getEtag());
+        verify(reference).close();
+    }
+
+    @Test
+    void testDownloadRangeOfReference() {
+        String blobKey = "blobs/sha256/abc";
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode())
+            .build();
+        ResponseInputStream<GetObjectResponse> blob = mock(ResponseInputStream.class);
+        when(blob.response()).thenReturn(GetObjectResponse.builder().contentLength(10L).contentRange("bytes 0-9/1234").build());
+        when(client.getObject(argThat((GetObjectRequest request) -> request != null && request.key().equals("bar/file.txt"))))
+            .thenThrow(s3Exception);
+        when(client.getObject(argThat((GetObjectRequest request) -> request != null && request.key().equals(blobKey))))
+            .thenReturn(blob);
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder()
+                .contentLength(0L)
+                .metadata(Map.of(S3StorageAdapter.REFERENCE_METADATA, blobKey))
+                .build());
+
+        ObjectContent content = adapter.download("bar/file.txt", ByteRange.of(0, 9));
+
+        assertEquals(ByteRange.of(0, 9), content.getRange());
+        assertEquals(1234, content.getObjectSize());
+    }
+
+    @Test
+    void testPutReference() {
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().build());
+        adapter.putReference("bar/file.txt", "blobs/sha256/abc", CONTENT_TYPE);
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(requestCaptor.capture(), any(RequestBody.class));
+        assertEquals("bar/file.txt", requestCaptor.getValue().key());
+        assertEquals(CONTENT_TYPE, requestCaptor.getValue().contentType());
+        assertEquals("blobs/sha256/abc", requestCaptor.getValue().metadata().get(S3StorageAdapter.REFERENCE_METADATA));
+    }
+
+    @Test
+    void testExists() {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(3L).build())
+            .thenThrow((S3Exception) S3Exception.builder().statusCode(404).build());
+        assertTrue(adapter.exists("blobs/sha256/abc"));
+        assertFalse(adapter.exists("blobs/sha256/def"));
+    }
+
+    @Test
+    void testGetMetadataOfReference() {
+        String blobKey = "blobs/sha256/abc";
+        when(client.headObject(argThat((HeadObjectRequest request) -> request != null && request.key().equals("bar/file.txt"))))
+            .thenReturn(HeadObjectResponse.builder()
+                .contentLength(0L)
+                .metadata(Map.of(S3StorageAdapter.REFERENCE_METADATA, blobKey))
+                .build());
+        when(client.headObject(argThat((HeadObjectRequest request) -> request != null && request.key().equals(blobKey))))
+            .thenReturn(HeadObjectResponse.builder().contentLength(42L).eTag("\"abc\"").build());
+
+        ObjectMetadata metadata = adapter.getMetadata("bar/file.txt");
+
+        assertEquals("bar/file.txt", metadata.getKey());
+        assertEquals(42, metadata.getSize());
+        assertEquals("\"abc\"", metadata.getEtag());
+    }
+
+    @Test
+    void testGetMetadata() {
+        Instant lastModified = Instant.parse("2025-01-01T10:00:00Z");
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder()
+                .contentLength(42L)
+                .contentType(CONTENT_TYPE)
+                .eTag("\"abc\"")
+                .lastModified(lastModified)
+                .build());
+        ObjectMetadata metadata = adapter.getMetadata("bar/file.txt");
+        assertEquals("bar/file.txt", metadata.getKey());
+        assertEquals(42, metadata.getSize());
+        assertEquals(CONTENT_TYPE, metadata.getContentType());
+        assertEquals("\"abc\"", metadata.getEtag());
+        assertEquals(lastModified, metadata.getLastModified());
+    }
+
+    @Test
+    void testGetMetadataNotFound() {
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(404)
+            .build();
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenThrow(s3Exception);
+        assertThrows(StorageFileNotFoundException.class, () ->
+            adapter.getMetadata("bar/non-existent.txt")
+        );
+    }
+
+    @Test
+    void testFindMetadata() {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder().contentLength(42L).eTag("\"abc\"").build())
+            .thenThrow((S3Exception) S3Exception.builder().statusCode(404).build());
+
+        assertEquals(42, adapter.findMetadata("bar/file.txt").getSize());
+        assertNull(adapter.findMetadata("bar/non-existent.txt"));
+        verify(client, times(2)).headObject(any(HeadObjectRequest.class));
+    }
+
     @Test
     void testDownloadNullKey() {
         assertThrows(StorageKeyInvalidException.class, () ->
@@ -276,4 +615,246 @@ class S3StorageAdapterTest {
             adapter.download("bar/unexpected-error.txt")
         );
     }
+
+    @Test
+    void testDeleteSuccess() {
+        String key = "bar/file.txt";
+        adapter.delete(key);
+        ArgumentCaptor<DeleteObjectRequest> requestCaptor = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(client).deleteObject(requestCaptor.capture());
+        DeleteObjectRequest capturedRequest = requestCaptor.getValue();
+        assertEquals(BUCKET_NAME, capturedRequest.bucket());
+        assertEquals(key, capturedRequest.key());
+    }
+
+    @Test
+    void testDeletePathTraversal() {
+        assertThrows(StorageKeyInvalidException.class, () ->
+            adapter.delete("../foo")
+        );
+    }
+
+    @Test
+    void testDeleteForbidden() {
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(FORBIDDEN.getStatusCode())
+            .message("Access Denied")
+            .build();
+        when(client.deleteObject(any(DeleteObjectRequest.class)))
+            .thenThrow(s3Exception);
+        assertThrows(StorageAccessException.class, () ->
+            adapter.delete("bar/forbidden.txt")
+        );
+    }
+
+    @Test
+    void testListPage() {
+        Instant lastModified = Instant.parse("2025-06-01T10:00:00Z");
+        when(client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+            .contents(S3Object.builder().key("gen-1/bom.json").size(3L).eTag("\"abc\"").lastModified(lastModified).build())
+            .isTruncated(true)
+            .nextContinuationToken("next")
+            .build());
+
+        ObjectListing listing = adapter.list("gen-1/", "token", 100);
+
+        assertEquals("next", listing.getNextContinuationToken());
+        assertEquals(1, listing.getObjects().size());
+        ObjectMetadata object = listing.getObjects().get(0);
+        assertEquals("gen-1/bom.json", object.getKey());
+        assertEquals(3L, object.getSize());
+        assertEquals("\"abc\"", object.getEtag());
+        assertEquals(lastModified, object.getLastModified());
+        ArgumentCaptor<ListObjectsV2Request> requestCaptor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(client).listObjectsV2(requestCaptor.capture());
+        assertEquals("gen-1/", requestCaptor.getValue().prefix());
+        assertEquals("token", requestCaptor.getValue().continuationToken());
+        assertEquals(100, requestCaptor.getValue().maxKeys());
+    }
+
+    @Test
+    void testListLastPage() {
+        when(client.listObjectsV2(any(ListObjectsV2Request.class)))
+            .thenReturn(ListObjectsV2Response.builder().isTruncated(false).build());
+
+        ObjectListing listing = adapter.list("gen-1/", null, 100);
+
+        assertTrue(listing.getObjects().isEmpty());
+        assertNull(listing.getNextContinuationToken());
+    }
+
+    @Test
+    void testCopySuccess() {
+        when(client.copyObject(any(CopyObjectRequest.class))).thenReturn(CopyObjectResponse.builder().build());
+        adapter.copy("staging/abc/bom.json", "gen-1/bom.json");
+        ArgumentCaptor<CopyObjectRequest> requestCaptor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(client).copyObject(requestCaptor.capture());
+        CopyObjectRequest capturedRequest = requestCaptor.getValue();
+        assertEquals(BUCKET_NAME, capturedRequest.sourceBucket());
+        assertEquals("staging/abc/bom.json", capturedRequest.sourceKey());
+        assertEquals(BUCKET_NAME, capturedRequest.destinationBucket());
+        assertEquals("gen-1/bom.json", capturedRequest.destinationKey());
+    }
+
+    @Test
+    void testCopyRecordsDigest() {
+        Instant copiedAt = Instant.parse("2026-01-01T00:00:00Z");
+        when(client.copyObject(any(CopyObjectRequest.class))).thenReturn(CopyObjectResponse.builder()
+            .copyObjectResult(CopyObjectResult.builder().eTag("\"copy\"").lastModified(copiedAt).build())
+            .build());
+        ObjectMetadata copied = adapter.copy("staging/abc/bom.json", "gen-1/bom.json", CONTENT_TYPE, "gzip", "ab".repeat(32));
+        assertEquals("\"copy\"", copied.getEtag());
+        assertEquals(copiedAt, copied.getLastModified());
+        assertEquals("ab".repeat(32), copied.getSha256());
+        ArgumentCaptor<CopyObjectRequest> requestCaptor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(client).copyObject(requestCaptor.capture());
+        CopyObjectRequest capturedRequest = requestCaptor.getValue();
+        assertEquals(MetadataDirective.REPLACE, capturedRequest.metadataDirective());
+        assertEquals(CONTENT_TYPE, capturedRequest.contentType());
+        assertEquals("gzip", capturedRequest.contentEncoding());
+        assertEquals("ab".repeat(32), capturedRequest.metadata().get(S3StorageAdapter.SHA256_METADATA));
+    }
+
+    @Test
+    void testGetMetadataReturnsRecordedDigest() {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(HeadObjectResponse.builder()
+                .contentLength(42L)
+                .metadata(Map.of(S3StorageAdapter.SHA256_METADATA, "ab".repeat(32)))
+                .build());
+        assertEquals("ab".repeat(32), adapter.getMetadata("bar/file.txt").getSha256());
+    }
+
+    @Test
+    void testCopyMissingSource() {
+        when(client.copyObject(any(CopyObjectRequest.class)))
+            .thenThrow(NoSuchKeyException.builder().message("missing").build());
+        assertThrows(StorageFileNotFoundException.class, () ->
+            adapter.copy("staging/abc/bom.json", "gen-1/bom.json")
+        );
+    }
+
+    @Test
+    void testCopyPathTraversal() {
+        assertThrows(StorageKeyInvalidException.class, () ->
+            adapter.copy("staging/abc/bom.json", "../foo")
+        );
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void testShardedUploadRoutedToShardBucket() {
+        HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+        List<String> buckets = List.of("shard-a", "shard-b", "shard-c");
+        adapter = new S3StorageAdapter(client, new S3BucketRouter(layout, BUCKET_NAME, buckets));
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().build());
+
+        adapter.upload("gen-1/bom.json", new ByteArrayInputStream(new byte[] { 1 }), 1, CONTENT_TYPE);
+
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(requestCaptor.capture(), any(RequestBody.class));
+        assertEquals(buckets.get(layout.shard("gen-1/bom.json") % buckets.size()), requestCaptor.getValue().bucket());
+        assertEquals(layout.storageKey("gen-1/bom.json"), requestCaptor.getValue().key());
+    }
+
+    @Test
+    void testShardedUploadLeavesLegacyKey() {
+        HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+        adapter = new S3StorageAdapter(client, legacyRouter(layout));
+        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().build());
+
+        adapter.upload("gen-1/bom.json", new ByteArrayInputStream(new byte[] { 1 }), 1, CONTENT_TYPE);
+
+        // legacy objects are moved by the migration, a write costs a single request
+        verify(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void testShardedDownloadWithoutFallbackMissesLegacyKey() {
+        HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+        adapter = new S3StorageAdapter(client, new S3BucketRouter(layout, BUCKET_NAME, List.of()));
+        when(client.getObject(any(GetObjectRequest.class))).thenThrow(NoSuchKeyException.builder().message("Key not found").build());
+
+        assertThrows(StorageFileNotFoundException.class, () -> adapter.download("gen-1/bom.json"));
+
+        verify(client, times(1)).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    void testShardedDownloadFallsBackToLegacyKey() {
+        HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+        adapter = new S3StorageAdapter(client, legacyRouter(layout));
+        ResponseInputStream<GetObjectResponse> legacyResponse = mock(ResponseInputStream.class);
+        when(legacyResponse.response()).thenReturn(GetObjectResponse.builder().contentLength(3L).build());
+        when(client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (request.key().equals("gen-1/bom.json")) {
+                return legacyResponse;
+            }
+            throw NoSuchKeyException.builder().message("Key not found").build();
+        });
+
+        assertEquals(legacyResponse, adapter.download("gen-1/bom.json"));
+
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(client, times(2)).getObject(requestCaptor.capture());
+        assertEquals(layout.storageKey("gen-1/bom.json"), requestCaptor.getAllValues().get(0).key());
+        assertEquals(BUCKET_NAME, requestCaptor.getAllValues().get(1).bucket());
+    }
+
+    @Test
+    void testShardedListCoversLegacyKeys() {
+        HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+        adapter = new S3StorageAdapter(client, legacyRouter(layout));
+        String shardedPrefix = layout.storagePrefix("gen-1/");
+        when(client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request request = invocation.getArgument(0);
+            String key = request.prefix().equals(shardedPrefix) ? shardedPrefix + "new.json" : "gen-1/old.json";
+            return ListObjectsV2Response.builder()
+                .contents(S3Object.builder().key(key).size(1L).build())
+                .isTruncated(false)
+                .build();
+        });
+
+        ObjectListing sharded = adapter.list("gen-1/", null, 100);
+        ObjectListing legacy = adapter.list("gen-1/", sharded.getNextContinuationToken(), 100);
+
+        assertEquals("gen-1/new.json", sharded.getObjects().get(0).getKey());
+        assertNotNull(sharded.getNextContinuationToken());
+        assertEquals("gen-1/old.json", legacy.getObjects().get(0).getKey());
+        assertNull(legacy.getNextContinuationToken());
+    }
+
+    @Test
+    void testShardedDeleteRemovesLegacyKey() {
+        HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+        adapter = new S3StorageAdapter(client, legacyRouter(layout));
+
+        adapter.delete("gen-1/bom.json");
+
+        ArgumentCaptor<DeleteObjectRequest> requestCaptor = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(client, times(2)).deleteObject(requestCaptor.capture());
+        assertEquals(List.of(layout.storageKey("gen-1/bom.json"), "gen-1/bom.json"),
+            requestCaptor.getAllValues().stream().map(DeleteObjectRequest::key).toList());
+    }
+
+    /**
+     * Router of a sharded layout that falls back to the legacy location of objects stored before sharding.
+     */
+    private static S3BucketRouter legacyRouter(HashShardedKeyLayout layout) {
+        S3BucketRouter router = new S3BucketRouter(layout, BUCKET_NAME, List.of());
+        router.legacyFallback = true;
+        return router;
+    }
+
+    private static String readBody(RequestBody body) {
+        try (InputStream stream = body.contentStreamProvider().newStream()) {
+            return new String(stream.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.CacheStats;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for CachingObjectStorage.
+ */
+@ExtendWith(MockitoExtension.class)
+class CachingObjectStorageTest {
+
+    private static final String KEY = "gen-1/bom.json";
+    private static final byte[] DATA = "{\"bom\": \"data\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    ObjectStorage delegate;
+
+    ObjectCache cache;
+    CachingObjectStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ObjectCache(1024, 64, Duration.ofHours(1));
+        storage = new CachingObjectStorage(delegate, cache);
+    }
+
+    @Test
+    void testSecondDownloadServedFromCache() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+
+        assertArrayEquals(DATA, readAll(storage.download(KEY, null)));
+        assertArrayEquals(DATA, readAll(storage.download(KEY, null)));
+        assertArrayEquals(DATA, readAll(storage.download(KEY)));
+
+        verify(delegate, times(1)).download(KEY, null);
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(DATA.length, stats.getWeightedSize());
+    }
+
+    @Test
+    void testRangeCutFromCachedObject() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        readAll(storage.download(KEY, null));
+
+        ObjectContent range = storage.download(KEY, ByteRange.suffix(6));
+        assertTrue(range.isPartial());
+        assertEquals(ByteRange.of(DATA.length - 6, DATA.length - 1), range.getRange());
+        assertEquals(DATA.length, range.getObjectSize());
+        assertEquals("data\"}", new String(readAll(range), StandardCharsets.UTF_8));
+        verify(delegate, never()).download(eq(KEY), any(ByteRange.class));
+
+        assertThrows(StorageRangeNotSatisfiableException.class, () ->
+            storage.download(KEY, ByteRange.from(DATA.length))
+        );
+    }
+
+    @Test
+    void testRangeMissDoesNotPopulateCache() {
+        ByteRange range = ByteRange.of(0, 1);
+        ObjectContent partial = ObjectContent.builder().content(new ByteArrayInputStream(DATA, 0, 2)).contentLength(2).build();
+        when(delegate.download(KEY, range)).thenReturn(partial);
+
+        assertSame(partial, storage.download(KEY, range));
+        assertEquals(0, cache.getStats().getEntryCount());
+    }
+
+    @Test
+    void testUploadInvalidatesKey() throws IOException {
+        byte[] updated = "{}".getBytes(StandardCharsets.UTF_8);
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA), invocation -> content(updated));
+        readAll(storage.download(KEY, null));
+
+        storage.upload(KEY, new ByteArrayInputStream(updated), updated.length, "application/json");
+
+        assertArrayEquals(updated, readAll(storage.download(KEY, null)));
+        verify(delegate, times(2)).download(KEY, null);
+    }
+
+    @Test
+    void testLargeObjectBypassesCache() {
+        byte[] large = new byte[100];
+        ObjectContent content = content(large);
+        when(delegate.download(KEY, null)).thenReturn(content);
+
+        assertSame(content, storage.download(KEY, null));
+        assertEquals(0, cache.getStats().getEntryCount());
+        assertEquals(1, cache.getStats().getBypassCount());
+    }
+
+    @Test
+    void testDownloadRacingWithInvalidationIsNotCached() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> {
+            // A re-upload completes while the old content is still being read
+            cache.invalidate(KEY);
+            return content(DATA);
+        });
+
+        assertArrayEquals(DATA, readAll(storage.download(KEY, null)));
+        assertEquals(0, cache.getStats().getEntryCount());
+    }
+
+    @Test
+    void testMetadataServedFromCache() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        readAll(storage.download(KEY, null));
+
+        ObjectMetadata metadata = storage.getMetadata(KEY);
+        assertEquals(DATA.length, metadata.getSize());
+        assertEquals("\"abc\"", metadata.getEtag());
+        verify(delegate, never()).getMetadata(KEY);
+    }
+
+    private static ObjectContent content(byte[] data) {
+        return ObjectContent.builder()
+                .content(new ByteArrayInputStream(data))
+                .contentLength(data.length)
+                .objectSize(data.length)
+                .contentType("application/json")
+                .etag("\"abc\"")
+                .build();
+    }
+
+    private static byte[] readAll(ObjectContent content) throws IOException {
+        return readAll(content.getContent());
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        try (stream) {
+            return stream.readAllBytes();
+        }
+    }
+}
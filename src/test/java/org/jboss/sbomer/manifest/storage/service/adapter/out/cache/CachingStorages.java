@@ -0,0 +1,22 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+
+/**
+ * Caching decorators around a storage, for tests of the services that run on top of them.
+ */
+public final class CachingStorages {
+
+    private CachingStorages() {}
+
+    public static ObjectStorage inMemory(ObjectStorage delegate) {
+        return new CachingObjectStorage(delegate, new ObjectCache(1024, 64, Duration.ofHours(1)));
+    }
+
+    public static ObjectStorage onDisk(ObjectStorage delegate, Path directory) {
+        return new DiskCachingObjectStorage(delegate, new DiskCache(directory, 1024, 64, Duration.ZERO));
+    }
+}
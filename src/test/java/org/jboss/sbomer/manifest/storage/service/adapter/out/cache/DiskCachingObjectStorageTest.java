@@ -0,0 +1,231 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for DiskCachingObjectStorage and DiskCache.
+ */
+@ExtendWith(MockitoExtension.class)
+class DiskCachingObjectStorageTest {
+
+    private static final String KEY = "gen-1/bom.json";
+    private static final byte[] DATA = "{\"bom\": \"data\"}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    ObjectStorage delegate;
+
+    DiskCache cache;
+    DiskCachingObjectStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DiskCache(directory, 1024, 64, Duration.ZERO);
+        storage = new DiskCachingObjectStorage(delegate, cache);
+    }
+
+    @Test
+    void testDownloadCachedWhileStreamed() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+
+        ObjectContent first = storage.download(KEY, null);
+        assertNull(first.getFile());
+        assertArrayEquals(DATA, readAll(first));
+
+        ObjectContent second = storage.download(KEY, null);
+        assertNotNull(second.getFile());
+        assertArrayEquals(DATA, Files.readAllBytes(second.getFile()));
+        assertArrayEquals(DATA, readAll(second));
+        assertEquals("\"abc\"", second.getEtag());
+        verify(delegate, times(1)).download(KEY, null);
+    }
+
+    @Test
+    void testRangeServedFromCachedFile() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        readAll(storage.download(KEY, null));
+
+        ObjectContent range = storage.download(KEY, ByteRange.of(2, 4));
+        assertEquals(ByteRange.of(2, 4), range.getRange());
+        assertEquals(DATA.length, range.getObjectSize());
+        assertEquals("bom", new String(readAll(range), StandardCharsets.UTF_8));
+        verify(delegate, never()).download(eq(KEY), any(ByteRange.class));
+    }
+
+    @Test
+    void testIncompleteDownloadNotCached() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+
+        try (ObjectContent content = storage.download(KEY, null)) {
+            content.getContent().readNBytes(3);
+        }
+
+        assertEquals(0, cache.getStats().getEntryCount());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    void testDownloadRacingWithInvalidationNotCached() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+
+        ObjectContent content = storage.download(KEY, null);
+        // A re-upload completes while the old content is still being streamed
+        cache.invalidate(KEY);
+        readAll(content);
+
+        assertEquals(0, cache.getStats().getEntryCount());
+    }
+
+    @Test
+    void testUploadInvalidatesCachedCopy() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        readAll(storage.download(KEY, null));
+        assertNotNull(cache.get(KEY));
+
+        storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json");
+
+        // The uploaded content is not cached, the next download fetches it again
+        assertNull(cache.get(KEY));
+        readAll(storage.download(KEY, null));
+        verify(delegate, times(2)).download(KEY, null);
+    }
+
+    @Test
+    void testUnchangedEntryRevalidated() throws IOException {
+        cache.metadataMaxAge = Duration.ZERO;
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        when(delegate.findMetadata(KEY)).thenReturn(ObjectMetadata.builder().key(KEY).size(DATA.length).etag("\"abc\"").build());
+        readAll(storage.download(KEY, null));
+
+        ObjectContent cached = storage.download(KEY, null);
+        assertNotNull(cached.getFile());
+        assertArrayEquals(DATA, readAll(cached));
+        verify(delegate, times(1)).download(KEY, null);
+        verify(delegate).findMetadata(KEY);
+    }
+
+    @Test
+    void testReplacedEntryRemovedOnRevalidation() throws IOException {
+        cache.metadataMaxAge = Duration.ZERO;
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        when(delegate.findMetadata(KEY)).thenReturn(ObjectMetadata.builder().key(KEY).size(DATA.length).etag("\"def\"").build());
+        when(delegate.getMetadata(KEY)).thenReturn(ObjectMetadata.builder().key(KEY).size(DATA.length).etag("\"def\"").build());
+        readAll(storage.download(KEY, null));
+
+        assertEquals("\"def\"", storage.getMetadata(KEY).getEtag());
+        assertNull(cache.get(KEY));
+    }
+
+    @Test
+    void testFreshEntryNotRevalidated() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA));
+        readAll(storage.download(KEY, null));
+
+        assertEquals("\"abc\"", storage.getMetadata(KEY).getEtag());
+        verify(delegate, never()).findMetadata(KEY);
+        verify(delegate, never()).getMetadata(KEY);
+    }
+
+    @Test
+    void testFailedUploadNotCached() {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, InputStream.class).readAllBytes();
+            throw new IllegalStateException("Storage down");
+        }).when(delegate).upload(eq(KEY), any(InputStream.class), anyLong(), any(), any(), any());
+
+        assertThrows(IllegalStateException.class, () ->
+            storage.upload(KEY, new ByteArrayInputStream(DATA), DATA.length, "application/json")
+        );
+        assertEquals(0, cache.getStats().getEntryCount());
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() throws IOException {
+        cache = new DiskCache(directory, 40, 64, Duration.ZERO);
+        storage = new DiskCachingObjectStorage(delegate, cache);
+        when(delegate.download(anyString(), isNull())).thenAnswer(invocation -> content(DATA));
+
+        readAll(storage.download("a", null));
+        readAll(storage.download("b", null));
+        // Touch a, so b is the least recently used
+        readAll(storage.download("a", null));
+        readAll(storage.download("c", null));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getStats().getEvictionCount());
+        assertEquals(2L * DATA.length, cache.getStats().getWeightedSize());
+    }
+
+    @Test
+    void testIndexRebuiltAfterRestart() throws IOException {
+        when(delegate.download(KEY, null)).thenAnswer(invocation -> content(DATA).toBuilder().sha256("0".repeat(64)).build());
+        readAll(storage.download(KEY, null));
+
+        DiskCache restarted = new DiskCache(directory, 1024, 64, Duration.ZERO);
+        DiskCache.Entry entry = restarted.get(KEY);
+        assertNotNull(entry);
+        assertEquals(DATA.length, entry.size());
+        assertEquals("\"abc\"", entry.etag());
+        assertEquals("0".repeat(64), entry.sha256());
+        assertArrayEquals(DATA, Files.readAllBytes(entry.data()));
+    }
+
+    @Test
+    void testLargeObjectBypassesCache() {
+        byte[] large = new byte[100];
+        ObjectContent content = content(large);
+        when(delegate.download(KEY, null)).thenReturn(content);
+
+        assertSame(content, storage.download(KEY, null));
+        assertEquals(1, cache.getStats().getBypassCount());
+    }
+
+    private void assertNoTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static ObjectContent content(byte[] data) {
+        return ObjectContent.builder()
+                .content(new ByteArrayInputStream(data))
+                .contentLength(data.length)
+                .objectSize(data.length)
+                .contentType("application/json")
+                .etag("\"abc\"")
+                .build();
+    }
+
+    private static byte[] readAll(ObjectContent content) throws IOException {
+        try (content) {
+            return content.getContent().readAllBytes();
+        }
+    }
+}
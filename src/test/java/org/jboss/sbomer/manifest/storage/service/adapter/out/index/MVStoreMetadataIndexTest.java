@@ -0,0 +1,124 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for MVStoreMetadataIndex.
+ */
+class MVStoreMetadataIndexTest {
+
+    private static final Instant NOW = Instant.parse("2025-06-01T12:00:00.123456789Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPutAndGet() {
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex(null);
+        IndexedObject object = object("gen-1/bom.json");
+
+        index.put(object);
+
+        IndexedObject indexed = index.get("gen-1/bom.json");
+        assertEquals("gen-1/bom.json", indexed.getKey());
+        assertEquals(42, indexed.getSize());
+        assertEquals("application/json", indexed.getContentType());
+        assertEquals("gzip", indexed.getContentEncoding());
+        assertEquals("\"abc\"", indexed.getEtag());
+        assertEquals("e3b0", indexed.getDigest());
+        assertEquals(NOW, indexed.getLastModified());
+        assertEquals(NOW, indexed.getIndexedAt());
+        assertNull(index.get("gen-1/other.json"));
+    }
+
+    @Test
+    void testMissingFieldsKept() {
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex(null);
+
+        index.put(IndexedObject.builder().key("gen-1/bom.json").size(1).build());
+
+        IndexedObject indexed = index.get("gen-1/bom.json");
+        assertNull(indexed.getContentType());
+        assertNull(indexed.getEtag());
+        assertNull(indexed.getLastModified());
+    }
+
+    @Test
+    void testRemove() {
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex(null);
+        index.put(object("gen-1/bom.json"));
+
+        index.remove("gen-1/bom.json");
+        index.remove("gen-1/bom.json");
+
+        assertNull(index.get("gen-1/bom.json"));
+    }
+
+    @Test
+    void testKeysUnderPrefix() {
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex(null);
+        for (String key : List.of("gen-1/b.json", "gen-1/a.json", "gen-1/enh-1/c.json", "gen-10/a.json", "gen-0/a.json")) {
+            index.put(object(key));
+        }
+
+        assertEquals(List.of("gen-1/a.json", "gen-1/b.json", "gen-1/enh-1/c.json"), index.keys("gen-1/"));
+        assertTrue(index.keys("gen-2/").isEmpty());
+    }
+
+    @Test
+    void testEntriesSurviveRestart() {
+        Path file = directory.resolve("index/metadata.mv.db");
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex(file);
+        index.put(object("gen-1/bom.json"));
+        index.close();
+
+        MVStoreMetadataIndex reopened = new MVStoreMetadataIndex(file);
+        assertEquals(42, reopened.get("gen-1/bom.json").getSize());
+        reopened.close();
+    }
+
+    @Test
+    void testUnreadableFileReplaced() throws Exception {
+        Path file = directory.resolve("metadata.mv.db");
+        Files.writeString(file, "not an index");
+
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex(file);
+
+        assertTrue(index.isEnabled());
+        assertNull(index.get("gen-1/bom.json"));
+        index.close();
+    }
+
+    @Test
+    void testDisabledIndexKeepsNothing() {
+        MVStoreMetadataIndex index = new MVStoreMetadataIndex();
+
+        index.put(object("gen-1/bom.json"));
+
+        assertFalse(index.isEnabled());
+        assertNull(index.get("gen-1/bom.json"));
+        assertTrue(index.keys("gen-1/").isEmpty());
+    }
+
+    private static IndexedObject object(String key) {
+        return IndexedObject.builder()
+                .key(key)
+                .size(42)
+                .contentType("application/json")
+                .contentEncoding("gzip")
+                .etag("\"abc\"")
+                .digest("e3b0")
+                .lastModified(NOW)
+                .indexedAt(NOW)
+                .build();
+    }
+}
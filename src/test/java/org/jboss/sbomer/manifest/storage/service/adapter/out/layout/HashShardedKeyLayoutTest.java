@@ -0,0 +1,67 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.layout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for HashShardedKeyLayout.
+ */
+class HashShardedKeyLayoutTest {
+
+    private final HashShardedKeyLayout layout = new HashShardedKeyLayout(2);
+
+    @Test
+    void testFilesOfGenerationShareShard() {
+        String bom = layout.storageKey("gen-1/bom.json");
+        String enhanced = layout.storageKey("gen-1/enh-1/bom.json");
+
+        assertTrue(bom.matches("[0-9a-f]{2}/gen-1/bom\\.json"), bom);
+        assertEquals(bom.substring(0, 3), enhanced.substring(0, 3));
+        assertEquals(layout.shard("gen-1/bom.json"), Integer.parseInt(bom.substring(0, 2), 16));
+        assertEquals(bom.substring(0, 3) + "gen-1/", layout.storagePrefix("gen-1/"));
+        assertEquals("gen-1/enh-1/bom.json", layout.key(enhanced));
+    }
+
+    @Test
+    void testGenerationsSpreadOverShards() {
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int shard = layout.shard("gen-" + i + "/bom.json");
+            assertTrue(shard >= 0 && shard < layout.shards());
+            shards.add(shard);
+        }
+
+        assertTrue(shards.size() > 200, "only " + shards.size() + " of 256 shards used");
+    }
+
+    @Test
+    void testBlobsShardedByWholeKey() {
+        assertNotEquals(layout.storageKey("blobs/sha256/aaa").substring(0, 2), layout.storageKey("blobs/sha256/bbb").substring(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> layout.storagePrefix("blobs/sha256/"));
+    }
+
+    @Test
+    void testStagingKeysShardedUnderStagingPrefix() {
+        String staged = layout.storageKey("staging/upload-1/bom.json");
+
+        // a single lifecycle rule on the staging prefix still covers every shard
+        assertTrue(staged.matches("staging/[0-9a-f]{2}/upload-1/bom\\.json"), staged);
+        assertEquals(layout.shard("staging/upload-1/bom.json"), Integer.parseInt(staged.substring(8, 10), 16));
+        assertEquals("staging/upload-1/bom.json", layout.key(staged));
+        assertNotEquals(layout.storageKey("staging/upload-1/a.json").substring(0, 10),
+                layout.storageKey("staging/upload-2/a.json").substring(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> layout.storagePrefix("staging/upload-1/"));
+    }
+
+    @Test
+    void testLayoutByName() {
+        assertInstanceOf(FlatKeyLayout.class, KeyLayout.of("flat", 2));
+        assertEquals(65536, KeyLayout.of("hash-sharded", 4).shards());
+        assertThrows(IllegalArgumentException.class, () -> KeyLayout.of("hash-sharded", 5));
+        assertThrows(IllegalArgumentException.class, () -> KeyLayout.of("random", 2));
+    }
+}
@@ -0,0 +1,102 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageAccessException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRateLimitedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for MetricsObjectStorage.
+ * Tests latency, byte and error metrics recorded around the storage adapter.
+ */
+@ExtendWith(MockitoExtension.class)
+class MetricsObjectStorageTest {
+
+    @Mock
+    ObjectStorage delegate;
+
+    SimpleMeterRegistry registry;
+
+    MetricsObjectStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        storage = new MetricsObjectStorage(delegate, registry);
+    }
+
+    @Test
+    void testUploadRecordsLatencyAndBytesIn() {
+        doAnswer(invocation -> {
+            invocation.<InputStream>getArgument(1).readAllBytes();
+            return null;
+        }).when(delegate).upload(eq("gen-1/bom.json"), any(), eq(3L), eq("application/json"), isNull(), isNull());
+
+        storage.upload("gen-1/bom.json", new ByteArrayInputStream("{ }".getBytes()), 3, "application/json");
+
+        assertEquals(1, registry.get(MetricsObjectStorage.OPERATIONS)
+                .tag("operation", "upload").tag("outcome", "success").timer().count());
+        assertEquals(3.0, registry.get(MetricsObjectStorage.BYTES).tag("direction", "in").counter().count());
+        assertEquals(0, registry.get(MetricsObjectStorage.ACTIVE).tag("operation", "upload").longTaskTimer().activeTasks());
+    }
+
+    @Test
+    void testDownloadCountsBytesOutWhileRead() throws IOException {
+        when(delegate.download("gen-1/bom.json", null)).thenReturn(ObjectContent.builder()
+                .content(new ByteArrayInputStream(new byte[10]))
+                .contentLength(10)
+                .objectSize(10)
+                .build());
+
+        try (ObjectContent content = storage.download("gen-1/bom.json", null)) {
+            assertEquals(0.0, registry.get(MetricsObjectStorage.BYTES).tag("direction", "out").counter().count());
+            assertEquals(10, content.getContent().readAllBytes().length);
+        }
+
+        assertEquals(10.0, registry.get(MetricsObjectStorage.BYTES).tag("direction", "out").counter().count());
+        assertEquals(1, registry.get(MetricsObjectStorage.OPERATIONS).tag("operation", "download").timer().count());
+    }
+
+    @Test
+    void testErrorsCountedByCategory() {
+        when(delegate.getMetadata("missing")).thenThrow(new StorageFileNotFoundException("File not found: missing", null));
+        when(delegate.exists("throttled")).thenThrow(new StorageRateLimitedException("Storage rate limit exceeded", null));
+        doThrow(new StorageAccessException("Access denied", null)).when(delegate).delete("forbidden");
+
+        assertThrows(StorageFileNotFoundException.class, () -> storage.getMetadata("missing"));
+        assertThrows(StorageRateLimitedException.class, () -> storage.exists("throttled"));
+        assertThrows(StorageAccessException.class, () -> storage.delete("forbidden"));
+
+        assertEquals(1.0, registry.get(MetricsObjectStorage.ERRORS)
+                .tag("operation", "metadata").tag("category", "not_found").counter().count());
+        assertEquals(1.0, registry.get(MetricsObjectStorage.ERRORS)
+                .tag("operation", "exists").tag("category", "rate_limited").counter().count());
+        assertEquals(1.0, registry.get(MetricsObjectStorage.ERRORS)
+                .tag("operation", "delete").tag("category", "access_denied").counter().count());
+        assertEquals(1, registry.get(MetricsObjectStorage.OPERATIONS)
+                .tag("operation", "delete").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void testCategory() {
+        assertEquals("unavailable", MetricsObjectStorage.category(new StorageUnavailableException("Storage unavailable", null)));
+        assertEquals("error", MetricsObjectStorage.category(new IllegalStateException()));
+    }
+}
@@ -0,0 +1,234 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for DownloadHedger.
+ * Tests when a second download is started, which one wins and the budget capping them.
+ */
+class DownloadHedgerTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    DownloadHedger hedger;
+
+    @AfterEach
+    void tearDown() {
+        hedger.shutdown();
+    }
+
+    @Test
+    void testFastDownloadNotHedged() {
+        hedger = new DownloadHedger(Duration.ofSeconds(5), Duration.ZERO, 1.0, 4, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        hedger.download(() -> stream(calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, registry.get(DownloadHedger.HEDGED).counter().count());
+    }
+
+    @Test
+    void testSlowDownloadHedged() throws Exception {
+        hedger = new DownloadHedger(Duration.ofMillis(50), Duration.ZERO, 1.0, 4, registry);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch primaryReturned = new CountDownLatch(1);
+
+        TestStream result = hedger.download(() -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                primaryReturned.countDown();
+            }
+            return stream(call);
+        });
+
+        assertEquals(2, result.call);
+        // the request of the loser is still in flight, it keeps its permit until it returns
+        assertTrue(primaryReturned.await(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get(), "The slow download should not be interrupted");
+        assertEquals(1.0, registry.get(DownloadHedger.HEDGED).counter().count());
+        assertEquals(1.0, registry.get(DownloadHedger.WINS).tag("winner", "hedge").counter().count());
+        assertEquals(0.0, registry.get(DownloadHedger.WINS).tag("winner", "primary").counter().count());
+    }
+
+    @Test
+    void testLoserClosed() throws Exception {
+        hedger = new DownloadHedger(Duration.ofMillis(50), Duration.ZERO, 1.0, 4, registry);
+        CountDownLatch hedgeReturned = new CountDownLatch(1);
+        TestStream slow = stream(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        TestStream result = hedger.download(() -> {
+            if (calls.incrementAndGet() == 1) {
+                // answers only after the hedge won, whatever the interrupts
+                while (hedgeReturned.getCount() > 0) {
+                    Thread.onSpinWait();
+                }
+                return slow;
+            }
+            return stream(2);
+        });
+        hedgeReturned.countDown();
+
+        assertEquals(2, result.call);
+        assertTrue(slow.closed.await(5, TimeUnit.SECONDS), "The download that lost should be closed");
+        // the latency of the loser is observed as well
+        assertEquals(2, hedger.sampleCount());
+    }
+
+    @Test
+    void testPrimaryFailingAfterDelayLeavesDecisionToHedge() {
+        hedger = new DownloadHedger(Duration.ofMillis(20), Duration.ZERO, 1.0, 4, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        TestStream result = hedger.download(() -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                // fails after the hedge was started, which still decides the download
+                sleep(30);
+                throw new StorageUnavailableException("Storage unavailable", null);
+            }
+            sleep(50);
+            return stream(call);
+        });
+
+        assertEquals(2, result.call);
+    }
+
+    @Test
+    void testBudgetCapsHedges() {
+        hedger = new DownloadHedger(Duration.ofMillis(10), Duration.ZERO, 0.0, 4, registry);
+
+        TestStream result = hedger.download(() -> {
+            sleep(50);
+            return stream(1);
+        });
+
+        assertEquals(1, result.call);
+        assertEquals(0.0, registry.get(DownloadHedger.HEDGED).counter().count());
+        assertEquals(1.0, registry.get(DownloadHedger.SKIPPED).counter().count());
+    }
+
+    @Test
+    void testFailsOnceEveryAttemptFailed() {
+        hedger = new DownloadHedger(Duration.ofMillis(10), Duration.ZERO, 1.0, 4, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(StorageUnavailableException.class, () -> hedger.download(() -> {
+            calls.incrementAndGet();
+            sleep(50);
+            throw new StorageUnavailableException("Storage unavailable", null);
+        }));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testDownloadRunsOnCallerWhilePoolBusy() throws Exception {
+        hedger = new DownloadHedger(Duration.ofMillis(10), Duration.ZERO, 1.0, 1, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread busy = new Thread(() -> hedger.download(() -> {
+            started.countDown();
+            await(release);
+            return stream(1);
+        }));
+        busy.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Thread caller = Thread.currentThread();
+        AtomicBoolean onCaller = new AtomicBoolean();
+        TestStream result = hedger.download(() -> {
+            onCaller.set(Thread.currentThread() == caller);
+            return stream(2);
+        });
+        release.countDown();
+        busy.join(5000);
+
+        // the single download thread is taken, so the download is neither handed off nor hedged
+        assertEquals(2, result.call);
+        assertTrue(onCaller.get());
+    }
+
+    @Test
+    void testObservedDelayNeedsSamples() {
+        hedger = new DownloadHedger(Duration.ZERO, Duration.ZERO, 1.0, 4, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 99; i++) {
+            hedger.download(() -> {
+                calls.incrementAndGet();
+                return stream(1);
+            });
+        }
+        // without samples nothing is hedged, however slow
+        hedger.download(() -> {
+            calls.incrementAndGet();
+            sleep(50);
+            return stream(1);
+        });
+
+        assertEquals(100, calls.get());
+        assertEquals(0.0, registry.get(DownloadHedger.HEDGED).counter().count());
+    }
+
+    private static TestStream stream(int call) {
+        return new TestStream(call);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageUnavailableException("Interrupted", e);
+        }
+    }
+
+    private static class TestStream extends InputStream {
+        final int call;
+        final CountDownLatch closed = new CountDownLatch(1);
+        final InputStream content = new ByteArrayInputStream(new byte[0]);
+
+        TestStream(int call) {
+            this.call = call;
+        }
+
+        @Override
+        public int read() {
+            return content.read();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
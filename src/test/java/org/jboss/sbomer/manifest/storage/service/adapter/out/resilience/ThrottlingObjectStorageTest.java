@@ -0,0 +1,173 @@
+package org.jboss.sbomer.manifest.storage.service.adapter.out.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageFileNotFoundException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageOverloadedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRateLimitedException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for ThrottlingObjectStorage.
+ * Tests the adaptive limit of operations in flight and the circuit breaker around the storage adapter.
+ */
+@ExtendWith(MockitoExtension.class)
+class ThrottlingObjectStorageTest {
+
+    private static final String KEY = "gen-1/bom.json";
+
+    @Mock
+    ObjectStorage delegate;
+
+    SimpleMeterRegistry registry;
+    AtomicLong clock;
+    AdaptiveLimiter limiter;
+    CircuitBreaker breaker;
+
+    ThrottlingObjectStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        limiter = new AdaptiveLimiter(4, 1, 8, 0.5, registry);
+        breaker = new CircuitBreaker(3, Duration.ofSeconds(30), registry, clock::get);
+        storage = new ThrottlingObjectStorage(delegate, limiter, breaker, registry);
+    }
+
+    @Test
+    void testOperationsAboveLimitShed() {
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(limiter.tryAcquire());
+        }
+
+        StorageOverloadedException e = assertThrows(StorageOverloadedException.class, () -> storage.exists(KEY));
+
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+        assertEquals(1.0, registry.get(ThrottlingObjectStorage.SHED).tag("reason", "limit").counter().count());
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void testThrottlingCutsLimitOncePerBurst() {
+        AdaptiveLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveLimiter.Permit second = limiter.tryAcquire();
+
+        first.throttled();
+        second.throttled();
+        assertEquals(2, limiter.getLimit());
+
+        when(delegate.exists(KEY)).thenThrow(new StorageRateLimitedException("Storage rate limit exceeded", null));
+        assertThrows(StorageRateLimitedException.class, () -> storage.exists(KEY));
+        assertEquals(1, limiter.getLimit());
+        assertEquals(1.0, registry.get(AdaptiveLimiter.LIMIT).gauge().value());
+        assertEquals(0.0, registry.get(AdaptiveLimiter.IN_FLIGHT).gauge().value());
+    }
+
+    @Test
+    void testSuccessGrowsLimitUpToMax() {
+        for (int round = 0; round < 50; round++) {
+            List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+            AdaptiveLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire()) != null) {
+                permits.add(permit);
+            }
+            permits.forEach(AdaptiveLimiter.Permit::success);
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void testCircuitOpensAfterConsecutiveFailures() {
+        when(delegate.exists(KEY)).thenThrow(new StorageUnavailableException("Storage unavailable", null));
+        for (int i = 0; i < 3; i++) {
+            assertThrows(StorageUnavailableException.class, () -> storage.exists(KEY));
+        }
+
+        StorageOverloadedException e = assertThrows(StorageOverloadedException.class, () -> storage.exists(KEY));
+
+        assertEquals(Duration.ofSeconds(30), e.getRetryAfter());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1.0, registry.get(CircuitBreaker.TRIPS).counter().count());
+        assertEquals(1.0, registry.get(ThrottlingObjectStorage.SHED).tag("reason", "circuit_open").counter().count());
+        verify(delegate, times(3)).exists(KEY);
+    }
+
+    @Test
+    void testAnsweredRequestsResetFailures() {
+        when(delegate.exists(KEY))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenThrow(new StorageFileNotFoundException(KEY, null))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenReturn(true);
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RuntimeException.class, () -> storage.exists(KEY));
+        }
+
+        assertTrue(storage.exists(KEY));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testProbeClosesCircuit() {
+        when(delegate.exists(KEY))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null))
+                .thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(StorageUnavailableException.class, () -> storage.exists(KEY));
+        }
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        StorageOverloadedException e = assertThrows(StorageOverloadedException.class, () -> storage.exists(KEY));
+        assertEquals(Duration.ofSeconds(20), e.getRetryAfter());
+
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertTrue(storage.exists(KEY));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testFailedProbeOpensCircuitAgain() {
+        when(delegate.exists(KEY)).thenThrow(new StorageUnavailableException("Storage unavailable", null));
+        for (int i = 0; i < 3; i++) {
+            assertThrows(StorageUnavailableException.class, () -> storage.exists(KEY));
+        }
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThrows(StorageUnavailableException.class, () -> storage.exists(KEY));
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2.0, registry.get(CircuitBreaker.TRIPS).counter().count());
+        assertThrows(StorageOverloadedException.class, () -> storage.exists(KEY));
+        verify(delegate, times(4)).exists(KEY);
+    }
+
+    @Test
+    void testDeleteNeverShed() {
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+
+        storage.delete(KEY);
+
+        verify(delegate).delete(KEY);
+    }
+}
@@ -0,0 +1,65 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ByteRange.
+ * Tests parsing of HTTP Range headers.
+ */
+class ByteRangeTest {
+
+    @Test
+    void testParseClosedRange() {
+        assertEquals(ByteRange.of(0, 99), ByteRange.parse("bytes=0-99"));
+    }
+
+    @Test
+    void testParseOpenEndedRange() {
+        ByteRange range = ByteRange.parse("bytes=100-");
+        assertEquals(ByteRange.from(100), range);
+        assertNull(range.getLast());
+    }
+
+    @Test
+    void testParseSuffixRange() {
+        ByteRange range = ByteRange.parse("bytes=-500");
+        assertEquals(ByteRange.suffix(500), range);
+        assertTrue(range.isSuffix());
+    }
+
+    @Test
+    void testParseIgnoresUnsupportedHeaders() {
+        assertNull(ByteRange.parse(null));
+        assertNull(ByteRange.parse("items=0-10"));
+        assertNull(ByteRange.parse("bytes=0-10,20-30"));
+        assertNull(ByteRange.parse("bytes=10-5"));
+        assertNull(ByteRange.parse("bytes=-"));
+        assertNull(ByteRange.parse("bytes=a-b"));
+        assertNull(ByteRange.parse("bytes=+1-5"));
+    }
+
+    @Test
+    void testToHeaderValue() {
+        assertEquals("bytes=0-99", ByteRange.of(0, 99).toHeaderValue());
+        assertEquals("bytes=100-", ByteRange.from(100).toHeaderValue());
+        assertEquals("bytes=-500", ByteRange.suffix(500).toHeaderValue());
+    }
+
+    @Test
+    void testResolve() {
+        assertEquals(ByteRange.of(0, 9), ByteRange.of(0, 99).resolve(10));
+        assertEquals(ByteRange.of(5, 9), ByteRange.from(5).resolve(10));
+        assertEquals(ByteRange.of(7, 9), ByteRange.suffix(3).resolve(10));
+        assertEquals(ByteRange.of(0, 9), ByteRange.suffix(50).resolve(10));
+        assertEquals(3, ByteRange.suffix(3).resolve(10).length());
+    }
+
+    @Test
+    void testResolveUnsatisfiable() {
+        assertNull(ByteRange.from(10).resolve(10));
+        assertNull(ByteRange.suffix(0).resolve(10));
+        assertNull(ByteRange.suffix(5).resolve(0));
+    }
+}
@@ -0,0 +1,29 @@
+package org.jboss.sbomer.manifest.storage.service.core.domain.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ContentCoding.
+ * Tests lookup by Content-Encoding token and recognition by magic number.
+ */
+class ContentCodingTest {
+
+    @Test
+    void testFromToken() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.fromToken("gzip"));
+        assertEquals(ContentCoding.ZSTD, ContentCoding.fromToken(" ZSTD "));
+        assertNull(ContentCoding.fromToken("identity"));
+        assertNull(ContentCoding.fromToken("br"));
+        assertNull(ContentCoding.fromToken(null));
+    }
+
+    @Test
+    void testMatchesMagicNumber() {
+        assertTrue(ContentCoding.GZIP.matches(new byte[] { 0x1f, (byte) 0x8b, 0x08, 0x00 }, 4));
+        assertTrue(ContentCoding.ZSTD.matches(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd }, 4));
+        assertFalse(ContentCoding.GZIP.matches("{}".getBytes(), 2));
+        assertFalse(ContentCoding.ZSTD.matches(new byte[] { 0x28, (byte) 0xb5 }, 2));
+    }
+}
@@ -0,0 +1,260 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageRangeNotSatisfiableException;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ArchiveFormat;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.api.ArchiveAdministration.ArchiveWriter;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for ArchiveService.
+ * Tests streaming zip and tar archives of a generation folder with prefetched entries.
+ */
+@ExtendWith(MockitoExtension.class)
+class ArchiveServiceTest {
+
+    private static final Instant LAST_MODIFIED = Instant.parse("2025-06-01T10:00:00Z");
+    private static final String ETAG = "\"v1\"";
+
+    @Mock
+    ObjectStorage objectStorage;
+
+    ArchiveService service;
+
+    // size of every stubbed file as listed
+    final Map<String, Long> sizes = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new ArchiveService();
+        service.objectStorage = objectStorage;
+        service.prefetch = 2;
+        service.maxConcurrency = 2;
+        // smaller than most test files, so their rest is requested when they are written
+        service.prefetchBufferSize = 4;
+        service.listPageSize = 2;
+        service.storageExecutor = new StorageExecutor();
+        service.storageExecutor.uploadConcurrency = 1;
+        service.storageExecutor.archiveConcurrency = 2;
+        service.storageExecutor.init();
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.storageExecutor.shutdown();
+    }
+
+    @Test
+    void testZipArchiveOverListingPages() throws IOException {
+        stubContent("gen-1/a.json", "{\"a\":1}", null);
+        stubContent("gen-1/enh-1/b.json", "{}", null);
+        stubContent("gen-1/enh-1/c.json", "{\"c\":3}", null);
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page("t1", "gen-1/a.json", "gen-1/enh-1/"));
+        when(objectStorage.list("gen-1/", "t1", 2)).thenReturn(page(null, "gen-1/enh-1/b.json", "gen-1/enh-1/c.json"));
+
+        Map<String, String> entries = unzip(write(ArchiveFormat.ZIP));
+
+        // Folder placeholders are skipped, files keep the listing order
+        assertEquals(List.of("gen-1/a.json", "gen-1/enh-1/b.json", "gen-1/enh-1/c.json"), List.copyOf(entries.keySet()));
+        assertEquals("{\"a\":1}", entries.get("gen-1/a.json"));
+        assertEquals("{}", entries.get("gen-1/enh-1/b.json"));
+        assertEquals("{\"c\":3}", entries.get("gen-1/enh-1/c.json"));
+    }
+
+    @Test
+    void testTarGzArchiveDecompressesStoredContent() throws IOException {
+        stubContent("gen-1/a.json", "{\"compressed\":true}", "gzip");
+        stubContent("gen-1/b.json", "{\"plain\":true}", null);
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null, "gen-1/a.json", "gen-1/b.json"));
+
+        byte[] archive = write(ArchiveFormat.TAR_GZ);
+
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new GZIPInputStream(new ByteArrayInputStream(archive)))) {
+            TarArchiveEntry first = tar.getNextEntry();
+            assertEquals("gen-1/a.json", first.getName());
+            assertEquals(19, first.getSize());
+            assertEquals(LAST_MODIFIED, first.getLastModifiedTime().toInstant());
+            assertEquals("{\"compressed\":true}", new String(tar.readAllBytes(), StandardCharsets.UTF_8));
+            TarArchiveEntry second = tar.getNextEntry();
+            assertEquals("gen-1/b.json", second.getName());
+            assertEquals("{\"plain\":true}", new String(tar.readAllBytes(), StandardCharsets.UTF_8));
+            assertNull(tar.getNextEntry());
+        }
+    }
+
+    @Test
+    void testOnlyFirstBytesPrefetched() throws IOException {
+        stubContent("gen-1/a.json", "{\"a\":1}", null);
+        stubContent("gen-1/b.json", "{}", null);
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null, "gen-1/a.json", "gen-1/b.json"));
+
+        Map<String, String> entries = unzip(write(ArchiveFormat.ZIP));
+
+        assertEquals("{\"a\":1}", entries.get("gen-1/a.json"));
+        assertEquals("{}", entries.get("gen-1/b.json"));
+        // The rest of a file larger than the buffer is requested when it is written, a smaller file only once
+        verify(objectStorage).download("gen-1/a.json", ByteRange.of(0, 3));
+        verify(objectStorage).download("gen-1/a.json", ByteRange.from(4));
+        verify(objectStorage).download("gen-1/b.json", ByteRange.of(0, 3));
+        verify(objectStorage, times(3)).download(anyString(), any());
+    }
+
+    @Test
+    void testFileListedEmptyRequestedByRange() throws IOException {
+        // A reference to a deduplicated file is listed empty, the storage returns the range of the file it refers to
+        stubContent("gen-1/a.json", "{\"a\":1}", null);
+        sizes.put("gen-1/a.json", 0L);
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null, "gen-1/a.json"));
+
+        Map<String, String> entries = unzip(write(ArchiveFormat.ZIP));
+
+        assertEquals("{\"a\":1}", entries.get("gen-1/a.json"));
+        verify(objectStorage).download("gen-1/a.json", ByteRange.of(0, 3));
+        verify(objectStorage).download("gen-1/a.json", ByteRange.from(4));
+        verify(objectStorage, never()).download("gen-1/a.json", null);
+        verify(objectStorage, never()).findMetadata(anyString());
+    }
+
+    @Test
+    void testEmptyFileWrittenEmpty() throws IOException {
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null, "gen-1/a.json"));
+        when(objectStorage.download(eq("gen-1/a.json"), any()))
+                .thenThrow(new StorageRangeNotSatisfiableException("Range not satisfiable", 0, null));
+        when(objectStorage.findMetadata("gen-1/a.json"))
+                .thenReturn(ObjectMetadata.builder().key("gen-1/a.json").size(0).etag(ETAG).build());
+
+        Map<String, String> entries = unzip(write(ArchiveFormat.ZIP));
+
+        assertEquals("", entries.get("gen-1/a.json"));
+        verify(objectStorage, times(1)).download(anyString(), any());
+    }
+
+    @Test
+    void testFileReplacedWhileWrittenAbortsArchive() {
+        byte[] stored = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        sizes.put("gen-1/a.json", (long) stored.length);
+        when(objectStorage.download(eq("gen-1/a.json"), any())).thenAnswer(invocation -> {
+            ByteRange range = invocation.getArgument(1);
+            return content(stored, range, ByteRange.of(0, 3).equals(range) ? ETAG : "\"v2\"", null);
+        });
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null, "gen-1/a.json"));
+
+        assertThrows(IOException.class, () -> write(ArchiveFormat.ZIP));
+    }
+
+    @Test
+    void testMissingGeneration() {
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null));
+
+        assertNull(service.openGenerationArchive("gen-1", ArchiveFormat.ZIP));
+        verify(objectStorage, never()).download(anyString(), any());
+    }
+
+    @Test
+    void testFailingEntryAbortsArchive() {
+        stubContent("gen-1/a.json", "{}", null);
+        when(objectStorage.list("gen-1/", null, 2)).thenReturn(page(null, "gen-1/a.json", "gen-1/b.json"));
+        when(objectStorage.download(eq("gen-1/b.json"), any()))
+                .thenThrow(new StorageUnavailableException("Storage unavailable", null));
+
+        assertThrows(StorageUnavailableException.class, () -> write(ArchiveFormat.ZIP));
+    }
+
+    private byte[] write(ArchiveFormat format) throws IOException {
+        ArchiveWriter writer = service.openGenerationArchive("gen-1", format);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private void stubContent(String key, String content, String contentEncoding) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if ("gzip".equals(contentEncoding)) {
+            bytes = gzip(bytes);
+        }
+        byte[] stored = bytes;
+        sizes.put(key, (long) stored.length);
+        when(objectStorage.download(eq(key), any()))
+                .thenAnswer(invocation -> content(stored, invocation.getArgument(1), ETAG, contentEncoding));
+    }
+
+    /**
+     * Returns the range of the stored bytes, the whole content if the range is null.
+     */
+    private static ObjectContent content(byte[] stored, ByteRange range, String etag, String contentEncoding) {
+        ByteRange resolved = range != null ? range.resolve(stored.length) : null;
+        int first = resolved != null ? resolved.getFirst().intValue() : 0;
+        int length = resolved != null ? (int) resolved.length() : stored.length;
+        return ObjectContent.builder()
+                .content(new ByteArrayInputStream(stored, first, length))
+                .contentLength(length)
+                .objectSize(stored.length)
+                .range(resolved)
+                .contentEncoding(contentEncoding)
+                .etag(etag)
+                .lastModified(LAST_MODIFIED)
+                .build();
+    }
+
+    private ObjectListing page(String nextContinuationToken, String... keys) {
+        return ObjectListing.builder()
+                .objects(Arrays.stream(keys)
+                        .map(key -> ObjectMetadata.builder().key(key).size(sizes.getOrDefault(key, 0L)).build())
+                        .toList())
+                .nextContinuationToken(nextContinuationToken)
+                .build();
+    }
+
+    private static Map<String, String> unzip(byte[] archive) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadCapacityExceededException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for ByteBudget.
+ * Tests admission of batches against the budget, their queueing and rejection.
+ */
+class ByteBudgetTest {
+
+    @Test
+    void testReservationsWithinBudgetAdmitted() {
+        ByteBudget budget = new ByteBudget(100, 4, Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+        ByteBudget.Reservation first = budget.reserve(60);
+        ByteBudget.Reservation second = budget.reserve(40);
+        assertEquals(100, budget.getReserved());
+
+        first.close();
+        first.close();
+        second.close();
+        assertEquals(0, budget.getReserved());
+    }
+
+    @Test
+    void testWaitingBatchAdmittedOnRelease() throws Exception {
+        ByteBudget budget = new ByteBudget(100, 4, Duration.ofSeconds(5), Duration.ofSeconds(1));
+        ByteBudget.Reservation first = budget.reserve(80);
+
+        CompletableFuture<ByteBudget.Reservation> second = CompletableFuture.supplyAsync(() -> budget.reserve(50));
+        awaitQueued(budget, 1);
+        assertFalse(second.isDone());
+
+        first.close();
+        second.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, budget.getReserved());
+    }
+
+    @Test
+    void testSmallBatchPassesWaitingLargeBatch() throws Exception {
+        ByteBudget budget = new ByteBudget(100, 4, Duration.ofSeconds(30), Duration.ofSeconds(1));
+        ByteBudget.Reservation first = budget.reserve(60);
+        CompletableFuture<ByteBudget.Reservation> large = CompletableFuture.supplyAsync(() -> budget.reserve(80));
+        awaitQueued(budget, 1);
+
+        ByteBudget.Reservation small = budget.reserve(30);
+        assertEquals(90, budget.getReserved());
+
+        small.close();
+        first.close();
+        large.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void testRejectedWhenQueueFull() throws Exception {
+        ByteBudget budget = new ByteBudget(100, 1, Duration.ofSeconds(30), Duration.ofSeconds(7));
+        ByteBudget.Reservation first = budget.reserve(100);
+        CompletableFuture<ByteBudget.Reservation> queued = CompletableFuture.supplyAsync(() -> budget.reserve(10));
+        awaitQueued(budget, 1);
+
+        UploadCapacityExceededException e = assertThrows(UploadCapacityExceededException.class, () -> budget.reserve(10));
+        assertEquals(Duration.ofSeconds(7), e.getRetryAfter());
+
+        first.close();
+        queued.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void testRejectedAfterTimeout() {
+        ByteBudget budget = new ByteBudget(100, 4, Duration.ofMillis(50), Duration.ofSeconds(1));
+        ByteBudget.Reservation first = budget.reserve(100);
+
+        assertThrows(UploadCapacityExceededException.class, () -> budget.reserve(1));
+        assertEquals(0, budget.getQueued());
+        assertEquals(100, budget.getReserved());
+        first.close();
+    }
+
+    @Test
+    void testBatchLargerThanBudgetAdmittedAlone() {
+        ByteBudget budget = new ByteBudget(100, 4, Duration.ofMillis(50), Duration.ofSeconds(1));
+
+        ByteBudget.Reservation huge = budget.reserve(1000);
+        assertEquals(100, budget.getReserved());
+        assertThrows(UploadCapacityExceededException.class, () -> budget.reserve(1));
+
+        huge.close();
+        budget.reserve(1000).close();
+    }
+
+    private static void awaitQueued(ByteBudget budget, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (budget.getQueued() < queued) {
+            assertTrue(System.nanoTime() < deadline, "Batch never queued");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadRejectedException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUpload;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StagedFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadRequest;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.UploadSession;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DirectUploadStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DownloadUrlSigner;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for DirectUploadService.
+ * Tests starting upload sessions and their verified, all-or-nothing commit.
+ */
+@ExtendWith(MockitoExtension.class)
+class DirectUploadServiceTest {
+
+    private static final String PUBLIC_API_URL = "http://localhost:8085";
+    private static final String CONTENT_TYPE = "application/json";
+    private static final String SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final Instant EXPIRES_AT = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Mock
+    ObjectStorage objectStorage;
+
+    @Mock
+    DirectUploadStorage directUploadStorage;
+
+    @Mock
+    DownloadUrlSigner downloadUrlSigner;
+
+    @Mock
+    MetadataIndex metadataIndex;
+
+    @Mock
+    StorageEventNotifier eventNotifier;
+
+    DirectUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DirectUploadService();
+        service.objectStorage = objectStorage;
+        service.directUploadStorage = directUploadStorage;
+        service.downloadUrlSigner = downloadUrlSigner;
+        service.metadataIndex = metadataIndex;
+        service.eventNotifier = eventNotifier;
+        service.publicApiUrl = PUBLIC_API_URL;
+        lenient().when(objectStorage.copy(anyString(), anyString(), any(), any(), any())).thenAnswer(DirectUploadServiceTest::copied);
+    }
+
+    @Test
+    void testStartEnhancementUpload() {
+        when(directUploadStorage.presignUpload(anyString(), anyLong(), any(), any())).thenReturn(upload(null, EXPIRES_AT));
+
+        UploadSession session = service.startEnhancementUpload("gen-1", "enh-1", List.of(
+                request("a.json", 4, SHA256.toUpperCase()), request("b.json", 2, null)));
+
+        assertEquals("gen-1/enh-1", session.getStoragePrefix());
+        assertEquals("gen-1", session.getGenerationId());
+        assertEquals("enh-1", session.getEnhancementId());
+        assertEquals(EXPIRES_AT, session.getExpiresAt());
+        assertEquals("staging/" + session.getId() + "/a.json", session.getFiles().get(0).getStagingKey());
+        // Checksums are normalized to lower case hex
+        assertEquals(SHA256, session.getFiles().get(0).getSha256());
+        verify(directUploadStorage).presignUpload("staging/" + session.getId() + "/a.json", 4, CONTENT_TYPE, SHA256);
+        verify(directUploadStorage).saveSession("staging/" + session.getId() + ".session", session);
+    }
+
+    @Test
+    void testStartRejectsInvalidFiles() {
+        assertThrows(UploadRejectedException.class, () -> service.startGenerationUpload("gen-1", List.of()));
+        assertThrows(UploadRejectedException.class, () -> service.startGenerationUpload("gen-1",
+                List.of(request("a.json", 4, null), request("a.json", 2, null))));
+        assertThrows(UploadRejectedException.class, () -> service.startGenerationUpload("gen-1",
+                List.of(request(" ", 4, null))));
+        assertThrows(UploadRejectedException.class, () -> service.startGenerationUpload("gen-1",
+                List.of(request("a.json", DirectUploadService.MAX_FILE_SIZE + 1, null))));
+        assertThrows(UploadRejectedException.class, () -> service.startGenerationUpload("gen-1",
+                List.of(request("a.json", 4, "not-a-digest"))));
+        verifyNoInteractions(directUploadStorage);
+    }
+
+    @Test
+    void testStartAbortsMultipartUploadsOnFailure() {
+        when(directUploadStorage.presignUpload(startsWith("staging/"), eq(25L), any(), any()))
+                .thenReturn(upload("upload-1", EXPIRES_AT));
+        when(directUploadStorage.presignUpload(startsWith("staging/"), eq(2L), any(), any()))
+                .thenThrow(new StorageUnavailableException("S3 down", null));
+
+        assertThrows(StorageUnavailableException.class, () -> service.startGenerationUpload("gen-1",
+                List.of(request("large.json", 25, null), request("b.json", 2, null))));
+
+        verify(directUploadStorage).abortUpload(endsWith("/large.json"), eq("upload-1"));
+        verify(directUploadStorage, never()).saveSession(anyString(), any());
+    }
+
+    @Test
+    void testCommitPublishesVerifiedFiles() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(
+                staged("a.json", 4, SHA256, null), staged("b.json", 25, null, "upload-1")));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", null, 4)).thenReturn(metadata(4, SHA256));
+        when(directUploadStorage.completeUpload("staging/s1/b.json", "upload-1", 25)).thenReturn(metadata(25, null));
+
+        List<StoredFile> stored = service.commitUpload("s1");
+
+        assertEquals(List.of(PUBLIC_API_URL + "/api/v1/storage/content/gen-1/a.json",
+                PUBLIC_API_URL + "/api/v1/storage/content/gen-1/b.json"), stored.stream().map(StoredFile::getUrl).toList());
+        assertEquals(SHA256, stored.get(0).getDigest());
+        // the verified checksum is recorded, so lookups of the file return it
+        verify(objectStorage).copy("staging/s1/a.json", "gen-1/a.json", CONTENT_TYPE, null, SHA256);
+        verify(objectStorage).copy("staging/s1/b.json", "gen-1/b.json", CONTENT_TYPE, null, null);
+        // a replaced file is indexed with the metadata of its copy, the storage doesn't return its size
+        ArgumentCaptor<IndexedObject> indexed = ArgumentCaptor.forClass(IndexedObject.class);
+        verify(metadataIndex, times(2)).put(indexed.capture());
+        assertEquals("gen-1/a.json", indexed.getAllValues().get(0).getKey());
+        assertEquals(4, indexed.getAllValues().get(0).getSize());
+        assertEquals("\"copy\"", indexed.getAllValues().get(0).getEtag());
+        assertEquals(SHA256, indexed.getAllValues().get(0).getDigest());
+        assertEquals(25, indexed.getAllValues().get(1).getSize());
+        verify(metadataIndex, never()).remove(anyString());
+        verify(objectStorage).delete("staging/s1/a.json");
+        verify(objectStorage).delete("staging/s1/b.json");
+        verify(directUploadStorage).deleteSession("staging/s1.session");
+    }
+
+    @Test
+    void testCommitRejectsSizeMismatchBeforePublishing() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(
+                staged("a.json", 4, null, null), staged("b.json", 2, null, null)));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", null, 4)).thenReturn(metadata(4, null));
+        when(directUploadStorage.completeUpload("staging/s1/b.json", null, 2)).thenReturn(metadata(3, null));
+
+        assertThrows(UploadRejectedException.class, () -> service.commitUpload("s1"));
+
+        // Nothing published, the session stays open for another attempt
+        verify(objectStorage, never()).copy(anyString(), anyString(), any(), any(), any());
+        verify(directUploadStorage, never()).deleteSession(anyString());
+    }
+
+    @Test
+    void testCommitRejectsChecksumMismatch() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(staged("a.json", 4, SHA256, null)));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", null, 4))
+                .thenReturn(metadata(4, "0".repeat(64)));
+
+        assertThrows(UploadRejectedException.class, () -> service.commitUpload("s1"));
+        verify(objectStorage, never()).copy(anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void testCommitHashesMultipartUploadWithChecksum() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(staged("a.json", 4, SHA256, "upload-1")));
+        // S3 returns no checksum of the whole object for a multipart upload
+        when(directUploadStorage.completeUpload("staging/s1/a.json", "upload-1", 4)).thenReturn(metadata(4, null));
+        when(objectStorage.download("staging/s1/a.json")).thenReturn(new ByteArrayInputStream("test".getBytes(StandardCharsets.UTF_8)));
+
+        List<StoredFile> stored = service.commitUpload("s1");
+
+        assertEquals(SHA256, stored.get(0).getDigest());
+        verify(objectStorage).copy("staging/s1/a.json", "gen-1/a.json", CONTENT_TYPE, null, SHA256);
+    }
+
+    @Test
+    void testCommitRejectsMultipartUploadNotMatchingChecksum() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(staged("a.json", 4, SHA256, "upload-1")));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", "upload-1", 4)).thenReturn(metadata(4, null));
+        when(objectStorage.download("staging/s1/a.json")).thenReturn(new ByteArrayInputStream("nope".getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(UploadRejectedException.class, () -> service.commitUpload("s1"));
+        verify(objectStorage, never()).copy(anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void testCommitRollsBackPublishedFilesOnFailure() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(
+                staged("a.json", 4, null, null), staged("b.json", 2, null, null)));
+        when(directUploadStorage.completeUpload(anyString(), isNull(), anyLong()))
+                .thenAnswer(invocation -> metadata(invocation.<Long>getArgument(2), null));
+        doAnswer(invocation -> {
+            if ("gen-1/b.json".equals(invocation.getArgument(1))) {
+                throw new StorageUnavailableException("S3 down", null);
+            }
+            return copied(invocation);
+        }).when(objectStorage).copy(anyString(), anyString(), any(), any(), any());
+
+        assertThrows(StorageUnavailableException.class, () -> service.commitUpload("s1"));
+
+        verify(objectStorage).delete("gen-1/a.json");
+        verify(objectStorage, never()).delete("staging/s1/a.json");
+        verify(directUploadStorage, never()).deleteSession(anyString());
+        verifyNoInteractions(eventNotifier);
+    }
+
+    @Test
+    void testCommitRollbackKeepsReplacedFiles() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(
+                staged("a.json", 4, null, null), staged("b.json", 2, null, null)));
+        when(directUploadStorage.completeUpload(anyString(), isNull(), anyLong()))
+                .thenAnswer(invocation -> metadata(invocation.<Long>getArgument(2), null));
+        when(objectStorage.exists(anyString())).thenAnswer(invocation -> "gen-1/a.json".equals(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            if ("gen-1/b.json".equals(invocation.getArgument(1))) {
+                throw new StorageUnavailableException("S3 down", null);
+            }
+            return copied(invocation);
+        }).when(objectStorage).copy(anyString(), anyString(), any(), any(), any());
+
+        assertThrows(StorageUnavailableException.class, () -> service.commitUpload("s1"));
+
+        // the old content of a.json is gone, removing the new content would lose the file
+        verify(objectStorage, never()).delete("gen-1/a.json");
+    }
+
+    @Test
+    void testCommitAnnouncesBatch() {
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(staged("a.json", 4, SHA256, null)));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", null, 4)).thenReturn(metadata(4, SHA256));
+
+        service.commitUpload("s1");
+
+        ArgumentCaptor<StoredBatch> batch = ArgumentCaptor.forClass(StoredBatch.class);
+        verify(eventNotifier).batchStored(batch.capture());
+        assertEquals("gen-1", batch.getValue().getGenerationId());
+        assertNull(batch.getValue().getEnhancementId());
+        assertEquals("gen-1/a.json", batch.getValue().getFiles().get(0).getStorageKey());
+        assertEquals(SHA256, batch.getValue().getFiles().get(0).getDigest());
+    }
+
+    @Test
+    void testCommitDeduplicatesVerifiedContent() {
+        service.deduplicate = true;
+        String blobKey = "blobs/sha256/" + SHA256;
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(
+                staged("a.json", 4, SHA256, null), staged("b.json", 25, null, "upload-1")));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", null, 4)).thenReturn(metadata(4, SHA256));
+        when(directUploadStorage.completeUpload("staging/s1/b.json", "upload-1", 25)).thenReturn(metadata(25, null));
+        when(objectStorage.findMetadata(blobKey)).thenReturn(ObjectMetadata.builder()
+                .key(blobKey)
+                .size(4)
+                .etag("\"blob\"")
+                .sha256(SHA256)
+                .build());
+
+        List<StoredFile> stored = service.commitUpload("s1");
+
+        assertTrue(stored.get(0).isDeduplicated());
+        verify(objectStorage, never()).copy(eq("staging/s1/a.json"), anyString(), any(), any(), any());
+        verify(objectStorage).putReference("gen-1/a.json", blobKey, CONTENT_TYPE);
+        // the reference is indexed with the metadata of the blob stored before
+        ArgumentCaptor<IndexedObject> indexed = ArgumentCaptor.forClass(IndexedObject.class);
+        verify(metadataIndex, times(2)).put(indexed.capture());
+        assertEquals("gen-1/a.json", indexed.getAllValues().get(0).getKey());
+        assertEquals("\"blob\"", indexed.getAllValues().get(0).getEtag());
+        // Without a checksum verified by storage the file is copied as is
+        assertFalse(stored.get(1).isDeduplicated());
+        verify(objectStorage).copy("staging/s1/b.json", "gen-1/b.json", CONTENT_TYPE, null, null);
+    }
+
+    @Test
+    void testCommitForgetsDownloadUrls() {
+        service.redirectDownloads = true;
+        when(directUploadStorage.loadSession("staging/s1.session")).thenReturn(session(staged("a.json", 4, null, null)));
+        when(directUploadStorage.completeUpload("staging/s1/a.json", null, 4)).thenReturn(metadata(4, null));
+
+        service.commitUpload("s1");
+
+        verify(downloadUrlSigner).invalidate("gen-1/a.json");
+    }
+
+    private static ObjectMetadata copied(InvocationOnMock invocation) {
+        return ObjectMetadata.builder()
+                .key(invocation.getArgument(1))
+                .size(-1)
+                .contentType(invocation.getArgument(2))
+                .contentEncoding(invocation.getArgument(3))
+                .etag("\"copy\"")
+                .sha256(invocation.getArgument(4))
+                .build();
+    }
+
+    private static UploadRequest request(String filename, long size, String sha256) {
+        return UploadRequest.builder().filename(filename).contentType(CONTENT_TYPE).size(size).sha256(sha256).build();
+    }
+
+    private static PresignedUpload upload(String multipartUploadId, Instant expiresAt) {
+        return PresignedUpload.builder()
+                .multipartUploadId(multipartUploadId)
+                .urls(List.of(URI.create("https://s3.example.com/upload")))
+                .headers(Map.of())
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static UploadSession session(StagedFile... files) {
+        return UploadSession.builder().id("s1").generationId("gen-1").storagePrefix("gen-1").expiresAt(EXPIRES_AT).files(List.of(files)).build();
+    }
+
+    private static StagedFile staged(String filename, long size, String sha256, String multipartUploadId) {
+        return StagedFile.builder()
+                .filename(filename)
+                .contentType(CONTENT_TYPE)
+                .size(size)
+                .sha256(sha256)
+                .stagingKey("staging/s1/" + filename)
+                .multipartUploadId(multipartUploadId)
+                .build();
+    }
+
+    private static ObjectMetadata metadata(long size, String sha256) {
+        return ObjectMetadata.builder().size(size).sha256(sha256).build();
+    }
+}
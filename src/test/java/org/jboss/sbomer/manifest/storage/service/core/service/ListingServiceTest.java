@@ -0,0 +1,138 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for ListingService.
+ * Tests listing prefixes, page size limits and the completion of deduplicated files from the index.
+ */
+@ExtendWith(MockitoExtension.class)
+class ListingServiceTest {
+
+    @Mock
+    ObjectStorage objectStorage;
+
+    @Mock
+    MetadataIndex metadataIndex;
+
+    ListingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ListingService();
+        service.objectStorage = objectStorage;
+        service.maxPageSize = 1000;
+        service.metadataIndex = metadataIndex;
+        lenient().when(metadataIndex.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void testListGenerationFiles() {
+        ObjectListing listing = ObjectListing.builder().objects(List.of()).nextContinuationToken("next").build();
+        when(objectStorage.list("gen-1/", "token", 50)).thenReturn(listing);
+
+        assertSame(listing, service.listGenerationFiles("gen-1", "token", 50));
+    }
+
+    @Test
+    void testListEnhancementFiles() {
+        ObjectListing listing = ObjectListing.builder().objects(List.of()).build();
+        when(objectStorage.list("gen-1/enh-1/", null, 1000)).thenReturn(listing);
+
+        assertSame(listing, service.listEnhancementFiles("gen-1", "enh-1", null, 1000));
+    }
+
+    @Test
+    void testPageSizeIsCapped() {
+        ObjectListing listing = ObjectListing.builder().objects(List.of()).build();
+        when(objectStorage.list("gen-1/", null, 1000)).thenReturn(listing);
+        when(objectStorage.list("gen-1/", null, 1)).thenReturn(listing);
+
+        service.listGenerationFiles("gen-1", null, Integer.MAX_VALUE);
+        service.listGenerationFiles("gen-1", null, 0);
+
+        verify(objectStorage).list("gen-1/", null, 1000);
+        verify(objectStorage).list("gen-1/", null, 1);
+    }
+
+    @Test
+    void testDeduplicatedFileCompletedFromIndex() {
+        Instant stored = Instant.parse("2026-01-01T00:00:00Z");
+        ObjectListing listing = ObjectListing.builder()
+                .objects(List.of(
+                        object("gen-1/a.json", 12, "\"a\"", stored),
+                        object("gen-1/b.json", 0, "\"ref-b\"", stored),
+                        object("gen-1/enh-1/", 0, "\"folder\"", stored),
+                        object("gen-1/enh-1/c.json", 0, "\"ref-c\"", stored)))
+                .nextContinuationToken("next")
+                .build();
+        when(objectStorage.list("gen-1/", null, 1000)).thenReturn(listing);
+        when(metadataIndex.get("gen-1/b.json")).thenReturn(indexed("gen-1/b.json", 42, "\"blob\"", stored.plusSeconds(1)));
+        when(metadataIndex.get("gen-1/enh-1/c.json")).thenReturn(null);
+
+        ObjectListing page = service.listGenerationFiles("gen-1", null, 1000);
+
+        // Files listed as empty are completed from the index where it has an entry, the others are kept as listed
+        assertEquals(List.of("gen-1/a.json", "gen-1/b.json", "gen-1/enh-1/", "gen-1/enh-1/c.json"),
+                page.getObjects().stream().map(ObjectMetadata::getKey).toList());
+        assertEquals(List.of(12L, 42L, 0L, 0L), page.getObjects().stream().map(ObjectMetadata::getSize).toList());
+        assertEquals(List.of("\"a\"", "\"blob\"", "\"folder\"", "\"ref-c\""),
+                page.getObjects().stream().map(ObjectMetadata::getEtag).toList());
+        assertEquals("next", page.getNextContinuationToken());
+        verify(metadataIndex, times(2)).get(anyString());
+        verify(objectStorage, never()).findMetadata(anyString());
+        verify(objectStorage, never()).getMetadata(anyString());
+    }
+
+    @Test
+    void testFileStoredSinceIndexedKeptAsListed() {
+        Instant stored = Instant.parse("2026-01-01T00:00:00Z");
+        ObjectListing listing = ObjectListing.builder()
+                .objects(List.of(object("gen-1/a.json", 0, "\"ref\"", stored)))
+                .build();
+        when(objectStorage.list("gen-1/", null, 1000)).thenReturn(listing);
+        when(metadataIndex.get("gen-1/a.json")).thenReturn(indexed("gen-1/a.json", 42, "\"old\"", stored.minusSeconds(60)));
+
+        ObjectListing page = service.listGenerationFiles("gen-1", null, 1000);
+
+        assertEquals(0, page.getObjects().get(0).getSize());
+        assertEquals("\"ref\"", page.getObjects().get(0).getEtag());
+    }
+
+    @Test
+    void testListingReturnedAsListedWithoutIndex() {
+        ObjectListing listing = ObjectListing.builder()
+                .objects(List.of(object("gen-1/a.json", 0, "\"ref\"", Instant.now())))
+                .build();
+        when(objectStorage.list("gen-1/", null, 1000)).thenReturn(listing);
+        when(metadataIndex.isEnabled()).thenReturn(false);
+
+        assertSame(listing, service.listGenerationFiles("gen-1", null, 1000));
+        verify(metadataIndex, never()).get(anyString());
+        verify(objectStorage, never()).findMetadata(anyString());
+    }
+
+    private static ObjectMetadata object(String key, long size, String etag, Instant lastModified) {
+        return ObjectMetadata.builder().key(key).size(size).etag(etag).lastModified(lastModified).build();
+    }
+
+    private static IndexedObject indexed(String key, long size, String etag, Instant indexedAt) {
+        return IndexedObject.builder().key(key).size(size).etag(etag).indexedAt(indexedAt).build();
+    }
+}
@@ -0,0 +1,87 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexRebuild;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectListing;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Unit tests for MetadataIndexService.
+ */
+@ExtendWith(MockitoExtension.class)
+class MetadataIndexServiceTest {
+
+    @Mock
+    ObjectStorage objectStorage;
+
+    @Mock
+    MetadataIndex metadataIndex;
+
+    MetadataIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MetadataIndexService();
+        service.objectStorage = objectStorage;
+        service.metadataIndex = metadataIndex;
+        service.listPageSize = 1;
+    }
+
+    @Test
+    void testRebuildIndexesEveryPageAndRemovesStaleEntries() {
+        when(metadataIndex.isEnabled()).thenReturn(true);
+        when(objectStorage.list("gen-1/", null, 1)).thenReturn(ObjectListing.builder()
+                .objects(List.of(listed("gen-1/a.json")))
+                .nextContinuationToken("next")
+                .build());
+        when(objectStorage.list("gen-1/", "next", 1)).thenReturn(ObjectListing.builder()
+                .objects(List.of(listed("gen-1/enh-1/b.json")))
+                .build());
+        when(objectStorage.getMetadata(anyString())).thenAnswer(invocation -> ObjectMetadata.builder()
+                .key(invocation.getArgument(0))
+                .size(2)
+                .contentType("application/json")
+                .etag("\"abc\"")
+                .build());
+        when(metadataIndex.keys("gen-1/")).thenReturn(List.of("gen-1/a.json", "gen-1/deleted.json", "gen-1/enh-1/b.json"));
+
+        IndexRebuild rebuild = service.rebuildGeneration("gen-1");
+
+        assertTrue(rebuild.isEnabled());
+        assertEquals(2, rebuild.getIndexedCount());
+        assertEquals(1, rebuild.getRemovedCount());
+        ArgumentCaptor<IndexedObject> indexed = ArgumentCaptor.forClass(IndexedObject.class);
+        verify(metadataIndex, times(2)).put(indexed.capture());
+        assertEquals(List.of("gen-1/a.json", "gen-1/enh-1/b.json"), indexed.getAllValues().stream().map(IndexedObject::getKey).toList());
+        // the content type is not listed, it is looked up
+        assertEquals("application/json", indexed.getValue().getContentType());
+        verify(metadataIndex).remove("gen-1/deleted.json");
+        verify(metadataIndex, never()).remove("gen-1/a.json");
+    }
+
+    @Test
+    void testRebuildOfDisabledIndexScansNothing() {
+        IndexRebuild rebuild = service.rebuildGeneration("gen-1");
+
+        assertFalse(rebuild.isEnabled());
+        verifyNoInteractions(objectStorage);
+    }
+
+    private static ObjectMetadata listed(String key) {
+        return ObjectMetadata.builder().key(key).size(2).etag("\"abc\"").build();
+    }
+}
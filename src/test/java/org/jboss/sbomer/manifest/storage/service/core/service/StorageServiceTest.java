@@ -0,0 +1,735 @@
+package org.jboss.sbomer.manifest.storage.service.core.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jboss.sbomer.manifest.storage.service.adapter.out.cache.CachingStorages;
+import org.jboss.sbomer.manifest.storage.service.adapter.out.exception.StorageUnavailableException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.exception.UploadCapacityExceededException;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ByteRange;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ContentCoding;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileCheck;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.FileStatus;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.IndexedObject;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectContent;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.ObjectMetadata;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.PresignedUrl;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.SbomFile;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredBatch;
+import org.jboss.sbomer.manifest.storage.service.core.domain.model.StoredFile;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.DownloadUrlSigner;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.MetadataIndex;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.ObjectStorage;
+import org.jboss.sbomer.manifest.storage.service.core.port.spi.StorageEventNotifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for StorageService.
+ * Tests parallel batch uploads and their all-or-nothing behavior.
+ */
+@ExtendWith(MockitoExtension.class)
+class StorageServiceTest {
+
+    private static final String PUBLIC_API_URL = "http://localhost:8085";
+    private static final String CONTENT_TYPE = "application/json";
+    // SHA-256 of "{}"
+    private static final String EMPTY_OBJECT_SHA256 = "44136fa355b3678a1146ad16f7e8649e94fb4fc21fe77e8310c060f61caaff8a";
+
+    @Mock
+    ObjectStorage objectStorage;
+
+    @Mock
+    DownloadUrlSigner downloadUrlSigner;
+
+    @Mock
+    StorageEventNotifier eventNotifier;
+
+    @Mock
+    MetadataIndex metadataIndex;
+
+    StorageService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StorageService();
+        service.objectStorage = objectStorage;
+        service.downloadUrlSigner = downloadUrlSigner;
+        service.eventNotifier = eventNotifier;
+        service.metadataIndex = metadataIndex;
+        service.indexMaxAge = Duration.ofDays(1);
+        service.lookupConcurrency = 2;
+        service.meterRegistry = new SimpleMeterRegistry();
+        service.publicApiUrl = PUBLIC_API_URL;
+        service.batchConcurrency = 2;
+        service.maxConcurrency = 4;
+        service.storageExecutor = executor(false, 4);
+        service.init();
+        // most tests store files, the others never upload
+        lenient().when(objectStorage.upload(anyString(), any(), anyLong(), any(), any(), any()))
+                .thenAnswer(StorageServiceTest::uploaded);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.storageExecutor.shutdown();
+    }
+
+    @Test
+    void testStoreGenerationSboms() {
+        List<StoredFile> stored = service.storeGenerationSboms("gen-1", List.of(file("a.json"), file("b.json")));
+        assertEquals(Map.of(
+                "a.json", PUBLIC_API_URL + "/api/v1/storage/content/gen-1/a.json",
+                "b.json", PUBLIC_API_URL + "/api/v1/storage/content/gen-1/b.json"), urls(stored));
+        assertFalse(stored.get(0).isDeduplicated());
+        // a single request per file, uploaded straight to its storage key with its digest
+        verify(objectStorage).upload(eq("gen-1/a.json"), any(), eq(2L), eq(CONTENT_TYPE), isNull(), eq(EMPTY_OBJECT_SHA256));
+        verify(objectStorage).upload(eq("gen-1/b.json"), any(), eq(2L), eq(CONTENT_TYPE), isNull(), eq(EMPTY_OBJECT_SHA256));
+        verifyNoMoreInteractions(objectStorage);
+    }
+
+    @Test
+    void testBatchSizeRecorded() {
+        service.storeGenerationSboms("gen-1", List.of(file("a.json"), file("b.json")));
+        assertEquals(1, service.meterRegistry.get("sbomer.storage.batch.files").summary().count());
+        assertEquals(2.0, service.meterRegistry.get("sbomer.storage.batch.files").summary().totalAmount());
+    }
+
+    @Test
+    void testStoreEnhancementSboms() {
+        List<StoredFile> stored = service.storeEnhancementSboms("gen-1", "enh-1", List.of(file("a.json")));
+        assertEquals(PUBLIC_API_URL + "/api/v1/storage/content/gen-1/enh-1/a.json", urls(stored).get("a.json"));
+    }
+
+    @Test
+    void testStoredBatchAnnounced() {
+        List<StoredFile> stored = service.storeEnhancementSboms("gen-1", "enh-1", List.of(file("a.json"), file("b.json")));
+
+        ArgumentCaptor<StoredBatch> batch = ArgumentCaptor.forClass(StoredBatch.class);
+        verify(eventNotifier).batchStored(batch.capture());
+        assertEquals("gen-1", batch.getValue().getGenerationId());
+        assertEquals("enh-1", batch.getValue().getEnhancementId());
+        assertEquals(stored, batch.getValue().getFiles());
+        assertNotNull(batch.getValue().getStoredAt());
+        assertEquals(2, stored.get(0).getSize());
+        assertEquals(EMPTY_OBJECT_SHA256, stored.get(0).getDigest());
+    }
+
+    @Test
+    void testFailedAnnouncementKeepsBatch() {
+        doThrow(new IllegalStateException("emitter closed")).when(eventNotifier).batchStored(any());
+
+        List<StoredFile> stored = service.storeGenerationSboms("gen-1", List.of(file("a.json")));
+
+        assertEquals(1, stored.size());
+        verify(objectStorage, never()).delete(any());
+    }
+
+    @Test
+    void testFailedBatchNotAnnounced() {
+        doThrow(new StorageUnavailableException("down", null))
+                .when(objectStorage).upload(eq("gen-1/a.json"), any(), anyLong(), any(), any(), any());
+
+        assertThrows(RuntimeException.class, () -> service.storeGenerationSboms("gen-1", List.of(file("a.json"))));
+
+        verifyNoInteractions(eventNotifier);
+    }
+
+    @Test
+    void testStoredBatchIndexed() {
+        service.storeGenerationSboms("gen-1", List.of(file("a.json")));
+
+        ArgumentCaptor<IndexedObject> indexed = ArgumentCaptor.forClass(IndexedObject.class);
+        verify(metadataIndex).put(indexed.capture());
+        assertEquals("gen-1/a.json", indexed.getValue().getKey());
+        assertEquals(2, indexed.getValue().getSize());
+        assertEquals(CONTENT_TYPE, indexed.getValue().getContentType());
+        assertEquals(EMPTY_OBJECT_SHA256, indexed.getValue().getDigest());
+        // as returned by the storage on upload
+        assertEquals("\"abc\"", indexed.getValue().getEtag());
+    }
+
+    @Test
+    void testFailedBatchLeavesNoIndexEntry() {
+        doAnswer(invocation -> {
+            if (invocation.<String>getArgument(0).endsWith("/b.json")) {
+                throw new StorageUnavailableException("down", null);
+            }
+            return uploaded(invocation);
+        }).when(objectStorage).upload(anyString(), any(), anyLong(), any(), any(), any());
+
+        assertThrows(RuntimeException.class,
+                () -> service.storeGenerationSboms("gen-1", List.of(file("a.json"), file("b.json"))));
+
+        // a stored file is indexed when it is published, the rollback removes the entry again
+        InOrder inOrder = inOrder(metadataIndex);
+        inOrder.verify(metadataIndex).put(argThat(indexed -> "gen-1/a.json".equals(indexed.getKey())));
+        inOrder.verify(metadataIndex).remove("gen-1/a.json");
+        verify(metadataIndex, never()).put(argThat(indexed -> "gen-1/b.json".equals(indexed.getKey())));
+    }
+
+    @Test
+    void testMetadataServedFromIndex() {
+        when(metadataIndex.get("gen-1/a.json")).thenReturn(indexed("\"abc\"", Instant.now()));
+
+        ObjectMetadata metadata = service.getFileMetadata("gen-1/a.json");
+
+        assertEquals(2, metadata.getSize());
+        assertEquals("\"abc\"", metadata.getEtag());
+        assertEquals(EMPTY_OBJECT_SHA256, metadata.getSha256());
+        verifyNoInteractions(objectStorage);
+    }
+
+    @Test
+    void testIncompleteIndexEntryCompletedFromStorage() {
+        Instant indexedAt = Instant.now();
+        when(metadataIndex.isEnabled()).thenReturn(true);
+        when(metadataIndex.get("gen-1/a.json")).thenReturn(indexed(null, indexedAt));
+        when(objectStorage.getMetadata("gen-1/a.json")).thenReturn(ObjectMetadata.builder()
+                .key("gen-1/a.json")
+                .size(2)
+                .contentType(CONTENT_TYPE)
+                .etag("\"abc\"")
+                .lastModified(indexedAt.minusSeconds(1))
+                .build());
+
+        assertEquals("\"abc\"", service.getFileMetadata("gen-1/a.json").getEtag());
+
+        ArgumentCaptor<IndexedObject> indexed = ArgumentCaptor.forClass(IndexedObject.class);
+        verify(metadataIndex).put(indexed.capture());
+        assertEquals("\"abc\"", indexed.getValue().getEtag());
+        // the file wasn't replaced since it was indexed
+        assertEquals(EMPTY_OBJECT_SHA256, indexed.getValue().getDigest());
+    }
+
+    @Test
+    void testExpiredIndexEntryRevalidated() {
+        when(metadataIndex.get("gen-1/a.json")).thenReturn(indexed("\"abc\"", Instant.now().minus(Duration.ofDays(2))));
+        when(objectStorage.getMetadata("gen-1/a.json")).thenReturn(ObjectMetadata.builder()
+                .key("gen-1/a.json")
+                .size(3)
+                .etag("\"def\"")
+                .build());
+
+        assertEquals("\"def\"", service.getFileMetadata("gen-1/a.json").getEtag());
+    }
+
+    @Test
+    void testCheckFilesAnsweredFromIndex() {
+        when(metadataIndex.get("gen-1/a.json")).thenReturn(indexed(null, Instant.now()));
+
+        List<FileStatus> statuses = service.checkFiles(List.of(
+                FileCheck.builder().storageKey("gen-1/a.json").sha256(EMPTY_OBJECT_SHA256).build())).toCompletableFuture().join();
+
+        assertTrue(statuses.get(0).isExists());
+        assertTrue(statuses.get(0).isUnchanged());
+        assertEquals(2, statuses.get(0).getSize());
+        verifyNoInteractions(objectStorage);
+    }
+
+    @Test
+    void testCheckFilesLooksUpUnindexedFiles() {
+        when(objectStorage.findMetadata("gen-1/a.json")).thenReturn(ObjectMetadata.builder()
+                .key("gen-1/a.json")
+                .size(2)
+                .etag("\"abc\"")
+                .build());
+        when(objectStorage.findMetadata("gen-1/b.json")).thenReturn(null);
+        when(metadataIndex.get("gen-1/c.json")).thenReturn(indexed("\"abc\"", Instant.now()));
+
+        List<FileStatus> statuses = service.checkFiles(List.of(
+                FileCheck.builder().storageKey("gen-1/a.json").sha256(EMPTY_OBJECT_SHA256).build(),
+                FileCheck.builder().storageKey("gen-1/b.json").build(),
+                FileCheck.builder().storageKey("gen-1/c.json").sha256("0".repeat(64)).build())).toCompletableFuture().join();
+
+        assertEquals(List.of("gen-1/a.json", "gen-1/b.json", "gen-1/c.json"),
+                statuses.stream().map(FileStatus::getStorageKey).toList());
+        // stored, but its checksum is not known
+        assertTrue(statuses.get(0).isExists());
+        assertFalse(statuses.get(0).isUnchanged());
+        assertFalse(statuses.get(1).isExists());
+        assertEquals(-1, statuses.get(1).getSize());
+        assertTrue(statuses.get(2).isExists());
+        assertFalse(statuses.get(2).isUnchanged());
+        verify(objectStorage, never()).findMetadata("gen-1/c.json");
+    }
+
+    @Test
+    void testCheckFilesFailsWithStorage() {
+        when(objectStorage.findMetadata("gen-1/a.json")).thenThrow(new StorageUnavailableException("down", null));
+
+        CompletableFuture<List<FileStatus>> statuses = service.checkFiles(
+                List.of(FileCheck.builder().storageKey("gen-1/a.json").build())).toCompletableFuture();
+
+        CompletionException e = assertThrows(CompletionException.class, statuses::join);
+        assertInstanceOf(StorageUnavailableException.class, e.getCause());
+    }
+
+    @Test
+    void testCheckFilesMatchesRecordedDigestOfCompressedFile() {
+        when(objectStorage.findMetadata("gen-1/a.json")).thenReturn(ObjectMetadata.builder()
+                .key("gen-1/a.json")
+                .size(22)
+                .contentEncoding("gzip")
+                .sha256(EMPTY_OBJECT_SHA256)
+                .build());
+
+        List<FileStatus> statuses = service.checkFiles(List.of(
+                FileCheck.builder().storageKey("gen-1/a.json").sha256(EMPTY_OBJECT_SHA256).build())).toCompletableFuture().join();
+
+        // the recorded digest is of the content as uploaded, before it was compressed
+        assertTrue(statuses.get(0).isUnchanged());
+        assertEquals("gzip", statuses.get(0).getContentEncoding());
+    }
+
+    @Test
+    void testCheckFilesOfCachedFileMatchesRecordedDigest(@TempDir Path directory) throws IOException {
+        when(objectStorage.download("gen-1/a.json", null)).thenAnswer(invocation -> ObjectContent.builder()
+                .content(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)))
+                .contentLength(2)
+                .objectSize(2)
+                .contentType(CONTENT_TYPE)
+                .etag("\"abc\"")
+                .sha256(EMPTY_OBJECT_SHA256)
+                .build());
+
+        for (ObjectStorage caching : List.of(CachingStorages.inMemory(objectStorage), CachingStorages.onDisk(objectStorage, directory))) {
+            service.objectStorage = caching;
+            try (ObjectContent content = service.getFileContent("gen-1/a.json", null, Set.of())) {
+                content.getContent().readAllBytes();
+            }
+
+            List<FileStatus> statuses = service.checkFiles(List.of(
+                    FileCheck.builder().storageKey("gen-1/a.json").sha256(EMPTY_OBJECT_SHA256).build())).toCompletableFuture().join();
+
+            // answered from the cached copy, which keeps the digest recorded when the file was published
+            assertTrue(statuses.get(0).isUnchanged());
+            assertEquals(EMPTY_OBJECT_SHA256, statuses.get(0).getSha256());
+        }
+        verify(objectStorage, never()).findMetadata(anyString());
+    }
+
+    @Test
+    void testBatchConcurrencyIsBounded() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return uploaded(invocation);
+        }).when(objectStorage).upload(anyString(), any(), anyLong(), anyString(), any(), any());
+        List<SbomFile> files = List.of(file("1.json"), file("2.json"), file("3.json"), file("4.json"), file("5.json"));
+        assertEquals(5, service.storeGenerationSboms("gen-1", files).size());
+        assertTrue(maxInFlight.get() <= 2, "At most 2 uploads of a batch should run at once");
+    }
+
+    @Test
+    void testBatchBeyondByteBudgetRejected() {
+        service.maxInFlightBytes = 3;
+        service.admissionMaxQueued = 0;
+        service.admissionTimeout = Duration.ofSeconds(1);
+        service.admissionRetryAfter = Duration.ofSeconds(5);
+        service.init();
+        ByteBudget.Reservation inFlight = service.uploadBudget.reserve(2);
+
+        UploadCapacityExceededException e = assertThrows(UploadCapacityExceededException.class,
+                () -> service.storeGenerationSboms("gen-1", List.of(file("a.json"))));
+
+        assertEquals(Duration.ofSeconds(5), e.getRetryAfter());
+        assertEquals(1.0, service.meterRegistry.get("sbomer.storage.upload.rejected").counter().count());
+        verifyNoInteractions(objectStorage);
+        inFlight.close();
+        service.storeGenerationSboms("gen-1", List.of(file("a.json")));
+        assertEquals(0.0, service.meterRegistry.get("sbomer.storage.upload.in-flight-bytes").gauge().value());
+    }
+
+    @Test
+    void testConcurrencyOnVirtualThreadsIsBounded() throws InterruptedException {
+        service.storageExecutor.shutdown();
+        service.storageExecutor = executor(true, 2);
+        service.batchConcurrency = 4;
+        service.maxConcurrency = 2;
+        service.init();
+        // older runtimes would run the tasks on the worker pool, they keep the platform thread pool
+        assertEquals(Runtime.version().feature() >= 21, service.storageExecutor.isVirtual());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return uploaded(invocation);
+        }).when(objectStorage).upload(anyString(), any(), anyLong(), anyString(), any(), any());
+
+        Thread first = new Thread(() -> service.storeGenerationSboms("gen-1",
+                List.of(file("1.json"), file("2.json"), file("3.json"), file("4.json"))));
+        Thread second = new Thread(() -> service.storeGenerationSboms("gen-2",
+                List.of(file("1.json"), file("2.json"), file("3.json"), file("4.json"))));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        verify(objectStorage, times(8)).upload(anyString(), any(), anyLong(), anyString(), any(), any());
+        assertTrue(maxInFlight.get() <= 2, "At most 2 uploads should run at once across batches");
+        service.storageExecutor.virtualThreadExecutor.shutdown();
+    }
+
+    @Test
+    void testFailedBatchRemovesStoredFilesAndCancelsSiblings() throws InterruptedException {
+        CountDownLatch storedStarted = new CountDownLatch(1);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            switch (key.substring(key.lastIndexOf('/') + 1)) {
+                case "stored.json" -> storedStarted.countDown();
+                case "slow.json" -> {
+                    slowStarted.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                    } catch (InterruptedException e) {
+                        slowInterrupted.countDown();
+                        throw new IllegalStateException("Cancelled", e);
+                    }
+                }
+                default -> {
+                    assertTrue(storedStarted.await(5, TimeUnit.SECONDS));
+                    assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+                    throw new StorageUnavailableException("Storage unavailable", null);
+                }
+            }
+            return uploaded(invocation);
+        }).when(objectStorage).upload(anyString(), any(), anyLong(), anyString(), any(), any());
+        service.batchConcurrency = 3;
+
+        List<SbomFile> files = List.of(file("stored.json"), file("slow.json"), file("broken.json"));
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> service.storeGenerationSboms("gen-1", files));
+
+        assertTrue(ex.getMessage().contains("broken.json"));
+        assertInstanceOf(StorageUnavailableException.class, ex.getCause());
+        assertEquals(0, slowInterrupted.getCount(), "In-flight upload should be cancelled");
+        // a failed or cancelled upload may still have left an object behind
+        verify(objectStorage).delete("gen-1/stored.json");
+        verify(objectStorage).delete("gen-1/slow.json");
+        verify(objectStorage).delete("gen-1/broken.json");
+    }
+
+    @Test
+    void testFailedBatchRemovesReplacedFiles() {
+        doAnswer(invocation -> {
+            if ("gen-1/broken.json".equals(invocation.getArgument(0))) {
+                throw new StorageUnavailableException("Storage unavailable", null);
+            }
+            return uploaded(invocation);
+        }).when(objectStorage).upload(anyString(), any(), anyLong(), anyString(), any(), any());
+        service.batchConcurrency = 1;
+
+        List<SbomFile> files = List.of(file("replaced.json"), file("created.json"), file("broken.json"));
+        assertThrows(RuntimeException.class, () -> service.storeGenerationSboms("gen-1", files));
+
+        // whether a file was stored before is not looked up, its old content is gone once it is overwritten
+        verify(objectStorage, never()).exists(anyString());
+        verify(objectStorage).delete("gen-1/replaced.json");
+        verify(objectStorage).delete("gen-1/created.json");
+        verify(objectStorage).delete("gen-1/broken.json");
+        verify(metadataIndex).remove("gen-1/replaced.json");
+    }
+
+    @Test
+    void testDeduplicatedContentStoredOnce() {
+        service.deduplicate = true;
+        String blobKey = "blobs/sha256/" + EMPTY_OBJECT_SHA256;
+        AtomicInteger blobLookups = new AtomicInteger();
+        // stored by the first batch
+        when(objectStorage.findMetadata(anyString())).thenAnswer(invocation -> blobKey.equals(invocation.getArgument(0))
+                && blobLookups.getAndIncrement() > 0 ? blob(blobKey) : null);
+
+        List<StoredFile> first = service.storeGenerationSboms("gen-1", List.of(reopenableFile("a.json")));
+        List<StoredFile> second = service.storeEnhancementSboms("gen-1", "enh-1", List.of(reopenableFile("a.json")));
+
+        assertFalse(first.get(0).isDeduplicated());
+        assertTrue(second.get(0).isDeduplicated());
+        assertEquals(EMPTY_OBJECT_SHA256, second.get(0).getDigest());
+        verify(objectStorage, times(1)).upload(eq(blobKey), any(), eq(2L), eq(CONTENT_TYPE), isNull(), eq(EMPTY_OBJECT_SHA256));
+        verify(objectStorage).putReference("gen-1/a.json", blobKey, CONTENT_TYPE);
+        verify(objectStorage).putReference("gen-1/enh-1/a.json", blobKey, CONTENT_TYPE);
+        verify(objectStorage, never()).upload(startsWith("gen-1/"), any(), anyLong(), any(), any(), any());
+        // both references are indexed with the metadata of the blob, without another lookup
+        ArgumentCaptor<IndexedObject> indexed = ArgumentCaptor.forClass(IndexedObject.class);
+        verify(metadataIndex, times(2)).put(indexed.capture());
+        assertEquals(List.of("gen-1/a.json", "gen-1/enh-1/a.json"), indexed.getAllValues().stream().map(IndexedObject::getKey).toList());
+        assertEquals(List.of(2L, 2L), indexed.getAllValues().stream().map(IndexedObject::getSize).toList());
+        verify(objectStorage, times(2)).findMetadata(anyString());
+    }
+
+    @Test
+    void testFailedDeduplicatedUploadStoresNoReference() {
+        service.deduplicate = true;
+        doThrow(new StorageUnavailableException("Storage unavailable", null))
+                .when(objectStorage).upload(startsWith("blobs/"), any(), anyLong(), anyString(), any(), any());
+
+        assertThrows(RuntimeException.class, () -> service.storeGenerationSboms("gen-1", List.of(file("a.json"))));
+
+        verify(objectStorage, never()).putReference(anyString(), anyString(), anyString());
+        verify(objectStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void testFailedDeduplicatedBatchRemovesReferencesOnly() {
+        service.deduplicate = true;
+        when(objectStorage.findMetadata(anyString())).thenAnswer(invocation -> blob(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            if ("gen-1/broken.json".equals(invocation.getArgument(0))) {
+                throw new StorageUnavailableException("Storage unavailable", null);
+            }
+            return null;
+        }).when(objectStorage).putReference(anyString(), anyString(), anyString());
+        service.batchConcurrency = 1;
+
+        List<SbomFile> files = List.of(reopenableFile("stored.json"), reopenableFile("broken.json"));
+        assertThrows(RuntimeException.class, () -> service.storeGenerationSboms("gen-1", files));
+
+        verify(objectStorage).delete("gen-1/stored.json");
+        verify(objectStorage, never()).delete(startsWith("blobs/"));
+    }
+
+    @Test
+    void testUploadCompressed() throws IOException {
+        service.compression = ContentCoding.GZIP;
+        AtomicReference<byte[]> stored = new AtomicReference<>();
+        // the digest is of the content as uploaded, before it was compressed
+        doAnswer(invocation -> {
+            stored.set(invocation.getArgument(1, InputStream.class).readAllBytes());
+            assertEquals(stored.get().length, invocation.getArgument(2, Long.class));
+            return uploaded(invocation);
+        }).when(objectStorage).upload(eq("gen-1/a.json"), any(), anyLong(), eq(CONTENT_TYPE), eq("gzip"), eq(EMPTY_OBJECT_SHA256));
+
+        service.storeGenerationSboms("gen-1", List.of(file("a.json")));
+
+        try (InputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(stored.get()))) {
+            assertEquals("{}", new String(decompressed.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testUploadAlreadyCompressedStoredAsIs() {
+        service.compression = ContentCoding.ZSTD;
+        SbomFile file = SbomFile.builder()
+                .filename("a.json")
+                .contentType(CONTENT_TYPE)
+                .contentEncoding("gzip")
+                .size(2)
+                .content(new ByteArrayInputStream("{}".getBytes()))
+                .build();
+
+        service.storeGenerationSboms("gen-1", List.of(file));
+
+        verify(objectStorage).upload(eq("gen-1/a.json"), any(), eq(2L), eq(CONTENT_TYPE), eq("gzip"), eq(EMPTY_OBJECT_SHA256));
+    }
+
+    @Test
+    void testSmallFileNotCompressed() {
+        service.compression = ContentCoding.GZIP;
+        service.compressionMinSize = 1024;
+
+        service.storeGenerationSboms("gen-1", List.of(file("a.json")));
+
+        verify(objectStorage).upload(eq("gen-1/a.json"), any(), eq(2L), eq(CONTENT_TYPE), isNull(), eq(EMPTY_OBJECT_SHA256));
+    }
+
+    @Test
+    void testCompressedFilePassedThroughWhenAccepted() {
+        ObjectContent stored = gzipContent();
+        when(objectStorage.download("gen-1/a.json", null)).thenReturn(stored);
+
+        assertSame(stored, service.getFileContent("gen-1/a.json", null, Set.of("br", "gzip")));
+    }
+
+    @Test
+    void testCompressedFileDecompressedWhenNotAccepted() throws IOException {
+        ByteRange range = ByteRange.of(0, 1);
+        when(objectStorage.download("gen-1/a.json", range)).thenReturn(gzipContent().toBuilder().range(range).build());
+        when(objectStorage.download("gen-1/a.json", null)).thenReturn(gzipContent());
+
+        try (ObjectContent content = service.getFileContent("gen-1/a.json", range, Set.of("br"))) {
+            // The range can't be located in the compressed file, the whole file is returned
+            assertFalse(content.isPartial());
+            assertNull(content.getContentEncoding());
+            assertEquals(-1, content.getContentLength());
+            assertEquals("W/\"abc\"", content.getEtag());
+            assertEquals("{}", new String(content.getContent().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testLargeFileRedirected() {
+        service.redirectDownloads = true;
+        service.redirectMinSize = 1024;
+        URI url = URI.create("https://s3.example.com/gen-1/a.json?X-Amz-Signature=abc");
+        when(downloadUrlSigner.presignDownload("gen-1/a.json"))
+            .thenReturn(PresignedUrl.builder().url(url).size(4096).build());
+
+        assertEquals(url, service.getDownloadRedirect("gen-1/a.json", Set.of()));
+    }
+
+    @Test
+    void testSmallFileNotRedirected() {
+        service.redirectDownloads = true;
+        service.redirectMinSize = 1024;
+        when(downloadUrlSigner.presignDownload("gen-1/a.json"))
+            .thenReturn(PresignedUrl.builder().url(URI.create("https://s3.example.com/gen-1/a.json")).size(100).build());
+
+        assertNull(service.getDownloadRedirect("gen-1/a.json", Set.of()));
+    }
+
+    @Test
+    void testCompressedFileRedirectedOnlyIfCodingAccepted() {
+        service.redirectDownloads = true;
+        URI url = URI.create("https://s3.example.com/gen-1/a.json");
+        when(downloadUrlSigner.presignDownload("gen-1/a.json"))
+            .thenReturn(PresignedUrl.builder().url(url).size(4096).contentEncoding("gzip").build());
+
+        assertNull(service.getDownloadRedirect("gen-1/a.json", Set.of("br")));
+        assertEquals(url, service.getDownloadRedirect("gen-1/a.json", Set.of("gzip")));
+    }
+
+    @Test
+    void testRedirectDisabled() {
+        assertNull(service.getDownloadRedirect("gen-1/a.json", Set.of()));
+        verifyNoInteractions(downloadUrlSigner);
+    }
+
+    @Test
+    void testUploadForgetsPresignedUrl() {
+        service.redirectDownloads = true;
+
+        service.storeGenerationSboms("gen-1", List.of(file("a.json")));
+
+        verify(downloadUrlSigner).invalidate("gen-1/a.json");
+    }
+
+    private static ObjectContent gzipContent() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write("{}".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return ObjectContent.builder()
+                .content(new ByteArrayInputStream(bytes.toByteArray()))
+                .contentLength(bytes.size())
+                .objectSize(bytes.size())
+                .contentType(CONTENT_TYPE)
+                .contentEncoding("gzip")
+                .etag("\"abc\"")
+                .build();
+    }
+
+    private static IndexedObject indexed(String etag, Instant indexedAt) {
+        return IndexedObject.builder()
+                .key("gen-1/a.json")
+                .size(2)
+                .contentType(CONTENT_TYPE)
+                .etag(etag)
+                .digest(EMPTY_OBJECT_SHA256)
+                .indexedAt(indexedAt)
+                .build();
+    }
+
+    /**
+     * Answers an upload like the storage, with the metadata of the stored object.
+     */
+    private static ObjectMetadata uploaded(InvocationOnMock invocation) {
+        return ObjectMetadata.builder()
+                .key(invocation.getArgument(0))
+                .size(invocation.<Long>getArgument(2))
+                .contentType(invocation.getArgument(3))
+                .contentEncoding(invocation.getArgument(4))
+                .etag("\"abc\"")
+                .lastModified(Instant.now())
+                .sha256(invocation.getArgument(5))
+                .build();
+    }
+
+    private static StorageExecutor executor(boolean virtualThreads, int uploadConcurrency) {
+        StorageExecutor executor = new StorageExecutor();
+        executor.virtualThreads = virtualThreads;
+        if (virtualThreads) {
+            // stands in for the virtual thread executor, which has no bound either
+            executor.virtualThreadExecutor = Executors.newCachedThreadPool();
+        }
+        executor.uploadConcurrency = uploadConcurrency;
+        executor.archiveConcurrency = 1;
+        executor.init();
+        return executor;
+    }
+
+    private static ObjectMetadata blob(String key) {
+        return ObjectMetadata.builder()
+                .key(key)
+                .size(2)
+                .contentType(CONTENT_TYPE)
+                .etag("\"blob\"")
+                .sha256(EMPTY_OBJECT_SHA256)
+                .build();
+    }
+
+    private static Map<String, String> urls(List<StoredFile> stored) {
+        return stored.stream().collect(Collectors.toMap(StoredFile::getFilename, StoredFile::getUrl));
+    }
+
+    private static SbomFile reopenableFile(String filename) {
+        return SbomFile.builder()
+                .filename(filename)
+                .contentType(CONTENT_TYPE)
+                .size(2)
+                .source(() -> new ByteArrayInputStream("{}".getBytes()))
+                .build();
+    }
+
+    private static SbomFile file(String filename) {
+        return SbomFile.builder()
+                .filename(filename)
+                .contentType(CONTENT_TYPE)
+                .size(2)
+                .content(new ByteArrayInputStream("{}".getBytes()))
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package org.jboss.sbomer.manifest.storage.service.core.utility;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.jboss.sbomer.events.common.FailureSpec;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for FailureUtility.
+ */
+class FailureUtilityTest {
+
+    @Test
+    void testStackTraceCapped() {
+        RuntimeException cause = new IllegalStateException("storage down");
+        cause.setStackTrace(frames(500));
+        RuntimeException e = new RuntimeException("upload failed", cause);
+        e.setStackTrace(frames(3));
+
+        FailureSpec failure = FailureUtility.buildFailureSpecFromException(e);
+
+        String stackTrace = failure.getDetails().get("stackTrace");
+        assertEquals("upload failed", failure.getReason());
+        assertEquals("RuntimeException", failure.getErrorCode());
+        assertTrue(stackTrace.startsWith("java.lang.RuntimeException: upload failed\n\tat Service.method0("), stackTrace);
+        assertTrue(stackTrace.contains("Caused by: java.lang.IllegalStateException: storage down"));
+        assertTrue(stackTrace.contains("\t... " + (500 - FailureUtility.MAX_FRAMES) + " more"));
+        assertFalse(stackTrace.contains("method" + FailureUtility.MAX_FRAMES + "("));
+    }
+
+    @Test
+    void testCyclicCauseChainCapped() {
+        RuntimeException first = new RuntimeException("first");
+        RuntimeException second = new RuntimeException("second", first);
+        first.initCause(second);
+
+        String stackTrace = FailureUtility.stackTrace(first);
+
+        assertTrue(stackTrace.length() <= FailureUtility.MAX_STACK_TRACE_LENGTH + 20);
+        assertEquals(1, stackTrace.split("Caused by: ").length - 1);
+    }
+
+    private static StackTraceElement[] frames(int count) {
+        StackTraceElement[] frames = new StackTraceElement[count];
+        for (int i = 0; i < count; i++) {
+            frames[i] = new StackTraceElement("Service", "method" + i, "Service.java", i + 1);
+        }
+        return frames;
+    }
+}